@@ -5,24 +5,26 @@ import javafx.animation.PauseTransition;
 import javafx.animation.TranslateTransition;
 import javafx.animation.ParallelTransition;
 import javafx.application.Platform;
-import javafx.beans.property.SimpleBooleanProperty;
-import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.transformation.FilteredList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
-import javafx.geometry.Orientation;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxTableCell;
+import com.example.exceljson.util.JsonPreviewDocument;
+import com.example.exceljson.util.JsonPreviewPane;
+import com.example.exceljson.util.PinnedColumnsTableSkin;
 import com.example.exceljson.util.TextAreaTableCell;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.Region;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.Modality;
@@ -48,26 +50,20 @@ import javafx.geometry.Insets;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.prefs.Preferences;
-import javax.imageio.ImageIO;
-import net.sourceforge.plantuml.SourceStringReader;
-import net.sourceforge.plantuml.FileFormat;
-import net.sourceforge.plantuml.FileFormatOption;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDPageContentStream;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 
 public class AppController {
     // Sidebar node references for collapse/expand logic
@@ -120,6 +116,9 @@ public class AppController {
     @FXML private Button toolPanelLoadVoiceGroupBtn;
     @FXML private Button toolPanelLoadAssignmentRolesBtn;
     @FXML private Button toolPanelLoadBedListBtn;
+    @FXML private Label toolPanelValidationLabel;
+    @FXML private Button toolPanelNextIssueBtn;
+    @FXML private Button toolPanelExportIssuesBtn;
     @FXML private TextField toolPanelEdgeRefField;
     @FXML private TextField toolPanelVmpRefField;
     @FXML private Button toolPanelToggleBtn;
@@ -150,6 +149,7 @@ public class AppController {
     @FXML private CheckBox mergeByConfigGroupCheckbox;  // "Merge by Config Group" checkbox
     @FXML private CheckBox mergeAcrossConfigGroupCheckbox;  // "Merge Across Config Group" checkbox
     @FXML private CheckBox combineConfigGroupCheckbox;  // "Combine Config Group" toggle
+    @FXML private CheckBox recalculateFormulasCheckbox; // Evaluate every formula on load instead of using saved results
     @FXML private TextField edgeRefNameField;
     @FXML private TextField vcsRefNameField;
     @FXML private TextField voceraRefNameField;
@@ -168,7 +168,7 @@ public class AppController {
     @FXML private TextField roomFilterNursecallField;
     @FXML private TextField roomFilterClinicalField;
     @FXML private TextField roomFilterOrdersField;
-    @FXML private TextArea jsonPreview;
+    @FXML private JsonPreviewPane jsonPreview;
     @FXML private Label statusLabel;
     
     // ---------- Voice Group Validation ----------
@@ -179,9 +179,9 @@ public class AppController {
     private final Set<String> loadedVoiceGroups = new HashSet<>();
     private ContextMenu suggestionPopup;
     // Lightweight pattern for quick keyword detection (full parsing done by VoiceGroupValidator)
-    private static final Pattern VGROUP_KEYWORD_PATTERN = Pattern.compile("(?i)(?:VGroup|Group):");
+    private static final Pattern VGROUP_KEYWORD_PATTERN = ValidationEngine.VGROUP_KEYWORD;
     // Pattern for assignment role validation - supports both "VAssign:" and "VAssigned"
-    private static final Pattern VASSIGN_KEYWORD_PATTERN = Pattern.compile("(?i)VAssign(?:ed)?:?");
+    private static final Pattern VASSIGN_KEYWORD_PATTERN = ValidationEngine.VASSIGN_KEYWORD;
     
     // Constants for data validation
     private static final String TRAILING_ASTERISK_REGEX = "\\*+$";
@@ -250,8 +250,7 @@ public class AppController {
     @FXML private TableColumn<ExcelParserV5.UnitRow, String> unitCommentsCol;
 
     // ---------- Nurse Calls ----------
-    @FXML private TableView<ExcelParserV5.FlowRow> frozenNurseTable;
-    @FXML private TableColumn<ExcelParserV5.FlowRow, Boolean> frozenNurseInScopeCol;
+    @FXML private TableColumn<ExcelParserV5.FlowRow, Boolean> nurseInScopeCol;
     @FXML private TableView<ExcelParserV5.FlowRow> tableNurseCalls;
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> nurseConfigGroupCol;
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> nurseAlarmNameCol;
@@ -277,8 +276,7 @@ public class AppController {
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> nurseR5Col;
 
     // ---------- Clinicals ----------
-    @FXML private TableView<ExcelParserV5.FlowRow> frozenClinicalTable;
-    @FXML private TableColumn<ExcelParserV5.FlowRow, Boolean> frozenClinicalInScopeCol;
+    @FXML private TableColumn<ExcelParserV5.FlowRow, Boolean> clinicalInScopeCol;
     @FXML private TableView<ExcelParserV5.FlowRow> tableClinicals;
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> clinicalConfigGroupCol;
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> clinicalAlarmNameCol;
@@ -305,8 +303,7 @@ public class AppController {
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> clinicalR5Col;
 
     // ---------- Orders ----------
-    @FXML private TableView<ExcelParserV5.FlowRow> frozenOrdersTable;
-    @FXML private TableColumn<ExcelParserV5.FlowRow, Boolean> frozenOrdersInScopeCol;
+    @FXML private TableColumn<ExcelParserV5.FlowRow, Boolean> ordersInScopeCol;
     @FXML private TableView<ExcelParserV5.FlowRow> tableOrders;
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> ordersConfigGroupCol;
     @FXML private TableColumn<ExcelParserV5.FlowRow, String> ordersAlarmNameCol;
@@ -334,7 +331,28 @@ public class AppController {
     // ---------- Core ----------
     private ExcelParserV5 parser;
     private File currentExcelFile;
-    private String lastGeneratedJson = "";
+    private PhaseMetrics lastMetrics; // Phase timings of the most recent load/save, shown in the status bar
+    private final FlowBuildCache flowCache = new FlowBuildCache(); // Built flows reused across Generate/Export until rows change
+    private final RowProperties rowProperties = new RowProperties(); // Cell values cached per (row, column)
+    private InScopeModel nurseInScope;    // In Scope bits and counters per flow table, rebuilt by refreshTables
+    private InScopeModel clinicalInScope;
+    private InScopeModel ordersInScope;
+    private final ColumnOccupancy<ExcelParserV5.FlowRow> nurseOccupancy = new ColumnOccupancy<>(); // Non-empty cells per column
+    private final ColumnOccupancy<ExcelParserV5.FlowRow> clinicalOccupancy = new ColumnOccupancy<>();
+    private final ColumnOccupancy<ExcelParserV5.FlowRow> ordersOccupancy = new ColumnOccupancy<>();
+    private boolean emptyColumnsHidden; // "Hide empty columns" in effect, so edits update column visibility
+    private final FacetIndex nurseFacets = new FacetIndex(); // Distinct values per filterable column, with row bit sets
+    private final FacetIndex clinicalFacets = new FacetIndex();
+    private final FacetIndex ordersFacets = new FacetIndex();
+    private final Map<FacetIndex.Facet, ComboBox<String>> nurseFacetFilters = new EnumMap<>(FacetIndex.Facet.class);
+    private final Map<FacetIndex.Facet, ComboBox<String>> clinicalFacetFilters = new EnumMap<>(FacetIndex.Facet.class);
+    private final Map<FacetIndex.Facet, ComboBox<String>> ordersFacetFilters = new EnumMap<>(FacetIndex.Facet.class);
+    private boolean updatingFacetOptions; // Suppresses filtering while facet options are reloaded
+    private final ValidationEngine validation = new ValidationEngine(); // Issue index of the last validation run
+    private Task<ValidationEngine.Result> validationTask;
+    private boolean validationScheduled; // A run is queued for the next pulse (list replaced)
+    private boolean jsonPreviewGenerated = false;
+    private Task<JsonPreviewDocument> previewTask;
     private boolean lastGeneratedWasNurseSide = true; // Track last generated JSON type
     
     // User profile (IE or CI mode)
@@ -387,6 +405,7 @@ public class AppController {
     private static final String PREF_KEY_LOADED_TIMEOUT_MIN = "loadedTimeoutMin";
     private static final String PREF_KEY_LOADED_TIMEOUT_MAX = "loadedTimeoutMax";
     private static final String PREF_KEY_COMBINE_CONFIG_GROUP = "combineConfigGroup";
+    private static final String PREF_KEY_RECALCULATE_FORMULAS = "recalculateFormulas";
     
     private boolean isDarkMode = false;
     private boolean isSidebarCollapsed = false;
@@ -499,16 +518,17 @@ public class AppController {
                     Button iconExport = (Button) ((Parent) sidebar).lookup("#btnIconExport");
                     if (iconExport != null) attachHoverMenu(iconExport,
                         // Removed leading bullet characters
-                        new String[]{"Nursecall", "Clinicals", "Orders"},
+                        new String[]{"Nursecall", "Clinicals", "Orders", "All"},
                         new Runnable[]{() -> exportJson("NurseCalls"),
                                        () -> exportJson("Clinicals"),
-                                       () -> exportJson("Orders")});
+                                       () -> exportJson("Orders"),
+                                       this::exportAllJson});
 
                     Button iconTools = (Button) ((Parent) sidebar).lookup("#btnIconTools");
                     if (iconTools != null) attachHoverMenu(iconTools,
                         // Removed leading bullet characters
-                        new String[]{"Settings", "Visual Flow", "Reset Data"},
-                        new Runnable[]{this::toggleSettingsDrawer, this::generateVisualFlow, this::clearAllData});
+                        new String[]{"Settings", "Visual Flow", "Compare JSON", "Reset Data"},
+                        new Runnable[]{this::toggleSettingsDrawer, this::generateVisualFlow, this::compareJsonFiles, this::clearAllData});
                 }
                 
                 sidebarContainer.setCenter(sidebar);
@@ -607,12 +627,24 @@ public class AppController {
                         if (exportOrdersBtn.getGraphic() != null) exportOrdersBtn.getGraphic().setMouseTransparent(true);
                     }
                     
+                    Button exportAllBtn = (Button) sidebarContainer.lookup("#btnExportAll");
+                    if (exportAllBtn != null) {
+                        exportAllBtn.setOnAction(e -> { closeSettingsDrawerIfOpen(); exportAllJson(); markSidebarActive(exportAllBtn); });
+                        if (exportAllBtn.getGraphic() != null) exportAllBtn.getGraphic().setMouseTransparent(true);
+                    }
+                    
                     Button visualFlowBtn = (Button) sidebarContainer.lookup("#btnVisualFlow");
                     if (visualFlowBtn != null) {
                         visualFlowBtn.setOnAction(e -> { closeSettingsDrawerIfOpen(); generateVisualFlow(); markSidebarActive(visualFlowBtn); });
                         if (visualFlowBtn.getGraphic() != null) visualFlowBtn.getGraphic().setMouseTransparent(true);
                     }
                     
+                    Button compareJsonBtn = (Button) sidebarContainer.lookup("#btnCompareJson");
+                    if (compareJsonBtn != null) {
+                        compareJsonBtn.setOnAction(e -> { closeSettingsDrawerIfOpen(); compareJsonFiles(); markSidebarActive(compareJsonBtn); });
+                        if (compareJsonBtn.getGraphic() != null) compareJsonBtn.getGraphic().setMouseTransparent(true);
+                    }
+                    
                     Button resetDataBtn = (Button) sidebarContainer.lookup("#btnResetData");
                     if (resetDataBtn != null) {
                         resetDataBtn.setOnAction(e -> { closeSettingsDrawerIfOpen(); clearAllData(); markSidebarActive(resetDataBtn); });
@@ -808,6 +840,13 @@ public class AppController {
             combineConfigGroupCheckbox.setSelected(prefs.getBoolean(PREF_KEY_COMBINE_CONFIG_GROUP, false));
         }
         
+        // Formula recalculation is opt-in; it applies from the next Excel load
+        if (recalculateFormulasCheckbox != null) {
+            recalculateFormulasCheckbox.setSelected(prefs.getBoolean(PREF_KEY_RECALCULATE_FORMULAS, false));
+            recalculateFormulasCheckbox.selectedProperty().addListener((obs, oldV, newV) ->
+                Preferences.userNodeForPackage(AppController.class).putBoolean(PREF_KEY_RECALCULATE_FORMULAS, newV));
+        }
+        
         // --- Merge Flows checkbox mutual exclusion logic (three-way) ---
         if (noMergeCheckbox != null && mergeByConfigGroupCheckbox != null && mergeAcrossConfigGroupCheckbox != null) {
             // When noMergeCheckbox is selected, deselect the other two
@@ -1064,6 +1103,25 @@ public class AppController {
             toolPanelLoadBedListBtn.setOnAction(e -> loadBedList());
         }
         
+        if (toolPanelNextIssueBtn != null) {
+            toolPanelNextIssueBtn.setOnAction(e -> jumpToNextIssue());
+        }
+        
+        if (toolPanelExportIssuesBtn != null) {
+            toolPanelExportIssuesBtn.setOnAction(e -> exportValidationReport());
+        }
+        
+        // F8 jumps to the next validation issue in the table on screen
+        for (TableView<?> table : Arrays.asList(tableUnits, tableNurseCalls, tableClinicals, tableOrders)) {
+            if (table == null) continue;
+            table.addEventHandler(KeyEvent.KEY_PRESSED, e -> {
+                if (e.getCode() == KeyCode.F8) {
+                    jumpToNextIssue();
+                    e.consume();
+                }
+            });
+        }
+        
         // Setup tool panel toggle button
         if (toolPanelToggleBtn != null) {
             toolPanelToggleBtn.setOnAction(e -> toggleToolPanel());
@@ -1221,17 +1279,11 @@ public class AppController {
                 if (tableNurseCalls != null) {
                     tableNurseCalls.setFixedCellSize(newVal.doubleValue());
                 }
-                if (frozenNurseTable != null) {
-                    frozenNurseTable.setFixedCellSize(newVal.doubleValue());
-                }
             });
             // Set initial value
             if (tableNurseCalls != null) {
                 tableNurseCalls.setFixedCellSize(nurseCallsRowHeightSlider.getValue());
             }
-            if (frozenNurseTable != null) {
-                frozenNurseTable.setFixedCellSize(nurseCallsRowHeightSlider.getValue());
-            }
         }
         
         // Clinicals table row height
@@ -1241,17 +1293,11 @@ public class AppController {
                 if (tableClinicals != null) {
                     tableClinicals.setFixedCellSize(newVal.doubleValue());
                 }
-                if (frozenClinicalTable != null) {
-                    frozenClinicalTable.setFixedCellSize(newVal.doubleValue());
-                }
             });
             // Set initial value
             if (tableClinicals != null) {
                 tableClinicals.setFixedCellSize(clinicalsRowHeightSlider.getValue());
             }
-            if (frozenClinicalTable != null) {
-                frozenClinicalTable.setFixedCellSize(clinicalsRowHeightSlider.getValue());
-            }
         }
         
         // Orders table row height
@@ -1261,17 +1307,11 @@ public class AppController {
                 if (tableOrders != null) {
                     tableOrders.setFixedCellSize(newVal.doubleValue());
                 }
-                if (frozenOrdersTable != null) {
-                    frozenOrdersTable.setFixedCellSize(newVal.doubleValue());
-                }
             });
             // Set initial value
             if (tableOrders != null) {
                 tableOrders.setFixedCellSize(ordersRowHeightSlider.getValue());
             }
-            if (frozenOrdersTable != null) {
-                frozenOrdersTable.setFixedCellSize(ordersRowHeightSlider.getValue());
-            }
         }
     }
 
@@ -2167,11 +2207,31 @@ public class AppController {
             setButtonLoading(loadNdwButton, true);
             showProgressBar("📥 Loading Excel file...");
 
-            Task<Void> task = new Task<>() {
+            boolean recalculate = recalculateFormulasCheckbox != null && recalculateFormulasCheckbox.isSelected();
+            parser.setRecalculateFormulas(recalculate);
+            // Completes with true when the workbook was restored from a snapshot
+            Task<Boolean> task = new Task<>() {
                 @Override
-                protected Void call() throws Exception {
+                protected Boolean call() throws Exception {
+                    // Unchanged workbooks are restored from the binary session snapshot,
+                    // unless the user asked for every formula to be evaluated again. A
+                    // recalculated load is not stored either: snapshots hold saved results
+                    if (recalculate) {
+                        parser.load(file);
+                        return false;
+                    }
+                    File snapshotDir = SessionSnapshot.defaultDirectory();
+                    if (SessionSnapshot.tryRestore(parser, file, snapshotDir)) {
+                        return true;
+                    }
                     parser.load(file);
-                    return null;
+                    try {
+                        SessionSnapshot.store(parser, file, snapshotDir);
+                    } catch (IOException ex) {
+                        parser.getDiagnostics().warn("SNAPSHOT_WRITE_FAILED", null, -1, -1,
+                            "Could not write session snapshot: " + ex.getMessage());
+                    }
+                    return false;
                 }
             };
 
@@ -2179,6 +2239,8 @@ public class AppController {
                 try {
                     String loadSummary = parser.getLoadSummary();
                     currentExcelFile = file;
+                    lastMetrics = parser.getMetrics();
+                    flowCache.clear();
                     updateCurrentFileLabel();
                     jsonPreview.setText(loadSummary);
 
@@ -2212,6 +2274,9 @@ public class AppController {
 
                     // Build success message
                     StringBuilder successMsg = new StringBuilder("✅ Excel loaded successfully");
+                    if (Boolean.TRUE.equals(task.getValue())) {
+                        successMsg.append(" (restored from session snapshot)");
+                    }
 
                     int nurseFlows = parser.nurseCalls.size();
                     int clinicalFlows = parser.clinicals.size();
@@ -2334,6 +2399,8 @@ public class AppController {
                         String loadSummary = xmlParser.getLoadSummary();
 
                         currentExcelFile = file;
+                        lastMetrics = xmlParser.getMetrics();
+                        flowCache.clear();
                         updateCurrentFileLabel();
                         jsonPreview.setText(loadSummary);
 
@@ -2416,6 +2483,75 @@ public class AppController {
         }
     }
 
+    // ---------- Convert XML directly to NDW ----------
+    /**
+     * Converts an Engage XML file straight into an NDW-layout workbook on a background thread,
+     * without loading it into the tables. Rows stream from the XML parser into the workbook.
+     */
+    private void convertXmlToNdw() {
+        try {
+            FileChooser chooser = new FileChooser();
+            chooser.setTitle("Select Engage XML File");
+            chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("XML Files", "*.xml")
+            );
+            if (lastExcelDir != null && lastExcelDir.exists()) {
+                chooser.setInitialDirectory(lastExcelDir);
+            }
+            File xmlFile = chooser.showOpenDialog(getStage());
+            if (xmlFile == null) return;
+            rememberDirectory(xmlFile, true);
+
+            String baseName = xmlFile.getName();
+            if (baseName.toLowerCase().endsWith(".xml")) baseName = baseName.substring(0, baseName.length() - 4);
+
+            FileChooser saveChooser = new FileChooser();
+            saveChooser.setTitle("Save NDW Excel");
+            saveChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Excel Files", "*.xlsx"));
+            saveChooser.setInitialFileName(baseName + "_NDW.xlsx");
+            saveChooser.setInitialDirectory(xmlFile.getAbsoluteFile().getParentFile());
+            File out = saveChooser.showSaveDialog(getStage());
+            if (out == null) return;
+            rememberDirectory(out, true);
+
+            showProgressBar("🔄 Converting XML to NDW...");
+
+            Task<XmlToNdwConverter.Result> task = new Task<>() {
+                @Override
+                protected XmlToNdwConverter.Result call() throws Exception {
+                    return XmlToNdwConverter.convert(xmlFile, out);
+                }
+                @Override
+                protected void succeeded() {
+                    XmlToNdwConverter.Result result = getValue();
+                    hideProgressBar();
+                    lastMetrics = result.metrics();
+                    if (statusLabel != null) {
+                        statusLabel.setText("✅ XML converted to NDW | " + lastMetrics.toStatusText());
+                        statusLabel.setTooltip(new Tooltip(lastMetrics.toTable()));
+                    }
+                    showInfo("✅ XML converted to NDW:\n" + out.getAbsolutePath() + "\n\n" +
+                        "Units: " + result.units() + "\n" +
+                        "Nurse Calls: " + result.nurseCalls() + ", Clinicals: " + result.clinicals() +
+                        ", Orders: " + result.orders());
+                }
+                @Override
+                protected void failed() {
+                    hideProgressBar();
+                    Throwable ex = getException();
+                    showError("Failed to convert XML: " + (ex != null ? ex.getMessage() : "Unknown error"));
+                }
+            };
+
+            Thread th = new Thread(task);
+            th.setDaemon(true);
+            th.start();
+        } catch (Exception ex) {
+            hideProgressBar();
+            showError("Failed to convert XML: " + ex.getMessage());
+        }
+    }
+
     // ---------- Load JSON ----------
     private void loadJson() {
         try {
@@ -2450,6 +2586,8 @@ public class AppController {
             task.setOnSucceeded(ev -> {
                 try {
                     currentExcelFile = null; // Clear current Excel file reference
+                    lastMetrics = parser.getMetrics();
+                    flowCache.clear();
                     updateCurrentFileLabel(); // Update file label
 
                     StringBuilder loadSummary = new StringBuilder();
@@ -2632,11 +2770,12 @@ public class AppController {
             
             // Update the existing file (preserving formatting)
             parser.updateExcel(currentExcelFile);
+            lastMetrics = parser.getMetrics();
             
             // Hide progress and show success
             hideProgressBar();
             if (statusLabel != null) {
-                statusLabel.setText("✅ NDW saved successfully");
+                statusLabel.setText("✅ NDW saved successfully | " + lastMetrics.toStatusText());
             }
             showInfo("💾 NDW file updated successfully:\n" + currentExcelFile.getAbsolutePath());
         } catch (Exception ex) {
@@ -2661,22 +2800,21 @@ public class AppController {
             // Create a temporary parser with only filtered data
             ExcelParserV5 filteredParser = createFilteredParser();
 
-            String json = switch (flowType) {
-                case "NurseCalls" -> ExcelParserV5.pretty(filteredParser.buildNurseCallsJson(mergeMode));
-                case "Clinicals" -> ExcelParserV5.pretty(filteredParser.buildClinicalsJson(mergeMode));
-                case "Orders" -> ExcelParserV5.pretty(filteredParser.buildOrdersJson(mergeMode));
-                default -> "";
-            };
-
-            jsonPreview.setText(json);
             String displayName = switch (flowType) {
                 case "NurseCalls" -> "NurseCall";
                 case "Clinicals" -> "Clinical";
                 case "Orders" -> "Orders";
                 default -> flowType;
             };
-            statusLabel.setText("Generated " + displayName + " JSON");
-            lastGeneratedJson = json;
+            showJsonPreview("Generated " + displayName + " JSON", out -> {
+                Map<String, Object> json = switch (flowType) {
+                    case "NurseCalls" -> filteredParser.buildNurseCallsJson(mergeMode);
+                    case "Clinicals" -> filteredParser.buildClinicalsJson(mergeMode);
+                    case "Orders" -> filteredParser.buildOrdersJson(mergeMode);
+                    default -> null;
+                };
+                if (json != null) ExcelParserV5.writePretty(json, out);
+            });
             lastGeneratedWasNurseSide = "NurseCalls".equals(flowType); // Track the last generated type
         } catch (Exception ex) {
             showError("Error generating JSON: " + ex.getMessage());
@@ -2699,51 +2837,67 @@ public class AppController {
             // Create a temporary parser with only filtered data
             ExcelParserV5 filteredParser = createFilteredParser();
 
-            // Build JSON for all three types
-            StringBuilder combinedJson = new StringBuilder();
-            
-            // Add NurseCalls JSON
-            try {
-                String nurseJson = ExcelParserV5.pretty(filteredParser.buildNurseCallsJson(mergeMode));
-                combinedJson.append("=== NurseCalls JSON ===\n\n");
-                combinedJson.append(nurseJson);
-                combinedJson.append("\n\n");
-            } catch (Exception ex) {
-                combinedJson.append("=== NurseCalls JSON ===\n\n");
-                combinedJson.append("Error generating NurseCalls JSON: ").append(ex.getMessage());
-                combinedJson.append("\n\n");
-            }
-            
-            // Add Clinicals JSON
-            try {
-                String clinicalJson = ExcelParserV5.pretty(filteredParser.buildClinicalsJson(mergeMode));
-                combinedJson.append("=== Clinicals JSON ===\n\n");
-                combinedJson.append(clinicalJson);
-                combinedJson.append("\n\n");
-            } catch (Exception ex) {
-                combinedJson.append("=== Clinicals JSON ===\n\n");
-                combinedJson.append("Error generating Clinicals JSON: ").append(ex.getMessage());
-                combinedJson.append("\n\n");
-            }
-            
-            // Add Orders JSON
-            try {
-                String ordersJson = ExcelParserV5.pretty(filteredParser.buildOrdersJson(mergeMode));
-                combinedJson.append("=== Orders JSON ===\n\n");
-                combinedJson.append(ordersJson);
-            } catch (Exception ex) {
-                combinedJson.append("=== Orders JSON ===\n\n");
-                combinedJson.append("Error generating Orders JSON: ").append(ex.getMessage());
-            }
-
-            jsonPreview.setText(combinedJson.toString());
-            lastGeneratedJson = combinedJson.toString();
-            statusLabel.setText("Generated combined JSON for all selected rows");
+            showJsonPreview("Generated combined JSON for all selected rows", out -> {
+                // Build JSON for all three types in parallel against a snapshot of the filtered rows
+                Map<String, CompletableFuture<Map<String, Object>>> builds = filteredParser.buildAllJsonAsync(mergeMode);
+                int section = 0;
+                for (Map.Entry<String, CompletableFuture<Map<String, Object>>> build : builds.entrySet()) {
+                    String flowType = build.getKey();
+                    out.write("=== " + flowType + " JSON ===\n\n");
+                    try {
+                        ExcelParserV5.writePretty(build.getValue().join(), out);
+                    } catch (CompletionException ex) {
+                        out.write("Error generating " + flowType + " JSON: " + ex.getCause().getMessage());
+                    }
+                    if (++section < builds.size()) out.write("\n\n");
+                }
+            });
         } catch (Exception ex) {
             showError("Error generating combined JSON: " + ex.getMessage());
         }
     }
 
+    /**
+     * Builds the preview text on a background task, straight into a temp-file backed
+     * document, and shows it in the virtualised preview when done. A newer preview
+     * request cancels one that is still running.
+     */
+    private void showJsonPreview(String doneStatus, JsonPreviewDocument.Content content) {
+        if (previewTask != null) previewTask.cancel();
+        Task<JsonPreviewDocument> task = new Task<>() {
+            @Override
+            protected JsonPreviewDocument call() throws Exception {
+                return JsonPreviewDocument.create(content);
+            }
+        };
+        previewTask = task;
+        showProgressBar("⏳ Generating JSON preview...");
+        task.setOnSucceeded(ev -> {
+            if (previewTask != task) {
+                task.getValue().close();
+                return;
+            }
+            previewTask = null;
+            hideProgressBar();
+            jsonPreview.setDocument(task.getValue());
+            jsonPreviewGenerated = true;
+            if (statusLabel != null) statusLabel.setText(doneStatus);
+        });
+        task.setOnFailed(ev -> {
+            if (previewTask != task) return;
+            previewTask = null;
+            hideProgressBar();
+            Throwable ex = task.getException();
+            showError("Error generating JSON: " + (ex != null ? ex.getMessage() : "Unknown error"));
+        });
+        task.setOnCancelled(ev -> {
+            if (task.getValue() != null) task.getValue().close();
+        });
+        Thread th = new Thread(task, "json-preview");
+        th.setDaemon(true);
+        th.start();
+    }
+
     // ---------- Export JSON ----------
     private void exportJson(String flowType) {
         try {
@@ -2793,20 +2947,15 @@ public class AppController {
                 default -> "JSON";
             };
             
-            // Show export status dialog
-            showExportStatusDialog(displayName, file, mergeMode, () -> {
-                try {
-                    // Create a temporary parser with only filtered data
-                    ExcelParserV5 filteredParser = createFilteredParser();
+            // Snapshot the filtered data on the FX thread so edits during the export cannot race it
+            ExcelParserV5 snapshot = createFilteredParser();
 
-                    switch (flowType) {
-                        case "NurseCalls" -> filteredParser.writeNurseCallsJson(file, mergeMode);
-                        case "Clinicals" -> filteredParser.writeClinicalsJson(file, mergeMode);
-                        case "Orders" -> filteredParser.writeOrdersJson(file, mergeMode);
-                    }
-                    return true;
-                } catch (Exception ex) {
-                    throw new RuntimeException(ex);
+            // Show export status dialog
+            showExportStatusDialog(displayName, file, mergeMode, progress -> {
+                switch (flowType) {
+                    case "NurseCalls" -> snapshot.writeNurseCallsJson(file, mergeMode);
+                    case "Clinicals" -> snapshot.writeClinicalsJson(file, mergeMode);
+                    case "Orders" -> snapshot.writeOrdersJson(file, mergeMode);
                 }
             });
 
@@ -2816,10 +2965,57 @@ public class AppController {
         }
     }
     
+    // ---------- Export All JSON ----------
+    private void exportAllJson() {
+        try {
+            if (parser == null) {
+                showError("Please load an Excel file first.");
+                return;
+            }
+
+            syncEditsToParser();
+            applyInterfaceReferences(); // Apply interface references
+
+            ExcelParserV5.MergeMode mergeMode = getCurrentMergeMode();
+
+            DirectoryChooser chooser = new DirectoryChooser();
+            chooser.setTitle("Export All JSON");
+            if (lastJsonDir != null && lastJsonDir.exists()) {
+                chooser.setInitialDirectory(lastJsonDir);
+            }
+
+            File dir = chooser.showDialog(getStage());
+            if (dir == null) return;
+
+            File nurseFile = new File(dir, "NurseCalls.json");
+            File clinicalFile = new File(dir, "Clinicals.json");
+            File ordersFile = new File(dir, "Orders.json");
+            rememberDirectory(nurseFile, false);
+
+            // Snapshot the filtered data on the FX thread; the three files are then built and written in parallel
+            ExcelParserV5 snapshot = createFilteredParser();
+
+            showExportStatusDialog("All", dir, mergeMode, progress ->
+                snapshot.writeAllJson(nurseFile, clinicalFile, ordersFile, mergeMode,
+                    (flowType, file, completed, total) ->
+                        progress.accept((double) completed / total, "Wrote " + file.getName() + " (" + completed + "/" + total + ")")));
+
+        } catch (Exception ex) {
+            hideProgressBar();
+            showError("Error exporting JSON: " + ex.getMessage());
+        }
+    }
+
+    /** Export work run by {@link #showExportStatusDialog}; reports (fraction done, message) pairs. */
+    @FunctionalInterface
+    private interface ExportWork {
+        void run(BiConsumer<Double, String> progress) throws Exception;
+    }
+
     /**
      * Shows export status dialog with progress indication
      */
-    private void showExportStatusDialog(String flowType, File destination, ExcelParserV5.MergeMode mergeMode, java.util.concurrent.Callable<Boolean> exportTask) {
+    private void showExportStatusDialog(String flowType, File destination, ExcelParserV5.MergeMode mergeMode, ExportWork exportWork) {
         // Create a modal stage for the export status
         javafx.stage.Stage dialog = new javafx.stage.Stage();
         dialog.initOwner(getStage());
@@ -2861,14 +3057,20 @@ public class AppController {
             @Override
             protected Boolean call() throws Exception {
                 updateMessage("Generating JSON...");
-                return exportTask.call();
+                exportWork.run((fraction, message) -> {
+                    updateProgress(fraction, 1.0);
+                    updateMessage(message);
+                });
+                return true;
             }
         };
         
         statusLabel.textProperty().bind(task.messageProperty());
+        progressBar.progressProperty().bind(task.progressProperty());
         
         task.setOnSucceeded(e -> {
             statusLabel.textProperty().unbind();
+            progressBar.progressProperty().unbind();
             statusLabel.setText("✅ Export completed successfully!");
             statusLabel.setStyle("-fx-font-size: 12; -fx-text-fill: green; -fx-font-weight: bold;");
             progressBar.setProgress(1.0);
@@ -2885,6 +3087,7 @@ public class AppController {
         
         task.setOnFailed(e -> {
             statusLabel.textProperty().unbind();
+            progressBar.progressProperty().unbind();
             statusLabel.setText("❌ Export failed!");
             statusLabel.setStyle("-fx-font-size: 12; -fx-text-fill: red; -fx-font-weight: bold;");
             progressBar.setProgress(0);
@@ -2909,9 +3112,16 @@ public class AppController {
     }
 
     // ---------- Helpers ----------
-    // Create a parser with only the filtered data
+    // Create a copy-on-write view of the parser with only the filtered rows
     private ExcelParserV5 createFilteredParser() {
-        ExcelParserV5 filteredParser = new ExcelParserV5();
+        syncEditsToParser(); // view masks index into the parser lists, which mirror the full lists
+        ExcelParserV5 filteredParser = parser.snapshotView(
+            filterMask(unitsFilteredList),
+            filterMask(nurseCallsFilteredList),
+            filterMask(clinicalsFilteredList),
+            filterMask(ordersFilteredList)
+        );
+        filteredParser.setFlowCache(flowCache);
         
         // Copy interface references
         filteredParser.setInterfaceReferences(
@@ -2935,30 +3145,28 @@ public class AppController {
             roomFilterOrdersField != null ? roomFilterOrdersField.getText().trim() : ""
         );
         
-        // Add filtered units
-        if (unitsFilteredList != null) {
-            filteredParser.units.addAll(unitsFilteredList);
-            filteredParser.rebuildUnitMaps();
-        }
-        
-        // Add filtered nurse calls
-        if (nurseCallsFilteredList != null) {
-            filteredParser.nurseCalls.addAll(nurseCallsFilteredList);
-        }
-        
-        // Add filtered clinicals
-        if (clinicalsFilteredList != null) {
-            filteredParser.clinicals.addAll(clinicalsFilteredList);
-        }
-        
-        // Add filtered orders
-        if (ordersFilteredList != null) {
-            filteredParser.orders.addAll(ordersFilteredList);
-        }
-        
         return filteredParser;
     }
 
+    /**
+     * Rows of the full list that pass the table filter, or null when the filter shows
+     * every row. A missing list selects nothing.
+     */
+    private static BitSet filterMask(FilteredList<?> filtered) {
+        if (filtered == null) return new BitSet();
+        if (filtered.size() == filtered.getSource().size()) return null;
+        BitSet mask = new BitSet(filtered.getSource().size());
+        for (int i = 0; i < filtered.size(); i++) {
+            mask.set(filtered.getSourceIndex(i));
+        }
+        return mask;
+    }
+
+    /** Lets open export/preview views keep the unedited row; call before modifying it. */
+    private void beforeEdit(Object row) {
+        if (parser != null) parser.beforeRowEdit(row);
+    }
+
     private void setJsonButtonsEnabled(boolean enabled) {
         // In CI mode, JSON buttons should always stay disabled
         if (userProfile == UserProfile.CI) {
@@ -2988,7 +3196,7 @@ public class AppController {
         if (unitsFullList != null) {
             parser.units.clear();
             parser.units.addAll(unitsFullList);
-            parser.rebuildUnitMaps();
+            parser.syncUnitMaps();
         }
         if (nurseCallsFullList != null) {
             parser.nurseCalls.clear();
@@ -3029,6 +3237,7 @@ public class AppController {
      * This is used to mark cells for formatting when saving to NDW.
      */
     private <R> void trackFieldChange(R row, String fieldName, String oldValue, String newValue) {
+        revalidate(row);
         if (row instanceof ExcelParserV5.UnitRow unitRow) {
             // Get original value, defaulting to empty string if not found
             // This handles fields that weren't in the original Excel (e.g., dynamically added columns)
@@ -3041,7 +3250,20 @@ public class AppController {
                 // Value was changed back to original, remove from changed fields
                 unitRow.changedFields.remove(fieldName);
             }
+            
+            // Patch only the config groups this unit belongs to
+            if (parser != null) {
+                parser.unitChanged(unitRow);
+            }
         } else if (row instanceof ExcelParserV5.FlowRow flowRow) {
+            // Invalidate any cached JSON flow built from this row
+            flowRow.version++;
+            
+            // Move the row to its new filter values (only the table holding it has it indexed)
+            nurseFacets.update(flowRow);
+            clinicalFacets.update(flowRow);
+            ordersFacets.update(flowRow);
+            
             // Get original value, defaulting to empty string if not found
             // This handles fields that weren't in the original Excel (e.g., dynamically added columns)
             String originalValue = flowRow.originalValues.getOrDefault(fieldName, "");
@@ -3177,10 +3399,10 @@ public class AppController {
 
     private void initializeNurseColumns() {
         if (tableNurseCalls != null) tableNurseCalls.setEditable(true);
-        if (frozenNurseTable != null) frozenNurseTable.setEditable(true);
         
-        // Setup the frozen In Scope column with counter update callback
-        setupCheckBox(frozenNurseInScopeCol, f -> f.inScope, (f, v) -> f.inScope = v, this::updateNurseInScopeCounter);
+        // Setup the pinned In Scope column; its model updates the counter
+        setupCheckBox(nurseInScopeCol, f -> f.inScope, (f, v) -> nurseInScope.set(f, v));
+        setupHeaderCheckBox(nurseInScopeCol, () -> nurseInScope);
         
         setupEditable(nurseConfigGroupCol, f -> f.configGroup, (f, v) -> f.configGroup = v);
         setupEditable(nurseAlarmNameCol, f -> f.alarmName, (f, v) -> f.alarmName = v);
@@ -3205,16 +3427,16 @@ public class AppController {
         setupEditable(nurseT5Col, f -> f.t5, (f, v) -> f.t5 = v);
         setupOtherRecipientColumn(nurseR5Col, f -> f.r5, (f, v) -> f.r5 = v);
         
-        // Synchronize frozen and main tables
-        synchronizeFrozenTable(frozenNurseTable, tableNurseCalls);
+        // Keep the In Scope column pinned at the left while the table scrolls
+        if (tableNurseCalls != null) PinnedColumnsTableSkin.install(tableNurseCalls, 1);
     }
 
     private void initializeClinicalColumns() {
         if (tableClinicals != null) tableClinicals.setEditable(true);
-        if (frozenClinicalTable != null) frozenClinicalTable.setEditable(true);
         
-        // Setup the frozen In Scope column with counter update callback
-        setupCheckBox(frozenClinicalInScopeCol, f -> f.inScope, (f, v) -> f.inScope = v, this::updateClinicalInScopeCounter);
+        // Setup the pinned In Scope column; its model updates the counter
+        setupCheckBox(clinicalInScopeCol, f -> f.inScope, (f, v) -> clinicalInScope.set(f, v));
+        setupHeaderCheckBox(clinicalInScopeCol, () -> clinicalInScope);
         
         setupEditable(clinicalConfigGroupCol, f -> f.configGroup, (f, v) -> f.configGroup = v);
         setupEditable(clinicalAlarmNameCol, f -> f.alarmName, (f, v) -> f.alarmName = v);
@@ -3240,16 +3462,16 @@ public class AppController {
         setupEditable(clinicalT5Col, f -> f.t5, (f, v) -> f.t5 = v);
         setupOtherRecipientColumn(clinicalR5Col, f -> f.r5, (f, v) -> f.r5 = v);
         
-        // Synchronize frozen and main tables
-        synchronizeFrozenTable(frozenClinicalTable, tableClinicals);
+        // Keep the In Scope column pinned at the left while the table scrolls
+        if (tableClinicals != null) PinnedColumnsTableSkin.install(tableClinicals, 1);
     }
 
     private void initializeOrdersColumns() {
         if (tableOrders != null) tableOrders.setEditable(true);
-        if (frozenOrdersTable != null) frozenOrdersTable.setEditable(true);
         
-        // Setup the frozen In Scope column with counter update callback
-        setupCheckBox(frozenOrdersInScopeCol, f -> f.inScope, (f, v) -> f.inScope = v, this::updateOrdersInScopeCounter);
+        // Setup the pinned In Scope column; its model updates the counter
+        setupCheckBox(ordersInScopeCol, f -> f.inScope, (f, v) -> ordersInScope.set(f, v));
+        setupHeaderCheckBox(ordersInScopeCol, () -> ordersInScope);
         
         setupEditable(ordersConfigGroupCol, f -> f.configGroup, (f, v) -> f.configGroup = v);
         setupEditable(ordersAlarmNameCol, f -> f.alarmName, (f, v) -> f.alarmName = v);
@@ -3274,24 +3496,27 @@ public class AppController {
         setupEditable(ordersT5Col, f -> f.t5, (f, v) -> f.t5 = v);
         setupOtherRecipientColumn(ordersR5Col, f -> f.r5, (f, v) -> f.r5 = v);
         
-        // Synchronize frozen and main tables
-        synchronizeFrozenTable(frozenOrdersTable, tableOrders);
+        // Keep the In Scope column pinned at the left while the table scrolls
+        if (tableOrders != null) PinnedColumnsTableSkin.install(tableOrders, 1);
     }
 
     private <R> void setupEditable(TableColumn<R, String> col, Function<R, String> getter, BiConsumer<R, String> setter) {
         if (col == null) return;
-        col.setCellValueFactory(d -> new SimpleStringProperty(safe(getter.apply(d.getValue()))));
+        col.setCellValueFactory(d -> rowProperties.string(d.getValue(), col, getter));
         col.setCellFactory(TextAreaTableCell.forTableColumn());
+        trackOccupancy(col, getter);
         col.setOnEditCommit(ev -> {
             R row = ev.getRowValue();
             String oldValue = getter.apply(row);
             String newValue = ev.getNewValue();
+            beforeEdit(row);
             setter.accept(row, newValue);
             
             // Track changes for UnitRow and FlowRow
             trackFieldChange(row, getFieldName(col), oldValue, newValue);
+            updateOccupancy(col, oldValue, newValue);
             
-            if (col.getTableView() != null) col.getTableView().refresh();
+            rowProperties.invalidate(row);
         });
     }
 
@@ -3331,19 +3556,20 @@ public class AppController {
                                    Function<ExcelParserV5.UnitRow, String> getter,
                                    BiConsumer<ExcelParserV5.UnitRow, String> setter) {
         if (col == null) return;
-        col.setCellValueFactory(d -> new SimpleStringProperty(safe(getter.apply(d.getValue()))));
+        col.setCellValueFactory(d -> rowProperties.string(d.getValue(), col, getter));
         col.setCellFactory(TextAreaTableCell.forTableColumn());
         col.setOnEditCommit(ev -> {
             ExcelParserV5.UnitRow row = ev.getRowValue();
             String oldValue = getter.apply(row);
             String newVal = ev.getNewValue();
             newVal = commaToNewlines(newVal);
+            beforeEdit(row);
             setter.accept(row, newVal);
             
             // Track changes for UnitRow
             trackFieldChange(row, getFieldName(col), oldValue, newVal);
             
-            if (col.getTableView() != null) col.getTableView().refresh();
+            rowProperties.invalidate(row);
         });
     }
 
@@ -3356,7 +3582,7 @@ public class AppController {
                                    Function<ExcelParserV5.UnitRow, String> getter,
                                    BiConsumer<ExcelParserV5.UnitRow, String> setter) {
         if (col == null) return;
-        col.setCellValueFactory(d -> new SimpleStringProperty(safe(getter.apply(d.getValue()))));
+        col.setCellValueFactory(d -> rowProperties.string(d.getValue(), col, getter));
         
         col.setCellFactory(column -> new TableCell<ExcelParserV5.UnitRow, String>() {
             private TextArea textArea;
@@ -3478,12 +3704,13 @@ public class AppController {
                 if (row != null) {
                     String oldValue = getter.apply(row);
                     String converted = commaToNewlines(newValue);
+                    beforeEdit(row);
                     setter.accept(row, converted);
                     
                     // Track changes for Save to NDW
                     trackFieldChange(row, getFieldName(col), oldValue, converted);
                     
-                    if (getTableView() != null) getTableView().refresh();
+                    rowProperties.invalidate(row);
                 }
             }
         });
@@ -3500,7 +3727,7 @@ public class AppController {
                                    Function<ExcelParserV5.UnitRow, String> getter,
                                    BiConsumer<ExcelParserV5.UnitRow, String> setter) {
         if (col == null) return;
-        col.setCellValueFactory(d -> new SimpleStringProperty(safe(getter.apply(d.getValue()))));
+        col.setCellValueFactory(d -> rowProperties.string(d.getValue(), col, getter));
         
         col.setCellFactory(column -> new TableCell<ExcelParserV5.UnitRow, String>() {
             private TextArea textArea;
@@ -3625,8 +3852,10 @@ public class AppController {
                 ExcelParserV5.UnitRow row = getTableRow().getItem();
                 if (row != null) {
                     String converted = commaToNewlines(newValue);
+                    beforeEdit(row);
                     setter.accept(row, converted);
-                    if (getTableView() != null) getTableView().refresh();
+                    revalidate(row);
+                    rowProperties.invalidate(row);
                 }
             }
         });
@@ -3656,19 +3885,15 @@ public class AppController {
      */
     private <R> void setupCheckBox(TableColumn<R, Boolean> col, Function<R, Boolean> getter, BiConsumer<R, Boolean> setter, Runnable onChangeCallback) {
         if (col == null) return;
-        col.setCellValueFactory(d -> {
-            R row = d.getValue();
-            SimpleBooleanProperty prop = new SimpleBooleanProperty(getter.apply(row));
-            prop.addListener((obs, oldVal, newVal) -> {
-                setter.accept(row, newVal);
-                if (col.getTableView() != null) col.getTableView().refresh();
-                // Call the callback to update the counter
-                if (onChangeCallback != null) {
-                    onChangeCallback.run();
-                }
-            });
-            return prop;
-        });
+        col.setCellValueFactory(d -> rowProperties.bool(d.getValue(), col, getter, (row, newVal) -> {
+            beforeEdit(row);
+            setter.accept(row, newVal);
+            rowProperties.invalidate(row);
+            // Call the callback to update the counter
+            if (onChangeCallback != null) {
+                onChangeCallback.run();
+            }
+        }));
         col.setCellFactory(CheckBoxTableCell.forTableColumn(col));
         col.setEditable(true);
     }
@@ -3681,7 +3906,7 @@ public class AppController {
      */
     private void setupDeviceAColumn(TableColumn<ExcelParserV5.FlowRow, String> col) {
         setupValidatedColumn(col, f -> f.deviceA, (f, v) -> f.deviceA = v, false, 
-            item -> parser != null && parser.hasValidRecipientKeyword(item));
+            ExcelParserV5::hasValidRecipientKeyword);
     }
     
     /**
@@ -3692,7 +3917,7 @@ public class AppController {
      */
     private void setupDeviceBColumn(TableColumn<ExcelParserV5.FlowRow, String> col) {
         setupValidatedColumn(col, f -> f.deviceB, (f, v) -> f.deviceB = v, false, 
-            item -> parser != null && parser.hasValidRecipientKeyword(item));
+            ExcelParserV5::hasValidRecipientKeyword);
     }
     
     /**
@@ -3703,7 +3928,7 @@ public class AppController {
      */
     private void setupResponseOptionsColumn(TableColumn<ExcelParserV5.FlowRow, String> col) {
         setupValidatedColumn(col, f -> f.responseOptions, (f, v) -> f.responseOptions = v, false, 
-            item -> parser != null && parser.isValidResponseOptions(item));
+            ExcelParserV5::isValidResponseOptions);
     }
     
     /**
@@ -3718,7 +3943,7 @@ public class AppController {
                                            Function<ExcelParserV5.FlowRow, String> getter, 
                                            BiConsumer<ExcelParserV5.FlowRow, String> setter) {
         setupValidatedColumn(col, getter, setter, true, 
-            item -> parser != null && parser.isValidFirstRecipient(item));
+            ExcelParserV5::isValidFirstRecipient);
     }
     
     /**
@@ -3733,7 +3958,7 @@ public class AppController {
                                            Function<ExcelParserV5.FlowRow, String> getter, 
                                            BiConsumer<ExcelParserV5.FlowRow, String> setter) {
         setupValidatedColumn(col, getter, setter, true, 
-            item -> parser != null && parser.isValidOtherRecipient(item));
+            ExcelParserV5::isValidOtherRecipient);
     }
     
     // ---------- Dynamic Custom Unit Columns ----------
@@ -3753,11 +3978,8 @@ public class AppController {
         newColumn.setPrefWidth(160.0);
         
         // Set up cell value factory to read/write from customGroups map
-        newColumn.setCellValueFactory(d -> {
-            ExcelParserV5.UnitRow row = d.getValue();
-            String value = row.customGroups.getOrDefault(customTabName, "");
-            return new SimpleStringProperty(value);
-        });
+        newColumn.setCellValueFactory(d -> rowProperties.string(d.getValue(), newColumn,
+            row -> row.customGroups.getOrDefault(customTabName, "")));
         
         // Make the column editable
         newColumn.setCellFactory(TextAreaTableCell.forTableColumn());
@@ -3765,16 +3987,13 @@ public class AppController {
             ExcelParserV5.UnitRow row = ev.getRowValue();
             String oldValue = row.customGroups.get(customTabName);
             String newValue = ev.getNewValue();
+            beforeEdit(row);
             row.customGroups.put(customTabName, newValue);
             
             // Track changes for custom group columns
             String fieldName = "customGroup_" + customTabName;
             trackFieldChange(row, fieldName, oldValue, newValue);
-            
-            if (parser != null) {
-                parser.rebuildUnitMaps();
-            }
-            tableUnits.refresh();
+            rowProperties.invalidate(row);
         });
         
         // Find the index of the "No Caregiver Group" column
@@ -3803,68 +4022,60 @@ public class AppController {
         // Also remove the custom group data from all unit rows
         if (parser != null) {
             for (ExcelParserV5.UnitRow unitRow : parser.units) {
+                beforeEdit(unitRow);
                 unitRow.customGroups.remove(customTabName);
             }
-            parser.rebuildUnitMaps();
+            parser.syncUnitMaps();
         }
     }
 
     // ---------- Setup header checkbox for "In Scope" columns ----------
-    private void setupHeaderCheckBox(TableColumn<ExcelParserV5.FlowRow, Boolean> col, FilteredList<ExcelParserV5.FlowRow> filteredList, Runnable counterUpdateCallback) {
+
+    /**
+     * Wires the "In Scope" header of {@code col} once: the check box checks or unchecks every
+     * visible row, and the column menu adds check all / uncheck all / invert. {@code model}
+     * supplies the current table's model, which is replaced on every load.
+     */
+    private void setupHeaderCheckBox(TableColumn<ExcelParserV5.FlowRow, Boolean> col, Supplier<InScopeModel> model) {
         if (col == null) return;
         
         CheckBox headerCheckBox = new CheckBox();
         headerCheckBox.setSelected(true); // Default to checked
         
         // When header checkbox is clicked, update all visible rows
-        headerCheckBox.selectedProperty().addListener((obs, oldVal, newVal) -> {
-            if (filteredList != null) {
-                for (ExcelParserV5.FlowRow row : filteredList) {
-                    row.inScope = newVal;
-                }
-                if (col.getTableView() != null) col.getTableView().refresh();
-                // Update the counter after toggling all rows
-                if (counterUpdateCallback != null) {
-                    counterUpdateCallback.run();
-                }
-            }
-        });
+        headerCheckBox.selectedProperty().addListener((obs, oldVal, newVal) ->
+            applyToVisibleRows(col, model, m -> m.setVisible(newVal)));
+        
+        MenuItem checkAll = new MenuItem("Check all visible");
+        checkAll.setOnAction(e -> applyToVisibleRows(col, model, m -> m.setVisible(true)));
+        MenuItem uncheckAll = new MenuItem("Uncheck all visible");
+        uncheckAll.setOnAction(e -> applyToVisibleRows(col, model, m -> m.setVisible(false)));
+        MenuItem invert = new MenuItem("Invert visible");
+        invert.setOnAction(e -> applyToVisibleRows(col, model, InScopeModel::invertVisible));
         
         col.setGraphic(headerCheckBox);
+        col.setContextMenu(new ContextMenu(checkAll, uncheckAll, invert));
     }
     
-    // ---------- In Scope Counter Update Methods ----------
-    
-    /**
-     * Updates all "In Scope" counter labels based on the current state of the data.
-     * This method should be called after data is loaded or when checkboxes are toggled.
-     */
-    private void updateAllInScopeCounters() {
-        updateNurseInScopeCounter();
-        updateClinicalInScopeCounter();
-        updateOrdersInScopeCounter();
+    private void applyToVisibleRows(TableColumn<ExcelParserV5.FlowRow, Boolean> col, Supplier<InScopeModel> model,
+                                    Consumer<InScopeModel> action) {
+        InScopeModel m = model.get();
+        if (m == null) return;
+        action.accept(m);
+        if (col.getTableView() != null) col.getTableView().refresh();
     }
     
+    // ---------- In Scope Counter Update Methods ----------
+    
     /**
-     * Generic helper method to count "In Scope" rows and update a counter label.
+     * Shows the visible and in-scope row counts kept by {@code model}; O(1).
      * @param label The label to update with the count
-     * @param filteredList The filtered list of FlowRows to count
+     * @param model The table's in-scope model, or null before anything is loaded
      */
-    private void updateInScopeCounter(Label label, FilteredList<ExcelParserV5.FlowRow> filteredList) {
+    private void updateInScopeCounter(Label label, InScopeModel model) {
         if (label == null) return;
-        
-        int total = 0;
-        int inScope = 0;
-        
-        if (filteredList != null) {
-            total = filteredList.size();
-            for (ExcelParserV5.FlowRow row : filteredList) {
-                if (row.inScope) {
-                    inScope++;
-                }
-            }
-        }
-        
+        int inScope = model != null ? model.visibleInScope() : 0;
+        int total = model != null ? model.visibleCount() : 0;
         label.setText("In Scope: " + inScope + " / " + total);
     }
     
@@ -3872,21 +4083,21 @@ public class AppController {
      * Updates the Nurse Calls "In Scope" counter label.
      */
     private void updateNurseInScopeCounter() {
-        updateInScopeCounter(nurseInScopeCountLabel, nurseCallsFilteredList);
+        updateInScopeCounter(nurseInScopeCountLabel, nurseInScope);
     }
     
     /**
      * Updates the Clinicals "In Scope" counter label.
      */
     private void updateClinicalInScopeCounter() {
-        updateInScopeCounter(clinicalInScopeCountLabel, clinicalsFilteredList);
+        updateInScopeCounter(clinicalInScopeCountLabel, clinicalInScope);
     }
     
     /**
      * Updates the Orders "In Scope" counter label.
      */
     private void updateOrdersInScopeCounter() {
-        updateInScopeCounter(ordersInScopeCountLabel, ordersFilteredList);
+        updateInScopeCounter(ordersInScopeCountLabel, ordersInScope);
     }
 
     // ---------- Initialize Filters ----------
@@ -3895,15 +4106,10 @@ public class AppController {
         if (unitConfigGroupFilter != null) {
             unitConfigGroupFilter.setOnAction(e -> applyUnitFilter());
         }
-        if (nurseConfigGroupFilter != null) {
-            nurseConfigGroupFilter.setOnAction(e -> applyNurseFilter());
-        }
-        if (clinicalConfigGroupFilter != null) {
-            clinicalConfigGroupFilter.setOnAction(e -> applyClinicalFilter());
-        }
-        if (ordersConfigGroupFilter != null) {
-            ordersConfigGroupFilter.setOnAction(e -> applyOrdersFilter());
-        }
+        // Flow tables filter on several columns at once; config group is the first facet
+        setupFacetFilters(nurseConfigGroupFilter, nurseFacets, nurseFacetFilters, this::applyNurseFilter);
+        setupFacetFilters(clinicalConfigGroupFilter, clinicalFacets, clinicalFacetFilters, this::applyClinicalFilter);
+        setupFacetFilters(ordersConfigGroupFilter, ordersFacets, ordersFacetFilters, this::applyOrdersFilter);
         
         // Initialize alarm name filter text fields
         if (nurseAlarmNameFilter != null) {
@@ -3935,36 +4141,6 @@ public class AppController {
             }
         }
         
-        // Collect unique config groups from Nurse Calls
-        Set<String> nurseConfigGroups = new LinkedHashSet<>();
-        if (parser != null && parser.nurseCalls != null) {
-            for (ExcelParserV5.FlowRow flow : parser.nurseCalls) {
-                if (flow.configGroup != null && !flow.configGroup.trim().isEmpty()) {
-                    nurseConfigGroups.add(flow.configGroup.trim());
-                }
-            }
-        }
-        
-        // Collect unique config groups from Clinicals
-        Set<String> clinicalConfigGroups = new LinkedHashSet<>();
-        if (parser != null && parser.clinicals != null) {
-            for (ExcelParserV5.FlowRow flow : parser.clinicals) {
-                if (flow.configGroup != null && !flow.configGroup.trim().isEmpty()) {
-                    clinicalConfigGroups.add(flow.configGroup.trim());
-                }
-            }
-        }
-        
-        // Collect unique config groups from Orders
-        Set<String> ordersConfigGroups = new LinkedHashSet<>();
-        if (parser != null && parser.orders != null) {
-            for (ExcelParserV5.FlowRow flow : parser.orders) {
-                if (flow.configGroup != null && !flow.configGroup.trim().isEmpty()) {
-                    ordersConfigGroups.add(flow.configGroup.trim());
-                }
-            }
-        }
-        
         // Update Unit filter
         if (unitConfigGroupFilter != null) {
             List<String> unitOptions = new ArrayList<>();
@@ -3974,34 +4150,113 @@ public class AppController {
             unitConfigGroupFilter.getSelectionModel().select(0); // Select "All" by default
         }
         
-        // Update Nurse Call filter
-        if (nurseConfigGroupFilter != null) {
-            List<String> nurseOptions = new ArrayList<>();
-            nurseOptions.add("All");
-            nurseOptions.addAll(nurseConfigGroups);
-            nurseConfigGroupFilter.setItems(FXCollections.observableArrayList(nurseOptions));
-            nurseConfigGroupFilter.getSelectionModel().select(0); // Select "All" by default
-        }
-        
-        // Update Clinical filter
-        if (clinicalConfigGroupFilter != null) {
-            List<String> clinicalOptions = new ArrayList<>();
-            clinicalOptions.add("All");
-            clinicalOptions.addAll(clinicalConfigGroups);
-            clinicalConfigGroupFilter.setItems(FXCollections.observableArrayList(clinicalOptions));
-            clinicalConfigGroupFilter.getSelectionModel().select(0); // Select "All" by default
-        }
-        
-        // Update Orders filter
-        if (ordersConfigGroupFilter != null) {
-            List<String> ordersOptions = new ArrayList<>();
-            ordersOptions.add("All");
-            ordersOptions.addAll(ordersConfigGroups);
-            ordersConfigGroupFilter.setItems(FXCollections.observableArrayList(ordersOptions));
-            ordersConfigGroupFilter.getSelectionModel().select(0); // Select "All" by default
+        // Flow filters come from the facet indexes, which are already up to date
+        resetFacetFilters(nurseFacets, nurseFacetFilters);
+        resetFacetFilters(clinicalFacets, clinicalFacetFilters);
+        resetFacetFilters(ordersFacets, ordersFacetFilters);
+        applyNurseFilter();
+        applyClinicalFilter();
+        applyOrdersFilter();
+    }
+
+    // ---------- Faceted Flow Filters ----------
+
+    /**
+     * Adds a filter combo box for each {@link FacetIndex.Facet} after {@code configGroupFilter}
+     * (which becomes the config group facet). Options are read from {@code index} each time a
+     * list opens, with counts among the rows matching the other selected facets.
+     */
+    private void setupFacetFilters(ComboBox<String> configGroupFilter, FacetIndex index,
+                                   Map<FacetIndex.Facet, ComboBox<String>> filters, Runnable apply) {
+        if (configGroupFilter == null) return;
+        filters.put(FacetIndex.Facet.CONFIG_GROUP, configGroupFilter);
+        if (configGroupFilter.getParent() instanceof HBox bar) {
+            int at = bar.getChildren().indexOf(configGroupFilter) + 1;
+            for (FacetIndex.Facet facet : FacetIndex.Facet.values()) {
+                if (facet == FacetIndex.Facet.CONFIG_GROUP) continue;
+                ComboBox<String> combo = new ComboBox<>(FXCollections.observableArrayList("All"));
+                combo.setPrefWidth(150);
+                combo.getSelectionModel().select(0);
+                combo.setTooltip(new Tooltip("Filter by " + facet.label));
+                bar.getChildren().add(at++, combo);
+                filters.put(facet, combo);
+            }
+        }
+        filters.forEach((facet, combo) -> {
+            combo.setOnAction(e -> {
+                if (!updatingFacetOptions) apply.run();
+            });
+            combo.setOnShowing(e -> refreshFacetOptions(index, filters, facet));
+            combo.setCellFactory(list -> facetCell(combo, facet, false));
+            combo.setButtonCell(facetCell(combo, facet, true));
+        });
+    }
+
+    /** Shows "value (count)" in the list, and "Facet: value" on the button (config group keeps its label). */
+    private ListCell<String> facetCell(ComboBox<String> combo, FacetIndex.Facet facet, boolean button) {
+        return new ListCell<>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(button && facet != FacetIndex.Facet.CONFIG_GROUP ? facet.label + ": All" : null);
+                    return;
+                }
+                if (button) {
+                    setText(facet == FacetIndex.Facet.CONFIG_GROUP ? item : facet.label + ": " + item);
+                    return;
+                }
+                @SuppressWarnings("unchecked")
+                Map<String, Integer> counts = (Map<String, Integer>) combo.getProperties().get("facetCounts");
+                Integer count = counts == null ? null : counts.get(item);
+                setText(count == null ? item : item + " (" + count + ")");
+            }
+        };
+    }
+
+    /** Reloads the options of one facet combo box, keeping its selection. */
+    private void refreshFacetOptions(FacetIndex index, Map<FacetIndex.Facet, ComboBox<String>> filters, FacetIndex.Facet facet) {
+        ComboBox<String> combo = filters.get(facet);
+        String selected = combo.getValue();
+        Map<String, Integer> counts = index.counts(facet, facetSelection(filters));
+        List<String> options = new ArrayList<>();
+        options.add("All");
+        options.addAll(counts.keySet());
+        if (selected != null && !options.contains(selected)) options.add(selected);
+        combo.getProperties().put("facetCounts", counts);
+        // Replacing the items briefly clears the selection; that is not a filter change
+        updatingFacetOptions = true;
+        try {
+            combo.getItems().setAll(options);
+            combo.getSelectionModel().select(selected == null ? "All" : selected);
+        } finally {
+            updatingFacetOptions = false;
         }
     }
 
+    /** Resets every facet of a table to "All" with the current values as options. */
+    private void resetFacetFilters(FacetIndex index, Map<FacetIndex.Facet, ComboBox<String>> filters) {
+        filters.forEach((facet, combo) -> {
+            updatingFacetOptions = true;
+            try {
+                combo.setValue(null);
+            } finally {
+                updatingFacetOptions = false;
+            }
+            refreshFacetOptions(index, filters, facet); // Selects "All" by default
+        });
+    }
+
+    /** Selected value per facet; "All" (or nothing) leaves a facet out. */
+    private Map<FacetIndex.Facet, String> facetSelection(Map<FacetIndex.Facet, ComboBox<String>> filters) {
+        Map<FacetIndex.Facet, String> selection = new EnumMap<>(FacetIndex.Facet.class);
+        filters.forEach((facet, combo) -> {
+            String value = combo.getValue();
+            if (value != null && !value.equals("All")) selection.put(facet, value);
+        });
+        return selection;
+    }
+
     // ---------- Apply Filters ----------
     private void applyUnitFilter() {
         if (unitsFilteredList == null) return;
@@ -4021,29 +4276,25 @@ public class AppController {
     private void applyNurseFilter() {
         if (nurseCallsFilteredList == null) return;
         
-        String selectedConfigGroup = nurseConfigGroupFilter != null ? nurseConfigGroupFilter.getSelectionModel().getSelectedItem() : null;
+        // Rows matching every selected facet (config group, priority, ...), as one bit set intersection
+        BitSet facetMask = nurseFacets.select(facetSelection(nurseFacetFilters));
         String searchText = nurseAlarmNameFilter != null ? nurseAlarmNameFilter.getText() : "";
         String searchFilter = searchText != null ? searchText.trim().toLowerCase() : "";
         
         nurseCallsFilteredList.setPredicate(flow -> {
-            // Config group filter
-            boolean configMatch = selectedConfigGroup == null || selectedConfigGroup.equals("All") || selectedConfigGroup.equals(flow.configGroup);
+            boolean facetMatch = nurseFacets.matches(facetMask, flow);
             
             // Search all columns in the actual table data (not just In Scope column)
             boolean searchMatch = searchFilter.isEmpty() || matchesAnyColumn(flow, searchFilter);
             
-            return configMatch && searchMatch;
+            return facetMatch && searchMatch;
         });
         
         // Note: Search does NOT update inScope - search only filters visibility
         // The inScope checkbox is for users to manually mark rows for export
         
         if (tableNurseCalls != null) tableNurseCalls.refresh();
-        if (frozenNurseTable != null) frozenNurseTable.refresh();
         updateStatusLabel();
-        
-        // Update counter after filter changes the visible rows
-        updateNurseInScopeCounter();
     }
 
     /**
@@ -4090,57 +4341,49 @@ public class AppController {
     private void applyClinicalFilter() {
         if (clinicalsFilteredList == null) return;
         
-        String selectedConfigGroup = clinicalConfigGroupFilter != null ? clinicalConfigGroupFilter.getSelectionModel().getSelectedItem() : null;
+        // Rows matching every selected facet (config group, priority, ...), as one bit set intersection
+        BitSet facetMask = clinicalFacets.select(facetSelection(clinicalFacetFilters));
         String searchText = clinicalAlarmNameFilter != null ? clinicalAlarmNameFilter.getText() : "";
         String searchFilter = searchText != null ? searchText.trim().toLowerCase() : "";
         
         clinicalsFilteredList.setPredicate(flow -> {
-            // Config group filter
-            boolean configMatch = selectedConfigGroup == null || selectedConfigGroup.equals("All") || selectedConfigGroup.equals(flow.configGroup);
+            boolean facetMatch = clinicalFacets.matches(facetMask, flow);
             
             // Search all columns in the actual table data (not just In Scope column)
             boolean searchMatch = searchFilter.isEmpty() || matchesAnyColumn(flow, searchFilter);
             
-            return configMatch && searchMatch;
+            return facetMatch && searchMatch;
         });
         
         // Note: Search does NOT update inScope - search only filters visibility
         // The inScope checkbox is for users to manually mark rows for export
         
         if (tableClinicals != null) tableClinicals.refresh();
-        if (frozenClinicalTable != null) frozenClinicalTable.refresh();
         updateStatusLabel();
-        
-        // Update counter after filter changes the visible rows
-        updateClinicalInScopeCounter();
     }
 
     private void applyOrdersFilter() {
         if (ordersFilteredList == null) return;
         
-        String selectedConfigGroup = ordersConfigGroupFilter != null ? ordersConfigGroupFilter.getSelectionModel().getSelectedItem() : null;
+        // Rows matching every selected facet (config group, priority, ...), as one bit set intersection
+        BitSet facetMask = ordersFacets.select(facetSelection(ordersFacetFilters));
         String searchText = ordersAlarmNameFilter != null ? ordersAlarmNameFilter.getText() : "";
         String searchFilter = searchText != null ? searchText.trim().toLowerCase() : "";
         
         ordersFilteredList.setPredicate(flow -> {
-            // Config group filter
-            boolean configMatch = selectedConfigGroup == null || selectedConfigGroup.equals("All") || selectedConfigGroup.equals(flow.configGroup);
+            boolean facetMatch = ordersFacets.matches(facetMask, flow);
             
             // Search all columns in the actual table data (not just In Scope column)
             boolean searchMatch = searchFilter.isEmpty() || matchesAnyColumn(flow, searchFilter);
             
-            return configMatch && searchMatch;
+            return facetMatch && searchMatch;
         });
         
         // Note: Search does NOT update inScope - search only filters visibility
         // The inScope checkbox is for users to manually mark rows for export
         
         if (tableOrders != null) tableOrders.refresh();
-        if (frozenOrdersTable != null) frozenOrdersTable.refresh();
         updateStatusLabel();
-        
-        // Update counter after filter changes the visible rows
-        updateOrdersInScopeCounter();
     }
 
     private void updateStatusLabel() {
@@ -4162,10 +4405,21 @@ public class AppController {
             status = currentExcelFile.getName() + " | " + status;
         }
         
+        // Append phase timings of the last load/save; full breakdown on hover
+        String metricsText = lastMetrics != null ? lastMetrics.toStatusText() : "";
+        if (!metricsText.isEmpty()) {
+            status = status + " | " + metricsText;
+            statusLabel.setTooltip(new Tooltip(lastMetrics.toTable()));
+        } else {
+            statusLabel.setTooltip(null);
+        }
+        
         statusLabel.setText(status);
     }
 
     private void refreshTables() {
+        rowProperties.clear();
+
         // Create full observable lists from parser data
         unitsFullList = FXCollections.observableArrayList(parser.units);
         nurseCallsFullList = FXCollections.observableArrayList(parser.nurseCalls);
@@ -4178,25 +4432,37 @@ public class AppController {
         clinicalsFilteredList = new FilteredList<>(clinicalsFullList, flow -> true);
         ordersFilteredList = new FilteredList<>(ordersFullList, flow -> true);
         
-        // Set filtered lists to tables (both frozen and main)
+        // Set filtered lists to tables
         if (tableUnits != null) tableUnits.setItems(unitsFilteredList);
         if (tableNurseCalls != null) tableNurseCalls.setItems(nurseCallsFilteredList);
-        if (frozenNurseTable != null) frozenNurseTable.setItems(nurseCallsFilteredList);
         if (tableClinicals != null) tableClinicals.setItems(clinicalsFilteredList);
-        if (frozenClinicalTable != null) frozenClinicalTable.setItems(clinicalsFilteredList);
         if (tableOrders != null) tableOrders.setItems(ordersFilteredList);
-        if (frozenOrdersTable != null) frozenOrdersTable.setItems(ordersFilteredList);
         
-        // Setup header checkboxes for "In Scope" columns (on frozen tables)
-        setupHeaderCheckBox(frozenNurseInScopeCol, nurseCallsFilteredList, this::updateNurseInScopeCounter);
-        setupHeaderCheckBox(frozenClinicalInScopeCol, clinicalsFilteredList, this::updateClinicalInScopeCounter);
-        setupHeaderCheckBox(frozenOrdersInScopeCol, ordersFilteredList, this::updateOrdersInScopeCounter);
+        // In Scope state per flow table; the models keep the counters up to date from here on
+        nurseInScope = new InScopeModel(nurseCallsFullList, nurseCallsFilteredList, this::beforeEdit, this::updateNurseInScopeCounter);
+        clinicalInScope = new InScopeModel(clinicalsFullList, clinicalsFilteredList, this::beforeEdit, this::updateClinicalInScopeCounter);
+        ordersInScope = new InScopeModel(ordersFullList, ordersFilteredList, this::beforeEdit, this::updateOrdersInScopeCounter);
+        
+        // Count non-empty cells per column for "hide empty columns"
+        nurseOccupancy.setRows(nurseCallsFullList);
+        clinicalOccupancy.setRows(clinicalsFullList);
+        ordersOccupancy.setRows(ordersFullList);
         
-        // Update the In Scope counters after loading data
-        updateAllInScopeCounters();
+        // Distinct values for the faceted filters
+        nurseFacets.setRows(nurseCallsFullList);
+        clinicalFacets.setRows(clinicalsFullList);
+        ordersFacets.setRows(ordersFullList);
         
         // Update filter options
         updateFilterOptions();
+        
+        // Validate the new rows in the background, and again whenever a list is replaced (combine / revert)
+        ListChangeListener<Object> revalidateAll = c -> scheduleValidation();
+        unitsFullList.addListener(revalidateAll);
+        nurseCallsFullList.addListener(revalidateAll);
+        clinicalsFullList.addListener(revalidateAll);
+        ordersFullList.addListener(revalidateAll);
+        runValidation();
     }
 
     // ---------- Reset Defaults ----------
@@ -4241,12 +4507,14 @@ public class AppController {
                 
                 // Clear current file reference
                 currentExcelFile = null;
+                lastMetrics = null;
+                flowCache.clear();
                 
                 updateCurrentFileLabel(); // Update file label
                 
                 // Clear JSON preview
                 jsonPreview.setText("All data cleared. Load an Excel file to begin.");
-                lastGeneratedJson = "";
+                jsonPreviewGenerated = false;
                 
                 // Disable buttons
                 setJsonButtonsEnabled(false);
@@ -4360,17 +4628,14 @@ public class AppController {
         applyInterfaceReferences();
 
         // Optional: live update preview if JSON is already generated
-        if (!lastGeneratedJson.isEmpty()) {
+        if (jsonPreviewGenerated) {
             try {
                 // Rebuild the JSON based on the last generated type using filtered data
                 ExcelParserV5.MergeMode mergeMode = getCurrentMergeMode();
                 ExcelParserV5 filteredParser = createFilteredParser();
-                var json = ExcelParserV5.pretty(
-                    lastGeneratedWasNurseSide ? filteredParser.buildNurseCallsJson(mergeMode) : filteredParser.buildClinicalsJson(mergeMode)
-                );
-                jsonPreview.setText(json);
-                lastGeneratedJson = json;
-                statusLabel.setText("Updated JSON with new interface references");
+                boolean nurseSide = lastGeneratedWasNurseSide;
+                showJsonPreview("Updated JSON with new interface references", out -> ExcelParserV5.writePretty(
+                    nurseSide ? filteredParser.buildNurseCallsJson(mergeMode) : filteredParser.buildClinicalsJson(mergeMode), out));
             } catch (Exception ex) {
                 showError("Failed to refresh preview: " + ex.getMessage());
             }
@@ -4398,197 +4663,6 @@ public class AppController {
 
     private static String safe(String v) { return v == null ? "" : v; }
 
-    private static String sanitizeForPlantUml(String value) {
-        if (value == null) {
-            return "";
-        }
-
-        String cleaned = value.chars()
-            .mapToObj(c -> {
-                if (c < 32 || c == 127) {
-                    return " ";
-                }
-                return String.valueOf((char) c);
-            })
-            .collect(Collectors.joining());
-
-        String normalized = cleaned
-            .replace("[", "(")
-            .replace("]", ")")
-            .replace("{", "(")
-            .replace("}", ")")
-            .replace("<", "(")
-            .replace(">", ")")
-            .replace("|", "/")
-            .replace("\\", "/")
-            .replace("\"", "'")
-            .replaceAll("\\s+", " ")
-            .trim();
-
-        return normalized.length() > 0 ? normalized : "-";
-    }
-
-    private static String sanitizeLabelOrEmpty(String value) {
-        if (value == null || value.trim().isEmpty()) {
-            return "";
-        }
-
-        String sanitized = sanitizeForPlantUml(value);
-        return "-".equals(sanitized) ? "" : sanitized;
-    }
-
-    private static boolean isImmediateTime(String value) {
-        if (value == null) {
-            return false;
-        }
-
-        String normalized = value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", "");
-        if (normalized.isEmpty()) {
-            return false;
-        }
-
-        if (normalized.equals("immediate") || normalized.equals("immediately") || normalized.equals("now")) {
-            return true;
-        }
-
-        return normalized.equals("0")
-            || normalized.equals("0s")
-            || normalized.equals("0sec")
-            || normalized.equals("0secs")
-            || normalized.equals("0second")
-            || normalized.equals("0seconds");
-    }
-
-    private String buildVisualFlowDiagram(String tabLabel, String configLabel, List<ExcelParserV5.FlowRow> flows) {
-        StringBuilder plantuml = new StringBuilder();
-        plantuml.append("@startuml\n");
-        plantuml.append("top to bottom direction\n");
-        plantuml.append("skinparam shadowing false\n");
-        plantuml.append("skinparam backgroundColor #FFFFFF\n");
-        plantuml.append("hide stereotype\n");
-        plantuml.append("skinparam rectangle {\n");
-        plantuml.append("  RoundCorner 16\n");
-        plantuml.append("  FontSize 14\n");
-        plantuml.append("  FontColor #111111\n");
-        plantuml.append("}\n");
-        plantuml.append("skinparam rectangle<<GlobalHeader>> {\n");
-        plantuml.append("  BackgroundColor #ffffff\n");
-        plantuml.append("  BorderColor #b5b5b5\n");
-        plantuml.append("}\n");
-        plantuml.append("skinparam rectangle<<FlowHeader>> {\n");
-        plantuml.append("  BackgroundColor #dcdcdc\n");
-        plantuml.append("  BorderColor #9a9a9a\n");
-        plantuml.append("}\n");
-        plantuml.append("skinparam rectangle<<StopA>> {\n");
-        plantuml.append("  BackgroundColor #c8f7c5\n");
-        plantuml.append("  BorderColor #4f9a4f\n");
-        plantuml.append("}\n");
-        plantuml.append("skinparam rectangle<<StopB>> {\n");
-        plantuml.append("  BackgroundColor #cfe2ff\n");
-        plantuml.append("  BorderColor #4a78c2\n");
-        plantuml.append("}\n");
-        plantuml.append("skinparam ArrowColor #333333\n");
-        plantuml.append("skinparam ArrowFontSize 12\n");
-        plantuml.append("skinparam ArrowThickness 1.4\n\n");
-
-        String globalHeaderLabel = tabLabel + " — " + configLabel;
-        plantuml.append("rectangle \"").append(globalHeaderLabel).append("\" as GlobalHeader_1 <<GlobalHeader>> {\n");
-        plantuml.append("together {\n");
-
-        int rowCounter = 1;
-        for (ExcelParserV5.FlowRow row : flows) {
-            String[] recipients = { row.r1, row.r2, row.r3, row.r4, row.r5 };
-            String[] times = { row.t1, row.t2, row.t3, row.t4, row.t5 };
-
-            List<Integer> steps = new ArrayList<>();
-            for (int i = 0; i < recipients.length; i++) {
-                if (recipients[i] != null && !recipients[i].trim().isEmpty()) {
-                    steps.add(i);
-                }
-            }
-
-            if (steps.isEmpty()) {
-                continue;
-            }
-
-            List<String> headerLines = new ArrayList<>();
-            headerLines.add(sanitizeForPlantUml(row.alarmName));
-            String priority = sanitizeForPlantUml(row.priorityRaw);
-            if (!"-".equals(priority)) {
-                headerLines.add(priority);
-            }
-            String headerLabel = String.join("\\n", headerLines);
-            String headerId = "FlowHeader_" + rowCounter;
-            plantuml.append("  rectangle \"").append(headerLabel).append("\" as ")
-                .append(headerId).append(" <<FlowHeader>>\n");
-
-            String firstArrowLabel;
-            if (isImmediateTime(times[0])) {
-                firstArrowLabel = "Immediate";
-            } else {
-                firstArrowLabel = sanitizeLabelOrEmpty(times[0]);
-            }
-
-            String previousId = headerId;
-
-            for (int i = 0; i < steps.size(); i++) {
-                int idx = steps.get(i);
-                String stageId = "Stop_" + rowCounter + "_" + (i + 1);
-                
-                // Split multiple recipients and display each on a separate line
-                List<String> stageLabelLines = new ArrayList<>();
-                stageLabelLines.add("Alarm Stop " + (i + 1));
-                
-                // Split recipients by comma, semicolon, or newline BEFORE sanitizing to preserve formatting
-                String rawRecipient = recipients[idx];
-                if (rawRecipient != null && !rawRecipient.isEmpty()) {
-                    // Split by comma, semicolon, newline, or carriage return to handle both Unix and Windows line endings
-                    String[] recipientParts = rawRecipient.split("[,;\\n\\r]+");
-                    for (String part : recipientParts) {
-                        String trimmed = part.trim();
-                        if (!trimmed.isEmpty()) {
-                            // Sanitize each individual recipient part
-                            String sanitizedPart = sanitizeForPlantUml(trimmed);
-                            if (!sanitizedPart.isEmpty() && !"-".equals(sanitizedPart)) {
-                                stageLabelLines.add(sanitizedPart);
-                            }
-                        }
-                    }
-                }
-                
-                String stageLabel = String.join("\\n", stageLabelLines);
-
-                String stereo = (i % 2 == 0) ? "StopA" : "StopB";
-
-                plantuml.append("  rectangle \"").append(stageLabel).append("\" as ")
-                    .append(stageId).append(" <<").append(stereo).append(">>\n");
-
-                String arrowLabel = "";
-                if (previousId.equals(headerId)) {
-                    arrowLabel = firstArrowLabel;
-                } else {
-                    arrowLabel = sanitizeLabelOrEmpty(times[idx]);
-                }
-
-                plantuml.append("  ").append(previousId).append(" -down-> ").append(stageId);
-                if (arrowLabel != null && !arrowLabel.isEmpty()) {
-                    plantuml.append(" : ").append(arrowLabel);
-                }
-                plantuml.append("\n");
-
-                previousId = stageId;
-            }
-
-            plantuml.append("\n");
-            rowCounter++;
-        }
-
-        plantuml.append("}\n");
-        plantuml.append("}\n\n");
-        plantuml.append("@enduml\n");
-        return plantuml.toString();
-    }
-
     // ---------- Remember Directory ----------
     private void rememberDirectory(File file, boolean isExcel) {
         if (file == null) return;
@@ -5505,148 +5579,60 @@ public class AppController {
         }
     }
     
-    /**
-     * Configures the "In Scope" column to be fixed at the left and always visible.
-     * Synchronizes vertical scrolling between frozen and main tables.
-     * This creates a truly frozen "In Scope" column effect.
-     */
-    private <T> void synchronizeFrozenTable(TableView<T> frozenTable, TableView<T> mainTable) {
-        if (frozenTable == null || mainTable == null) {
-            return;
-        }
-        
-        // Style the frozen table
-        frozenTable.getStyleClass().add("frozen-table");
-        
-        // Hide horizontal scrollbar on frozen table
-        frozenTable.setStyle("-fx-hbar-policy: never;");
-        
-        // Synchronize fixed cell size between tables to ensure row alignment
-        // This is critical for row alignment - both tables must have the same fixed cell size
-        mainTable.fixedCellSizeProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null && newVal.doubleValue() > 0) {
-                frozenTable.setFixedCellSize(newVal.doubleValue());
-            }
-        });
-        
-        // Set initial fixed cell size from main table
-        if (mainTable.getFixedCellSize() > 0) {
-            frozenTable.setFixedCellSize(mainTable.getFixedCellSize());
-        }
-        
-        // Synchronize vertical scrolling between tables
-        Platform.runLater(() -> {
-            // Find scrollbars in both tables
-            ScrollBar frozenVBar = findScrollBar(frozenTable, Orientation.VERTICAL);
-            ScrollBar mainVBar = findScrollBar(mainTable, Orientation.VERTICAL);
-            
-            if (frozenVBar != null && mainVBar != null) {
-                // Sync frozen to main
-                frozenVBar.valueProperty().addListener((obs, oldVal, newVal) -> {
-                    mainVBar.setValue(newVal.doubleValue());
-                });
-                
-                // Sync main to frozen
-                mainVBar.valueProperty().addListener((obs, oldVal, newVal) -> {
-                    frozenVBar.setValue(newVal.doubleValue());
-                });
-                
-                // Hide vertical scrollbar on frozen table (main table scrollbar will control both)
-                frozenVBar.setVisible(false);
-                frozenVBar.setManaged(false);
-            }
-            
-            // Hide horizontal scrollbar on frozen table
-            ScrollBar frozenHBar = findScrollBar(frozenTable, Orientation.HORIZONTAL);
-            if (frozenHBar != null) {
-                frozenHBar.setVisible(false);
-                frozenHBar.setManaged(false);
-            }
-        });
-        
-        // Match row selection between tables
-        frozenTable.getSelectionModel().selectedIndexProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null && newVal.intValue() >= 0) {
-                mainTable.getSelectionModel().select(newVal.intValue());
-            }
-        });
-        
-        mainTable.getSelectionModel().selectedIndexProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal != null && newVal.intValue() >= 0) {
-                frozenTable.getSelectionModel().select(newVal.intValue());
-            }
-        });
-    }
-    
-    /**
-     * Finds a ScrollBar in a TableView with the specified orientation.
-     */
-    private ScrollBar findScrollBar(TableView<?> table, Orientation orientation) {
-        for (javafx.scene.Node node : table.lookupAll(".scroll-bar")) {
-            if (node instanceof ScrollBar) {
-                ScrollBar scrollBar = (ScrollBar) node;
-                if (scrollBar.getOrientation() == orientation) {
-                    return scrollBar;
-                }
-            }
-        }
-        return null;
-    }
-    
     // ---------- Combine Config Group Methods ----------
     
     /**
      * Automatically hides table columns that have no data in any of their rows.
      * This helps reduce clutter by hiding empty columns after data is loaded.
+     * Uses the occupancy counts, so it is instant; while active, columns also
+     * appear or disappear as cells are edited (see {@link #updateOccupancy}).
      */
     private void hideEmptyColumns() {
-        // Hide empty columns in Nurse Calls table
-        if (tableNurseCalls != null && parser != null) {
-            hideEmptyColumnsInTable(tableNurseCalls, parser.nurseCalls);
-        }
-        
-        // Hide empty columns in Clinicals table
-        if (tableClinicals != null && parser != null) {
-            hideEmptyColumnsInTable(tableClinicals, parser.clinicals);
-        }
-        
-        // Hide empty columns in Orders table
-        if (tableOrders != null && parser != null) {
-            hideEmptyColumnsInTable(tableOrders, parser.orders);
-        }
+        emptyColumnsHidden = true;
+        hideEmptyColumnsInTable(tableNurseCalls, nurseOccupancy);
+        hideEmptyColumnsInTable(tableClinicals, clinicalOccupancy);
+        hideEmptyColumnsInTable(tableOrders, ordersOccupancy);
     }
     
     /**
      * Helper method to hide empty columns in a specific table.
      * A column is considered empty if all cells in that column are null or empty strings.
      */
-    private <T> void hideEmptyColumnsInTable(TableView<T> table, java.util.List<T> data) {
-        if (table == null || data == null || data.isEmpty()) {
+    private <T> void hideEmptyColumnsInTable(TableView<T> table, ColumnOccupancy<ExcelParserV5.FlowRow> occupancy) {
+        if (table == null || occupancy.rowCount() == 0) {
             return;
         }
         
         for (TableColumn<T, ?> column : table.getColumns()) {
-            // Skip the "In Scope" checkbox column - always keep it visible
-            if (column.getText() != null && column.getText().contains("Scope")) {
-                continue;
-            }
-            
-            // Check if this column has any non-empty data
-            boolean hasData = false;
-            
-            for (T row : data) {
-                javafx.beans.value.ObservableValue<?> cellValue = column.getCellObservableValue(row);
-                if (cellValue != null) {
-                    Object value = cellValue.getValue();
-                    if (value != null && !value.toString().trim().isEmpty()) {
-                        hasData = true;
-                        break;
-                    }
-                }
+            // Only columns with counted cells; the "In Scope" checkbox column always stays visible
+            if (occupancy.isTracked(column)) {
+                column.setVisible(occupancy.filled(column) > 0);
             }
-            
-            // Hide the column if it has no data
-            column.setVisible(hasData);
+        }
+    }
+    
+    /** Column occupancy of the flow table that owns {@code table}, or null (e.g. Units). */
+    private ColumnOccupancy<ExcelParserV5.FlowRow> occupancyOf(TableView<?> table) {
+        if (table == null) return null;
+        if (table == tableNurseCalls) return nurseOccupancy;
+        if (table == tableClinicals) return clinicalOccupancy;
+        if (table == tableOrders) return ordersOccupancy;
+        return null;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <R> void trackOccupancy(TableColumn<R, String> col, Function<R, String> getter) {
+        ColumnOccupancy<ExcelParserV5.FlowRow> occupancy = occupancyOf(col.getTableView());
+        if (occupancy != null) {
+            occupancy.register(col, (Function<ExcelParserV5.FlowRow, String>) getter);
+        }
+    }
+    
+    /** Counts an edited cell and, while empty columns are hidden, shows or hides its column. */
+    private void updateOccupancy(TableColumn<?, String> col, String oldValue, String newValue) {
+        ColumnOccupancy<ExcelParserV5.FlowRow> occupancy = occupancyOf(col.getTableView());
+        if (occupancy != null && occupancy.update(col, oldValue, newValue) && emptyColumnsHidden) {
+            col.setVisible(occupancy.filled(col) > 0);
         }
     }
     
@@ -5655,6 +5641,8 @@ public class AppController {
      * This is the opposite of hideEmptyColumns and is triggered when "Expand All Columns" checkbox is checked.
      */
     private void showAllColumns() {
+        emptyColumnsHidden = false;
+        
         // Show all columns in Units table
         if (tableUnits != null) {
             for (TableColumn<ExcelParserV5.UnitRow, ?> column : tableUnits.getColumns()) {
@@ -5669,13 +5657,6 @@ public class AppController {
             }
         }
         
-        // Show all columns in frozen Nurse table
-        if (frozenNurseTable != null) {
-            for (TableColumn<ExcelParserV5.FlowRow, ?> column : frozenNurseTable.getColumns()) {
-                column.setVisible(true);
-            }
-        }
-        
         // Show all columns in Clinicals table
         if (tableClinicals != null) {
             for (TableColumn<ExcelParserV5.FlowRow, ?> column : tableClinicals.getColumns()) {
@@ -5683,13 +5664,6 @@ public class AppController {
             }
         }
         
-        // Show all columns in frozen Clinical table
-        if (frozenClinicalTable != null) {
-            for (TableColumn<ExcelParserV5.FlowRow, ?> column : frozenClinicalTable.getColumns()) {
-                column.setVisible(true);
-            }
-        }
-        
         // Show all columns in Orders table
         if (tableOrders != null) {
             for (TableColumn<ExcelParserV5.FlowRow, ?> column : tableOrders.getColumns()) {
@@ -5697,13 +5671,7 @@ public class AppController {
             }
         }
         
-        // Show all columns in frozen Orders table
-        if (frozenOrdersTable != null) {
-            for (TableColumn<ExcelParserV5.FlowRow, ?> column : frozenOrdersTable.getColumns()) {
-                column.setVisible(true);
-            }
-        }
-    }
+}
     
     /**
      * Combine rows with identical columns (except config group) into single rows
@@ -5917,20 +5885,190 @@ public class AppController {
         if (tableNurseCalls != null) {
             tableNurseCalls.refresh();
         }
-        if (frozenNurseTable != null) {
-            frozenNurseTable.refresh();
-        }
         if (tableClinicals != null) {
             tableClinicals.refresh();
         }
-        if (frozenClinicalTable != null) {
-            frozenClinicalTable.refresh();
-        }
         if (tableOrders != null) {
             tableOrders.refresh();
         }
-        if (frozenOrdersTable != null) {
-            frozenOrdersTable.refresh();
+    }
+
+    // ---------- Validation ----------
+
+    /** Loaded reference data as the validation rules see it, copied under the datasets' locks. */
+    private ValidationEngine.ReferenceData validationReference() {
+        Set<String> voiceGroups;
+        Set<String> roles;
+        Set<String> beds;
+        synchronized (loadedVoiceGroups) {
+            voiceGroups = new HashSet<>(loadedVoiceGroups);
+        }
+        synchronized (loadedAssignmentRoles) {
+            roles = new HashSet<>(loadedAssignmentRoles);
+        }
+        synchronized (loadedBedListLower) {
+            beds = new HashSet<>(loadedBedListLower);
+        }
+        return new ValidationEngine.ReferenceData(voiceGroups, roles, beds);
+    }
+
+    /**
+     * Validates every table on a background task against the loaded reference data, then
+     * installs the issue index and repaints the tables. A newer run cancels one that is
+     * still going; edits made meanwhile are re-checked when the result is installed.
+     */
+    private void runValidation() {
+        validationScheduled = false;
+        if (validationTask != null) validationTask.cancel();
+        Map<String, List<?>> tables = new LinkedHashMap<>();
+        if (unitsFullList != null) tables.put("Units", new ArrayList<>(unitsFullList));
+        if (nurseCallsFullList != null) tables.put("Nurse Calls", new ArrayList<>(nurseCallsFullList));
+        if (clinicalsFullList != null) tables.put("Clinicals", new ArrayList<>(clinicalsFullList));
+        if (ordersFullList != null) tables.put("Orders", new ArrayList<>(ordersFullList));
+        ValidationEngine.ReferenceData reference = validationReference();
+        Task<ValidationEngine.Result> task = new Task<>() {
+            @Override
+            protected ValidationEngine.Result call() {
+                return ValidationEngine.validate(tables, reference);
+            }
+        };
+        validationTask = task;
+        validation.begin();
+        task.setOnSucceeded(ev -> {
+            if (validationTask != task) return;
+            validationTask = null;
+            validation.apply(task.getValue());
+            updateValidationSummary();
+            refreshAllTables();
+        });
+        task.setOnFailed(ev -> {
+            if (validationTask != task) return;
+            validationTask = null;
+            validation.abort();
+            Throwable ex = task.getException();
+            if (statusLabel != null) {
+                statusLabel.setText("Validation failed: " + (ex != null ? ex.getMessage() : "Unknown error"));
+            }
+        });
+        Thread th = new Thread(task, "validation");
+        th.setDaemon(true);
+        th.start();
+    }
+
+    /** Queues one run for the next pulse, so replacing several lists at once validates once. */
+    private void scheduleValidation() {
+        if (validationScheduled) return;
+        validationScheduled = true;
+        Platform.runLater(this::runValidation);
+    }
+
+    /** Re-checks an edited row against the index and updates the issue count. */
+    private void revalidate(Object row) {
+        validation.revalidate(row);
+        updateValidationSummary();
+    }
+
+    private void updateValidationSummary() {
+        if (toolPanelValidationLabel == null) return;
+        int total = validation.count();
+        if (total == 0) {
+            toolPanelValidationLabel.setText("No issues found");
+        } else {
+            toolPanelValidationLabel.setText(total + (total == 1 ? " issue" : " issues")
+                + " (" + validation.count(ValidationEngine.Severity.ERROR) + " errors, "
+                + validation.count(ValidationEngine.Severity.WARNING) + " warnings)");
+        }
+    }
+
+    /** Moves the focus to the next cell with an issue in the table on screen. */
+    private void jumpToNextIssue() {
+        TableView<?> table = visibleTable();
+        if (table == null || !jumpToNextIssue(table)) {
+            if (statusLabel != null) {
+                statusLabel.setText(validation.count() == 0 ? "No validation issues." : "No validation issues in this view.");
+            }
+        }
+    }
+
+    private TableView<?> visibleTable() {
+        if (nurseCallsView != null && nurseCallsView.isVisible()) return tableNurseCalls;
+        if (clinicalsView != null && clinicalsView.isVisible()) return tableClinicals;
+        if (ordersView != null && ordersView.isVisible()) return tableOrders;
+        return tableUnits;
+    }
+
+    /**
+     * Searches from the focused cell onwards (left to right, then down, wrapping around) for
+     * a cell in a visible column whose field has an issue, and focuses it.
+     */
+    private <R> boolean jumpToNextIssue(TableView<R> table) {
+        List<R> items = table.getItems();
+        if (items == null || items.isEmpty()) return false;
+        // getFocusedCell() is declared raw; read it through wildcards instead of an unchecked cast
+        TablePosition<?, ?> focused = table.getFocusModel().getFocusedCell();
+        int startRow = focused != null ? focused.getRow() : -1;
+        int startColumn = startRow >= 0 && focused.getTableColumn() != null
+            ? table.getVisibleLeafColumns().indexOf(focused.getTableColumn()) : -1;
+        for (int step = 0; step <= items.size(); step++) {
+            int rowIndex = (Math.max(startRow, 0) + step) % items.size();
+            boolean focusedRow = startRow >= 0 && step == 0; // only the cells after the focused one
+            ValidationEngine.Issue next = null;
+            TableColumn<R, ?> target = null;
+            int targetIndex = Integer.MAX_VALUE;
+            for (ValidationEngine.Issue issue : validation.issues(items.get(rowIndex))) {
+                TableColumn<R, ?> column = fieldColumn(table, issue.field());
+                int index = column == null ? -1 : table.getVisibleLeafIndex(column);
+                if (index < 0 || (focusedRow && index <= startColumn) || index >= targetIndex) continue;
+                next = issue;
+                target = column;
+                targetIndex = index;
+            }
+            if (target != null) {
+                table.getSelectionModel().clearAndSelect(rowIndex, target);
+                table.getFocusModel().focus(rowIndex, target);
+                table.scrollTo(rowIndex);
+                table.scrollToColumn(target);
+                table.requestFocus();
+                if (statusLabel != null) statusLabel.setText(next.table() + ", row " + (rowIndex + 1) + ": " + next.message());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The visible column of {@code table} showing {@code field}, or null. */
+    @SuppressWarnings("unchecked")
+    private <R> TableColumn<R, ?> fieldColumn(TableView<R> table, String field) {
+        for (TableColumn<R, ?> column : table.getVisibleLeafColumns()) {
+            // getFieldName only compares column identity, so the value type does not matter
+            if (field.equals(getFieldName((TableColumn<R, String>) column))) return column;
+        }
+        return null;
+    }
+
+    /** Saves the issues of the last validation run as a CSV report. */
+    private void exportValidationReport() {
+        if (parser == null) {
+            showError("Please load an Excel file first.");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export Validation Report");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        chooser.setInitialFileName("ValidationReport.csv");
+        if (lastExcelDir != null && lastExcelDir.exists()) {
+            chooser.setInitialDirectory(lastExcelDir);
+        }
+        File file = chooser.showSaveDialog(getStage());
+        if (file == null) return;
+        rememberDirectory(file, true);
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            validation.writeReport(out);
+            if (statusLabel != null) {
+                statusLabel.setText("Exported " + validation.count() + " validation issues to " + file.getName());
+            }
+        } catch (IOException ex) {
+            showError("Error exporting validation report: " + ex.getMessage());
         }
     }
 
@@ -5960,37 +6098,7 @@ public class AppController {
                 showError("No rows are checked (in scope). Please check some rows first.");
                 return;
             }
-            final String groupDelimiter = "||";
-            Map<String, List<ExcelParserV5.FlowRow>> grouped = checkedRows.stream()
-                .collect(Collectors.groupingBy(r -> {
-                    String tabName = (r.customTabSource != null && !r.customTabSource.isBlank())
-                        ? r.customTabSource
-                        : safe(r.type);
-                    String config = (r.configGroup != null && !r.configGroup.isBlank())
-                        ? r.configGroup
-                        : "Unknown";
-                    return tabName + groupDelimiter + config;
-                }));
-
-            List<String> diagrams = new ArrayList<>();
-
-            for (String key : grouped.keySet().stream().sorted().collect(Collectors.toList())) {
-                String[] parts = key.split("\\Q" + groupDelimiter + "\\E", 2);
-                String tabLabel = sanitizeForPlantUml(parts.length > 0 ? parts[0] : "");
-                if ("-".equals(tabLabel)) {
-                    tabLabel = "Unknown Tab";
-                }
-                String configLabel = sanitizeForPlantUml(parts.length > 1 ? parts[1] : "Unknown");
-
-                List<ExcelParserV5.FlowRow> flows = grouped.get(key).stream()
-                    .sorted(Comparator.comparing(r -> safe(r.alarmName)))
-                    .collect(Collectors.toList());
-
-                for (int i = 0; i < flows.size(); i += 3) {
-                    List<ExcelParserV5.FlowRow> pageFlows = flows.subList(i, Math.min(i + 3, flows.size()));
-                    diagrams.add(buildVisualFlowDiagram(tabLabel, configLabel, pageFlows));
-                }
-            }
+            List<String> diagrams = VisualFlowPdf.buildDiagrams(checkedRows);
 
             if (diagrams.isEmpty()) {
                 showError("No valid flows found to export.");
@@ -6013,65 +6121,45 @@ public class AppController {
             if (file == null) return;
             // Remember directory
             rememberDirectory(file, false);
-            try (PDDocument document = new PDDocument()) {
-                for (String diagram : diagrams) {
-                    byte[] diagramBytes;
-                    try (ByteArrayOutputStream pngOutput = new ByteArrayOutputStream()) {
-                        SourceStringReader reader = new SourceStringReader(diagram);
-                        reader.outputImage(pngOutput, new FileFormatOption(FileFormat.PNG));
-                        diagramBytes = pngOutput.toByteArray();
-                    } catch (IOException e) {
-                        showError("Error generating diagram: " + e.getMessage());
-                        return;
-                    }
-
-                    BufferedImage diagramImage;
-                    try (ByteArrayInputStream bais = new ByteArrayInputStream(diagramBytes)) {
-                        diagramImage = ImageIO.read(bais);
-                    } catch (IOException e) {
-                        showError("Error reading generated diagram: " + e.getMessage());
-                        return;
-                    }
-
-                    if (diagramImage == null) {
-                        showError("Generated diagram could not be read.");
-                        return;
-                    }
-
-                    float imageWidthPoints = diagramImage.getWidth() * 72f / 96f;
-                    float imageHeightPoints = diagramImage.getHeight() * 72f / 96f;
-
-                    PDPage page = new PDPage(PDRectangle.LETTER);
-                    document.addPage(page);
-
-                    float pageWidth = page.getMediaBox().getWidth();
-                    float pageHeight = page.getMediaBox().getHeight();
-                    float margin = 36f; // half-inch margin
-                    float availableWidth = Math.max(pageWidth - 2 * margin, 1f);
-                    float availableHeight = Math.max(pageHeight - 2 * margin, 1f);
-                    float scale = Math.min(availableWidth / imageWidthPoints, availableHeight / imageHeightPoints);
-                    if (!Float.isFinite(scale) || scale <= 0) {
-                        scale = 1f;
-                    }
+            // Render pages off the FX thread; the diagram sources above are plain strings,
+            // so later edits to the rows cannot affect this export.
+            Task<Integer> task = new Task<>() {
+                @Override
+                protected Integer call() throws Exception {
+                    updateMessage("🖼️ Rendering Visual Flow (0/" + diagrams.size() + " pages)...");
+                    return VisualFlowPdf.write(diagrams, file, (done, total) -> {
+                        updateProgress(done, total);
+                        updateMessage("🖼️ Rendering Visual Flow (" + done + "/" + total + " pages)...");
+                    });
+                }
+            };
 
-                    float drawWidth = imageWidthPoints * scale;
-                    float drawHeight = imageHeightPoints * scale;
-                    float startX = (pageWidth - drawWidth) / 2f;
-                    float startY = (pageHeight - drawHeight) / 2f;
+            showProgressBar("🖼️ Rendering Visual Flow...");
+            if (statusLabel != null) statusLabel.textProperty().bind(task.messageProperty());
+            if (statusProgressBar != null) statusProgressBar.progressProperty().bind(task.progressProperty());
+            Runnable unbind = () -> {
+                if (statusLabel != null) statusLabel.textProperty().unbind();
+                if (statusProgressBar != null) statusProgressBar.progressProperty().unbind();
+                hideProgressBar();
+            };
 
-                    PDImageXObject pdImage = LosslessFactory.createFromImage(document, diagramImage);
-                    try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
-                        contentStream.drawImage(pdImage, startX, startY, drawWidth, drawHeight);
-                    }
+            task.setOnSucceeded(ev -> {
+                unbind.run();
+                if (statusLabel != null) {
+                    statusLabel.setText("✅ Visual Flow PDF saved (" + task.getValue() + " pages)");
                 }
+                showInfo("Visual Flow PDF saved to:\n" + file.getAbsolutePath());
+            });
+            task.setOnFailed(ev -> {
+                unbind.run();
+                updateStatusLabel();
+                Throwable ex = task.getException();
+                showError("Error writing PDF: " + (ex != null ? ex.getMessage() : "Unknown error"));
+            });
 
-                document.save(file);
-            } catch (IOException e) {
-                showError("Error writing PDF: " + e.getMessage());
-                return;
-            }
-
-            showInfo("Visual Flow PDF saved to:\n" + file.getAbsolutePath());
+            Thread th = new Thread(task, "visual-flow-export");
+            th.setDaemon(true);
+            th.start();
         } catch (Exception ex) {
             java.io.StringWriter sw = new java.io.StringWriter();
             java.io.PrintWriter pw = new java.io.PrintWriter(sw);
@@ -6085,6 +6173,104 @@ public class AppController {
         }
     }
     
+    // ---------- Compare JSON ----------
+    /**
+     * Asks for a baseline and a candidate JSON export, compares them flow by flow on a
+     * background task and shows the added, removed and changed entries.
+     */
+    private void compareJsonFiles() {
+        Stage stage = getStage();
+        if (stage == null) {
+            showError("Application window not available. Please try again.");
+            return;
+        }
+        FileChooser chooser = new FileChooser();
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON Files", "*.json"));
+        if (lastJsonDir != null && lastJsonDir.exists()) {
+            chooser.setInitialDirectory(lastJsonDir);
+        }
+        chooser.setTitle("Select Baseline JSON (e.g. production)");
+        File before = chooser.showOpenDialog(stage);
+        if (before == null) return;
+        rememberDirectory(before, false);
+        chooser.setInitialDirectory(before.getParentFile());
+        chooser.setTitle("Select JSON to Compare Against " + before.getName());
+        File after = chooser.showOpenDialog(stage);
+        if (after == null) return;
+
+        Task<JsonDiff.Result> task = new Task<>() {
+            @Override
+            protected JsonDiff.Result call() throws Exception {
+                return JsonDiff.compare(before, after);
+            }
+        };
+        showProgressBar("🔍 Comparing " + before.getName() + " with " + after.getName() + "...");
+        task.setOnSucceeded(ev -> {
+            hideProgressBar();
+            JsonDiff.Result result = task.getValue();
+            if (statusLabel != null) {
+                statusLabel.setText(result.identical()
+                    ? "✅ No differences between " + before.getName() + " and " + after.getName()
+                    : "⚠️ " + result.added().size() + " added, " + result.removed().size() + " removed, "
+                        + result.changed().size() + " changed flows");
+            }
+            showJsonDiffDialog(before, after, result);
+        });
+        task.setOnFailed(ev -> {
+            hideProgressBar();
+            updateStatusLabel();
+            Throwable ex = task.getException();
+            showError("Failed to compare JSON files: " + (ex != null ? ex.getMessage() : "Unknown error"));
+        });
+        Thread th = new Thread(task, "json-diff");
+        th.setDaemon(true);
+        th.start();
+    }
+
+    private void showJsonDiffDialog(File before, File after, JsonDiff.Result result) {
+        javafx.stage.Stage dialog = new javafx.stage.Stage();
+        dialog.initOwner(getStage());
+        dialog.setTitle("Compare JSON");
+
+        Label titleLabel = new Label("🔍 " + before.getName() + " → " + after.getName());
+        titleLabel.setStyle("-fx-font-size: 16; -fx-font-weight: bold;");
+        Label summaryLabel = new Label(String.format("Added: %d   Removed: %d   Changed: %d   Unchanged: %d",
+            result.added().size(), result.removed().size(), result.changed().size(), result.unchanged()));
+
+        TreeItem<String> root = new TreeItem<>("Differences");
+        TreeItem<String> removed = new TreeItem<>("➖ Removed (" + result.removed().size() + ")");
+        result.removed().forEach(e -> removed.getChildren().add(new TreeItem<>(e.label())));
+        TreeItem<String> added = new TreeItem<>("➕ Added (" + result.added().size() + ")");
+        result.added().forEach(e -> added.getChildren().add(new TreeItem<>(e.label())));
+        TreeItem<String> changed = new TreeItem<>("✏️ Changed (" + result.changed().size() + ")");
+        for (JsonDiff.Change c : result.changed()) {
+            String label = c.before().label() + (c.renamed() ? " → \"" + c.after().name() + "\"" : "");
+            TreeItem<String> item = new TreeItem<>(label);
+            for (JsonDiff.FieldChange f : c.fields()) {
+                item.getChildren().add(new TreeItem<>(f.path() + ": "
+                    + (f.before() == null ? "(absent)" : f.before()) + " → "
+                    + (f.after() == null ? "(absent)" : f.after())));
+            }
+            changed.getChildren().add(item);
+        }
+        root.getChildren().addAll(List.of(removed, added, changed));
+        root.getChildren().forEach(item -> item.setExpanded(!item.getChildren().isEmpty()));
+
+        TreeView<String> tree = new TreeView<>(root);
+        tree.setShowRoot(false);
+        VBox.setVgrow(tree, javafx.scene.layout.Priority.ALWAYS);
+
+        VBox content = new VBox(10, titleLabel, summaryLabel, tree);
+        content.setStyle("-fx-padding: 15;");
+        javafx.scene.Scene scene = new javafx.scene.Scene(content, 800, 600);
+        Stage owner = getStage();
+        if (owner != null && owner.getScene() != null) {
+            scene.getStylesheets().addAll(owner.getScene().getStylesheets());
+        }
+        dialog.setScene(scene);
+        dialog.show();
+    }
+
     // ---------- Voice Group Validation Methods ----------
 
     /**
@@ -6244,7 +6430,7 @@ public class AppController {
             }
             
             updateVoiceGroupStats();
-            refreshAllTables(); // Trigger re-validation/repainting
+            runValidation(); // Re-validate against the new list, then repaint
             showInfo("Loaded " + loadedVoiceGroups.size() + " voice groups.");
         });
         
@@ -6261,7 +6447,7 @@ public class AppController {
             loadedVoiceGroups.clear();
         }
         updateVoiceGroupStats();
-        refreshAllTables();
+        runValidation();
         
         // Clear the loaded state and checkmark from the Load Voice Group button
         if (loadVoiceGroupButton != null) {
@@ -6415,7 +6601,7 @@ public class AppController {
             }
             
             updateAssignmentRolesStats();
-            refreshAllTables(); // Trigger re-validation/repainting
+            runValidation(); // Re-validate against the new list, then repaint
             showInfo("Loaded " + loadedAssignmentRoles.size() + " assignment roles.");
         });
         
@@ -6442,7 +6628,7 @@ public class AppController {
             loadedAssignmentRoles.clear();
         }
         updateAssignmentRolesStats();
-        refreshAllTables();
+        runValidation();
         
         // Clear the loaded state and checkmark from the Load Assignment Roles button
         if (loadAssignmentRolesButton != null) {
@@ -6589,7 +6775,7 @@ public class AppController {
             }
             
             updateBedListStats();
-            refreshAllTables(); // Trigger re-validation/repainting
+            runValidation(); // Re-validate against the new list, then repaint
             showInfo("Loaded " + loadedBedList.size() + " units from bed list.");
         });
         
@@ -6624,7 +6810,7 @@ public class AppController {
         if (tableUnits != null) {
             tableUnits.refresh();
         }
-        refreshAllTables();
+        runValidation();
         
         // Clear the loaded state and checkmark from the Load Bed List button
         if (loadBedListButton != null) {
@@ -6978,7 +7164,8 @@ public class AppController {
                                       boolean useTextArea,
                                       java.util.function.Predicate<String> legacyValidator) {
         if (col == null) return;
-        col.setCellValueFactory(d -> new SimpleStringProperty(safe(getter.apply(d.getValue()))));
+        col.setCellValueFactory(d -> rowProperties.string(d.getValue(), col, getter));
+        trackOccupancy(col, getter);
         
         col.setCellFactory(column -> new TableCell<ExcelParserV5.FlowRow, String>() {
             private TextInputControl inputControl;
@@ -7007,7 +7194,13 @@ public class AppController {
                     } else {
                         setText(item);
                         setGraphic(null);
-                        if (legacyValidator != null && parser != null && !legacyValidator.test(item)) {
+                        ExcelParserV5.FlowRow row = getTableRow() == null ? null : getTableRow().getItem();
+                        Boolean flagged = validation.flagged(row, getFieldName(col));
+                        if (flagged == null) {
+                            // Row not validated yet: check the value itself
+                            flagged = legacyValidator != null && parser != null && !legacyValidator.test(item);
+                        }
+                        if (flagged) {
                              setStyle("-fx-background-color: #FFE4B5;");
                         } else {
                              setStyle("");
@@ -7074,12 +7267,14 @@ public class AppController {
                 ExcelParserV5.FlowRow row = getTableRow().getItem();
                 if (row != null) {
                     String oldValue = getter.apply(row);
+                    beforeEdit(row);
                     setter.accept(row, newValue);
                     
                     // Track changes for Save to NDW
                     trackFieldChange(row, getFieldName(col), oldValue, newValue);
+                    updateOccupancy(col, oldValue, newValue);
                     
-                    if (getTableView() != null) getTableView().refresh();
+                    rowProperties.invalidate(row);
                 }
             }
         });
@@ -7592,28 +7787,26 @@ public class AppController {
         }
     }
     
-    /**
-     * Refreshes all tables to trigger validation display.
-     * The actual validation logic runs automatically in the table cell factories
-     * which check recipient values against loadedVoiceGroups, loadedAssignmentRoles,
-     * and loadedBedList datasets. This method simply forces a visual refresh.
-     */
-    private void runNdwValidation() {
-        if (statusLabel != null) statusLabel.setText("Running NDW validation...");
-        
-        // Refresh tables to trigger validation highlighting in cell factories
-        if (tableUnits != null) tableUnits.refresh();
-        if (tableNurseCalls != null) tableNurseCalls.refresh();
-        if (tableClinicals != null) tableClinicals.refresh();
-        if (tableOrders != null) tableOrders.refresh();
-        
-        if (statusLabel != null) statusLabel.setText("NDW validation complete. Check highlighted cells for issues.");
-    }
-    
     /**
      * Handle the "Convert Engage XML to Excel" workflow for CI users.
      */
     private void handleConvertXmlWorkflow() {
+        Alert modeDialog = new Alert(Alert.AlertType.CONFIRMATION);
+        modeDialog.setTitle("Convert Engage XML to Excel");
+        modeDialog.setHeaderText("How would you like to convert the XML?");
+        modeDialog.setContentText(
+            "Convert directly: writes an NDW workbook straight from the XML. Fastest for large files.\n\n" +
+            "Load for editing: shows the flows in the tables so you can review and edit before saving.");
+        ButtonType directBtn = new ButtonType("Convert Directly", ButtonBar.ButtonData.OK_DONE);
+        ButtonType editBtn = new ButtonType("Load for Editing", ButtonBar.ButtonData.OTHER);
+        modeDialog.getButtonTypes().setAll(directBtn, editBtn, ButtonType.CANCEL);
+
+        Optional<ButtonType> choice = modeDialog.showAndWait();
+        if (choice.isEmpty() || choice.get() == ButtonType.CANCEL) return;
+        if (choice.get() == directBtn) {
+            convertXmlToNdw();
+            return;
+        }
         loadXml();
         // After loading, we're done - user is at CI Homepage
         if (statusLabel != null) statusLabel.setText("XML loaded. You can now edit and save to NDW.");
@@ -0,0 +1,101 @@
+package com.example.exceljson;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Number of non-empty cells per column of one table, used by "hide empty columns".
+ * <p>
+ * Columns are registered with the getter that feeds their cells. The counts are built in
+ * one pass over the rows when the table's row list is set (and again whenever that list is
+ * replaced, e.g. by combine / revert), then kept up to date edit by edit through
+ * {@link #update}, which reports when a column becomes empty or gets its first value.
+ * A value is empty when it is null or blank, as before.
+ */
+final class ColumnOccupancy<R> {
+
+    private static final class Counter<R> {
+        final Function<R, String> getter;
+        int filled;
+
+        Counter(Function<R, String> getter) {
+            this.getter = getter;
+        }
+    }
+
+    private final Map<Object, Counter<R>> columns = new IdentityHashMap<>();
+    private final ListChangeListener<R> recount = c -> recount(c.getList());
+    private ObservableList<R> rows;
+
+    /** Tracks {@code column}, whose cell text is {@code getter} applied to the row. */
+    void register(Object column, Function<R, String> getter) {
+        Counter<R> counter = new Counter<>(getter);
+        columns.put(column, counter);
+        if (rows != null) {
+            for (R row : rows) {
+                if (!isEmpty(getter.apply(row))) counter.filled++;
+            }
+        }
+    }
+
+    /** Counts {@code rows} and follows replacements of the list from now on. */
+    void setRows(ObservableList<R> rows) {
+        if (this.rows != null) this.rows.removeListener(recount);
+        this.rows = rows;
+        if (rows != null) rows.addListener(recount);
+        recount(rows);
+    }
+
+    private void recount(List<? extends R> rows) {
+        for (Counter<R> counter : columns.values()) {
+            counter.filled = 0;
+        }
+        if (rows == null || columns.isEmpty()) return;
+        Counter<?>[] counters = columns.values().toArray(new Counter<?>[0]);
+        for (R row : rows) {
+            for (Counter<?> c : counters) {
+                @SuppressWarnings("unchecked")
+                Counter<R> counter = (Counter<R>) c;
+                if (!isEmpty(counter.getter.apply(row))) counter.filled++;
+            }
+        }
+    }
+
+    /**
+     * Records that one cell of {@code column} changed from {@code oldValue} to {@code newValue}.
+     *
+     * @return true if the column went from empty to non-empty or back
+     */
+    boolean update(Object column, String oldValue, String newValue) {
+        Counter<R> counter = columns.get(column);
+        if (counter == null) return false;
+        boolean wasEmpty = isEmpty(oldValue);
+        boolean nowEmpty = isEmpty(newValue);
+        if (wasEmpty == nowEmpty) return false;
+        counter.filled += nowEmpty ? -1 : 1;
+        return counter.filled == (nowEmpty ? 0 : 1);
+    }
+
+    int rowCount() {
+        return rows == null ? 0 : rows.size();
+    }
+
+    boolean isTracked(Object column) {
+        return columns.containsKey(column);
+    }
+
+    /** Non-empty cells in {@code column}; 0 for columns that are not tracked. */
+    int filled(Object column) {
+        Counter<R> counter = columns.get(column);
+        return counter == null ? 0 : counter.filled;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.exceljson;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Structured load diagnostics that stay off the parsing thread.
+ * <p>
+ * Events (code, sheet, row, column, message) are tallied per code, sheet and column and
+ * placed on a lock-free queue; a shared daemon thread drains the queue to log4j. Only the
+ * first {@link #DEFAULT_LOG_LIMIT} events of each tally are logged, the rest are counted
+ * and reported as one "suppressed" line by {@link #flush()}. Events with an audit code are
+ * never suppressed, since each one records something the load changed. Messages may be passed
+ * as a {@link Supplier}, which is only called for events that are actually logged.
+ * {@link #toSummaryText()} lists the tallies for the load summary.
+ * <pre>
+ * diagnostics.warn("FORMULA_EVAL_FAILED", sheet, row, col, () -> "=VLOOKUP(...): " + error);
+ * </pre>
+ */
+public final class Diagnostics {
+
+    /** Number of events logged per code/sheet/column before the rest are only counted. */
+    public static final int DEFAULT_LOG_LIMIT = 5;
+
+    private static final Logger LOG = LogManager.getLogger(Diagnostics.class);
+
+    private static final ExecutorService DRAIN = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "diagnostics-drain");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public enum Level { INFO, WARN }
+
+    /**
+     * One diagnostic. {@code row} is 1-based as shown in Excel, {@code column} is the
+     * 0-based column index; either is -1 when it does not apply.
+     */
+    public record Event(String code, Level level, String sheet, int row, int column, String message) {
+        /** Single log line, e.g. {@code [EMDAN_MOVED] 'Nurse call'!R12: Moved ...}. */
+        public String toLogLine() {
+            return "[" + code + "] " + location(sheet, row, column) + message;
+        }
+    }
+
+    /**
+     * Immutable snapshot of all events sharing a code, sheet and column.
+     */
+    public record Tally(String code, Level level, String sheet, int column, long count, Event first) {
+    }
+
+    private record Key(String code, String sheet, int column) {
+    }
+
+    private static final class Counter {
+        final long order;
+        final Event first;
+        final LongAdder count = new LongAdder();
+        final AtomicInteger queued = new AtomicInteger();
+        final LongAdder suppressed = new LongAdder();
+        final AtomicBoolean suppressionReported = new AtomicBoolean();
+
+        Counter(long order, Event first) {
+            this.order = order;
+            this.first = first;
+        }
+    }
+
+    private final int logLimit;
+    private final Set<String> auditCodes;
+    private final ConcurrentLinkedQueue<Event> pending = new ConcurrentLinkedQueue<>();
+    private final Map<Key, Counter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    public Diagnostics() {
+        this(DEFAULT_LOG_LIMIT);
+    }
+
+    public Diagnostics(int logLimit) {
+        this(logLimit, Set.of());
+    }
+
+    /**
+     * @param logLimit   events logged per code/sheet/column before the rest are only counted
+     * @param auditCodes codes whose events are all logged, e.g. one per relocated alarm
+     */
+    public Diagnostics(int logLimit, Set<String> auditCodes) {
+        this.logLimit = logLimit;
+        this.auditCodes = Set.copyOf(auditCodes);
+    }
+
+    public void info(String code, String sheet, int row, int column, String message) {
+        record(code, Level.INFO, sheet, row, column, () -> message);
+    }
+
+    public void info(String code, String sheet, int row, int column, Supplier<String> message) {
+        record(code, Level.INFO, sheet, row, column, message);
+    }
+
+    public void warn(String code, String sheet, int row, int column, String message) {
+        record(code, Level.WARN, sheet, row, column, () -> message);
+    }
+
+    public void warn(String code, String sheet, int row, int column, Supplier<String> message) {
+        record(code, Level.WARN, sheet, row, column, message);
+    }
+
+    /**
+     * Tallies the event and, while its tally is under the log limit (or its code is an audit
+     * code), queues it for the drain thread. Safe to call from any thread; never blocks on I/O.
+     */
+    public void record(Event event) {
+        record(event.code(), event.level(), event.sheet(), event.row(), event.column(), event::message);
+    }
+
+    private void record(String code, Level level, String sheet, int row, int column, Supplier<String> message) {
+        Event[] created = new Event[1];
+        Counter counter = counters.computeIfAbsent(new Key(code, sheet, column), k -> {
+            created[0] = new Event(code, level, sheet, row, column, message.get());
+            return new Counter(sequence.getAndIncrement(), created[0]);
+        });
+        counter.count.increment();
+        if (auditCodes.contains(code) || counter.queued.incrementAndGet() <= logLimit) {
+            pending.offer(created[0] != null ? created[0] : new Event(code, level, sheet, row, column, message.get()));
+            scheduleDrain();
+        } else {
+            counter.suppressed.increment();
+        }
+    }
+
+    /**
+     * Drains queued events and logs one line per tally whose events were suppressed.
+     * Runs on the drain thread; the returned future completes once everything is logged.
+     */
+    public Future<?> flush() {
+        return DRAIN.submit(() -> {
+            drain();
+            for (Tally tally : tallies()) {
+                Counter counter = counters.get(new Key(tally.code(), tally.sheet(), tally.column()));
+                long suppressed = counter != null ? counter.suppressed.sum() : 0;
+                if (suppressed > 0 && counter.suppressionReported.compareAndSet(false, true)) {
+                    log(tally.level(), "[" + tally.code() + "] " + location(tally.sheet(), -1, tally.column())
+                        + suppressed + " more suppressed");
+                }
+            }
+        });
+    }
+
+    /** Waits for {@link #flush()} to finish, e.g. before a CLI job exits. */
+    public void flushAndWait(long timeout, TimeUnit unit) {
+        try {
+            flush().get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.warn("Diagnostics flush did not complete: {}", e.toString());
+        }
+    }
+
+    /**
+     * Re-creates tallies saved with a session snapshot, so a restored load reports the same
+     * diagnostics as the original one. Restored events are not logged again.
+     */
+    void restore(List<Tally> tallies) {
+        for (Tally t : tallies) {
+            Counter counter = new Counter(sequence.getAndIncrement(), t.first());
+            counter.count.add(t.count());
+            counter.queued.set((int) Math.min(Integer.MAX_VALUE, t.count()));
+            if (!auditCodes.contains(t.code())) counter.suppressed.add(Math.max(0, t.count() - logLimit));
+            counter.suppressionReported.set(true);
+            counters.put(new Key(t.code(), t.sheet(), t.column()), counter);
+        }
+    }
+
+    /** Forgets all tallies; events already queued are still logged. */
+    public void reset() {
+        counters.clear();
+    }
+
+    /** Total number of recorded events, including suppressed ones. */
+    public long count() {
+        return counters.values().stream().mapToLong(c -> c.count.sum()).sum();
+    }
+
+    /** Number of recorded events with the given code. */
+    public long count(String code) {
+        return counters.entrySet().stream()
+            .filter(e -> e.getKey().code().equals(code))
+            .mapToLong(e -> e.getValue().count.sum())
+            .sum();
+    }
+
+    /** Number of events with the given code that were counted but not logged. */
+    long suppressed(String code) {
+        return counters.entrySet().stream()
+            .filter(e -> e.getKey().code().equals(code))
+            .mapToLong(e -> e.getValue().suppressed.sum())
+            .sum();
+    }
+
+    /** Tallies in the order they were first seen. */
+    public List<Tally> tallies() {
+        List<Map.Entry<Key, Counter>> entries = new ArrayList<>(counters.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().order));
+        List<Tally> result = new ArrayList<>(entries.size());
+        for (Map.Entry<Key, Counter> e : entries) {
+            Counter c = e.getValue();
+            result.add(new Tally(e.getKey().code(), c.first.level(), e.getKey().sheet(), e.getKey().column(),
+                c.count.sum(), c.first));
+        }
+        return result;
+    }
+
+    /**
+     * One line per tally for the load summary, or an empty string when nothing was recorded.
+     */
+    public String toSummaryText() {
+        List<Tally> tallies = tallies();
+        if (tallies.isEmpty()) return "";
+        StringBuilder sb = new StringBuilder("Diagnostics:");
+        for (Tally t : tallies) {
+            sb.append(String.format(Locale.ROOT, "%n  • %s %s × %d — %sfirst: %s",
+                t.level() == Level.WARN ? "⚠️" : "ℹ️", t.code(), t.count(),
+                location(t.sheet(), t.first().row(), t.column()), t.first().message()));
+        }
+        return sb.toString();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            DRAIN.execute(() -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    private void drain() {
+        Event event;
+        while ((event = pending.poll()) != null) {
+            log(event.level(), event.toLogLine());
+        }
+    }
+
+    private static void log(Level level, String line) {
+        if (level == Level.WARN) {
+            LOG.warn(line);
+        } else {
+            LOG.info(line);
+        }
+    }
+
+    private static String location(String sheet, int row, int column) {
+        StringBuilder sb = new StringBuilder();
+        if (sheet != null) sb.append('\'').append(sheet).append('\'');
+        if (row >= 0 || column >= 0) {
+            if (sheet != null) sb.append('!');
+            if (column >= 0) sb.append(columnName(column));
+            if (row >= 0) sb.append(column >= 0 ? "" : "R").append(row);
+        }
+        if (sb.length() > 0) sb.append(": ");
+        return sb.toString();
+    }
+
+    /** Excel column letters for a 0-based index (0 → A, 26 → AA). */
+    static String columnName(int column) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = column; c >= 0; c = c / 26 - 1) {
+            sb.insert(0, (char) ('A' + c % 26));
+        }
+        return sb.toString();
+    }
+}
@@ -1,10 +1,17 @@
 package com.example.exceljson;
 
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFCell;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -67,25 +74,74 @@ public class ExcelParserV5 {
     public String t4 = ""; public String r4 = "";
     public String t5 = ""; public String r5 = "";
     public String customTabSource = ""; // Name of the custom tab this flow came from (if any)
+    public int version = 0; // Bumped on every edit; keys cached flows in FlowBuildCache
+    FlowRow snapshotOf; // Live row this one was copied from by snapshot() (null for live rows)
     
     // Change tracking fields
     public int excelRowIndex = -1; // Row index in Excel sheet
-    public final Map<String, String> originalValues = new LinkedHashMap<>(); // Original values from Excel
-    public final Set<String> changedFields = new LinkedHashSet<>(); // Fields that were modified
+    public final Map<String, String> originalValues = new FlowRowFields.OriginalValues(); // Original values from Excel
+    public final Set<String> changedFields = new FlowRowFields.ChangedFields(); // Fields that were modified
+  }
+
+  /** One unit of a configuration group, as listed on the Unit Breakdown sheet. */
+  record UnitRef(String facilityName, String name, String noCaregiverGroup, String podRoomFilter) {
+    UnitRef {
+      facilityName = facilityName == null ? "" : facilityName;
+      name = name == null ? "" : name;
+      noCaregiverGroup = noCaregiverGroup == null ? "" : noCaregiverGroup;
+      podRoomFilter = podRoomFilter == null ? "" : podRoomFilter;
+    }
+  }
+
+  private record ResolvedUnitsKey(String configGroup, String customTabSource, String flowType) {}
+
+  /**
+   * Units of one configuration group plus the strings {@link #buildMergeKey} appends for them,
+   * computed once per group instead of re-sorting and re-joining the units for every row.
+   */
+  private record ResolvedUnits(List<UnitRef> units, String unitsKey, String noCareKey, String distinctNoCareKey) {
+    static final ResolvedUnits EMPTY = of(List.of());
+
+    static ResolvedUnits of(List<UnitRef> units) {
+      List<String> noCare = units.stream()
+        .map(u -> u.facilityName() + ":" + u.noCaregiverGroup())
+        .sorted()
+        .collect(Collectors.toList());
+      String unitsKey = units.stream()
+        .map(u -> u.facilityName() + ":" + u.name())
+        .sorted()
+        .collect(Collectors.joining(","));
+      return new ResolvedUnits(units, unitsKey, String.join(",", noCare),
+        noCare.stream().distinct().collect(Collectors.joining(",")));
+    }
   }
 
   // ---------- Config / parsing helpers ----------
-  public final List<UnitRow> units = new ArrayList<>();
-  public final List<FlowRow> nurseCalls = new ArrayList<>();
-  public final List<FlowRow> clinicals = new ArrayList<>();
-  public final List<FlowRow> orders = new ArrayList<>();
-
-  private final Map<String, List<Map<String, String>>> nurseGroupToUnits = new LinkedHashMap<>();
-  private final Map<String, List<Map<String, String>>> clinicalGroupToUnits = new LinkedHashMap<>();
-  private final Map<String, List<Map<String, String>>> ordersGroupToUnits = new LinkedHashMap<>();
+  public final List<UnitRow> units;
+  public final List<FlowRow> nurseCalls;
+  public final List<FlowRow> clinicals;
+  public final List<FlowRow> orders;
+
+  private final Map<String, List<UnitRef>> nurseGroupToUnits = new LinkedHashMap<>();
+  private final Map<String, List<UnitRef>> clinicalGroupToUnits = new LinkedHashMap<>();
+  private final Map<String, List<UnitRef>> ordersGroupToUnits = new LinkedHashMap<>();
   // Map for custom tab groups: configGroup -> units (similar to above)
   // This stores mappings for custom tabs. Key is the config group name, value is list of units.
-  private final Map<String, Map<String, List<Map<String, String>>>> customGroupToUnits = new LinkedHashMap<>();
+  private final Map<String, Map<String, List<UnitRef>>> customGroupToUnits = new LinkedHashMap<>();
+  // Units resolved per (configGroup, customTabSource, flowType), with their merge-key signatures.
+  // Dropped whenever the group maps above change.
+  private final Map<ResolvedUnitsKey, ResolvedUnits> resolvedUnits = new ConcurrentHashMap<>();
+  // Unit map state as last applied per unit row (by identity), so edits patch only their groups
+  private final Map<UnitRow, AppliedUnit> appliedUnits = new IdentityHashMap<>();
+  private final List<UnitRow> appliedOrder = new ArrayList<>();
+  private final Map<GroupKey, Set<String>> noCareKeysByGroup = new HashMap<>();
+  // Bumped whenever the group maps change; with parserId it identifies the maps in cache keys
+  private long unitMapVersion = 0;
+  private final long parserId = NEXT_PARSER_ID.getAndIncrement();
+  // Cache key of maps taken over from another parser (syncUnitMapsFrom, snapshot), valid while
+  // unitMapVersion == adoptedAtVersion
+  private String adoptedUnitMapKey;
+  private long adoptedAtVersion = -1;
   // Map from (facility, configGroup) -> No Caregiver Group value
   // Key format: "facilityName|configGroupType|configGroup" where configGroupType is "nurse", "clinical", "orders", or custom tab name
   private final Map<String, String> noCaregiverByFacilityAndGroup = new LinkedHashMap<>();
@@ -104,6 +160,56 @@ public class ExcelParserV5 {
   
   // Formula evaluator for processing Excel formulas
   private FormulaEvaluator formulaEvaluator = null;
+
+  // Per-load formula results by sheet, keyed by (row << 32 | column); header detection re-reads cells
+  private Map<Sheet, Map<Long, String>> formulaResults = null;
+
+  // Re-evaluate every formula instead of trusting the results Excel saved with the workbook
+  private boolean recalculateFormulas = false;
+
+  // Per-load dictionary of cell text; repeated values (priorities, devices, groups) share one String
+  private Map<String, String> cellStrings = null;
+
+  // Per-phase timing/allocation metrics for load, build and update operations
+  private final PhaseMetrics metrics = new PhaseMetrics();
+
+  // Row/cell-level load events (EMDAN moves, formula failures), logged off the parsing thread
+  // EMDAN relocations are an audit trail: every moved alarm is logged, none are suppressed
+  private final Diagnostics diagnostics =
+    new Diagnostics(Diagnostics.DEFAULT_LOG_LIMIT, Set.of("EMDAN_MOVED", "EMDAN_MOVED_NO_FACILITY"));
+
+  // Optional memo of built delivery flows (null = always rebuild)
+  private FlowBuildCache flowCache = null;
+  // Guarded by itself; replaced by the source's cache in snapshot copies and views
+  private Map<RecipientKey, ParsedRecipient> recipientCache = newRecipientCache();
+
+  // True for detached copies created by snapshot(); their rows are never edited
+  private boolean detached = false;
+
+  // Copy-before-write table of a snapshotView() parser (null for live parsers and deep snapshots)
+  private FrozenRows.Overrides overrides = null;
+
+  // Views taken from this live parser that still need rows preserved before edits
+  private final List<java.lang.ref.WeakReference<FrozenRows.Overrides>> openViews = new ArrayList<>();
+
+  // Shared workers for building the three flow types side by side
+  private static final AtomicLong NEXT_PARSER_ID = new AtomicLong();
+  private static final ExecutorService BUILD_POOL = Executors.newFixedThreadPool(3, r -> {
+    Thread t = new Thread(r, "json-build");
+    t.setDaemon(true);
+    return t;
+  });
+
+  public ExcelParserV5() {
+    this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+  }
+
+  private ExcelParserV5(List<UnitRow> units, List<FlowRow> nurseCalls, List<FlowRow> clinicals, List<FlowRow> orders) {
+    this.units = units;
+    this.nurseCalls = nurseCalls;
+    this.clinicals = clinicals;
+    this.orders = orders;
+  }
   
   // Default interface reference names (editable via GUI)
   private String edgeReferenceName = "OutgoingWCTP";
@@ -125,6 +231,9 @@ public class ExcelParserV5 {
   // Custom tab mappings: tab name -> flow type ("NurseCalls", "Clinicals", or "Orders")
   private final Map<String, String> customTabMappings = new LinkedHashMap<>();
 
+  // Device-A/Device-B classification per distinct pair (cleared when interface settings change)
+  private final Map<DeviceKey, DeviceProfile> deviceProfiles = new ConcurrentHashMap<>();
+
   public void setInterfaceReferences(String edgeRef, String vcsRef) {
     // Basic validation - ensure references are reasonable
     if (edgeRef != null && !edgeRef.isBlank() && edgeRef.length() <= 100) {
@@ -133,6 +242,7 @@ public class ExcelParserV5 {
     if (vcsRef != null && !vcsRef.isBlank() && vcsRef.length() <= 100) {
       this.vcsReferenceName = vcsRef.trim();
     }
+    deviceProfiles.clear();
   }
   
   public void setInterfaceReferences(String edgeRef, String vcsRef, String voceraRef) {
@@ -146,6 +256,7 @@ public class ExcelParserV5 {
     if (voceraRef != null && !voceraRef.isBlank() && voceraRef.length() <= 100) {
       this.voceraReferenceName = voceraRef.trim();
     }
+    deviceProfiles.clear();
   }
   
   public void setInterfaceReferences(String edgeRef, String vcsRef, String voceraRef, String xmppRef) {
@@ -162,17 +273,20 @@ public class ExcelParserV5 {
     if (xmppRef != null && !xmppRef.isBlank() && xmppRef.length() <= 100) {
       this.xmppReferenceName = xmppRef.trim();
     }
+    deviceProfiles.clear();
   }
   
   public void setDefaultInterfaces(boolean defaultEdge, boolean defaultVmp) {
     this.useDefaultEdge = defaultEdge;
     this.useDefaultVmp = defaultVmp;
+    deviceProfiles.clear();
   }
   
   public void setDefaultInterfaces(boolean defaultEdge, boolean defaultVmp, boolean defaultVocera) {
     this.useDefaultEdge = defaultEdge;
     this.useDefaultVmp = defaultVmp;
     this.useDefaultVocera = defaultVocera;
+    deviceProfiles.clear();
   }
   
   public void setDefaultInterfaces(boolean defaultEdge, boolean defaultVmp, boolean defaultVocera, boolean defaultXmpp) {
@@ -180,6 +294,7 @@ public class ExcelParserV5 {
     this.useDefaultVmp = defaultVmp;
     this.useDefaultVocera = defaultVocera;
     this.useDefaultXmpp = defaultXmpp;
+    deviceProfiles.clear();
   }
   
   public void setRoomFilters(String nursecall, String clinical, String orders) {
@@ -243,21 +358,28 @@ public class ExcelParserV5 {
     return null;
   }
 
-  private static final String SHEET_UNIT = "Unit Breakdown";
-  private static final String SHEET_NURSE = "Nurse Call";
-  private static final String SHEET_CLINICAL = "Patient Monitoring";
-  private static final String SHEET_ORDERS = "Order";
+  /**
+   * Version of the load logic. Bump whenever {@link #load} can produce different rows, warnings
+   * or diagnostics for the same workbook; session snapshots from other versions are then ignored.
+   */
+  public static final int LOAD_VERSION = 3;
+
+  static final String SHEET_UNIT = "Unit Breakdown";
+  static final String SHEET_NURSE = "Nurse Call";
+  static final String SHEET_CLINICAL = "Patient Monitoring";
+  static final String SHEET_ORDERS = "Order";
   
   // Unit map field keys
   private static final String UNIT_FIELD_FACILITY = "facilityName";
   private static final String UNIT_FIELD_NAME = "name";
-  private static final String UNIT_FIELD_NO_CAREGIVER = "noCaregiverGroup";
   
-  // Regex pattern to strip special characters from Custom Unit role names
-  private static final String SPECIAL_CHARS_PATTERN = "[^a-zA-Z0-9\\s]";
+  // "CS" as a whole word in recipient validation
+  private static final java.util.regex.Pattern CS_WORD_PATTERN = java.util.regex.Pattern.compile("\\bcs\\b");
   
-  // Regex pattern to strip leading special characters after "Room" keyword
-  private static final String LEADING_SPECIAL_CHARS_PATTERN = "^[^a-zA-Z0-9]+";
+  // Parsed recipients keyed by (raw text, default facility); the same few strings recur on every row.
+  // Each parser has its own LRU cache (shared with its snapshots and views), emptied on load.
+  static final int RECIPIENT_CACHE_LIMIT = 4096;
+  private record RecipientKey(String raw, String defaultFacility) {}
 
   // NurseCallsCondition (requested default)
   private static final List<Map<String, Object>> NURSE_CONDITIONS;
@@ -279,23 +401,115 @@ public class ExcelParserV5 {
   public void load(File excelFile) throws Exception {
     Objects.requireNonNull(excelFile, "excelFile");
     clear();
+    metrics.reset();
+    diagnostics.reset();
+    PhaseMetrics.Phase total = metrics.start("load.total");
+    PhaseMetrics.Phase open = metrics.start("load.openWorkbook");
     try (FileInputStream fis = new FileInputStream(excelFile);
          Workbook wb = new XSSFWorkbook(fis)) {
+      open.count(wb.getNumberOfSheets()).close();
       // Create formula evaluator for this workbook
       formulaEvaluator = wb.getCreationHelper().createFormulaEvaluator();
+      formulaResults = new IdentityHashMap<>();
+      cellStrings = new HashMap<>();
       
-      parseUnitBreakdown(wb);
-      parseFlowSheet(wb, SHEET_NURSE, true, false);
-      parseFlowSheet(wb, SHEET_CLINICAL, false, false);
-      parseFlowSheet(wb, SHEET_ORDERS, false, true);
+      try (PhaseMetrics.Phase p = metrics.start("load.unitBreakdown")) {
+        parseUnitBreakdown(wb);
+        recordAppliedUnits();
+        p.count(units.size());
+      }
+      parseFlowSheetTimed("load.nurseCall", wb, SHEET_NURSE, true, false);
+      parseFlowSheetTimed("load.patientMonitoring", wb, SHEET_CLINICAL, false, false);
+      parseFlowSheetTimed("load.orders", wb, SHEET_ORDERS, false, true);
       
       // Process custom tab mappings
-      processCustomTabs(wb);
+      try (PhaseMetrics.Phase p = metrics.start("load.customTabs")) {
+        processCustomTabs(wb);
+        p.count(customTabRowCounts.values().stream().mapToInt(Integer::intValue).sum());
+      }
     } finally {
       // Clear the evaluator after loading
       formulaEvaluator = null;
+      formulaResults = null;
+      cellStrings = null;
+      open.close();
+      total.count(units.size() + nurseCalls.size() + clinicals.size() + orders.size()).close();
+      diagnostics.flush();
+    }
+  }
+
+  /**
+   * Parses a standard flow sheet and records it as a metrics phase counting the rows it added.
+   */
+  private void parseFlowSheetTimed(String phase, Workbook wb, String sheetName, boolean nurseSide, boolean ordersType) throws Exception {
+    int before = nurseCalls.size() + clinicals.size() + orders.size();
+    try (PhaseMetrics.Phase p = metrics.start(phase)) {
+      parseFlowSheet(wb, sheetName, nurseSide, ordersType);
+      p.count(nurseCalls.size() + clinicals.size() + orders.size() - before);
     }
   }
+
+  /**
+   * Replaces the loaded state with rows restored from a {@link SessionSnapshot}.
+   * Group-to-unit maps are rebuilt from the restored units.
+   */
+  void applySnapshot(List<UnitRow> snapshotUnits, List<FlowRow> snapshotNurse, List<FlowRow> snapshotClinical,
+                     List<FlowRow> snapshotOrders, List<String> warnings, int emdanMoved,
+                     Map<String, Integer> customTabCounts) {
+    clear();
+    metrics.reset();
+    diagnostics.reset();
+    units.addAll(snapshotUnits);
+    nurseCalls.addAll(snapshotNurse);
+    clinicals.addAll(snapshotClinical);
+    orders.addAll(snapshotOrders);
+    loadWarnings.addAll(warnings);
+    emdanMovedCount = emdanMoved;
+    customTabRowCounts.putAll(customTabCounts);
+    rebuildUnitMaps();
+  }
+
+  /**
+   * Returns the per-phase metrics recorded by the most recent load, loadJson,
+   * buildJson and updateExcel calls.
+   */
+  public PhaseMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Returns the diagnostics recorded by the most recent {@link #load}.
+   */
+  public Diagnostics getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * Enables memoisation of built delivery flows. Rows are only rebuilt when their
+   * {@link FlowRow#version} changes or the build context (unit maps, interface settings,
+   * room filters, merge mode) differs from the cached one. Callers that edit rows must bump
+   * {@code version}; pass {@code null} to disable caching.
+   */
+  public void setFlowCache(FlowBuildCache flowCache) {
+    this.flowCache = flowCache;
+  }
+
+  public FlowBuildCache getFlowCache() {
+    return flowCache;
+  }
+
+  /**
+   * When true, {@link #load} evaluates every formula with POI. By default the results Excel
+   * saved with the workbook are used, and only formulas without a saved result (e.g. files
+   * written by tools that do not calculate) are evaluated.
+   */
+  public void setRecalculateFormulas(boolean recalculateFormulas) {
+    this.recalculateFormulas = recalculateFormulas;
+  }
+
+  public boolean isRecalculateFormulas() {
+    return recalculateFormulas;
+  }
   
   /**
    * Processes custom tabs defined in customTabMappings.
@@ -365,6 +579,11 @@ public class ExcelParserV5 {
       units.size(), nurseCalls.size(), clinicals.size(), orders.size(),
       nurseGroupToUnits.size(), clinicalGroupToUnits.size(), ordersGroupToUnits.size()));
     
+    String diagnosticsText = diagnostics.toSummaryText();
+    if (!diagnosticsText.isEmpty()) {
+      summary.append("\n\n").append(diagnosticsText);
+    }
+    
     return summary.toString();
   }
   
@@ -413,6 +632,9 @@ public class ExcelParserV5 {
   }
 
   private void clear() {
+    synchronized (recipientCache) {
+      recipientCache.clear();
+    }
     units.clear();
     nurseCalls.clear();
     clinicals.clear();
@@ -421,6 +643,11 @@ public class ExcelParserV5 {
     clinicalGroupToUnits.clear();
     ordersGroupToUnits.clear();
     noCaregiverByFacilityAndGroup.clear();
+    resolvedUnits.clear();
+    appliedUnits.clear();
+    appliedOrder.clear();
+    noCareKeysByGroup.clear();
+    unitMapVersion++;
     emdanMovedCount = 0;
     customTabRowCounts.clear();
     loadWarnings.clear();
@@ -432,24 +659,38 @@ public class ExcelParserV5 {
    * Supports both combined JSON format (with nurseCalls and clinicals sections)
    * and individual flow type JSON files.
    */
-  @SuppressWarnings("unchecked")
   public void loadJson(File jsonFile) throws Exception {
     Objects.requireNonNull(jsonFile, "jsonFile");
     clear();
-    
+    metrics.reset();
+    try (PhaseMetrics.Phase total = metrics.start("loadJson.total")) {
+      loadJsonPhases(jsonFile);
+      total.count(units.size() + nurseCalls.size() + clinicals.size() + orders.size());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void loadJsonPhases(File jsonFile) throws Exception {
     // Read JSON file
     StringBuilder content = new StringBuilder();
-    try (BufferedReader reader = new BufferedReader(new FileReader(jsonFile))) {
+    try (PhaseMetrics.Phase p = metrics.start("loadJson.read");
+         BufferedReader reader = new BufferedReader(new FileReader(jsonFile))) {
       String line;
       while ((line = reader.readLine()) != null) {
         content.append(line).append("\n");
       }
+      p.count(content.length());
     }
     
     String jsonText = content.toString().trim();
     
     // Parse JSON manually (simple parser without external dependencies)
-    Map<String, Object> root = parseJsonObject(jsonText);
+    Map<String, Object> root;
+    try (PhaseMetrics.Phase p = metrics.start("loadJson.parse")) {
+      root = parseJsonObject(jsonText);
+      p.count(root.size());
+    }
+    PhaseMetrics.Phase flowsPhase = metrics.start("loadJson.flows");
     
     // Check if this is a combined JSON (has nurseCalls and/or clinicals keys)
     if (root.containsKey("nurseCalls")) {
@@ -479,9 +720,15 @@ public class ExcelParserV5 {
         }
       }
     }
+    flowsPhase.count(nurseCalls.size() + clinicals.size() + orders.size()).close();
     
     // Generate UnitRows from the group-to-units mappings
-    generateUnitRowsFromMappings();
+    try (PhaseMetrics.Phase p = metrics.start("loadJson.units")) {
+      generateUnitRowsFromMappings();
+      p.count(units.size());
+    }
+    // Group maps came from the JSON units, not the generated rows; the first sync rebuilds them
+    unitMapVersion++;
   }
   
   /**
@@ -495,15 +742,15 @@ public class ExcelParserV5 {
     Map<String, UnitRow> uniqueUnits = new LinkedHashMap<>();
     
     // Process nurse call groups
-    for (Map.Entry<String, List<Map<String, String>>> entry : nurseGroupToUnits.entrySet()) {
+    for (Map.Entry<String, List<UnitRef>> entry : nurseGroupToUnits.entrySet()) {
       String configGroup = entry.getKey();
-      List<Map<String, String>> unitMaps = entry.getValue();
+      List<UnitRef> unitRefs = entry.getValue();
       
-      for (Map<String, String> unitMap : unitMaps) {
-        String facility = unitMap.getOrDefault("facilityName", "");
-        String unitName = unitMap.getOrDefault("name", "");
-        String noCare = unitMap.getOrDefault("noCaregiverGroup", "");
-        String podRoomFilter = unitMap.getOrDefault("podRoomFilter", "");
+      for (UnitRef unitRef : unitRefs) {
+        String facility = unitRef.facilityName();
+        String unitName = unitRef.name();
+        String noCare = unitRef.noCaregiverGroup();
+        String podRoomFilter = unitRef.podRoomFilter();
         
         // Use lowercase key to combine units/facilities with same name but different cases
         String key = facility.toLowerCase() + "|" + unitName.toLowerCase();
@@ -533,15 +780,15 @@ public class ExcelParserV5 {
     }
     
     // Process clinical groups
-    for (Map.Entry<String, List<Map<String, String>>> entry : clinicalGroupToUnits.entrySet()) {
+    for (Map.Entry<String, List<UnitRef>> entry : clinicalGroupToUnits.entrySet()) {
       String configGroup = entry.getKey();
-      List<Map<String, String>> unitMaps = entry.getValue();
+      List<UnitRef> unitRefs = entry.getValue();
       
-      for (Map<String, String> unitMap : unitMaps) {
-        String facility = unitMap.getOrDefault("facilityName", "");
-        String unitName = unitMap.getOrDefault("name", "");
-        String noCare = unitMap.getOrDefault("noCaregiverGroup", "");
-        String podRoomFilter = unitMap.getOrDefault("podRoomFilter", "");
+      for (UnitRef unitRef : unitRefs) {
+        String facility = unitRef.facilityName();
+        String unitName = unitRef.name();
+        String noCare = unitRef.noCaregiverGroup();
+        String podRoomFilter = unitRef.podRoomFilter();
         
         // Use lowercase key to combine units/facilities with same name but different cases
         String key = facility.toLowerCase() + "|" + unitName.toLowerCase();
@@ -571,15 +818,15 @@ public class ExcelParserV5 {
     }
     
     // Process orders groups
-    for (Map.Entry<String, List<Map<String, String>>> entry : ordersGroupToUnits.entrySet()) {
+    for (Map.Entry<String, List<UnitRef>> entry : ordersGroupToUnits.entrySet()) {
       String configGroup = entry.getKey();
-      List<Map<String, String>> unitMaps = entry.getValue();
+      List<UnitRef> unitRefs = entry.getValue();
       
-      for (Map<String, String> unitMap : unitMaps) {
-        String facility = unitMap.getOrDefault("facilityName", "");
-        String unitName = unitMap.getOrDefault("name", "");
-        String noCare = unitMap.getOrDefault("noCaregiverGroup", "");
-        String podRoomFilter = unitMap.getOrDefault("podRoomFilter", "");
+      for (UnitRef unitRef : unitRefs) {
+        String facility = unitRef.facilityName();
+        String unitName = unitRef.name();
+        String noCare = unitRef.noCaregiverGroup();
+        String podRoomFilter = unitRef.podRoomFilter();
         
         // Use lowercase key to combine units/facilities with same name but different cases
         String key = facility.toLowerCase() + "|" + unitName.toLowerCase();
@@ -896,13 +1143,11 @@ public class ExcelParserV5 {
               unitConfigGroup = unit + "_" + dataset;
             }
             
-            // Create unit reference map
-            Map<String, String> unitRef = new LinkedHashMap<>();
-            unitRef.put("facilityName", fac);
-            unitRef.put("name", unit);
+            // Create unit reference
+            UnitRef unitRef = new UnitRef(fac, unit, "", "");
             
             // Add to appropriate group-to-units mapping with the unit-specific config group
-            Map<String, List<Map<String, String>>> groupMap;
+            Map<String, List<UnitRef>> groupMap;
             if (isNurseSide) {
               groupMap = nurseGroupToUnits;
             } else if (isOrders) {
@@ -1191,8 +1436,10 @@ public class ExcelParserV5 {
       return;
     }
 
+    long headerStart = System.nanoTime();
     Row header = findHeaderRow(sh);
     Map<String,Integer> hm = headerMap(header);
+    metrics.accumulate("load.headerDetection", System.nanoTime() - headerStart, 1);
 
     int start = firstDataRow(sh, header);
     int cFacility   = getCol(hm, "Facility");
@@ -1274,7 +1521,7 @@ public class ExcelParserV5 {
       if (!isBlank(nurseGroup)) {
         for (String name : list) {
           nurseGroupToUnits.computeIfAbsent(nurseGroup, k -> new ArrayList<>())
-            .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+            .add(new UnitRef(facility, name, noCare, podRoomFilter));
         }
         // Store No Caregiver Group for this (facility, nurseGroup) pair
         if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1285,7 +1532,7 @@ public class ExcelParserV5 {
       if (!isBlank(clinGroup)) {
         for (String name : list) {
           clinicalGroupToUnits.computeIfAbsent(clinGroup, k -> new ArrayList<>())
-            .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+            .add(new UnitRef(facility, name, noCare, podRoomFilter));
         }
         // Store No Caregiver Group for this (facility, clinGroup) pair
         if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1296,7 +1543,7 @@ public class ExcelParserV5 {
       if (!isBlank(ordersGroup)) {
         for (String name : list) {
           ordersGroupToUnits.computeIfAbsent(ordersGroup, k -> new ArrayList<>())
-            .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+            .add(new UnitRef(facility, name, noCare, podRoomFilter));
         }
         // Store No Caregiver Group for this (facility, ordersGroup) pair
         if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1310,11 +1557,11 @@ public class ExcelParserV5 {
         String customTabName = customEntry.getKey();
         String customGroup = customEntry.getValue();
         if (!isBlank(customGroup)) {
-          Map<String, List<Map<String, String>>> groupMap = 
+          Map<String, List<UnitRef>> groupMap = 
             customGroupToUnits.computeIfAbsent(customTabName, k -> new LinkedHashMap<>());
           for (String name : list) {
             groupMap.computeIfAbsent(customGroup, k -> new ArrayList<>())
-              .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+              .add(new UnitRef(facility, name, noCare, podRoomFilter));
           }
           // Store No Caregiver Group for this (facility, customGroup) pair
           if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1328,6 +1575,7 @@ public class ExcelParserV5 {
 
   // ---------- Rebuild unit maps from edited units list ----------
   public void rebuildUnitMaps() {
+    resolvedUnits.clear();
     nurseGroupToUnits.clear();
     clinicalGroupToUnits.clear();
     ordersGroupToUnits.clear();
@@ -1347,7 +1595,7 @@ public class ExcelParserV5 {
       if (!isBlank(nurseGroup)) {
         for (String name : list) {
           nurseGroupToUnits.computeIfAbsent(nurseGroup, k -> new ArrayList<>())
-            .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+            .add(new UnitRef(facility, name, noCare, podRoomFilter));
         }
         // Store No Caregiver Group for this (facility, nurseGroup) pair
         if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1358,7 +1606,7 @@ public class ExcelParserV5 {
       if (!isBlank(clinGroup)) {
         for (String name : list) {
           clinicalGroupToUnits.computeIfAbsent(clinGroup, k -> new ArrayList<>())
-            .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+            .add(new UnitRef(facility, name, noCare, podRoomFilter));
         }
         // Store No Caregiver Group for this (facility, clinGroup) pair
         if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1369,7 +1617,7 @@ public class ExcelParserV5 {
       if (!isBlank(ordersGroup)) {
         for (String name : list) {
           ordersGroupToUnits.computeIfAbsent(ordersGroup, k -> new ArrayList<>())
-            .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+            .add(new UnitRef(facility, name, noCare, podRoomFilter));
         }
         // Store No Caregiver Group for this (facility, ordersGroup) pair
         if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1383,11 +1631,11 @@ public class ExcelParserV5 {
         String customTabName = customEntry.getKey();
         String customGroup = customEntry.getValue();
         if (!isBlank(customGroup)) {
-          Map<String, List<Map<String, String>>> groupMap = 
+          Map<String, List<UnitRef>> groupMap = 
             customGroupToUnits.computeIfAbsent(customTabName, k -> new LinkedHashMap<>());
           for (String name : list) {
             groupMap.computeIfAbsent(customGroup, k -> new ArrayList<>())
-              .add(Map.of("facilityName", facility, "name", name, "noCaregiverGroup", noCare, "podRoomFilter", nvl(podRoomFilter, "")));
+              .add(new UnitRef(facility, name, noCare, podRoomFilter));
           }
           // Store No Caregiver Group for this (facility, customGroup) pair
           if (!isBlank(facility) && !isBlank(noCare)) {
@@ -1397,6 +1645,209 @@ public class ExcelParserV5 {
         }
       }
     }
+    recordAppliedUnits();
+  }
+
+  // ---------- Incremental unit maps ----------
+
+  /** A configuration group column: nurse, clinical, orders or a custom tab. */
+  private record GroupKey(String type, boolean custom, String group) {}
+
+  /** The fields of a unit row that feed the group maps, as of the last apply. */
+  private record AppliedUnit(String facility, String unitNames, String podRoomFilter, String nurseGroup,
+                             String clinGroup, String ordersGroup, String noCare,
+                             Map<String, String> customGroups, List<String> names) {
+    static AppliedUnit of(UnitRow u) {
+      return new AppliedUnit(u.facility, u.unitNames, u.podRoomFilter, u.nurseGroup, u.clinGroup,
+        u.ordersGroup, u.noCareGroup, new LinkedHashMap<>(u.customGroups), splitUnits(u.unitNames));
+    }
+
+    boolean matches(UnitRow u) {
+      return Objects.equals(facility, u.facility) && Objects.equals(unitNames, u.unitNames)
+        && Objects.equals(podRoomFilter, u.podRoomFilter) && Objects.equals(nurseGroup, u.nurseGroup)
+        && Objects.equals(clinGroup, u.clinGroup) && Objects.equals(ordersGroup, u.ordersGroup)
+        && Objects.equals(noCare, u.noCareGroup) && customGroups.equals(u.customGroups);
+    }
+
+    List<GroupKey> groups() {
+      List<GroupKey> keys = new ArrayList<>(3 + customGroups.size());
+      if (!isBlank(nurseGroup)) keys.add(new GroupKey("nurse", false, nurseGroup));
+      if (!isBlank(clinGroup)) keys.add(new GroupKey("clinical", false, clinGroup));
+      if (!isBlank(ordersGroup)) keys.add(new GroupKey("orders", false, ordersGroup));
+      for (Map.Entry<String, String> e : customGroups.entrySet()) {
+        if (!isBlank(e.getValue())) keys.add(new GroupKey(e.getKey(), true, e.getValue()));
+      }
+      return keys;
+    }
+
+    boolean belongsTo(GroupKey key) {
+      String group = switch (key.custom() ? "" : key.type()) {
+        case "nurse" -> nurseGroup;
+        case "clinical" -> clinGroup;
+        case "orders" -> ordersGroup;
+        default -> customGroups.get(key.type());
+      };
+      return key.group().equals(group);
+    }
+  }
+
+  /**
+   * Version of the group-to-units maps. It changes on every rebuild or patch, so anything
+   * derived from the maps can tell when it is stale.
+   */
+  public long getUnitMapVersion() {
+    return unitMapVersion;
+  }
+
+  /**
+   * Patches the group maps after a single unit row was edited. Only the groups the row
+   * belonged to before or after the edit are recomputed. Rows not yet applied are picked
+   * up by the next {@link #syncUnitMaps()}.
+   */
+  public void unitChanged(UnitRow u) {
+    AppliedUnit before = appliedUnits.get(u);
+    if (before == null || before.matches(u)) return;
+    AppliedUnit after = AppliedUnit.of(u);
+    appliedUnits.put(u, after);
+    Set<GroupKey> affected = new LinkedHashSet<>(before.groups());
+    affected.addAll(after.groups());
+    patchGroups(affected);
+  }
+
+  /**
+   * Brings the group maps in line with {@link #units}. Edited rows are patched group by
+   * group; added, removed or reordered rows fall back to {@link #rebuildUnitMaps()}.
+   *
+   * @return true if any map changed
+   */
+  public boolean syncUnitMaps() {
+    if (!sameRows(units, appliedOrder)) {
+      rebuildUnitMaps();
+      return true;
+    }
+    Set<GroupKey> affected = new LinkedHashSet<>();
+    for (UnitRow u : units) {
+      AppliedUnit before = appliedUnits.get(u);
+      if (before.matches(u)) continue;
+      AppliedUnit after = AppliedUnit.of(u);
+      appliedUnits.put(u, after);
+      affected.addAll(before.groups());
+      affected.addAll(after.groups());
+    }
+    if (affected.isEmpty()) return false;
+    patchGroups(affected);
+    return true;
+  }
+
+  /**
+   * Adopts the group maps of {@code source} when this parser holds the same unit rows in the
+   * same order (the usual case for a GUI build with no unit filter), otherwise rebuilds.
+   * Group lists are never modified in place once built, so they are shared, not copied.
+   */
+  public void syncUnitMapsFrom(ExcelParserV5 source) {
+    source.syncUnitMaps();
+    if (!sameRows(units, source.appliedOrder)) {
+      rebuildUnitMaps();
+      return;
+    }
+    nurseGroupToUnits.clear();
+    nurseGroupToUnits.putAll(source.nurseGroupToUnits);
+    clinicalGroupToUnits.clear();
+    clinicalGroupToUnits.putAll(source.clinicalGroupToUnits);
+    ordersGroupToUnits.clear();
+    ordersGroupToUnits.putAll(source.ordersGroupToUnits);
+    customGroupToUnits.clear();
+    source.customGroupToUnits.forEach((tab, groups) -> customGroupToUnits.put(tab, new LinkedHashMap<>(groups)));
+    noCaregiverByFacilityAndGroup.clear();
+    noCaregiverByFacilityAndGroup.putAll(source.noCaregiverByFacilityAndGroup);
+    appliedUnits.clear();
+    appliedUnits.putAll(source.appliedUnits);
+    appliedOrder.clear();
+    appliedOrder.addAll(source.appliedOrder);
+    noCareKeysByGroup.clear();
+    source.noCareKeysByGroup.forEach((key, keys) -> noCareKeysByGroup.put(key, new HashSet<>(keys)));
+    resolvedUnits.clear();
+    resolvedUnits.putAll(source.resolvedUnits);
+    unitMapVersion++;
+    adoptUnitMapKey(source.unitMapKey());
+  }
+
+  /** Uses {@code key} for the current group maps, which must equal those of the parser it came from. */
+  private synchronized void adoptUnitMapKey(String key) {
+    adoptedUnitMapKey = key;
+    adoptedAtVersion = unitMapVersion;
+  }
+
+  private static boolean sameRows(List<UnitRow> a, List<UnitRow> b) {
+    if (a.size() != b.size()) return false;
+    for (int i = 0; i < a.size(); i++) {
+      if (a.get(i) != b.get(i)) return false;
+    }
+    return true;
+  }
+
+  /** Records the applied state of every unit row after the maps were built from scratch. */
+  private void recordAppliedUnits() {
+    appliedUnits.clear();
+    appliedOrder.clear();
+    noCareKeysByGroup.clear();
+    for (UnitRow u : units) {
+      AppliedUnit applied = AppliedUnit.of(u);
+      appliedUnits.put(u, applied);
+      appliedOrder.add(u);
+      if (isBlank(applied.facility()) || isBlank(applied.noCare())) continue;
+      for (GroupKey key : applied.groups()) {
+        noCareKeysByGroup.computeIfAbsent(key, k -> new HashSet<>())
+          .add(buildNoCaregiverKey(applied.facility(), key.type(), key.group()));
+      }
+    }
+    unitMapVersion++;
+  }
+
+  /**
+   * Recomputes the unit list and No Caregiver entries of the given groups from the applied
+   * unit rows, in sheet order, exactly as {@link #rebuildUnitMaps()} would produce them.
+   */
+  private void patchGroups(Set<GroupKey> affected) {
+    Set<String> affectedNames = new HashSet<>();
+    for (GroupKey key : affected) {
+      affectedNames.add(key.group());
+      List<UnitRef> refs = new ArrayList<>();
+      Map<String, String> noCare = new LinkedHashMap<>();
+      for (UnitRow u : appliedOrder) {
+        AppliedUnit a = appliedUnits.get(u);
+        if (!a.belongsTo(key)) continue;
+        for (String name : a.names()) {
+          refs.add(new UnitRef(a.facility(), name, a.noCare(), a.podRoomFilter()));
+        }
+        if (!isBlank(a.facility()) && !isBlank(a.noCare())) {
+          noCare.put(buildNoCaregiverKey(a.facility(), key.type(), key.group()), a.noCare());
+        }
+      }
+
+      Map<String, List<UnitRef>> groupMap = key.custom()
+        ? customGroupToUnits.computeIfAbsent(key.type(), k -> new LinkedHashMap<>())
+        : switch (key.type()) {
+            case "nurse" -> nurseGroupToUnits;
+            case "clinical" -> clinicalGroupToUnits;
+            default -> ordersGroupToUnits;
+          };
+      if (refs.isEmpty()) {
+        groupMap.remove(key.group());
+      } else {
+        groupMap.put(key.group(), refs);
+      }
+      if (key.custom() && groupMap.isEmpty()) customGroupToUnits.remove(key.type());
+
+      Set<String> oldKeys = noCareKeysByGroup.remove(key);
+      if (oldKeys != null) oldKeys.forEach(noCaregiverByFacilityAndGroup::remove);
+      if (!noCare.isEmpty()) {
+        noCaregiverByFacilityAndGroup.putAll(noCare);
+        noCareKeysByGroup.put(key, new HashSet<>(noCare.keySet()));
+      }
+    }
+    resolvedUnits.keySet().removeIf(k -> affectedNames.contains(k.configGroup()));
+    unitMapVersion++;
   }
 
   // ---------- Parse: Flow Sheets ----------
@@ -1426,8 +1877,10 @@ public class ExcelParserV5 {
       return;
     }
 
+    long headerStart = System.nanoTime();
     Row header = findHeaderRow(sh);
     Map<String,Integer> hm = headerMap(header);
+    metrics.accumulate("load.headerDetection", System.nanoTime() - headerStart, 1);
     int start = firstDataRow(sh, header);
     
     // Validate required headers for Flow sheets
@@ -1565,6 +2018,7 @@ public class ExcelParserV5 {
 
       // EMDAN Reclassification: if reading from Nurse Call sheet and EMDAN is Y/Yes, move to Clinicals
       if (nurseSide && isEmdanCompliant(f.emdan)) {
+        long emdanStart = System.nanoTime();
         f.type = "Clinicals";
         clinicals.add(f);
         emdanMovedCount++;
@@ -1577,14 +2031,17 @@ public class ExcelParserV5 {
         
         // Enhanced logging with facility, priority, and configuration details
         if (!isBlank(facility)) {
-          System.out.println("✅ EMDAN: Moved '" + alarmDisplay + "' from Nurse Call to Clinicals " +
-                           "[Facility: " + facility + ", Priority: " + priorityDisplay + ", Config: " + f.configGroup + "]");
+          diagnostics.info("EMDAN_MOVED", sh.getSheetName(), r + 1, -1,
+              "Moved '" + alarmDisplay + "' from Nurse Call to Clinicals " +
+              "[Facility: " + facility + ", Priority: " + priorityDisplay + ", Config: " + f.configGroup + "]");
         } else {
           // Fallback note when facility cannot be resolved
-          System.out.println("✅ EMDAN: Moved '" + alarmDisplay + "' from Nurse Call to Clinicals " +
-                           "[Priority: " + priorityDisplay + ", Config: " + f.configGroup + "] " +
-                           "(Note: Facility not resolved - verify Unit Breakdown mapping)");
+          diagnostics.info("EMDAN_MOVED_NO_FACILITY", sh.getSheetName(), r + 1, -1,
+              "Moved '" + alarmDisplay + "' from Nurse Call to Clinicals " +
+              "[Priority: " + priorityDisplay + ", Config: " + f.configGroup + "] " +
+              "(Note: Facility not resolved - verify Unit Breakdown mapping)");
         }
+        metrics.accumulate("load.emdanRelocation", System.nanoTime() - emdanStart, 1);
       } else if (ordersType) {
         orders.add(f);
       } else if (nurseSide) {
@@ -1628,21 +2085,43 @@ public class ExcelParserV5 {
 
   // ---------- Build JSON core ----------
   private Map<String,Object> buildJson(List<FlowRow> rows,
-                                       Map<String,List<Map<String,String>>> groupToUnits,
+                                       Map<String,List<UnitRef>> groupToUnits,
                                        String flowType,
                                        MergeMode mergeMode) {
+    if (overrides == null) return buildJsonOnce(rows, groupToUnits, flowType, mergeMode);
+    // A view reads live rows; if an edit was announced mid-build the result may mix old and
+    // new values of that row, so build again (the edited row now resolves to its copy)
+    while (true) {
+      long edits = overrides.edits();
+      Map<String,Object> root = buildJsonOnce(rows, groupToUnits, flowType, mergeMode);
+      if (overrides.edits() == edits) return root;
+    }
+  }
+
+  private Map<String,Object> buildJsonOnce(List<FlowRow> rows,
+                                           Map<String,List<UnitRef>> groupToUnits,
+                                           String flowType,
+                                           MergeMode mergeMode) {
     boolean nurseSide = "NurseCalls".equals(flowType);
     boolean ordersType = "Orders".equals(flowType);
     
     Map<String,Object> root = new LinkedHashMap<>();
     root.put("version", "1.1.0");
-    root.put("alarmAlertDefinitions", buildAlarmDefs(rows, flowType));
+    try (PhaseMetrics.Phase p = metrics.start("buildJson." + flowType + ".alarmDefs")) {
+      List<Map<String,Object>> defs = buildAlarmDefs(rows, flowType);
+      p.count(defs.size());
+      root.put("alarmAlertDefinitions", defs);
+    }
 
     List<Map<String,Object>> flows;
-    if (mergeMode == MergeMode.MERGE_BY_CONFIG_GROUP || mergeMode == MergeMode.MERGE_ACROSS_CONFIG_GROUP) {
-      flows = buildFlowsMerged(rows, groupToUnits, flowType, mergeMode);
-    } else {
-      flows = buildFlowsNormal(rows, groupToUnits, flowType);
+    boolean merged = mergeMode == MergeMode.MERGE_BY_CONFIG_GROUP || mergeMode == MergeMode.MERGE_ACROSS_CONFIG_GROUP;
+    try (PhaseMetrics.Phase p = metrics.start("buildJson." + flowType + (merged ? ".mergedFlows" : ".flows"))) {
+      if (merged) {
+        flows = buildFlowsMerged(rows, groupToUnits, flowType, mergeMode);
+      } else {
+        flows = buildFlowsNormal(rows, groupToUnits, flowType);
+      }
+      p.count(flows.size());
     }
     root.put("deliveryFlows", flows);
     return root;
@@ -1655,21 +2134,39 @@ public class ExcelParserV5 {
    * 
    * @param flowRow The flow row to resolve units for
    * @param primaryMap The primary map to check (clinicalGroupToUnits or nurseGroupToUnits)
-   * @param nurseSide true if building nurse calls, false if building clinicals
+   * @param flowType NurseCalls, Clinicals or Orders
    * @return List of unit references with facility names and unit names, or empty list if the
    *         configuration group is blank or not found in any map
    */
-  private List<Map<String,String>> resolveUnitRefs(FlowRow flowRow,
-                                                   Map<String,List<Map<String,String>>> primaryMap,
-                                                   boolean nurseSide) {
+  private List<UnitRef> resolveUnitRefs(FlowRow flowRow,
+                                        Map<String,List<UnitRef>> primaryMap,
+                                        String flowType) {
+    return resolveUnits(flowRow, primaryMap, flowType).units();
+  }
+
+  /**
+   * Cached form of {@link #resolveUnitRefs}. {@code primaryMap} must be the group map of
+   * {@code flowType}, which is how every builder calls it.
+   */
+  private ResolvedUnits resolveUnits(FlowRow flowRow,
+                                     Map<String,List<UnitRef>> primaryMap,
+                                     String flowType) {
     String configGroup = flowRow.configGroup;
-    if (isBlank(configGroup)) return List.of();
-    
+    if (isBlank(configGroup)) return ResolvedUnits.EMPTY;
+    ResolvedUnitsKey key = new ResolvedUnitsKey(configGroup, nvl(flowRow.customTabSource, ""), flowType);
+    return resolvedUnits.computeIfAbsent(key,
+      k -> ResolvedUnits.of(List.copyOf(lookupUnitRefs(k.configGroup(), k.customTabSource(), primaryMap,
+        "NurseCalls".equals(k.flowType())))));
+  }
+
+  private List<UnitRef> lookupUnitRefs(String configGroup, String customTabSource,
+                                       Map<String,List<UnitRef>> primaryMap,
+                                       boolean nurseSide) {
     // If this flow came from a custom tab, check the custom group map first
-    if (!isBlank(flowRow.customTabSource)) {
-      Map<String, List<Map<String, String>>> customMap = customGroupToUnits.get(flowRow.customTabSource);
+    if (!isBlank(customTabSource)) {
+      Map<String, List<UnitRef>> customMap = customGroupToUnits.get(customTabSource);
       if (customMap != null) {
-        List<Map<String,String>> units = customMap.getOrDefault(configGroup, List.of());
+        List<UnitRef> units = customMap.getOrDefault(configGroup, List.of());
         if (!units.isEmpty()) {
           return units;
         }
@@ -1677,7 +2174,7 @@ public class ExcelParserV5 {
     }
     
     // First check the primary map
-    List<Map<String,String>> units = primaryMap.getOrDefault(configGroup, List.of());
+    List<UnitRef> units = primaryMap.getOrDefault(configGroup, List.of());
     
     // For clinicals, also check nurse groups map (for EMDAN-moved alarms)
     if (!nurseSide && units.isEmpty()) {
@@ -1687,30 +2184,241 @@ public class ExcelParserV5 {
     return units;
   }
 
+  /**
+   * Everything besides the row itself that influences a built flow. Unit maps are identified
+   * by the parser that built them and its {@link #getUnitMapVersion()}, so a view that adopted
+   * its source's maps shares cached flows with every other view of the same maps.
+   */
+  private String buildCacheContext(String flowType, MergeMode mergeMode) {
+    return flowType + '|' + mergeMode + '|' + unitMapKey()
+      + '|' + edgeReferenceName + '|' + vcsReferenceName + '|' + voceraReferenceName + '|' + xmppReferenceName
+      + '|' + useDefaultEdge + useDefaultVmp + useDefaultVocera + useDefaultXmpp
+      + '|' + roomFilterNursecall + '|' + roomFilterClinical + '|' + roomFilterOrders;
+  }
+
+  /**
+   * Identifies the current group maps: the source parser's key while the maps are unchanged
+   * since {@link #syncUnitMapsFrom} or {@link #snapshot()}, otherwise this parser's id and map version.
+   */
+  private synchronized String unitMapKey() {
+    if (adoptedUnitMapKey != null && adoptedAtVersion == unitMapVersion) return adoptedUnitMapKey;
+    return parserId + "@" + unitMapVersion;
+  }
+
   // ---------- Build flows (normal mode) - one flow per row ----------
   private List<Map<String,Object>> buildFlowsNormal(List<FlowRow> rows,
-                                                     Map<String,List<Map<String,String>>> groupToUnits,
+                                                     Map<String,List<UnitRef>> groupToUnits,
                                                      String flowType) {
+    String context = flowCache != null ? buildCacheContext(flowType, MergeMode.NONE) : null;
+    List<Map<String,Object>> flows = new ArrayList<>();
+    for (FlowRow r : rows) {
+      if (isBlank(r.configGroup) && isBlank(r.alarmName) && isBlank(r.sendingName)) continue;
+      
+      // Skip rows that are not in scope
+      if (!r.inScope) continue;
+
+      if (flowCache == null) {
+        flows.add(buildNormalFlow(r, groupToUnits, flowType));
+        continue;
+      }
+      int version = r.version; // read before the row, so a concurrent edit leaves a stale entry
+      Map<String,Object> flow = flowCache.flow(r, context);
+      if (flow == null) {
+        flow = buildNormalFlow(r, groupToUnits, flowType);
+        flowCache.putFlow(r, version, context, flow);
+      }
+      flows.add(flow);
+    }
+    return flows;
+  }
+
+  private Map<String,Object> buildNormalFlow(FlowRow r,
+                                             Map<String,List<UnitRef>> groupToUnits,
+                                             String flowType) {
     boolean nurseSide = "NurseCalls".equals(flowType);
     boolean ordersType = "Orders".equals(flowType);
+    List<UnitRef> unitRefs = resolveUnitRefs(r, groupToUnits, flowType);
+    String mappedPriority = mapPriority(r);
+    
+    // Build destinations and conditions
+    DestinationsAndConditions dac = buildDestinationsAndConditions(r, unitRefs, flowType, mappedPriority);
+
+    Map<String,Object> flow = new LinkedHashMap<>();
+    flow.put("alarmsAlerts", List.of(nvl(r.alarmName, r.sendingName)));
+    
+    // Build conditions with room filter if applicable
+    List<Map<String,Object>> flowConditions = new ArrayList<>();
+    
+    if (!dac.conditions.isEmpty()) {
+      flowConditions.addAll(dac.conditions);
+    } else if (nurseSide) {
+      flowConditions.addAll(nurseConditions());
+    } else if (ordersType) {
+      // Orders need a global condition
+      Map<String, Object> filter = new LinkedHashMap<>();
+      filter.put("attributePath", "patient.current_place");
+      filter.put("operator", "not_null");
+      
+      Map<String, Object> globalCond = new LinkedHashMap<>();
+      globalCond.put("filters", List.of(filter));
+      globalCond.put("name", "Global Condition");
+      flowConditions.add(globalCond);
+    }
+    
+    // Add room filter condition based on flow type
+    Map<String,Object> roomFilterCond = null;
+    if (nurseSide && !roomFilterNursecall.isEmpty()) {
+      roomFilterCond = buildRoomFilterCondition(roomFilterNursecall);
+    } else if ("Clinicals".equals(flowType) && !roomFilterClinical.isEmpty()) {
+      roomFilterCond = buildRoomFilterCondition(roomFilterClinical);
+    } else if (ordersType && !roomFilterOrders.isEmpty()) {
+      roomFilterCond = buildOrdersRoomFilterCondition(roomFilterOrders);
+    }
+    
+    if (roomFilterCond != null) {
+      flowConditions.add(roomFilterCond);
+    }
+    
+    // Add POD room filter condition if unit has one defined
+    // Only for NurseCalls and Clinicals flows
+    if ((nurseSide || "Clinicals".equals(flowType)) && !unitRefs.isEmpty()) {
+      String podRoomFilter = unitRefs.get(0).podRoomFilter();
+      Map<String,Object> podRoomFilterCond = buildPodRoomFilterCondition(podRoomFilter);
+      if (podRoomFilterCond != null) {
+        flowConditions.add(podRoomFilterCond);
+      }
+    }
+    
+    flow.put("conditions", flowConditions);
+    
+    flow.put("destinations", dac.destinations);
+    flow.put("interfaces", buildInterfacesForDevice(r.deviceA, r.deviceB, r.ringtone));
+    flow.put("name", buildFlowName(flowType, mappedPriority, r, unitRefs));
+    
+    // Use XMPP-specific parameter attributes if XMPP device is detected
+    boolean isXmpp = deviceProfile(r.deviceA, r.deviceB).isXmpp();
+    if (isXmpp) {
+      flow.put("parameterAttributes", buildXmppParamAttributes(r, flowType, mappedPriority));
+    } else {
+      flow.put("parameterAttributes", buildParamAttributesQuoted(r, flowType, mappedPriority));
+    }
+    
+    flow.put("priority", mappedPriority.isEmpty() ? "normal" : mappedPriority);
+    flow.put("status", "Active");
+    if (!unitRefs.isEmpty()) flow.put("units", filterUnitRefsForOutput(unitRefs));
+    return flow;
+  }
+
+  // ---------- Build flows (merge mode) - merge flows with identical delivery parameters ----------
+  private List<Map<String,Object>> buildFlowsMerged(List<FlowRow> rows,
+                                                     Map<String,List<UnitRef>> groupToUnits,
+                                                     String flowType,
+                                                     MergeMode mergeMode) {
+    String context = flowCache != null ? buildCacheContext(flowType, mergeMode) : null;
+    
+    // Group rows by their "merge key" (identical delivery parameters)
+    Map<String, List<FlowRow>> groupedByMergeKey = new LinkedHashMap<>();
     
-    List<Map<String,Object>> flows = new ArrayList<>();
     for (FlowRow r : rows) {
       if (isBlank(r.configGroup) && isBlank(r.alarmName) && isBlank(r.sendingName)) continue;
       
       // Skip rows that are not in scope
       if (!r.inScope) continue;
+      
+      int version = r.version;
+      String mergeKey = flowCache != null ? flowCache.mergeKey(r, context) : null;
+      if (mergeKey == null) {
+        mergeKey = buildMergeKey(r, groupToUnits, flowType, mergeMode);
+        if (flowCache != null) flowCache.putMergeKey(r, version, context, mergeKey);
+      }
+      groupedByMergeKey.computeIfAbsent(mergeKey, k -> new ArrayList<>()).add(r);
+    }
 
-      List<Map<String,String>> unitRefs = resolveUnitRefs(r, groupToUnits, nurseSide);
-      String mappedPriority = mapPrioritySafe(r.priorityRaw, r.deviceA);
+    // Build one flow per merge group (split further by No Caregiver Group)
+    List<Map<String,Object>> flows = new ArrayList<>();
+    for (Map.Entry<String, List<FlowRow>> entry : groupedByMergeKey.entrySet()) {
+      List<FlowRow> group = entry.getValue();
+      if (group.isEmpty()) continue;
       
-      // Build destinations and conditions
-      DestinationsAndConditions dac = buildDestinationsAndConditions(r, unitRefs, flowType, mappedPriority);
+      if (flowCache == null) {
+        flows.addAll(buildMergedGroupFlows(group, groupToUnits, flowType, mergeMode));
+        continue;
+      }
+      int[] versions = new int[group.size()];
+      for (int i = 0; i < versions.length; i++) versions[i] = group.get(i).version;
+      List<Map<String,Object>> groupFlows = flowCache.groupFlows(context, entry.getKey(), group);
+      if (groupFlows == null) {
+        groupFlows = buildMergedGroupFlows(group, groupToUnits, flowType, mergeMode);
+        flowCache.putGroup(context, entry.getKey(), group, versions, groupFlows);
+      }
+      flows.addAll(groupFlows);
+    }
+    if (flowCache != null) flowCache.retainGroups(context, groupedByMergeKey.keySet());
+    return flows;
+  }
+
+  private List<Map<String,Object>> buildMergedGroupFlows(List<FlowRow> group,
+                                                         Map<String,List<UnitRef>> groupToUnits,
+                                                         String flowType,
+                                                         MergeMode mergeMode) {
+    boolean nurseSide = "NurseCalls".equals(flowType);
+    List<Map<String,Object>> flows = new ArrayList<>();
+    
+    // Use the first row as the template
+    FlowRow template = group.get(0);
+    
+    // Collect units from ALL flows in the group (not just the template)
+    // This ensures that when merging by config group, we combine units from all merged flows
+    List<UnitRef> unitRefs = new ArrayList<>();
+    for (FlowRow r : group) {
+      List<UnitRef> flowUnits = resolveUnitRefs(r, groupToUnits, flowType);
+      for (UnitRef unit : flowUnits) {
+        // Add unit if not already present (avoid duplicates)
+        boolean alreadyExists = unitRefs.stream().anyMatch(existing ->
+          existing.facilityName().equals(unit.facilityName()) &&
+          existing.name().equals(unit.name())
+        );
+        if (!alreadyExists) {
+          unitRefs.add(unit);
+        }
+      }
+    }
+    
+    String mappedPriority = mapPriority(template);
+
+    // Collect all alarm names from the group
+    List<String> alarmNames = group.stream()
+      .map(r -> nvl(r.alarmName, r.sendingName))
+      .distinct()
+      .collect(Collectors.toList());
+    
+    // Collect all config groups from the group (for MERGE_BY_CONFIG_GROUP mode)
+    List<String> configGroups = group.stream()
+      .map(r -> r.configGroup)
+      .filter(g -> !isBlank(g))
+      .distinct()
+      .collect(Collectors.toList());
+    
+    // Determine the config group type for No Caregiver Group lookup
+    String configGroupType = getConfigGroupType(flowType);
+    
+    // Group units by their No Caregiver Group to split flows when necessary
+    Map<String, List<UnitRef>> unitsByNoCareGroup = new LinkedHashMap<>();
+    for (UnitRef unitRef : unitRefs) {
+      String noCareValue = unitRef.noCaregiverGroup();
+      unitsByNoCareGroup.computeIfAbsent(noCareValue, k -> new ArrayList<>()).add(unitRef);
+    }
+    
+    // Create separate flows for each unique No Caregiver Group
+    for (List<UnitRef> unitsForNoCareGroup : unitsByNoCareGroup.values()) {
+      // Build destinations and conditions for this subset of units
+      DestinationsAndConditions dac = buildDestinationsAndConditions(template, unitsForNoCareGroup, flowType, mappedPriority);
 
       Map<String,Object> flow = new LinkedHashMap<>();
-      flow.put("alarmsAlerts", List.of(nvl(r.alarmName, r.sendingName)));
+      flow.put("alarmsAlerts", alarmNames);
       
       // Build conditions with room filter if applicable
+      boolean ordersType = "Orders".equals(flowType);
       List<Map<String,Object>> flowConditions = new ArrayList<>();
       
       if (!dac.conditions.isEmpty()) {
@@ -1745,8 +2453,8 @@ public class ExcelParserV5 {
       
       // Add POD room filter condition if unit has one defined
       // Only for NurseCalls and Clinicals flows
-      if ((nurseSide || "Clinicals".equals(flowType)) && !unitRefs.isEmpty()) {
-        String podRoomFilter = unitRefs.get(0).getOrDefault("podRoomFilter", "");
+      if ((nurseSide || "Clinicals".equals(flowType)) && !unitsForNoCareGroup.isEmpty()) {
+        String podRoomFilter = unitsForNoCareGroup.get(0).podRoomFilter();
         Map<String,Object> podRoomFilterCond = buildPodRoomFilterCondition(podRoomFilter);
         if (podRoomFilterCond != null) {
           flowConditions.add(podRoomFilterCond);
@@ -1756,175 +2464,29 @@ public class ExcelParserV5 {
       flow.put("conditions", flowConditions);
       
       flow.put("destinations", dac.destinations);
-      flow.put("interfaces", buildInterfacesForDevice(r.deviceA, r.deviceB, r.ringtone));
-      flow.put("name", buildFlowName(flowType, mappedPriority, r, unitRefs));
+      flow.put("interfaces", buildInterfacesForDevice(template.deviceA, template.deviceB, template.ringtone));
+      flow.put("name", buildFlowNameMerged(flowType, mappedPriority, alarmNames, configGroups, unitsForNoCareGroup, mergeMode));
       
       // Use XMPP-specific parameter attributes if XMPP device is detected
-      boolean isXmpp = containsXmpp(r.deviceA) || containsXmpp(r.deviceB);
+      boolean isXmpp = deviceProfile(template.deviceA, template.deviceB).isXmpp();
       if (isXmpp) {
-        flow.put("parameterAttributes", buildXmppParamAttributes(r, flowType, mappedPriority));
+        flow.put("parameterAttributes", buildXmppParamAttributes(template, flowType, mappedPriority));
       } else {
-        flow.put("parameterAttributes", buildParamAttributesQuoted(r, flowType, mappedPriority));
+        flow.put("parameterAttributes", buildParamAttributesQuoted(template, flowType, mappedPriority));
       }
       
       flow.put("priority", mappedPriority.isEmpty() ? "normal" : mappedPriority);
       flow.put("status", "Active");
-      if (!unitRefs.isEmpty()) flow.put("units", filterUnitRefsForOutput(unitRefs));
+      if (!unitsForNoCareGroup.isEmpty()) flow.put("units", filterUnitRefsForOutput(unitsForNoCareGroup));
       flows.add(flow);
     }
     return flows;
   }
 
-  // ---------- Build flows (merge mode) - merge flows with identical delivery parameters ----------
-  private List<Map<String,Object>> buildFlowsMerged(List<FlowRow> rows,
-                                                     Map<String,List<Map<String,String>>> groupToUnits,
-                                                     String flowType,
-                                                     MergeMode mergeMode) {
-    boolean nurseSide = "NurseCalls".equals(flowType);
-    
-    // Group rows by their "merge key" (identical delivery parameters)
-    Map<String, List<FlowRow>> groupedByMergeKey = new LinkedHashMap<>();
-    
-    for (FlowRow r : rows) {
-      if (isBlank(r.configGroup) && isBlank(r.alarmName) && isBlank(r.sendingName)) continue;
-      
-      // Skip rows that are not in scope
-      if (!r.inScope) continue;
-      
-      String mergeKey = buildMergeKey(r, groupToUnits, flowType, mergeMode);
-      groupedByMergeKey.computeIfAbsent(mergeKey, k -> new ArrayList<>()).add(r);
-    }
-
-    // Build one flow per merge group
-    List<Map<String,Object>> flows = new ArrayList<>();
-    for (List<FlowRow> group : groupedByMergeKey.values()) {
-      if (group.isEmpty()) continue;
-      
-      // Use the first row as the template
-      FlowRow template = group.get(0);
-      
-      // Collect units from ALL flows in the group (not just the template)
-      // This ensures that when merging by config group, we combine units from all merged flows
-      List<Map<String,String>> unitRefs = new ArrayList<>();
-      for (FlowRow r : group) {
-        List<Map<String,String>> flowUnits = resolveUnitRefs(r, groupToUnits, nurseSide);
-        for (Map<String,String> unit : flowUnits) {
-          // Add unit if not already present (avoid duplicates)
-          boolean alreadyExists = unitRefs.stream().anyMatch(existing ->
-            existing.get("facilityName").equals(unit.get("facilityName")) &&
-            existing.get("name").equals(unit.get("name"))
-          );
-          if (!alreadyExists) {
-            unitRefs.add(unit);
-          }
-        }
-      }
-      
-      String mappedPriority = mapPrioritySafe(template.priorityRaw, template.deviceA);
-
-      // Collect all alarm names from the group
-      List<String> alarmNames = group.stream()
-        .map(r -> nvl(r.alarmName, r.sendingName))
-        .distinct()
-        .collect(Collectors.toList());
-      
-      // Collect all config groups from the group (for MERGE_BY_CONFIG_GROUP mode)
-      List<String> configGroups = group.stream()
-        .map(r -> r.configGroup)
-        .filter(g -> !isBlank(g))
-        .distinct()
-        .collect(Collectors.toList());
-      
-      // Determine the config group type for No Caregiver Group lookup
-      String configGroupType = getConfigGroupType(flowType);
-      
-      // Group units by their No Caregiver Group to split flows when necessary
-      Map<String, List<Map<String,String>>> unitsByNoCareGroup = new LinkedHashMap<>();
-      for (Map<String,String> unitRef : unitRefs) {
-        String noCareValue = unitRef.getOrDefault(UNIT_FIELD_NO_CAREGIVER, "");
-        unitsByNoCareGroup.computeIfAbsent(noCareValue, k -> new ArrayList<>()).add(unitRef);
-      }
-      
-      // Create separate flows for each unique No Caregiver Group
-      for (List<Map<String,String>> unitsForNoCareGroup : unitsByNoCareGroup.values()) {
-        // Build destinations and conditions for this subset of units
-        DestinationsAndConditions dac = buildDestinationsAndConditions(template, unitsForNoCareGroup, flowType, mappedPriority);
-
-        Map<String,Object> flow = new LinkedHashMap<>();
-        flow.put("alarmsAlerts", alarmNames);
-        
-        // Build conditions with room filter if applicable
-        boolean ordersType = "Orders".equals(flowType);
-        List<Map<String,Object>> flowConditions = new ArrayList<>();
-        
-        if (!dac.conditions.isEmpty()) {
-          flowConditions.addAll(dac.conditions);
-        } else if (nurseSide) {
-          flowConditions.addAll(nurseConditions());
-        } else if (ordersType) {
-          // Orders need a global condition
-          Map<String, Object> filter = new LinkedHashMap<>();
-          filter.put("attributePath", "patient.current_place");
-          filter.put("operator", "not_null");
-          
-          Map<String, Object> globalCond = new LinkedHashMap<>();
-          globalCond.put("filters", List.of(filter));
-          globalCond.put("name", "Global Condition");
-          flowConditions.add(globalCond);
-        }
-        
-        // Add room filter condition based on flow type
-        Map<String,Object> roomFilterCond = null;
-        if (nurseSide && !roomFilterNursecall.isEmpty()) {
-          roomFilterCond = buildRoomFilterCondition(roomFilterNursecall);
-        } else if ("Clinicals".equals(flowType) && !roomFilterClinical.isEmpty()) {
-          roomFilterCond = buildRoomFilterCondition(roomFilterClinical);
-        } else if (ordersType && !roomFilterOrders.isEmpty()) {
-          roomFilterCond = buildOrdersRoomFilterCondition(roomFilterOrders);
-        }
-        
-        if (roomFilterCond != null) {
-          flowConditions.add(roomFilterCond);
-        }
-        
-        // Add POD room filter condition if unit has one defined
-        // Only for NurseCalls and Clinicals flows
-        if ((nurseSide || "Clinicals".equals(flowType)) && !unitsForNoCareGroup.isEmpty()) {
-          String podRoomFilter = unitsForNoCareGroup.get(0).getOrDefault("podRoomFilter", "");
-          Map<String,Object> podRoomFilterCond = buildPodRoomFilterCondition(podRoomFilter);
-          if (podRoomFilterCond != null) {
-            flowConditions.add(podRoomFilterCond);
-          }
-        }
-        
-        flow.put("conditions", flowConditions);
-        
-        flow.put("destinations", dac.destinations);
-        flow.put("interfaces", buildInterfacesForDevice(template.deviceA, template.deviceB, template.ringtone));
-        flow.put("name", buildFlowNameMerged(flowType, mappedPriority, alarmNames, configGroups, unitsForNoCareGroup, mergeMode));
-        
-        // Use XMPP-specific parameter attributes if XMPP device is detected
-        boolean isXmpp = containsXmpp(template.deviceA) || containsXmpp(template.deviceB);
-        if (isXmpp) {
-          flow.put("parameterAttributes", buildXmppParamAttributes(template, flowType, mappedPriority));
-        } else {
-          flow.put("parameterAttributes", buildParamAttributesQuoted(template, flowType, mappedPriority));
-        }
-        
-        flow.put("priority", mappedPriority.isEmpty() ? "normal" : mappedPriority);
-        flow.put("status", "Active");
-        if (!unitsForNoCareGroup.isEmpty()) flow.put("units", filterUnitRefsForOutput(unitsForNoCareGroup));
-        flows.add(flow);
-      }
-    }
-    return flows;
-  }
-
   // ---------- Build merge key for grouping flows with identical delivery parameters ----------
-  private String buildMergeKey(FlowRow r, Map<String,List<Map<String,String>>> groupToUnits, String flowType, MergeMode mergeMode) {
-    boolean nurseSide = "NurseCalls".equals(flowType);
-    List<Map<String,String>> unitRefs = resolveUnitRefs(r, groupToUnits, nurseSide);
-    String mappedPriority = mapPrioritySafe(r.priorityRaw, r.deviceA);
+  private String buildMergeKey(FlowRow r, Map<String,List<UnitRef>> groupToUnits, String flowType, MergeMode mergeMode) {
+    ResolvedUnits resolved = resolveUnits(r, groupToUnits, flowType);
+    String mappedPriority = mapPriority(r);
     
     // Determine the config group type for No Caregiver Group lookup
     String configGroupType = getConfigGroupType(flowType);
@@ -1964,38 +2526,21 @@ public class ExcelParserV5 {
       
       // Add No Caregiver Group to the key for MERGE_ACROSS_CONFIG_GROUP mode
       // Flows must have the same No Caregiver Group to merge
-      String noCareKey = unitRefs.stream()
-        .map(u -> u.get(UNIT_FIELD_FACILITY) + ":" + u.getOrDefault(UNIT_FIELD_NO_CAREGIVER, ""))
-        .sorted()
-        .collect(Collectors.joining(","));
-      key.append("noCareGroup=").append(noCareKey);
+      key.append("noCareGroup=").append(resolved.noCareKey());
     } else if (mergeMode == MergeMode.MERGE_BY_CONFIG_GROUP) {
       // For MERGE_BY_CONFIG_GROUP mode, don't include configGroup or units
       // This allows flows to merge across multiple config groups and different units
       // but flows with different No Caregiver Groups remain separate
       // Use DISTINCT facility:noCareGroup combinations to avoid duplicates from multiple units
-      String noCareKey = unitRefs.stream()
-        .map(u -> u.get(UNIT_FIELD_FACILITY) + ":" + u.getOrDefault(UNIT_FIELD_NO_CAREGIVER, ""))
-        .distinct()  // Remove duplicates - same No Caregiver Group from multiple units
-        .sorted()
-        .collect(Collectors.joining(","));
-      key.append("noCareGroup=").append(noCareKey);
+      key.append("noCareGroup=").append(resolved.distinctNoCareKey());
     } else {
       // For NONE mode, include units in the key
       // Add units to the key
-      String unitsKey = unitRefs.stream()
-        .map(u -> u.get("facilityName") + ":" + u.get("name"))
-        .sorted()
-        .collect(Collectors.joining(","));
-      key.append("units=").append(unitsKey).append("|");
+      key.append("units=").append(resolved.unitsKey()).append("|");
       
       // Add No Caregiver Group to the key
       // Use the No Caregiver Group from each unit reference
-      String noCareKey = unitRefs.stream()
-        .map(u -> u.get(UNIT_FIELD_FACILITY) + ":" + u.getOrDefault(UNIT_FIELD_NO_CAREGIVER, ""))
-        .sorted()
-        .collect(Collectors.joining(","));
-      key.append("noCareGroup=").append(noCareKey);
+      key.append("noCareGroup=").append(resolved.noCareKey());
     }
 
     return key.toString();
@@ -2006,7 +2551,7 @@ public class ExcelParserV5 {
                                      String mappedPriority,
                                      List<String> alarmNames,
                                      List<String> configGroups,
-                                     List<Map<String,String>> unitRefs,
+                                     List<UnitRef> unitRefs,
                                      MergeMode mergeMode) {
     // For MERGE_BY_CONFIG_GROUP mode (Merge Multiple Config Groups), include all config groups
     // For MERGE_ACROSS_CONFIG_GROUP mode (Merge by Single Config Group), use only the first config group
@@ -2021,9 +2566,9 @@ public class ExcelParserV5 {
       }
     }
     
-    String facility = unitRefs.isEmpty() ? "" : unitRefs.get(0).getOrDefault("facilityName", "");
+    String facility = unitRefs.isEmpty() ? "" : unitRefs.get(0).facilityName();
     List<String> unitNames = unitRefs.stream()
-      .map(u -> u.getOrDefault("name",""))
+      .map(UnitRef::name)
       .filter(s -> !isBlank(s))
       .distinct().collect(Collectors.toList());
 
@@ -2089,10 +2634,10 @@ public class ExcelParserV5 {
   }
   
   private DestinationsAndConditions buildDestinationsAndConditions(FlowRow r,
-                                                                    List<Map<String,String>> unitRefs,
+                                                                    List<UnitRef> unitRefs,
                                                                     String flowType,
                                                                     String mappedPriority) {
-    String facility = unitRefs.isEmpty() ? "" : unitRefs.get(0).getOrDefault("facilityName", "");
+    String facility = unitRefs.isEmpty() ? "" : unitRefs.get(0).facilityName();
     boolean nurseSide = "NurseCalls".equals(flowType);
     
     // Determine presenceConfig based on Break Through DND value
@@ -2122,7 +2667,7 @@ public class ExcelParserV5 {
     boolean ordersType = "Orders".equals(flowType);
     if (!nurseSide && !ordersType && !isBlank(facility)) {
       // Get No Caregiver Group from the first unit ref
-      String noCare = unitRefs.isEmpty() ? "" : unitRefs.get(0).getOrDefault(UNIT_FIELD_NO_CAREGIVER, "");
+      String noCare = unitRefs.isEmpty() ? "" : unitRefs.get(0).noCaregiverGroup();
       if (!isBlank(noCare)) {
         Map<String,Object> d = new LinkedHashMap<>();
         d.put("order", destinations.size());
@@ -2145,14 +2690,18 @@ public class ExcelParserV5 {
    * Returns the appropriate reference name in priority order: Edge, XMPP, Vocera, VMP.
    */
   private String determineInterfaceReferenceName(String deviceA, String deviceB) {
-    boolean hasEdgeA = containsEdge(deviceA);
-    boolean hasEdgeB = containsEdge(deviceB);
-    boolean hasXmppA = containsXmpp(deviceA);
-    boolean hasXmppB = containsXmpp(deviceB);
-    boolean hasVoceraA = containsVocera(deviceA);
-    boolean hasVoceraB = containsVocera(deviceB);
-    boolean hasVcsA = containsVcs(deviceA);
-    boolean hasVcsB = containsVcs(deviceB);
+    return deviceProfile(deviceA, deviceB).interfaceReferenceName;
+  }
+  
+  private String computeInterfaceReferenceName(DeviceProfile p) {
+    boolean hasEdgeA = p.edgeA;
+    boolean hasEdgeB = p.edgeB;
+    boolean hasXmppA = p.xmppA;
+    boolean hasXmppB = p.xmppB;
+    boolean hasVoceraA = p.voceraA;
+    boolean hasVoceraB = p.voceraB;
+    boolean hasVcsA = p.vcsA;
+    boolean hasVcsB = p.vcsB;
     
     // Prefer Edge if present
     if (hasEdgeA || hasEdgeB) {
@@ -2196,9 +2745,9 @@ public class ExcelParserV5 {
   }
   
   private List<Map<String,Object>> buildDestinationsMerged(FlowRow r,
-                                                           List<Map<String,String>> unitRefs,
+                                                           List<UnitRef> unitRefs,
                                                            String flowType) {
-    String mappedPriority = mapPrioritySafe(r.priorityRaw, r.deviceA);
+    String mappedPriority = mapPriority(r);
     DestinationsAndConditions dac = buildDestinationsAndConditions(r, unitRefs, flowType, mappedPriority);
     return dac.destinations;
   }
@@ -2215,48 +2764,40 @@ public class ExcelParserV5 {
    * @return List of interface maps
    */
   private List<Map<String, Object>> buildInterfacesForDevice(String deviceA, String deviceB, String ringtone) {
-    boolean hasEdgeA = containsEdge(deviceA);
-    boolean hasEdgeB = containsEdge(deviceB);
-    boolean hasVcsA = containsVcs(deviceA);
-    boolean hasVcsB = containsVcs(deviceB);
-    boolean hasVoceraA = containsVocera(deviceA);
-    boolean hasVoceraB = containsVocera(deviceB);
-    boolean hasXmppA = containsXmpp(deviceA);
-    boolean hasXmppB = containsXmpp(deviceB);
+    return deviceProfile(deviceA, deviceB).interfaces;
+  }
+  
+  private List<Map<String, Object>> computeInterfaces(String deviceA, String deviceB, DeviceProfile p) {
+    boolean hasEdgeA = p.edgeA;
+    boolean hasEdgeB = p.edgeB;
+    boolean hasVcsA = p.vcsA;
+    boolean hasVcsB = p.vcsB;
+    boolean hasVoceraA = p.voceraA;
+    boolean hasVoceraB = p.voceraB;
+    boolean hasXmppA = p.xmppA;
+    boolean hasXmppB = p.xmppB;
 
     List<Map<String, Object>> interfaces = new ArrayList<>();
     
     // Add Edge interface if detected
     if (hasEdgeA || hasEdgeB) {
-      Map<String, Object> edgeIface = new LinkedHashMap<>();
-      edgeIface.put("componentName", "OutgoingWCTP");
-      edgeIface.put("referenceName", edgeReferenceName);
-      interfaces.add(edgeIface);
+      interfaces.add(interfaceBlock("OutgoingWCTP", edgeReferenceName));
     }
     
     // Add XMPP interface if detected
     if (hasXmppA || hasXmppB) {
-      Map<String, Object> xmppIface = new LinkedHashMap<>();
-      xmppIface.put("componentName", "XMPP");
-      xmppIface.put("referenceName", xmppReferenceName);
-      interfaces.add(xmppIface);
+      interfaces.add(interfaceBlock("XMPP", xmppReferenceName));
     }
     
     // Add Vocera interface if detected (checked before VCS to ensure proper priority)
     if (hasVoceraA || hasVoceraB) {
-      Map<String, Object> voceraIface = new LinkedHashMap<>();
-      voceraIface.put("componentName", "Vocera");
-      voceraIface.put("referenceName", voceraReferenceName);
-      interfaces.add(voceraIface);
+      interfaces.add(interfaceBlock("Vocera", voceraReferenceName));
     }
     
     // Add VCS/VMP interface if detected (and not already handled by Vocera)
     // Note: containsVocera already excludes "Vocera VCS", so this handles pure VCS devices
     if ((hasVcsA || hasVcsB) && !hasVoceraA && !hasVoceraB) {
-      Map<String, Object> vcsIface = new LinkedHashMap<>();
-      vcsIface.put("componentName", "VMP");
-      vcsIface.put("referenceName", vcsReferenceName);
-      interfaces.add(vcsIface);
+      interfaces.add(interfaceBlock("VMP", vcsReferenceName));
     }
     
     // NEW LOGIC: Check if Device-A has valid keyword but Device-B doesn't (and Device-B is not empty)
@@ -2268,74 +2809,102 @@ public class ExcelParserV5 {
     if (deviceAHasValidKeyword && !deviceBHasValidKeyword && deviceBIsNonEmpty) {
       // Add default checkbox interfaces that aren't already in the list
       if (useDefaultEdge && !hasEdgeA && !hasEdgeB) {
-        Map<String, Object> edgeIface = new LinkedHashMap<>();
-        edgeIface.put("componentName", "OutgoingWCTP");
-        edgeIface.put("referenceName", edgeReferenceName);
-        interfaces.add(edgeIface);
+        interfaces.add(interfaceBlock("OutgoingWCTP", edgeReferenceName));
       }
       
       if (useDefaultXmpp && !hasXmppA && !hasXmppB) {
-        Map<String, Object> xmppIface = new LinkedHashMap<>();
-        xmppIface.put("componentName", "XMPP");
-        xmppIface.put("referenceName", xmppReferenceName);
-        interfaces.add(xmppIface);
+        interfaces.add(interfaceBlock("XMPP", xmppReferenceName));
       }
       
       if (useDefaultVocera && !hasVoceraA && !hasVoceraB) {
-        Map<String, Object> voceraIface = new LinkedHashMap<>();
-        voceraIface.put("componentName", "Vocera");
-        voceraIface.put("referenceName", voceraReferenceName);
-        interfaces.add(voceraIface);
+        interfaces.add(interfaceBlock("Vocera", voceraReferenceName));
       }
       
       if (useDefaultVmp && !hasVcsA && !hasVcsB) {
-        Map<String, Object> vcsIface = new LinkedHashMap<>();
-        vcsIface.put("componentName", "VMP");
-        vcsIface.put("referenceName", vcsReferenceName);
-        interfaces.add(vcsIface);
+        interfaces.add(interfaceBlock("VMP", vcsReferenceName));
       }
       
-      return interfaces;
+      return List.copyOf(interfaces);
     }
     
     // If we found device-specific interfaces, return them
     if (!interfaces.isEmpty()) {
-      return interfaces;
+      return List.copyOf(interfaces);
     }
 
     // Device A and B cannot determine interface - use default checkboxes if set
     if (shouldApplyDefaultInterfaces(deviceA, deviceB, hasEdgeA, hasEdgeB, hasVcsA, hasVcsB, hasVoceraA, hasVoceraB, hasXmppA, hasXmppB)) {
       // Add all selected default interfaces
       if (useDefaultEdge) {
-        Map<String, Object> edgeIface = new LinkedHashMap<>();
-        edgeIface.put("componentName", "OutgoingWCTP");
-        edgeIface.put("referenceName", edgeReferenceName);
-        interfaces.add(edgeIface);
+        interfaces.add(interfaceBlock("OutgoingWCTP", edgeReferenceName));
       }
       
       if (useDefaultXmpp) {
-        Map<String, Object> xmppIface = new LinkedHashMap<>();
-        xmppIface.put("componentName", "XMPP");
-        xmppIface.put("referenceName", xmppReferenceName);
-        interfaces.add(xmppIface);
+        interfaces.add(interfaceBlock("XMPP", xmppReferenceName));
       }
       
       if (useDefaultVocera) {
-        Map<String, Object> voceraIface = new LinkedHashMap<>();
-        voceraIface.put("componentName", "Vocera");
-        voceraIface.put("referenceName", voceraReferenceName);
-        interfaces.add(voceraIface);
+        interfaces.add(interfaceBlock("Vocera", voceraReferenceName));
       }
       
       if (useDefaultVmp) {
-        Map<String, Object> vcsIface = new LinkedHashMap<>();
-        vcsIface.put("componentName", "VMP");
-        vcsIface.put("referenceName", vcsReferenceName);
-        interfaces.add(vcsIface);
+        interfaces.add(interfaceBlock("VMP", vcsReferenceName));
       }
     }
 
-    return interfaces;
+    return List.copyOf(interfaces);
+  }
+
+  private static Map<String, Object> interfaceBlock(String componentName, String referenceName) {
+    Map<String, Object> iface = new LinkedHashMap<>();
+    iface.put("componentName", componentName);
+    iface.put("referenceName", referenceName);
+    return Collections.unmodifiableMap(iface);
+  }
+
+  // ---------- Device classification (memoised per Device-A/Device-B pair) ----------
+  private record DeviceKey(String deviceA, String deviceB) {}
+
+  /**
+   * Keyword classification of a Device-A/Device-B pair together with the interface blocks
+   * and reference name it yields under this parser's settings. A workbook only has a handful
+   * of distinct device strings, so each pair is lowercased and scanned once per parser.
+   */
+  private static final class DeviceProfile {
+    final boolean edgeA, edgeB, vcsA, vcsB, voceraA, voceraB, xmppA, xmppB;
+    final String componentA; // Device-A interface component, drives priority mapping
+    String interfaceReferenceName;
+    List<Map<String, Object>> interfaces; // Immutable; shared by every flow with this pair
+
+    DeviceProfile(ExcelParserV5 parser, String deviceA, String deviceB) {
+      edgeA = parser.containsEdge(deviceA);
+      edgeB = parser.containsEdge(deviceB);
+      vcsA = parser.containsVcs(deviceA);
+      vcsB = parser.containsVcs(deviceB);
+      voceraA = parser.containsVocera(deviceA);
+      voceraB = parser.containsVocera(deviceB);
+      xmppA = parser.containsXmpp(deviceA);
+      xmppB = parser.containsXmpp(deviceB);
+      componentA = getInterfaceComponentName(deviceA);
+    }
+
+    boolean isXmpp() { return xmppA || xmppB; }
+    boolean isVcs() { return vcsA || vcsB; }
+    boolean isVocera() { return voceraA || voceraB; }
+  }
+
+  private DeviceProfile deviceProfile(String deviceA, String deviceB) {
+    return deviceProfiles.computeIfAbsent(new DeviceKey(deviceA, deviceB), k -> {
+      DeviceProfile p = new DeviceProfile(this, deviceA, deviceB);
+      p.interfaceReferenceName = computeInterfaceReferenceName(p);
+      p.interfaces = computeInterfaces(deviceA, deviceB, p);
+      return p;
+    });
+  }
+
+  /** Maps a row's priority using the interface of its Device-A (see {@link #mapPriorityForComponent}). */
+  private String mapPriority(FlowRow r) {
+    return mapPriorityForComponent(r.priorityRaw, deviceProfile(r.deviceA, r.deviceB).componentA);
   }
 
   private boolean containsEdge(String deviceName) {
@@ -2383,7 +2952,7 @@ public class ExcelParserV5 {
    * This is used to validate Device-A column values for GUI highlighting.
    * Returns true for blank/empty values (not highlighted).
    */
-  public boolean hasValidRecipientKeyword(String deviceName) {
+  public static boolean hasValidRecipientKeyword(String deviceName) {
     if (isBlank(deviceName)) return true; // Blank cells are considered valid (not highlighted)
     String lower = deviceName.toLowerCase(Locale.ROOT);
     return lower.contains("vcs") || 
@@ -2403,7 +2972,7 @@ public class ExcelParserV5 {
    * Valid keywords (case-insensitive): Custom unit, Group, Assign, CS
    * Cells without these keywords will be highlighted
    */
-  public boolean isValidFirstRecipient(String recipientText) {
+  public static boolean isValidFirstRecipient(String recipientText) {
     // Empty/blank cells should be highlighted for R1
     if (isBlank(recipientText)) return false;
     
@@ -2412,7 +2981,7 @@ public class ExcelParserV5 {
     return lower.contains("custom unit") || 
            lower.contains("group") || 
            lower.contains("assign") || 
-           lower.matches(".*\\bcs\\b.*");  // Match CS as whole word only
+           CS_WORD_PATTERN.matcher(lower).find();  // Match CS as whole word only
   }
 
   /**
@@ -2424,7 +2993,7 @@ public class ExcelParserV5 {
    * Valid keywords (case-insensitive): Custom unit, Group, Assign, CS
    * Cells without these keywords will be highlighted
    */
-  public boolean isValidOtherRecipient(String recipientText) {
+  public static boolean isValidOtherRecipient(String recipientText) {
     // Empty/blank cells are valid (not highlighted) for R2-R5
     if (isBlank(recipientText)) return true;
     
@@ -2433,7 +3002,7 @@ public class ExcelParserV5 {
     return lower.contains("custom unit") || 
            lower.contains("group") || 
            lower.contains("assign") || 
-           lower.matches(".*\\bcs\\b.*");  // Match CS as whole word only
+           CS_WORD_PATTERN.matcher(lower).find();  // Match CS as whole word only
   }
 
   /**
@@ -2453,7 +3022,7 @@ public class ExcelParserV5 {
    * Blank/empty cells are considered valid (not highlighted).
    * Multiple comma-separated values are supported.
    */
-  public boolean isValidResponseOptions(String responseOptionsText) {
+  public static boolean isValidResponseOptions(String responseOptionsText) {
     // Empty/blank cells are valid (not highlighted)
     if (isBlank(responseOptionsText)) return true;
     
@@ -2518,9 +3087,8 @@ public class ExcelParserV5 {
     
     // First check if this is a Custom Unit recipient (before splitting by comma)
     String recipientTextTrimmed = recipientText.trim();
-    String normalizedLower = recipientTextTrimmed.toLowerCase(Locale.ROOT).replaceAll("[\\s\\-_]+", "");
     
-    if (normalizedLower.contains("customunit")) {
+    if (containsCustomUnit(recipientTextTrimmed)) {
       // This is a Custom Unit recipient - parse it as a whole
       ParsedRecipient pr = parseRecipient(recipientTextTrimmed, facility);
       if (pr.isCustomUnit && !pr.customUnitRoles.isEmpty()) {
@@ -2531,10 +3099,7 @@ public class ExcelParserV5 {
     }
     
     // Regular recipient processing - split by comma/semicolon
-    List<String> recipients = Arrays.stream(recipientText.split("[,;\\n]"))
-      .map(String::trim)
-      .filter(s -> !s.isEmpty() && !s.equalsIgnoreCase("N/A"))
-      .collect(Collectors.toList());
+    List<String> recipients = splitRecipients(recipientText);
     if (recipients.isEmpty()) return;
 
     int delay = parseDelay(delayText);
@@ -2697,8 +3262,9 @@ public class ExcelParserV5 {
     // 1. Add ringtone FIRST if available
     if (!isBlank(r.ringtone)) {
       // Check if this is a VMP/VCS device
-      boolean isVcs = containsVcs(r.deviceA) || containsVcs(r.deviceB);
-      boolean isVocera = containsVocera(r.deviceA) || containsVocera(r.deviceB);
+      DeviceProfile device = deviceProfile(r.deviceA, r.deviceB);
+      boolean isVcs = device.isVcs();
+      boolean isVocera = device.isVocera();
       
       // Check if ringtone is "Global Setting" (case-insensitive)
       boolean isGlobalSetting = r.ringtone.trim().equalsIgnoreCase("Global Setting");
@@ -2948,13 +3514,11 @@ public class ExcelParserV5 {
     //           "VAssign:[Room] CNA" -> "CNA"
     //           "Room] Nurse" -> "Nurse"
     //           "Room - RN" -> "RN"
-    int roomIdx = raw.toLowerCase(Locale.ROOT).indexOf("room");
+    int roomIdx = indexOfIgnoreCase(raw, "room");
     if (roomIdx >= 0 && roomIdx + 4 < raw.length()) {
-      // Extract everything after "room" (skip the word itself) and trim
-      String afterRoom = raw.substring(roomIdx + 4).trim();
-      // Remove leading special characters (brackets, parentheses, dashes, etc.) and spaces
-      // Keep only alphanumeric text and spaces within the role name
-      afterRoom = afterRoom.replaceAll(LEADING_SPECIAL_CHARS_PATTERN, "").trim();
+      // Extract everything after "room" (skip the word itself), dropping leading
+      // special characters (brackets, parentheses, dashes, etc.) and spaces
+      String afterRoom = stripLeadingSpecialChars(raw.substring(roomIdx + 4));
       value = afterRoom.isEmpty() ? "" : afterRoom;
     } else if (roomIdx >= 0) {
       // "room" is at the end or near the end
@@ -3050,12 +3614,12 @@ public class ExcelParserV5 {
   private String buildFlowName(String flowType,
                                String mappedPriority,
                                FlowRow row,
-                               List<Map<String,String>> unitRefs) {
+                               List<UnitRef> unitRefs) {
     String alarm = nvl(row.alarmName, row.sendingName);
     String group = row.configGroup == null ? "" : row.configGroup.trim();
-    String facility = unitRefs.isEmpty() ? "" : unitRefs.get(0).getOrDefault("facilityName", "");
+    String facility = unitRefs.isEmpty() ? "" : unitRefs.get(0).facilityName();
     List<String> unitNames = unitRefs.stream()
-      .map(u -> u.getOrDefault("name",""))
+      .map(UnitRef::name)
       .filter(s -> !isBlank(s))
       .distinct().collect(Collectors.toList());
 
@@ -3114,6 +3678,204 @@ public class ExcelParserV5 {
       out.write(pretty(buildOrdersJson(mergeMode)));
     }
   }
+
+  // ---------- Concurrent build (all flow types) ----------
+
+  /** Receives one call per JSON file as the concurrent export finishes writing it. */
+  @FunctionalInterface
+  public interface ExportProgress {
+    void fileWritten(String flowType, File file, int completed, int total);
+  }
+
+  /**
+   * Returns a detached copy of this parser: rows, units, unit maps and interface settings are
+   * copied so that edits made to the live rows while a background build runs cannot leak into
+   * it. Copied rows keep their version and remember their live row, so the flow cache (which
+   * is shared) still recognises unchanged rows. Calling this on a snapshot returns it as-is.
+   */
+  public ExcelParserV5 snapshot() {
+    if (detached) return this;
+    // Bring our maps up to date first: the copy's rebuilt maps then equal them and can share our cache key
+    syncUnitMaps();
+    ExcelParserV5 copy = new ExcelParserV5();
+    copySettingsTo(copy);
+    for (UnitRow u : units) copy.units.add(copyUnitRow(u));
+    for (FlowRow r : nurseCalls) copy.nurseCalls.add(snapshotFlowRow(r));
+    for (FlowRow r : clinicals) copy.clinicals.add(snapshotFlowRow(r));
+    for (FlowRow r : orders) copy.orders.add(snapshotFlowRow(r));
+    copy.rebuildUnitMaps();
+    copy.adoptUnitMapKey(unitMapKey());
+    return copy;
+  }
+
+  /**
+   * Returns a copy-on-write view of this parser for building JSON on another thread without
+   * copying row data. The view's row lists reference the live rows selected by each mask
+   * (null selects every row) and are read-only; unit maps and settings are taken over as
+   * they are now. Code that edits a live row while views may be open must call
+   * {@link #beforeRowEdit(Object)} first, so open views keep the unedited row.
+   */
+  public ExcelParserV5 snapshotView(BitSet unitMask, BitSet nurseMask, BitSet clinicalMask, BitSet ordersMask) {
+    if (detached) return this;
+    FrozenRows.Overrides rowOverrides = new FrozenRows.Overrides();
+    ExcelParserV5 view = new ExcelParserV5(
+      FrozenRows.of(units, unitMask, rowOverrides),
+      FrozenRows.of(nurseCalls, nurseMask, rowOverrides),
+      FrozenRows.of(clinicals, clinicalMask, rowOverrides),
+      FrozenRows.of(orders, ordersMask, rowOverrides));
+    copySettingsTo(view);
+    view.overrides = rowOverrides;
+    view.syncUnitMapsFrom(this);
+    synchronized (openViews) {
+      openViews.removeIf(ref -> ref.get() == null);
+      openViews.add(new java.lang.ref.WeakReference<>(rowOverrides));
+    }
+    return view;
+  }
+
+  /**
+   * Announces that {@code row} (a {@link FlowRow} or {@link UnitRow} of this parser) is about
+   * to be modified in place. Every open {@link #snapshotView} keeps a copy of the row as it is
+   * now. Views are tracked weakly, so this is free once their builds have finished.
+   */
+  public void beforeRowEdit(Object row) {
+    List<FrozenRows.Overrides> views = new ArrayList<>();
+    synchronized (openViews) {
+      for (Iterator<java.lang.ref.WeakReference<FrozenRows.Overrides>> it = openViews.iterator(); it.hasNext(); ) {
+        FrozenRows.Overrides o = it.next().get();
+        if (o == null) it.remove(); else views.add(o);
+      }
+    }
+    for (FrozenRows.Overrides o : views) {
+      if (row instanceof FlowRow f) o.preserve(f, ExcelParserV5::snapshotFlowRow);
+      else if (row instanceof UnitRow u) o.preserve(u, ExcelParserV5::copyUnitRow);
+    }
+  }
+
+  private void copySettingsTo(ExcelParserV5 copy) {
+    copy.detached = true;
+    copy.flowCache = flowCache;
+    copy.recipientCache = recipientCache;
+    copy.edgeReferenceName = edgeReferenceName;
+    copy.vcsReferenceName = vcsReferenceName;
+    copy.voceraReferenceName = voceraReferenceName;
+    copy.xmppReferenceName = xmppReferenceName;
+    copy.useDefaultEdge = useDefaultEdge;
+    copy.useDefaultVmp = useDefaultVmp;
+    copy.useDefaultVocera = useDefaultVocera;
+    copy.useDefaultXmpp = useDefaultXmpp;
+    copy.roomFilterNursecall = roomFilterNursecall;
+    copy.roomFilterClinical = roomFilterClinical;
+    copy.roomFilterOrders = roomFilterOrders;
+    copy.customTabMappings.putAll(customTabMappings);
+  }
+
+  /**
+   * Starts building NurseCalls, Clinicals and Orders JSON in parallel against a {@link #snapshot()}.
+   * The snapshot is taken on the calling thread, so call this from the thread that edits rows.
+   * Each future completes (or fails) independently; keys are in the usual export order.
+   */
+  public Map<String, CompletableFuture<Map<String,Object>>> buildAllJsonAsync(MergeMode mergeMode) {
+    ExcelParserV5 snap = snapshot();
+    Map<String, CompletableFuture<Map<String,Object>>> futures = new LinkedHashMap<>();
+    for (String flowType : List.of("NurseCalls", "Clinicals", "Orders")) {
+      futures.put(flowType, CompletableFuture.supplyAsync(() -> snap.buildJson(flowType, mergeMode), BUILD_POOL));
+    }
+    return futures;
+  }
+
+  /** Builds all three flow types in parallel and waits for them. */
+  public Map<String, Map<String,Object>> buildAllJson(MergeMode mergeMode) {
+    Map<String, Map<String,Object>> result = new LinkedHashMap<>();
+    for (Map.Entry<String, CompletableFuture<Map<String,Object>>> e : buildAllJsonAsync(mergeMode).entrySet()) {
+      result.put(e.getKey(), join(e.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * Builds and streams NurseCalls, Clinicals and Orders JSON to their files concurrently.
+   * A null file skips that flow type. {@code progress} (optional) is invoked from the worker
+   * threads as each file is completed.
+   */
+  public void writeAllJson(File nurseFile, File clinicalFile, File ordersFile,
+                           MergeMode mergeMode, ExportProgress progress) throws Exception {
+    ExcelParserV5 snap = snapshot();
+    Map<String, File> targets = new LinkedHashMap<>();
+    if (nurseFile != null) targets.put("NurseCalls", nurseFile);
+    if (clinicalFile != null) targets.put("Clinicals", clinicalFile);
+    if (ordersFile != null) targets.put("Orders", ordersFile);
+
+    int total = targets.size();
+    java.util.concurrent.atomic.AtomicInteger completed = new java.util.concurrent.atomic.AtomicInteger();
+    List<CompletableFuture<Void>> writes = new ArrayList<>();
+    for (Map.Entry<String, File> target : targets.entrySet()) {
+      String flowType = target.getKey();
+      File file = target.getValue();
+      writes.add(CompletableFuture.runAsync(() -> {
+        try {
+          ensureParent(file);
+          try (Writer out = new BufferedWriter(new FileWriter(file, false))) {
+            writePretty(snap.buildJson(flowType, mergeMode), out);
+          }
+        } catch (IOException ex) {
+          throw new UncheckedIOException(ex);
+        }
+        if (progress != null) progress.fileWritten(flowType, file, completed.incrementAndGet(), total);
+      }, BUILD_POOL));
+    }
+    for (CompletableFuture<Void> write : writes) {
+      join(write);
+    }
+  }
+
+  private Map<String,Object> buildJson(String flowType, MergeMode mergeMode) {
+    return switch (flowType) {
+      case "NurseCalls" -> buildNurseCallsJson(mergeMode);
+      case "Clinicals" -> buildClinicalsJson(mergeMode);
+      case "Orders" -> buildOrdersJson(mergeMode);
+      default -> throw new IllegalArgumentException("Unknown flow type: " + flowType);
+    };
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof UncheckedIOException io) throw io;
+      if (cause instanceof RuntimeException re) throw re;
+      throw ex;
+    }
+  }
+
+  private static UnitRow copyUnitRow(UnitRow u) {
+    UnitRow c = new UnitRow();
+    c.facility = u.facility;
+    c.unitNames = u.unitNames;
+    c.podRoomFilter = u.podRoomFilter;
+    c.nurseGroup = u.nurseGroup;
+    c.clinGroup = u.clinGroup;
+    c.ordersGroup = u.ordersGroup;
+    c.noCareGroup = u.noCareGroup;
+    c.comments = u.comments;
+    c.customGroups.putAll(u.customGroups);
+    c.excelRowIndex = u.excelRowIndex;
+    c.originalValues.putAll(u.originalValues);
+    c.changedFields.addAll(u.changedFields);
+    return c;
+  }
+
+  private static FlowRow snapshotFlowRow(FlowRow r) {
+    FlowRow c = copyFlowRow(r);
+    c.version = r.version;
+    c.snapshotOf = r.snapshotOf != null ? r.snapshotOf : r;
+    c.excelRowIndex = r.excelRowIndex;
+    c.originalValues.putAll(r.originalValues);
+    c.changedFields.addAll(r.changedFields);
+    return c;
+  }
+
   public void writeJson(File summaryFile) throws Exception {
     ensureParent(summaryFile);
     Map<String,Object> summary = new LinkedHashMap<>();
@@ -3127,70 +3889,24 @@ public class ExcelParserV5 {
   }
 
   // ---------- NEW: Save As Excel ----------
+  /**
+   * Writes the current data to a new workbook ("Save As").
+   * <p>
+   * Rows are streamed through an {@link NdwWorkbookWriter}, so memory stays flat regardless
+   * of row count.
+   */
   public void writeExcel(File dest) throws IOException {
     Objects.requireNonNull(dest, "dest");
     ensureParent(dest);
 
-    try (Workbook wb = new XSSFWorkbook()) {
-      // Unit Breakdown
-      Sheet su = wb.createSheet(SHEET_UNIT);
-      String[] uh = new String[]{
-        "Facility",
-        "Common Unit Name",
-        "Nurse Call Configuration Group",
-        "Patient Monitoring Configuration Group",
-        "Orders Configuration Group",
-        "No Caregiver Group",
-        "Comments"
-      };
-      writeHeader(su, uh);
-      int r = 1;
-      for (UnitRow u : units) {
-        Row row = su.createRow(r++);
-        set(row,0,u.facility);
-        set(row,1,u.unitNames);
-        set(row,2,u.nurseGroup);
-        set(row,3,u.clinGroup);
-        set(row,4,u.ordersGroup);
-        set(row,5,u.noCareGroup);
-        set(row,6,u.comments);
-      }
-      autosize(su, uh.length);
-
-      // Nurse Call
-      Sheet sn = wb.createSheet(SHEET_NURSE);
-      String[] fh = flowHeaders();
-      writeHeader(sn, fh);
-      r = 1;
-      for (FlowRow f : nurseCalls) {
-        Row row = sn.createRow(r++);
-        writeFlowRow(row, f);
-      }
-      autosize(sn, fh.length);
-
-      // Patient Monitoring
-      Sheet sc = wb.createSheet(SHEET_CLINICAL);
-      writeHeader(sc, fh);
-      r = 1;
-      for (FlowRow f : clinicals) {
-        Row row = sc.createRow(r++);
-        writeFlowRow(row, f);
-      }
-      autosize(sc, fh.length);
-
-      // Orders
-      Sheet so = wb.createSheet(SHEET_ORDERS);
-      writeHeader(so, fh);
-      r = 1;
-      for (FlowRow f : orders) {
-        Row row = so.createRow(r++);
-        writeFlowRow(row, f);
-      }
-      autosize(so, fh.length);
-
-      try (FileOutputStream fos = new FileOutputStream(dest)) {
-        wb.write(fos);
-      }
+    try (PhaseMetrics.Phase total = metrics.start("writeExcel.total");
+         NdwWorkbookWriter writer = new NdwWorkbookWriter(metrics, "writeExcel")) {
+      writer.writeUnits(units);
+      writer.writeNurseCalls(nurseCalls);
+      writer.writeClinicals(clinicals);
+      writer.writeOrders(orders);
+      writer.write(dest);
+      total.count(writer.getRowsWritten());
     }
   }
 
@@ -3210,45 +3926,65 @@ public class ExcelParserV5 {
     changedCellFont = null;
     
     // Load the existing workbook
+    PhaseMetrics.Phase total = metrics.start("updateExcel.total");
+    PhaseMetrics.Phase open = metrics.start("updateExcel.openWorkbook");
     try (FileInputStream fis = new FileInputStream(sourceFile);
          Workbook wb = WorkbookFactory.create(fis)) {
+      open.count(wb.getNumberOfSheets()).close();
       
       // Update Unit Breakdown sheet
       Sheet unitSheet = wb.getSheet(SHEET_UNIT);
       if (unitSheet != null) {
-        Row header = findHeaderRow(unitSheet);
-        int startRow = firstDataRow(unitSheet, header);
-        updateUnitSheet(unitSheet, startRow);
+        try (PhaseMetrics.Phase p = metrics.start("updateExcel.unitBreakdown")) {
+          Row header = findHeaderRow(unitSheet);
+          int startRow = firstDataRow(unitSheet, header);
+          updateUnitSheet(unitSheet, startRow);
+          p.count(units.size());
+        }
       }
       
       // Update Nurse Call sheet
       Sheet nurseSheet = wb.getSheet(SHEET_NURSE);
       if (nurseSheet != null) {
-        Row header = findHeaderRow(nurseSheet);
-        int startRow = firstDataRow(nurseSheet, header);
-        updateFlowSheet(nurseSheet, nurseCalls, startRow);
+        try (PhaseMetrics.Phase p = metrics.start("updateExcel.nurseCall")) {
+          Row header = findHeaderRow(nurseSheet);
+          int startRow = firstDataRow(nurseSheet, header);
+          updateFlowSheet(nurseSheet, nurseCalls, startRow);
+          p.count(nurseCalls.size());
+        }
       }
       
       // Update Patient Monitoring sheet
       Sheet clinicalSheet = wb.getSheet(SHEET_CLINICAL);
       if (clinicalSheet != null) {
-        Row header = findHeaderRow(clinicalSheet);
-        int startRow = firstDataRow(clinicalSheet, header);
-        updateFlowSheet(clinicalSheet, clinicals, startRow);
+        try (PhaseMetrics.Phase p = metrics.start("updateExcel.patientMonitoring")) {
+          Row header = findHeaderRow(clinicalSheet);
+          int startRow = firstDataRow(clinicalSheet, header);
+          updateFlowSheet(clinicalSheet, clinicals, startRow);
+          p.count(clinicals.size());
+        }
       }
       
       // Update Orders sheet
       Sheet ordersSheet = wb.getSheet(SHEET_ORDERS);
       if (ordersSheet != null) {
-        Row header = findHeaderRow(ordersSheet);
-        int startRow = firstDataRow(ordersSheet, header);
-        updateFlowSheet(ordersSheet, orders, startRow);
+        try (PhaseMetrics.Phase p = metrics.start("updateExcel.orders")) {
+          Row header = findHeaderRow(ordersSheet);
+          int startRow = firstDataRow(ordersSheet, header);
+          updateFlowSheet(ordersSheet, orders, startRow);
+          p.count(orders.size());
+        }
       }
       
       // Write back to the same file
-      try (FileOutputStream fos = new FileOutputStream(sourceFile)) {
+      try (PhaseMetrics.Phase p = metrics.start("updateExcel.write");
+           FileOutputStream fos = new FileOutputStream(sourceFile)) {
         wb.write(fos);
+        p.count(units.size() + nurseCalls.size() + clinicals.size() + orders.size());
       }
+    } finally {
+      open.close();
+      total.count(units.size() + nurseCalls.size() + clinicals.size() + orders.size()).close();
     }
   }
   
@@ -3464,68 +4200,6 @@ public class ExcelParserV5 {
     cell.setCellStyle(changedCellStyle);
   }
 
-  private static String[] flowHeaders() {
-    return new String[]{
-      "In scope",
-      "Configuration Group",
-      "Common Alert or Alarm Name",
-      "Sending System Alert Name",
-      "Priority",
-      "Device - A",
-      "Device - B",
-      "Ringtone Device - A",
-      "Response Options",
-      "Break Through DND",
-      "Engage 6.6+: Escalate after all declines or 1 decline",
-      "Engage/Edge Display Time (Time to Live) (Device - A)",
-      "Genie Enunciation",
-      "EMDAN Compliant? (Y/N)",
-      "Time to 1st Recipient","1st Recipient",
-      "Time to 2nd Recipient","2nd Recipient",
-      "Time to 3rd Recipient","3rd Recipient",
-      "Time to 4th Recipient","4th Recipient",
-      "Time to 5th Recipient","5th Recipient"
-    };
-  }
-
-  private static void writeFlowRow(Row row, FlowRow f) {
-    // Column indices: 0=In scope, 1=Config Group, 2=Alarm Name, etc.
-    // Keep in sync with flowHeaders() array
-    set(row,0,f.inScope ? "TRUE" : "FALSE");
-    set(row,1,f.configGroup);
-    set(row,2,f.alarmName);
-    set(row,3,f.sendingName);
-    set(row,4,f.priorityRaw);
-    set(row,5,f.deviceA);
-    set(row,6,f.deviceB);
-    set(row,7,f.ringtone);
-    set(row,8,f.responseOptions);
-    set(row,9,f.breakThroughDND);
-    set(row,10,f.escalateAfter);
-    set(row,11,f.ttlValue);
-    set(row,12,f.enunciate);
-    set(row,13,f.emdan);
-    set(row,14,f.t1); set(row,15,f.r1);
-    set(row,16,f.t2); set(row,17,f.r2);
-    set(row,18,f.t3); set(row,19,f.r3);
-    set(row,20,f.t4); set(row,21,f.r4);
-    set(row,22,f.t5); set(row,23,f.r5);
-  }
-
-  private static void writeHeader(Sheet s, String[] headers) {
-    Row h = s.createRow(0);
-    for (int i=0;i<headers.length;i++) set(h,i,headers[i]);
-  }
-
-  private static void autosize(Sheet s, int cols) {
-    for (int i=0;i<cols;i++) s.autoSizeColumn(i);
-  }
-
-  private static void set(Row row, int col, String value) {
-    Cell c = row.createCell(col, CellType.STRING);
-    c.setCellValue(value == null ? "" : value);
-  }
-
   // ---------- Minimal JSON writer (2 spaces, preserves order) ----------
   public static String pretty(Map<String,Object> map) {
     StringBuilder sb = new StringBuilder();
@@ -3571,6 +4245,42 @@ public class ExcelParserV5 {
     }
     sb.append('"').append(escape(String.valueOf(o))).append('"');
   }
+  /**
+   * Streams the same text as {@link #pretty(Map)} to a writer. Elements of top-level arrays
+   * (e.g. deliveryFlows) are rendered and written one at a time instead of as one big string.
+   */
+  public static void writePretty(Map<String,Object> map, Writer out) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    out.write("{\n");
+    int i=0, size=map.size();
+    for (Map.Entry<String,Object> e : map.entrySet()) {
+      sb.setLength(0);
+      indent(sb, 1);
+      sb.append('"').append(escape(e.getKey())).append('"').append(':').append(' ');
+      if (e.getValue() instanceof Collection<?> c && !c.isEmpty()) {
+        sb.append("[\n");
+        out.append(sb);
+        int j=0, count=c.size();
+        for (Object v : c) {
+          sb.setLength(0);
+          indent(sb, 2);
+          writeJson(v, sb, 2);
+          if (++j < count) sb.append(',');
+          sb.append('\n');
+          out.append(sb);
+        }
+        sb.setLength(0);
+        indent(sb, 1);
+        sb.append(']');
+      } else {
+        writeJson(e.getValue(), sb, 1);
+      }
+      if (++i < size) sb.append(',');
+      sb.append('\n');
+      out.append(sb);
+    }
+    out.write("}");
+  }
   private static void indent(StringBuilder sb, int indent) {
     for (int i=0;i<indent;i++) sb.append("  ");
   }
@@ -3636,10 +4346,45 @@ public class ExcelParserV5 {
       this.value = value == null ? "" : value;
       this.isFunctionalRole = isFunctionalRole;
       this.isCustomUnit = isCustomUnit;
-      this.customUnitRoles = customUnitRoles == null ? List.of() : new ArrayList<>(customUnitRoles);
+      this.customUnitRoles = customUnitRoles == null ? List.of() : List.copyOf(customUnitRoles);
     }
   }
+
+  private static Map<RecipientKey, ParsedRecipient> newRecipientCache() {
+    return new LinkedHashMap<>(256, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<RecipientKey, ParsedRecipient> eldest) {
+        return size() > RECIPIENT_CACHE_LIMIT;
+      }
+    };
+  }
+
+  /**
+   * Returns the parsed form of one recipient cell entry, served from {@link #recipientCache}
+   * when the same text and default facility were seen before.
+   */
   private ParsedRecipient parseRecipient(String raw, String defaultFacility) {
+    RecipientKey key = new RecipientKey(raw, defaultFacility);
+    synchronized (recipientCache) {
+      ParsedRecipient parsed = recipientCache.get(key);
+      if (parsed != null) return parsed;
+    }
+    // Tokenize outside the lock; a concurrent miss on the same key just computes it twice
+    ParsedRecipient parsed = tokenizeRecipient(raw, defaultFacility);
+    synchronized (recipientCache) {
+      recipientCache.put(key, parsed);
+    }
+    return parsed;
+  }
+
+  /** Number of parsed recipients currently cached by this parser. */
+  int recipientCacheSize() {
+    synchronized (recipientCache) {
+      return recipientCache.size();
+    }
+  }
+
+  private static ParsedRecipient tokenizeRecipient(String raw, String defaultFacility) {
     String text = raw == null ? "" : raw.trim();
     if (text.isEmpty()) {
       return new ParsedRecipient(defaultFacility == null ? "" : defaultFacility, "", false);
@@ -3647,19 +4392,17 @@ public class ExcelParserV5 {
     String facility = defaultFacility == null ? "" : defaultFacility;
     String valuePortion = text;
 
-    String lower = text.toLowerCase(Locale.ROOT);
     boolean isFunctionalRole = false;
 
     // Check for "Custom Unit" keyword (case-insensitive, ignoring special characters and spaces)
-    String normalizedLower = lower.replaceAll("[\\s\\-_]+", "");
-    if (normalizedLower.contains("customunit")) {
+    if (containsCustomUnit(text)) {
       return parseCustomUnitRecipient(text, facility);
     }
 
-    if (lower.startsWith("vassign room:") || lower.startsWith("vassign:")) {
+    if (startsWithIgnoreCase(text, "vassign room:") || startsWithIgnoreCase(text, "vassign:")) {
       isFunctionalRole = true;
       valuePortion = text.substring(text.indexOf(':') + 1).trim();
-    } else if (lower.startsWith("vgroup:")) {
+    } else if (startsWithIgnoreCase(text, "vgroup:")) {
       isFunctionalRole = false;
       valuePortion = text.substring(text.indexOf(':') + 1).trim();
     } else {
@@ -3676,13 +4419,11 @@ public class ExcelParserV5 {
     //           "Room]  Charge Nurse" -> "Charge Nurse"
     //           "Room)PCT" -> "PCT"
     //           "Room - CNA" -> "CNA"
-    int roomIdx = valuePortion.toLowerCase(Locale.ROOT).indexOf("room");
+    int roomIdx = indexOfIgnoreCase(valuePortion, "room");
     if (roomIdx >= 0 && roomIdx + 4 < valuePortion.length()) {
       // Skip "room" (4 chars) and any following whitespace/special characters
-      String afterRoom = valuePortion.substring(roomIdx + 4).trim();
-      // Remove leading special characters (brackets, parentheses, dashes, etc.) and spaces
-      // Keep only alphanumeric text and spaces within the role name
-      afterRoom = afterRoom.replaceAll(LEADING_SPECIAL_CHARS_PATTERN, "").trim();
+      // (brackets, parentheses, dashes, etc.), keeping the role name as written
+      String afterRoom = stripLeadingSpecialChars(valuePortion.substring(roomIdx + 4));
       if (!afterRoom.isEmpty()) {
         valuePortion = afterRoom;
         isFunctionalRole = true; // If "Room" keyword found, it's a functional role
@@ -3703,41 +4444,17 @@ public class ExcelParserV5 {
    *   "Custom UNIT all Nurse, CNA" -> roles: ["Nurse", "CNA"]
    *   "Custom Unit All Nurse, All CNA, Charge Nurse" -> roles: ["Nurse", "CNA", "Charge Nurse"]
    */
-  private ParsedRecipient parseCustomUnitRecipient(String text, String facility) {
-    String lower = text.toLowerCase(Locale.ROOT);
-    
-    // Find the position of "custom" and "unit" keywords
-    String normalizedLower = lower.replaceAll("[\\s\\-_]+", "");
-    int customUnitIdx = normalizedLower.indexOf("customunit");
-    if (customUnitIdx < 0) {
-      // Shouldn't happen, but fallback to regular parsing
-      return new ParsedRecipient(facility, text, false);
-    }
-    
+  private static ParsedRecipient parseCustomUnitRecipient(String text, String facility) {
     // Find where "Custom Unit" ends in the original text
-    // We need to find the end of "unit" in the original string
     int searchIdx = 0;
-    int foundCustom = -1;
     int foundUnit = -1;
     
-    // Find "custom" (case-insensitive)
-    for (int i = 0; i < text.length() - 5; i++) {
-      if (text.substring(i, i + 6).equalsIgnoreCase("custom")) {
-        foundCustom = i;
-        searchIdx = i + 6;
-        break;
-      }
-    }
-    
-    // Find "unit" after "custom" (case-insensitive)
+    // Find "custom" (case-insensitive), then "unit" after it
+    int foundCustom = indexOfIgnoreCase(text, "custom");
     if (foundCustom >= 0) {
-      for (int i = searchIdx; i < text.length() - 3; i++) {
-        if (text.substring(i, i + 4).equalsIgnoreCase("unit")) {
-          foundUnit = i;
-          searchIdx = i + 4;
-          break;
-        }
-      }
+      searchIdx = foundCustom + 6;
+      foundUnit = indexOfIgnoreCase(text, "unit", searchIdx);
+      if (foundUnit >= 0) searchIdx = foundUnit + 4;
     }
     
     if (foundUnit < 0) {
@@ -3757,17 +4474,16 @@ public class ExcelParserV5 {
       if (part.isEmpty()) continue;
       
       // Remove "All" keyword (case-insensitive) from the beginning
-      String partLower = part.toLowerCase(Locale.ROOT);
-      if (partLower.startsWith("all ")) {
+      if (startsWithIgnoreCase(part, "all ")) {
         part = part.substring(4).trim();
-      } else if (partLower.equals("all")) {
+      } else if (part.equalsIgnoreCase("all")) {
         // Skip standalone "All"
         continue;
       }
       
       // Strip all special characters, keeping only alphanumeric and spaces
       // This handles cases like "Nurse]", "CNA#", "Charge Nurse@" -> "Nurse", "CNA", "Charge Nurse"
-      part = part.replaceAll(SPECIAL_CHARS_PATTERN, "").trim();
+      part = stripSpecialChars(part).trim();
       
       if (!part.isEmpty()) {
         roles.add(part);
@@ -3778,6 +4494,103 @@ public class ExcelParserV5 {
     return new ParsedRecipient(facility, "", false, true, roles);
   }
 
+  /**
+   * The {@code recipientType} a recipient cell produces in its JSON destination:
+   * "custom", "functional_role", "group", or "" when the cell names no recipient.
+   */
+  static String recipientType(String recipientText) {
+    if (recipientText == null || recipientText.isBlank()) return "";
+    if (containsCustomUnit(recipientText.trim())) {
+      ParsedRecipient pr = tokenizeRecipient(recipientText.trim(), "");
+      if (pr.isCustomUnit && !pr.customUnitRoles.isEmpty()) return "custom";
+    }
+    List<String> recipients = splitRecipients(recipientText);
+    if (recipients.isEmpty()) return "";
+    for (String raw : recipients) {
+      if (tokenizeRecipient(raw, "").isFunctionalRole) return "functional_role";
+    }
+    return "group";
+  }
+
+  // ---------- Recipient text scanning (hand-written; runs for every recipient cell) ----------
+
+  /**
+   * True if the text contains "customunit" once whitespace, '-' and '_' are ignored
+   * (case-insensitive), e.g. "Custom Unit", "custom-unit", "CUSTOM_UNIT".
+   */
+  static boolean containsCustomUnit(String text) {
+    final String target = "customunit"; // 'c' occurs only first, so a mismatch restarts cleanly
+    int matched = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      if (ch == '-' || ch == '_' || isRegexWhitespace(ch)) continue;
+      char lower = Character.toLowerCase(ch);
+      if (lower == target.charAt(matched)) {
+        if (++matched == target.length()) return true;
+      } else {
+        matched = lower == 'c' ? 1 : 0;
+      }
+    }
+    return false;
+  }
+
+  /** Splits a recipient cell on ',', ';' and newlines, dropping blanks and "N/A". */
+  static List<String> splitRecipients(String text) {
+    List<String> out = new ArrayList<>();
+    int start = 0;
+    for (int i = 0; i <= text.length(); i++) {
+      if (i == text.length() || text.charAt(i) == ',' || text.charAt(i) == ';' || text.charAt(i) == '\n') {
+        String part = text.substring(start, i).trim();
+        if (!part.isEmpty() && !part.equalsIgnoreCase("N/A")) out.add(part);
+        start = i + 1;
+      }
+    }
+    return out;
+  }
+
+  /** Drops leading characters that are not ASCII letters/digits, then trims. */
+  static String stripLeadingSpecialChars(String text) {
+    int i = 0;
+    while (i < text.length() && !isAsciiAlphanumeric(text.charAt(i))) i++;
+    return text.substring(i).trim();
+  }
+
+  /** Keeps ASCII letters, digits and whitespace only. */
+  static String stripSpecialChars(String text) {
+    StringBuilder sb = null;
+    for (int i = 0; i < text.length(); i++) {
+      char ch = text.charAt(i);
+      boolean keep = isAsciiAlphanumeric(ch) || isRegexWhitespace(ch);
+      if (!keep && sb == null) sb = new StringBuilder(text.length()).append(text, 0, i);
+      if (keep && sb != null) sb.append(ch);
+    }
+    return sb == null ? text : sb.toString();
+  }
+
+  private static int indexOfIgnoreCase(String text, String needle) {
+    return indexOfIgnoreCase(text, needle, 0);
+  }
+
+  private static int indexOfIgnoreCase(String text, String needle, int from) {
+    for (int i = from, last = text.length() - needle.length(); i <= last; i++) {
+      if (text.regionMatches(true, i, needle, 0, needle.length())) return i;
+    }
+    return -1;
+  }
+
+  private static boolean startsWithIgnoreCase(String text, String prefix) {
+    return text.regionMatches(true, 0, prefix, 0, prefix.length());
+  }
+
+  private static boolean isAsciiAlphanumeric(char ch) {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+  }
+
+  // Same set as the regex class \s
+  private static boolean isRegexWhitespace(char ch) {
+    return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+  }
+
   // ---------- Sheet helpers ----------
   private static Sheet findSheet(Workbook wb, String name) {
     if (wb == null || name == null) return null;
@@ -4018,6 +4831,13 @@ public class ExcelParserV5 {
   }
   
   private String getCell(Row row, int col) {
+    String val = readCell(row, col);
+    if (cellStrings == null || val.isEmpty()) return val;
+    String shared = cellStrings.putIfAbsent(val, val);
+    return shared != null ? shared : val;
+  }
+
+  private String readCell(Row row, int col) {
     if (row == null || col < 0) return "";
     try {
       Cell cell = row.getCell(col);
@@ -4028,61 +4848,7 @@ public class ExcelParserV5 {
           ? cell.getLocalDateTimeCellValue().toString()
           : String.valueOf(cell.getNumericCellValue());
         case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-        case FORMULA -> {
-          // Use FormulaEvaluator to properly evaluate formulas
-          try {
-            if (formulaEvaluator != null) {
-              CellValue cellValue = formulaEvaluator.evaluate(cell);
-              String result = switch (cellValue.getCellType()) {
-                case STRING -> cellValue.getStringValue().trim();
-                case NUMERIC -> DateUtil.isCellDateFormatted(cell)
-                  ? cell.getLocalDateTimeCellValue().toString()
-                  : String.valueOf(cellValue.getNumberValue());
-                case BOOLEAN -> String.valueOf(cellValue.getBooleanValue());
-                case ERROR -> ""; // Return empty for error cells like #REF!, #VALUE!, etc.
-                default -> "";
-              };
-              yield result;
-            } else {
-              // Fallback to cached result if no evaluator available
-              // IMPORTANT: For FORMULA cells, we must NOT use cell.getStringCellValue() directly
-              // as it may return the formula text instead of the cached result value
-              try {
-                CellType cachedType = cell.getCachedFormulaResultType();
-                String result = switch (cachedType) {
-                  case STRING -> {
-                    // Use getRichStringCellValue() to get the cached result, not the formula
-                    String cachedValue = cell.getRichStringCellValue().getString();
-                    yield cachedValue != null ? cachedValue.trim() : "";
-                  }
-                  case NUMERIC -> DateUtil.isCellDateFormatted(cell)
-                    ? cell.getLocalDateTimeCellValue().toString()
-                    : String.valueOf(cell.getNumericCellValue());
-                  case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
-                  case ERROR -> ""; // Return empty for error formulas
-                  default -> "";
-                };
-                yield result;
-              } catch (Exception fallbackEx) {
-                // If we can't get cached result, return empty string
-                // This ensures we never accidentally return the formula text
-                System.err.println("Warning: Could not get cached formula result at column " + col + ": " + fallbackEx.getMessage());
-                yield "";
-              }
-            }
-          } catch (Exception e) {
-            // Formula evaluation errors - return empty string
-            // Log the formula for debugging but NEVER return it
-            try {
-              String formulaText = cell.getCellFormula();
-              System.err.println("Warning: Could not evaluate formula in cell at column " + col + 
-                  " (Formula: =" + formulaText + "): " + e.getMessage());
-            } catch (Exception logEx) {
-              System.err.println("Warning: Could not evaluate formula in cell at column " + col + ": " + e.getMessage());
-            }
-            yield "";
-          }
-        }
+        case FORMULA -> formulaValue(cell, col);
         default -> "";
       };
       if (val.equalsIgnoreCase("N/A") || val.equalsIgnoreCase("NA") || val.isBlank()) return "";
@@ -4091,7 +4857,8 @@ public class ExcelParserV5 {
       // This is a defensive measure to catch any edge cases where formula text might leak through
       String trimmed = val.trim();
       if (trimmed.startsWith("=")) {
-        System.err.println("Warning: Detected formula string in cell value at column " + col + ". Returning empty string instead.");
+        diagnostics.warn("FORMULA_TEXT", row.getSheet().getSheetName(), row.getRowNum() + 1, col,
+            "Detected formula string in cell value. Returning empty string instead.");
         return "";
       }
       
@@ -4101,6 +4868,103 @@ public class ExcelParserV5 {
     }
   }
   
+  /**
+   * Result of a formula cell, memoised per load by sheet, row and column.
+   * <p>
+   * Excel's saved result is trusted unless there is none or {@link #setRecalculateFormulas}
+   * is on; only then is the formula evaluated, which for lookups into other sheets means POI
+   * re-evaluating the whole chain. The metrics count evaluated formulas
+   * ({@code load.formulaEvaluation}, with their time), saved results used
+   * ({@code load.formulaCachedResults}) and repeated reads answered from the memo
+   * ({@code load.formulaMemoHits}).
+   */
+  private String formulaValue(Cell cell, int col) {
+    Map<Long, String> results = formulaResults == null ? null
+      : formulaResults.computeIfAbsent(cell.getSheet(), s -> new HashMap<>());
+    long key = ((long) cell.getRowIndex() << 32) | col;
+    if (results != null) {
+      String known = results.get(key);
+      if (known != null) {
+        metrics.accumulate("load.formulaMemoHits", 0, 1);
+        return known;
+      }
+    }
+    String value;
+    if (formulaEvaluator != null && (recalculateFormulas || !hasCachedResult(cell))) {
+      value = evaluateFormula(cell, col);
+    } else {
+      long start = System.nanoTime();
+      value = cachedFormulaResult(cell, col);
+      metrics.accumulate("load.formulaCachedResults", System.nanoTime() - start, 1);
+    }
+    if (results != null) results.put(key, value);
+    return value;
+  }
+
+  /** True if the workbook holds a saved result for the formula (xlsx cells never calculated have none). */
+  private static boolean hasCachedResult(Cell cell) {
+    if (cell instanceof XSSFCell xssf) return xssf.getCTCell().isSetV();
+    return true;
+  }
+
+  private String evaluateFormula(Cell cell, int col) {
+    try {
+      long evalStart = System.nanoTime();
+      CellValue cellValue = formulaEvaluator.evaluate(cell);
+      metrics.accumulate("load.formulaEvaluation", System.nanoTime() - evalStart, 1);
+      return switch (cellValue.getCellType()) {
+        case STRING -> cellValue.getStringValue().trim();
+        case NUMERIC -> DateUtil.isCellDateFormatted(cell)
+          ? cell.getLocalDateTimeCellValue().toString()
+          : String.valueOf(cellValue.getNumberValue());
+        case BOOLEAN -> String.valueOf(cellValue.getBooleanValue());
+        case ERROR -> ""; // Return empty for error cells like #REF!, #VALUE!, etc.
+        default -> "";
+      };
+    } catch (Exception e) {
+      // Formula evaluation errors - return empty string
+      // Log the formula for debugging but NEVER return it
+      diagnostics.warn("FORMULA_EVAL_FAILED", cell.getSheet().getSheetName(), cell.getRowIndex() + 1, col,
+          () -> "Could not evaluate formula" + formulaText(cell) + ": " + e.getMessage());
+      return "";
+    }
+  }
+
+  private static String formulaText(Cell cell) {
+    try {
+      return " (Formula: =" + cell.getCellFormula() + ")";
+    } catch (Exception logEx) {
+      return "";
+    }
+  }
+
+  private String cachedFormulaResult(Cell cell, int col) {
+    // IMPORTANT: For FORMULA cells, we must NOT use cell.getStringCellValue() directly
+    // as it may return the formula text instead of the cached result value
+    try {
+      CellType cachedType = cell.getCachedFormulaResultType();
+      return switch (cachedType) {
+        case STRING -> {
+          // Use getRichStringCellValue() to get the cached result, not the formula
+          String cachedValue = cell.getRichStringCellValue().getString();
+          yield cachedValue != null ? cachedValue.trim() : "";
+        }
+        case NUMERIC -> DateUtil.isCellDateFormatted(cell)
+          ? cell.getLocalDateTimeCellValue().toString()
+          : String.valueOf(cell.getNumericCellValue());
+        case BOOLEAN -> String.valueOf(cell.getBooleanCellValue());
+        case ERROR -> ""; // Return empty for error formulas
+        default -> "";
+      };
+    } catch (Exception fallbackEx) {
+      // If we can't get cached result, return empty string
+      // This ensures we never accidentally return the formula text
+      diagnostics.warn("FORMULA_CACHED_RESULT", cell.getSheet().getSheetName(), cell.getRowIndex() + 1, col,
+          () -> "Could not get cached formula result: " + fallbackEx.getMessage());
+      return "";
+    }
+  }
+
   /**
    * Get the first non-empty value from multiple columns.
    * Used for extracting values that may exist in multiple possible columns.
@@ -4139,16 +5003,15 @@ public class ExcelParserV5 {
     if (isBlank(configGroup)) return "";
     
     // Choose the appropriate map based on nurseSide flag
-    Map<String, List<Map<String, String>>> groupMap = nurseSide 
+    Map<String, List<UnitRef>> groupMap = nurseSide 
       ? nurseGroupToUnits 
       : clinicalGroupToUnits;
     
     // Look up the configuration group in the map
-    List<Map<String, String>> units = groupMap.get(configGroup);
+    List<UnitRef> units = groupMap.get(configGroup);
     if (units != null && !units.isEmpty()) {
       // Return the facility name from the first unit
-      String facility = units.get(0).get("facilityName");
-      return facility != null ? facility : "";
+      return units.get(0).facilityName();
     }
     
     return "";
@@ -4330,10 +5193,9 @@ public class ExcelParserV5 {
    * For VMP (VCS) and Vocera: Normal(VCS)->normal, High(VCS)->high, Urgent(VCS)->urgent
    * For other interfaces or empty device: use OutgoingWCTP logic as default
    */
-  private static String mapPrioritySafe(String priority, String deviceName) {
+  private static String mapPriorityForComponent(String priority, String interfaceComponent) {
     if (priority == null) return "";
     
-    String interfaceComponent = getInterfaceComponentName(deviceName);
     String norm = priority.trim().toLowerCase(Locale.ROOT);
     
     // VMP (VCS) and Vocera priority mapping - they use the same mapping
@@ -4458,12 +5320,12 @@ public class ExcelParserV5 {
    * @param unitRefs The original unit references including internal fields
    * @return A new list of unit references containing only output-appropriate fields
    */
-  private static List<Map<String,String>> filterUnitRefsForOutput(List<Map<String,String>> unitRefs) {
+  private static List<Map<String,String>> filterUnitRefsForOutput(List<UnitRef> unitRefs) {
     return unitRefs.stream()
       .map(unit -> {
         Map<String,String> filtered = new LinkedHashMap<>();
-        filtered.put(UNIT_FIELD_FACILITY, unit.getOrDefault(UNIT_FIELD_FACILITY, ""));
-        filtered.put(UNIT_FIELD_NAME, unit.getOrDefault(UNIT_FIELD_NAME, ""));
+        filtered.put(UNIT_FIELD_FACILITY, unit.facilityName());
+        filtered.put(UNIT_FIELD_NAME, unit.name());
         return filtered;
       })
       .collect(Collectors.toList());
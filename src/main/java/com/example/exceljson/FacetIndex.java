@@ -0,0 +1,170 @@
+package com.example.exceljson;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Distinct values of the filterable flow columns, each with the set of rows holding it.
+ * <p>
+ * For every {@link Facet} the index keeps one bit set per distinct (trimmed) value over the
+ * rows of a table's full list. Filtering on several facets at once is then an intersection
+ * of bit sets, and a value's occurrence count is its bit set's cardinality, optionally within
+ * the other selections. The index is built when the row list is set (and rebuilt when that
+ * list is replaced), and moved row by row through {@link #update} as cells are edited.
+ */
+final class FacetIndex {
+
+    /** Filterable flow columns. */
+    enum Facet {
+        CONFIG_GROUP("Config Group", f -> f.configGroup),
+        PRIORITY("Priority", f -> f.priorityRaw),
+        DEVICE_A("Device A", f -> f.deviceA),
+        RINGTONE("Ringtone", f -> f.ringtone),
+        RECIPIENT_TYPE("Recipient Type", f -> ExcelParserV5.recipientType(f.r1));
+
+        final String label;
+        private final Function<ExcelParserV5.FlowRow, String> getter;
+
+        Facet(String label, Function<ExcelParserV5.FlowRow, String> getter) {
+            this.label = label;
+            this.getter = getter;
+        }
+
+        String key(ExcelParserV5.FlowRow row) {
+            String value = getter.apply(row);
+            return value == null ? "" : value.trim();
+        }
+    }
+
+    private final Map<ExcelParserV5.FlowRow, Integer> indexOf = new IdentityHashMap<>();
+    private final Map<Facet, Map<String, BitSet>> postings = new EnumMap<>(Facet.class);
+    private final Map<Facet, List<String>> keys = new EnumMap<>(Facet.class);   // current key of each row
+    private final ListChangeListener<ExcelParserV5.FlowRow> rebuild = c -> rebuild(c.getList());
+    private ObservableList<ExcelParserV5.FlowRow> rows;
+    private int rowCount;
+
+    FacetIndex() {
+        for (Facet facet : Facet.values()) {
+            postings.put(facet, new LinkedHashMap<>());
+            keys.put(facet, new ArrayList<>());
+        }
+    }
+
+    /** Indexes {@code rows} and follows replacements of the list from now on. */
+    void setRows(ObservableList<ExcelParserV5.FlowRow> rows) {
+        if (this.rows != null) this.rows.removeListener(rebuild);
+        this.rows = rows;
+        if (rows != null) rows.addListener(rebuild);
+        rebuild(rows);
+    }
+
+    private void rebuild(List<? extends ExcelParserV5.FlowRow> rows) {
+        indexOf.clear();
+        for (Facet facet : Facet.values()) {
+            postings.get(facet).clear();
+            keys.get(facet).clear();
+        }
+        rowCount = rows == null ? 0 : rows.size();
+        for (int i = 0; i < rowCount; i++) {
+            ExcelParserV5.FlowRow row = rows.get(i);
+            indexOf.put(row, i);
+            for (Facet facet : Facet.values()) {
+                String key = facet.key(row);
+                keys.get(facet).add(key);
+                postings.get(facet).computeIfAbsent(key, k -> new BitSet()).set(i);
+            }
+        }
+    }
+
+    /**
+     * Re-reads {@code row} after an edit, moving it to its new values.
+     *
+     * @return true if any facet value of the row changed
+     */
+    boolean update(ExcelParserV5.FlowRow row) {
+        Integer index = row == null ? null : indexOf.get(row);
+        if (index == null) return false;
+        boolean changed = false;
+        for (Facet facet : Facet.values()) {
+            String key = facet.key(row);
+            String old = keys.get(facet).get(index);
+            if (old.equals(key)) continue;
+            Map<String, BitSet> values = postings.get(facet);
+            BitSet bits = values.get(old);
+            bits.clear(index);
+            if (bits.isEmpty()) values.remove(old);
+            values.computeIfAbsent(key, k -> new BitSet()).set(index);
+            keys.get(facet).set(index, key);
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Rows matching every selected value, as a mask over the row list; facets mapped to
+     * null are not constrained.
+     *
+     * @return the mask, or null when nothing is selected (every row matches)
+     */
+    BitSet select(Map<Facet, String> selection) {
+        return select(selection, null);
+    }
+
+    private BitSet select(Map<Facet, String> selection, Facet except) {
+        BitSet mask = null;
+        for (Map.Entry<Facet, String> e : selection.entrySet()) {
+            if (e.getValue() == null || e.getKey() == except) continue;
+            BitSet bits = postings.get(e.getKey()).get(e.getValue().trim());
+            if (mask == null) {
+                mask = bits == null ? new BitSet() : (BitSet) bits.clone();
+            } else if (bits == null) {
+                mask.clear();
+            } else {
+                mask.and(bits);
+            }
+        }
+        return mask;
+    }
+
+    /** True if {@code row} is in {@code mask}; rows the index has not seen are let through. */
+    boolean matches(BitSet mask, ExcelParserV5.FlowRow row) {
+        if (mask == null) return true;
+        Integer index = indexOf.get(row);
+        return index == null || mask.get(index);
+    }
+
+    /**
+     * Non-blank values of {@code facet} with the number of rows holding each, counted among
+     * the rows that match the other facets of {@code selection}. Values are in first-seen order.
+     */
+    Map<String, Integer> counts(Facet facet, Map<Facet, String> selection) {
+        BitSet others = select(selection, facet);
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<String, BitSet> e : postings.get(facet).entrySet()) {
+            if (e.getKey().isEmpty()) continue;
+            int count;
+            if (others == null) {
+                count = e.getValue().cardinality();
+            } else {
+                BitSet both = (BitSet) e.getValue().clone();
+                both.and(others);
+                count = both.cardinality();
+            }
+            counts.put(e.getKey(), count);
+        }
+        return counts;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+}
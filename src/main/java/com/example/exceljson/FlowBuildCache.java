@@ -0,0 +1,148 @@
+package com.example.exceljson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Memoises delivery flows built by {@link ExcelParserV5} so that regenerating JSON after a
+ * single edit only rebuilds the rows (or merge groups) that actually changed.
+ * <p>
+ * Entries are keyed by the row instance and validated against {@link ExcelParserV5.FlowRow#version}
+ * plus a build context string covering the flow type, merge mode, unit maps, interface
+ * references, default interface flags and room filters. Unit maps are identified by the parser
+ * that built them and its {@link ExcelParserV5#getUnitMapVersion()}, not by their content.
+ * Anything that mutates a row outside the normal edit path must bump its version (or call
+ * {@link #clear()}).
+ * <p>
+ * Copies made by {@link ExcelParserV5#snapshot()} and views from
+ * {@link ExcelParserV5#snapshotView} take over their source's unit map key, and copied rows
+ * are keyed by the live row they came from, so they share entries with the live parser.
+ * Row entries are held weakly so rows dropped by a reload are collected with their flows.
+ * Merge group entries are pruned after each pass, keeping only the groups the last build
+ * produced for that context.
+ */
+public final class FlowBuildCache {
+
+    private static final int MAX_GROUP_CONTEXTS = 8;
+
+    private final Map<ExcelParserV5.FlowRow, RowEntry> flows = new WeakHashMap<>();
+    private final Map<ExcelParserV5.FlowRow, RowEntry> mergeKeys = new WeakHashMap<>();
+    private final Map<String, Map<String, GroupEntry>> groups =
+        new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<String, GroupEntry>> eldest) {
+                return size() > MAX_GROUP_CONTEXTS;
+            }
+        };
+
+    private long hits;
+    private long misses;
+
+    private record RowEntry(int version, String context, Object value) {}
+
+    private record GroupEntry(List<ExcelParserV5.FlowRow> rows, int[] versions, List<Map<String, Object>> flows) {
+        boolean matches(List<ExcelParserV5.FlowRow> group) {
+            if (group.size() != rows.size()) return false;
+            for (int i = 0; i < rows.size(); i++) {
+                ExcelParserV5.FlowRow r = group.get(i);
+                if (key(r) != rows.get(i) || r.version != versions[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    /** Returns the cached flow for a row, or null if it is missing or stale. */
+    @SuppressWarnings("unchecked")
+    synchronized Map<String, Object> flow(ExcelParserV5.FlowRow row, String context) {
+        Object value = lookup(flows, row, context);
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * Stores a built flow under the row version read <em>before</em> building it, so a flow
+     * built while the row was being edited can never be served for the edited version.
+     */
+    synchronized void putFlow(ExcelParserV5.FlowRow row, int version, String context, Map<String, Object> flow) {
+        flows.put(key(row), new RowEntry(version, context, flow));
+    }
+
+    /** Returns the cached merge key for a row, or null if it is missing or stale. */
+    synchronized String mergeKey(ExcelParserV5.FlowRow row, String context) {
+        return (String) lookup(mergeKeys, row, context);
+    }
+
+    synchronized void putMergeKey(ExcelParserV5.FlowRow row, int version, String context, String mergeKey) {
+        mergeKeys.put(key(row), new RowEntry(version, context, mergeKey));
+    }
+
+    /**
+     * Returns the cached flows for a merge group, or null if the group's membership
+     * or any member's version changed since it was built.
+     */
+    synchronized List<Map<String, Object>> groupFlows(String context, String mergeKey,
+                                                      List<ExcelParserV5.FlowRow> group) {
+        Map<String, GroupEntry> byKey = groups.get(context);
+        GroupEntry entry = byKey != null ? byKey.get(mergeKey) : null;
+        if (entry != null && entry.matches(group)) {
+            hits++;
+            return entry.flows();
+        }
+        misses++;
+        return null;
+    }
+
+    /** {@code versions} are the members' versions read before the group was built. */
+    synchronized void putGroup(String context, String mergeKey, List<ExcelParserV5.FlowRow> group,
+                               int[] versions, List<Map<String, Object>> groupFlows) {
+        List<ExcelParserV5.FlowRow> keys = new ArrayList<>(group.size());
+        for (ExcelParserV5.FlowRow row : group) {
+            keys.add(key(row));
+        }
+        groups.computeIfAbsent(context, k -> new LinkedHashMap<>())
+            .put(mergeKey, new GroupEntry(keys, versions, groupFlows));
+    }
+
+    /** Drops merge groups of a context that the latest pass no longer produced. */
+    synchronized void retainGroups(String context, Set<String> mergeKeysInUse) {
+        Map<String, GroupEntry> byKey = groups.get(context);
+        if (byKey != null) byKey.keySet().retainAll(mergeKeysInUse);
+    }
+
+    /** Drops every cached flow, merge key and merge group. */
+    public synchronized void clear() {
+        flows.clear();
+        mergeKeys.clear();
+        groups.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    /** Number of lookups served from the cache since the last {@link #clear()}. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Number of lookups that required a rebuild since the last {@link #clear()}. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /** Snapshot copies share cache entries with the live row they were taken from. */
+    private static ExcelParserV5.FlowRow key(ExcelParserV5.FlowRow row) {
+        return row.snapshotOf != null ? row.snapshotOf : row;
+    }
+
+    private Object lookup(Map<ExcelParserV5.FlowRow, RowEntry> map, ExcelParserV5.FlowRow row, String context) {
+        RowEntry entry = map.get(key(row));
+        if (entry != null && entry.version() == row.version && entry.context().equals(context)) {
+            hits++;
+            return entry.value();
+        }
+        misses++;
+        return null;
+    }
+}
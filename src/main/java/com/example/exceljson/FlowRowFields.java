@@ -0,0 +1,292 @@
+package com.example.exceljson;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compact change-tracking storage for {@link ExcelParserV5.FlowRow}.
+ * <p>
+ * Every loaded flow row records an original value for each of its editable columns, and
+ * the edit path keeps a set of changed column names. Backing those with a
+ * {@code LinkedHashMap}/{@code LinkedHashSet} costs one entry object per column per row.
+ * Here the known columns are addressed by ordinal instead: original values live in a
+ * {@code String[]} and changed fields in a bit mask. Names outside {@link #NAMES} still
+ * work through a small overflow map/set, so callers keep using plain {@link Map}/{@link Set}.
+ * <p>
+ * Iteration follows column order (then any overflow names in insertion order) rather
+ * than the order entries were added.
+ */
+final class FlowRowFields {
+
+    /** Editable flow row columns, in sheet order. */
+    static final String[] NAMES = {
+        "inScope", "configGroup", "alarmName", "sendingName", "priorityRaw",
+        "deviceA", "deviceB", "ringtone", "responseOptions", "breakThroughDND",
+        "multiUserAccept", "escalateAfter", "ttlValue", "enunciate", "emdan",
+        "t1", "r1", "t2", "r2", "t3", "r3", "t4", "r4", "t5", "r5"
+    };
+
+    private static final Map<String, Integer> ORDINALS = new HashMap<>();
+    static {
+        for (int i = 0; i < NAMES.length; i++) ORDINALS.put(NAMES[i], i);
+    }
+
+    private FlowRowFields() {
+    }
+
+    /** Returns the column ordinal of a field name, or -1 for names outside {@link #NAMES}. */
+    static int ordinal(Object name) {
+        Integer i = name instanceof String ? ORDINALS.get(name) : null;
+        return i == null ? -1 : i;
+    }
+
+    // ---------- Original values ----------
+
+    /** Field name to original cell value, stored as an ordinal-indexed array. */
+    static final class OriginalValues extends AbstractMap<String, String> {
+        private String[] values;          // allocated on first put of a known field
+        private long present;             // bit i set when NAMES[i] has a value (values may be null)
+        private Map<String, String> extra; // fields outside NAMES
+
+        @Override
+        public String get(Object key) {
+            int i = ordinal(key);
+            if (i >= 0) return values != null ? values[i] : null;
+            return extra != null ? extra.get(key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            int i = ordinal(key);
+            if (i >= 0) return (present & (1L << i)) != 0;
+            return extra != null && extra.containsKey(key);
+        }
+
+        @Override
+        public String put(String key, String value) {
+            int i = ordinal(key);
+            if (i < 0) {
+                if (extra == null) extra = new LinkedHashMap<>();
+                return extra.put(key, value);
+            }
+            if (values == null) values = new String[NAMES.length];
+            String previous = values[i];
+            values[i] = value;
+            present |= 1L << i;
+            return previous;
+        }
+
+        @Override
+        public String remove(Object key) {
+            int i = ordinal(key);
+            if (i < 0) return extra != null ? extra.remove(key) : null;
+            if (values == null) return null;
+            String previous = values[i];
+            values[i] = null;
+            present &= ~(1L << i);
+            return previous;
+        }
+
+        @Override
+        public int size() {
+            return Long.bitCount(present) + (extra != null ? extra.size() : 0);
+        }
+
+        @Override
+        public void clear() {
+            values = null;
+            present = 0;
+            extra = null;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return OriginalValues.this.size();
+                }
+            };
+        }
+
+        private final class EntryIterator implements Iterator<Entry<String, String>> {
+            private long remaining = present;
+            private final Iterator<Entry<String, String>> overflow =
+                extra != null ? extra.entrySet().iterator() : null;
+            private int lastOrdinal = -1;
+            private boolean lastFromOverflow;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0 || (overflow != null && overflow.hasNext());
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                if (remaining != 0) {
+                    int i = Long.numberOfTrailingZeros(remaining);
+                    remaining &= remaining - 1;
+                    lastOrdinal = i;
+                    lastFromOverflow = false;
+                    return new FieldEntry(i);
+                }
+                if (overflow == null) throw new NoSuchElementException();
+                lastFromOverflow = true;
+                return overflow.next();
+            }
+
+            @Override
+            public void remove() {
+                if (lastFromOverflow) {
+                    overflow.remove();
+                } else if (lastOrdinal >= 0) {
+                    OriginalValues.this.remove(NAMES[lastOrdinal]);
+                    lastOrdinal = -1;
+                } else {
+                    throw new IllegalStateException();
+                }
+            }
+        }
+
+        private final class FieldEntry implements Entry<String, String> {
+            private final int ordinal;
+
+            FieldEntry(int ordinal) {
+                this.ordinal = ordinal;
+            }
+
+            @Override
+            public String getKey() {
+                return NAMES[ordinal];
+            }
+
+            @Override
+            public String getValue() {
+                return values[ordinal];
+            }
+
+            @Override
+            public String setValue(String value) {
+                return put(NAMES[ordinal], value);
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return o instanceof Entry<?, ?> e
+                    && getKey().equals(e.getKey())
+                    && Objects.equals(getValue(), e.getValue());
+            }
+
+            @Override
+            public int hashCode() {
+                return getKey().hashCode() ^ Objects.hashCode(getValue());
+            }
+
+            @Override
+            public String toString() {
+                return getKey() + "=" + getValue();
+            }
+        }
+    }
+
+    // ---------- Changed fields ----------
+
+    /** Set of changed field names, stored as a bit mask over {@link #NAMES}. */
+    static final class ChangedFields extends AbstractSet<String> {
+        private long bits;
+        private Set<String> extra; // fields outside NAMES
+
+        @Override
+        public boolean contains(Object name) {
+            int i = ordinal(name);
+            if (i >= 0) return (bits & (1L << i)) != 0;
+            return extra != null && extra.contains(name);
+        }
+
+        @Override
+        public boolean add(String name) {
+            int i = ordinal(name);
+            if (i < 0) {
+                if (extra == null) extra = new LinkedHashSet<>();
+                return extra.add(name);
+            }
+            long before = bits;
+            bits |= 1L << i;
+            return bits != before;
+        }
+
+        @Override
+        public boolean remove(Object name) {
+            int i = ordinal(name);
+            if (i < 0) return extra != null && extra.remove(name);
+            long before = bits;
+            bits &= ~(1L << i);
+            return bits != before;
+        }
+
+        @Override
+        public int size() {
+            return Long.bitCount(bits) + (extra != null ? extra.size() : 0);
+        }
+
+        @Override
+        public void clear() {
+            bits = 0;
+            extra = null;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private long remaining = bits;
+                private final Iterator<String> overflow = extra != null ? extra.iterator() : null;
+                private int lastOrdinal = -1;
+                private boolean lastFromOverflow;
+
+                @Override
+                public boolean hasNext() {
+                    return remaining != 0 || (overflow != null && overflow.hasNext());
+                }
+
+                @Override
+                public String next() {
+                    if (remaining != 0) {
+                        int i = Long.numberOfTrailingZeros(remaining);
+                        remaining &= remaining - 1;
+                        lastOrdinal = i;
+                        lastFromOverflow = false;
+                        return NAMES[i];
+                    }
+                    if (overflow == null) throw new NoSuchElementException();
+                    lastFromOverflow = true;
+                    return overflow.next();
+                }
+
+                @Override
+                public void remove() {
+                    if (lastFromOverflow) {
+                        overflow.remove();
+                    } else if (lastOrdinal >= 0) {
+                        bits &= ~(1L << lastOrdinal);
+                        lastOrdinal = -1;
+                    } else {
+                        throw new IllegalStateException();
+                    }
+                }
+            };
+        }
+    }
+}
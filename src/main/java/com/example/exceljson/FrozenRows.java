@@ -0,0 +1,87 @@
+package com.example.exceljson;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Read-only row list of a {@link ExcelParserV5#snapshotView} parser.
+ * <p>
+ * Holds the live rows by reference: a frozen array of the source list plus the indices
+ * selected by a row mask (typically the GUI's filter). Nothing is copied up front. When the
+ * GUI is about to edit a live row it calls {@link ExcelParserV5#beforeRowEdit}, which stores
+ * a copy of the unedited row in the snapshot's {@link Overrides}; from then on this list
+ * returns the copy, so a background build keeps seeing the row as it was.
+ */
+final class FrozenRows<T> extends AbstractList<T> implements RandomAccess {
+
+    private final Object[] rows;
+    private final int[] selected;
+    private final Overrides overrides;
+
+    private FrozenRows(Object[] rows, int[] selected, Overrides overrides) {
+        this.rows = rows;
+        this.selected = selected;
+        this.overrides = overrides;
+    }
+
+    /**
+     * @param all  the source rows, in order
+     * @param mask indices of {@code all} to include, or null for every row
+     */
+    static <T> FrozenRows<T> of(List<T> all, BitSet mask, Overrides overrides) {
+        Object[] rows = all.toArray();
+        int[] selected = mask == null
+            ? IntStream.range(0, rows.length).toArray()
+            : mask.stream().filter(i -> i < rows.length).toArray();
+        return new FrozenRows<>(rows, selected, overrides);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) overrides.resolve(rows[selected[index]]);
+    }
+
+    @Override
+    public int size() {
+        return selected.length;
+    }
+
+    /**
+     * Copies of rows edited after the snapshot was taken, shared by the row lists of one
+     * snapshot. Rows use identity equality, so the live row itself is the key.
+     */
+    static final class Overrides {
+        private final Map<Object, Object> copies = new ConcurrentHashMap<>();
+        private final AtomicLong edits = new AtomicLong();
+
+        /**
+         * Records the unedited state of {@code row} (first edit only), then counts the edit.
+         * Must run before the row is modified.
+         */
+        <R> void preserve(R row, UnaryOperator<R> copier) {
+            copies.computeIfAbsent(row, k -> copier.apply(row));
+            edits.incrementAndGet();
+        }
+
+        Object resolve(Object row) {
+            Object copy = copies.get(row);
+            return copy != null ? copy : row;
+        }
+
+        /**
+         * Number of edits announced so far. A build that reads the same count before and
+         * after cannot have observed a half-edited live row.
+         */
+        long edits() {
+            return edits.get();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.exceljson;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * "In Scope" state of one flow table, kept as bit sets over the rows of its full list.
+ * <p>
+ * {@code inScope} mirrors {@link ExcelParserV5.FlowRow#inScope} and {@code visible} is the
+ * current filter mask, so the counters shown above each table are maintained instead of
+ * recounted: a single check box change is O(1), and check all / uncheck all / invert over
+ * the visible rows are word-level bit set operations plus one write per row that actually
+ * changes. The visible mask follows the filtered list; a change to the full list (load,
+ * combine, revert) re-reads every row.
+ * <p>
+ * Rows are written through this model so the bits stay in sync; {@code beforeChange} runs
+ * before each row is modified (the controller uses it for copy-on-write views) and
+ * {@code onChange} after every update, e.g. to refresh the counter label.
+ */
+final class InScopeModel {
+
+    private final ObservableList<ExcelParserV5.FlowRow> rows;
+    private final FilteredList<ExcelParserV5.FlowRow> filtered;
+    private final Consumer<ExcelParserV5.FlowRow> beforeChange;
+    private final Runnable onChange;
+    private final Map<ExcelParserV5.FlowRow, Integer> indexOf = new IdentityHashMap<>();
+    private final BitSet inScope = new BitSet();
+    private final BitSet visible = new BitSet();
+    private int visibleCount;
+    private int visibleInScope;
+
+    InScopeModel(ObservableList<ExcelParserV5.FlowRow> rows, FilteredList<ExcelParserV5.FlowRow> filtered,
+                 Consumer<ExcelParserV5.FlowRow> beforeChange, Runnable onChange) {
+        this.rows = rows;
+        this.filtered = filtered;
+        this.beforeChange = beforeChange == null ? r -> {} : beforeChange;
+        this.onChange = onChange == null ? () -> {} : onChange;
+        // The filtered list registered on rows first, so on a full-list change the mask is
+        // updated before reload() re-reads the rows
+        rows.addListener((ListChangeListener<ExcelParserV5.FlowRow>) c -> reload());
+        filtered.addListener((ListChangeListener<ExcelParserV5.FlowRow>) c -> updateVisible());
+        reload();
+    }
+
+    /** Re-reads every row's flag and the filter mask. */
+    void reload() {
+        indexOf.clear();
+        inScope.clear();
+        for (int i = 0; i < rows.size(); i++) {
+            ExcelParserV5.FlowRow row = rows.get(i);
+            indexOf.put(row, i);
+            if (row.inScope) inScope.set(i);
+        }
+        updateVisible();
+    }
+
+    private void updateVisible() {
+        visible.clear();
+        for (int i = 0; i < filtered.size(); i++) {
+            visible.set(filtered.getSourceIndex(i));
+        }
+        visibleCount = filtered.size();
+        BitSet both = (BitSet) visible.clone();
+        both.and(inScope);
+        visibleInScope = both.cardinality();
+        onChange.run();
+    }
+
+    /** Sets one row's flag; rows not in the table are written but not counted. */
+    void set(ExcelParserV5.FlowRow row, boolean value) {
+        if (row == null) return;
+        Integer index = indexOf.get(row);
+        if (index == null) {
+            beforeChange.accept(row);
+            row.inScope = value;
+            return;
+        }
+        if (row.inScope != value) {
+            beforeChange.accept(row);
+            row.inScope = value;
+        }
+        if (inScope.get(index) != value) {
+            inScope.set(index, value);
+            if (visible.get(index)) visibleInScope += value ? 1 : -1;
+        }
+        onChange.run();
+    }
+
+    /**
+     * Sets every visible row to {@code value}.
+     *
+     * @return the number of rows that changed
+     */
+    int setVisible(boolean value) {
+        BitSet changed = (BitSet) visible.clone();
+        if (value) changed.andNot(inScope); else changed.and(inScope);
+        write(changed, value);
+        if (value) inScope.or(visible); else inScope.andNot(visible);
+        visibleInScope = value ? visibleCount : 0;
+        onChange.run();
+        return changed.cardinality();
+    }
+
+    /** Flips every visible row. */
+    void invertVisible() {
+        BitSet on = (BitSet) visible.clone();
+        on.andNot(inScope);
+        BitSet off = (BitSet) visible.clone();
+        off.and(inScope);
+        write(on, true);
+        write(off, false);
+        inScope.xor(visible);
+        visibleInScope = visibleCount - visibleInScope;
+        onChange.run();
+    }
+
+    private void write(BitSet indices, boolean value) {
+        for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+            ExcelParserV5.FlowRow row = rows.get(i);
+            beforeChange.accept(row);
+            row.inScope = value;
+        }
+    }
+
+    /** Rows that pass the current filter. */
+    int visibleCount() {
+        return visibleCount;
+    }
+
+    /** Visible rows that are in scope. */
+    int visibleInScope() {
+        return visibleInScope;
+    }
+
+    /** In-scope rows, visible or not. */
+    int inScopeCount() {
+        return inScope.cardinality();
+    }
+}
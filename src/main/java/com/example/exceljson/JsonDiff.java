@@ -0,0 +1,316 @@
+package com.example.exceljson;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Structural diff of two Engage JSON exports.
+ * <p>
+ * Each alarm definition and delivery flow is hashed canonically (object keys sorted, so
+ * key order does not matter, and the entry's name left out) while the file is streamed one element at a time. Entries are
+ * then matched in three steps: same name and same hash (unchanged), same hash under a new
+ * name (renamed), and same name with a different hash (changed). Whatever is left is added
+ * or removed. Field-level deltas are computed in a second streaming pass that only
+ * materialises the entries that changed, so memory stays proportional to the differences.
+ * <p>
+ * Works on single-type files ({@code NurseCalls.json}) and on combined files with
+ * {@code nurseCalls} / {@code clinicals} / {@code orders} sections.
+ */
+public final class JsonDiff {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final ObjectMapper MAPPER = new ObjectMapper(FACTORY);
+    private static final Set<String> ENTRY_ARRAYS = Set.of("alarmAlertDefinitions", "deliveryFlows");
+
+    /** One alarm definition or delivery flow. {@code index} is its position in document order. */
+    public record Entry(String section, String kind, String name, String hash, int index) {
+        /** Identity used to match entries by name: section, kind and name. */
+        String key() {
+            return section + "/" + kind + "/" + name;
+        }
+
+        public String label() {
+            String prefix = section.isEmpty() ? kind : section + "." + kind;
+            return prefix + " \"" + name + "\"";
+        }
+    }
+
+    /** One leaf value that differs; a null side means the field is absent there. */
+    public record FieldChange(String path, String before, String after) {}
+
+    /** A matched pair of entries whose content differs. */
+    public record Change(Entry before, Entry after, List<FieldChange> fields) {
+        public boolean renamed() {
+            return !before.name().equals(after.name());
+        }
+    }
+
+    public record Result(List<Entry> added, List<Entry> removed, List<Change> changed, int unchanged) {
+        public boolean identical() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+
+        /** Plain-text report, one line per entry and one indented line per field change. */
+        public String toText() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Added: %d, Removed: %d, Changed: %d, Unchanged: %d%n",
+                added.size(), removed.size(), changed.size(), unchanged));
+            for (Entry e : removed) {
+                sb.append("- ").append(e.label()).append(System.lineSeparator());
+            }
+            for (Entry e : added) {
+                sb.append("+ ").append(e.label()).append(System.lineSeparator());
+            }
+            for (Change c : changed) {
+                sb.append("~ ").append(c.before().label());
+                if (c.renamed()) {
+                    sb.append(" → \"").append(c.after().name()).append('"');
+                }
+                sb.append(System.lineSeparator());
+                for (FieldChange f : c.fields()) {
+                    sb.append("    ").append(f.path()).append(": ")
+                        .append(f.before() == null ? "(absent)" : f.before())
+                        .append(" → ")
+                        .append(f.after() == null ? "(absent)" : f.after())
+                        .append(System.lineSeparator());
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    private JsonDiff() {
+    }
+
+    public static Result compare(File before, File after) throws IOException {
+        List<Entry> left = scan(before, null, null);
+        List<Entry> right = scan(after, null, null);
+
+        boolean[] leftUsed = new boolean[left.size()];
+        boolean[] rightUsed = new boolean[right.size()];
+        List<Entry[]> pairs = new ArrayList<>();
+
+        // 1. Same name, same content
+        int unchanged = match(left, right, leftUsed, rightUsed, e -> e.key() + "#" + e.hash(), null);
+        // 2. Same content under another name (renamed)
+        match(left, right, leftUsed, rightUsed, e -> e.section() + "/" + e.kind() + "#" + e.hash(), pairs);
+        // 3. Same name, different content
+        match(left, right, leftUsed, rightUsed, Entry::key, pairs);
+
+        Set<Integer> leftWanted = new HashSet<>();
+        Set<Integer> rightWanted = new HashSet<>();
+        for (Entry[] pair : pairs) {
+            leftWanted.add(pair[0].index());
+            rightWanted.add(pair[1].index());
+        }
+        Map<Integer, Map<String, String>> leftFields = new HashMap<>();
+        Map<Integer, Map<String, String>> rightFields = new HashMap<>();
+        if (!pairs.isEmpty()) {
+            scan(before, leftWanted, leftFields);
+            scan(after, rightWanted, rightFields);
+        }
+
+        List<Change> changed = new ArrayList<>();
+        for (Entry[] pair : pairs) {
+            changed.add(new Change(pair[0], pair[1],
+                fieldChanges(leftFields.get(pair[0].index()), rightFields.get(pair[1].index()))));
+        }
+        return new Result(unused(right, rightUsed), unused(left, leftUsed), changed, unchanged);
+    }
+
+    /**
+     * Pairs unused entries of {@code left} and {@code right} that share {@code key}, in
+     * document order, and marks them used. Pairs are added to {@code pairs} when given.
+     *
+     * @return the number of pairs made
+     */
+    private static int match(List<Entry> left, List<Entry> right, boolean[] leftUsed, boolean[] rightUsed,
+                             Function<Entry, String> key, List<Entry[]> pairs) {
+        Map<String, Deque<Entry>> candidates = new HashMap<>();
+        for (Entry r : right) {
+            if (!rightUsed[r.index()]) {
+                candidates.computeIfAbsent(key.apply(r), k -> new ArrayDeque<>()).add(r);
+            }
+        }
+        int matched = 0;
+        for (Entry l : left) {
+            if (leftUsed[l.index()]) continue;
+            Deque<Entry> queue = candidates.get(key.apply(l));
+            Entry r = queue == null ? null : queue.poll();
+            if (r == null) continue;
+            leftUsed[l.index()] = true;
+            rightUsed[r.index()] = true;
+            if (pairs != null) {
+                pairs.add(new Entry[]{l, r});
+            }
+            matched++;
+        }
+        return matched;
+    }
+
+    private static List<Entry> unused(List<Entry> entries, boolean[] used) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry e : entries) {
+            if (!used[e.index()]) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    // ---------- Streaming scan ----------
+
+    /**
+     * Streams {@code file}, hashing every entry of an {@code alarmAlertDefinitions} or
+     * {@code deliveryFlows} array. When {@code wanted} is given, the flattened fields of
+     * those entries are also stored in {@code fields}.
+     */
+    static List<Entry> scan(File file, Set<Integer> wanted, Map<Integer, Map<String, String>> fields) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (JsonParser parser = FACTORY.createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in " + file.getName());
+            }
+            scanObject(parser, "", entries, wanted, fields);
+        }
+        return entries;
+    }
+
+    private static void scanObject(JsonParser parser, String section, List<Entry> entries,
+                                   Set<Integer> wanted, Map<Integer, Map<String, String>> fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_ARRAY && ENTRY_ARRAYS.contains(field)) {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    JsonNode node = MAPPER.readTree(parser);
+                    int index = entries.size();
+                    JsonNode name = node.get("name");
+                    entries.add(new Entry(section, field, name == null ? "" : name.asText(), hash(node), index));
+                    if (wanted != null && wanted.contains(index)) {
+                        Map<String, String> flat = new TreeMap<>();
+                        flatten(node, "", flat);
+                        fields.put(index, flat);
+                    }
+                }
+            } else if (value == JsonToken.START_OBJECT && section.isEmpty()) {
+                // Combined export: { "nurseCalls": { ... }, "clinicals": { ... } }
+                scanObject(parser, field, entries, wanted, fields);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * SHA-256 over a canonical rendering of {@code node} with object keys sorted. The
+     * entry's own {@code name} is left out so a renamed entry keeps its hash; names are
+     * compared separately.
+     */
+    static String hash(JsonNode node) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            canonical(node, digest, true);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void canonical(JsonNode node, MessageDigest digest, boolean skipName) {
+        if (node.isObject()) {
+            digest.update((byte) '{');
+            List<String> names = new ArrayList<>();
+            node.fieldNames().forEachRemaining(names::add);
+            names.sort(null);
+            for (String name : names) {
+                if (skipName && "name".equals(name)) continue;
+                update(digest, name);
+                digest.update((byte) ':');
+                canonical(node.get(name), digest, false);
+                digest.update((byte) ',');
+            }
+            digest.update((byte) '}');
+        } else if (node.isArray()) {
+            digest.update((byte) '[');
+            for (JsonNode child : node) {
+                canonical(child, digest, false);
+                digest.update((byte) ',');
+            }
+            digest.update((byte) ']');
+        } else {
+            // Type tag keeps "1" and 1 apart
+            digest.update((byte) node.getNodeType().ordinal());
+            update(digest, node.asText());
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 24));
+        digest.update((byte) (bytes.length >>> 16));
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    // ---------- Field deltas ----------
+
+    private static void flatten(JsonNode node, String path, Map<String, String> out) {
+        if (node.isObject()) {
+            node.fields().forEachRemaining(f ->
+                flatten(f.getValue(), path.isEmpty() ? f.getKey() : path + "." + f.getKey(), out));
+        } else if (node.isArray()) {
+            if (node.isEmpty()) {
+                out.put(path, "[]");
+            }
+            for (int i = 0; i < node.size(); i++) {
+                flatten(node.get(i), path + "[" + i + "]", out);
+            }
+        } else {
+            out.put(path, node.isNull() ? "null" : node.toString());
+        }
+    }
+
+    private static List<FieldChange> fieldChanges(Map<String, String> before, Map<String, String> after) {
+        Map<String, String> left = before == null ? Map.of() : before;
+        Map<String, String> right = after == null ? Map.of() : after;
+        Map<String, FieldChange> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, String> e : left.entrySet()) {
+            String other = right.get(e.getKey());
+            if (!Objects.equals(e.getValue(), other)) {
+                changes.put(e.getKey(), new FieldChange(e.getKey(), e.getValue(), other));
+            }
+        }
+        for (Map.Entry<String, String> e : right.entrySet()) {
+            if (!left.containsKey(e.getKey())) {
+                changes.put(e.getKey(), new FieldChange(e.getKey(), null, e.getValue()));
+            }
+        }
+        List<FieldChange> sorted = new ArrayList<>(changes.values());
+        sorted.sort((a, b) -> a.path().compareTo(b.path()));
+        return sorted;
+    }
+}
@@ -0,0 +1,227 @@
+package com.example.exceljson;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Streams unit and flow rows into a new workbook laid out like the NDW template
+ * (Unit Breakdown, Nurse Call, Patient Monitoring, Order).
+ * <p>
+ * Rows go through an {@link SXSSFWorkbook}, so only a small window per sheet stays in memory
+ * regardless of row count. Column widths come from the longest line written to each column
+ * rather than {@code Sheet.autoSizeColumn}, which measures the rendered font width of every cell.
+ * <pre>
+ * try (NdwWorkbookWriter writer = new NdwWorkbookWriter(metrics, "writeExcel")) {
+ *     writer.writeUnits(units);
+ *     writer.writeNurseCalls(nurseCalls);
+ *     ...
+ *     writer.write(dest);
+ * }
+ * </pre>
+ */
+public final class NdwWorkbookWriter implements AutoCloseable {
+
+  /** Rows kept in memory per sheet; older rows are flushed to disk. */
+  private static final int ROW_WINDOW = 200;
+  /** Excel's maximum column width, in characters. */
+  private static final int MAX_COLUMN_CHARS = 255;
+
+  private static final String[] UNIT_HEADERS = {
+    "Facility",
+    "Common Unit Name",
+    "Nurse Call Configuration Group",
+    "Patient Monitoring Configuration Group",
+    "Orders Configuration Group",
+    "No Caregiver Group",
+    "Comments"
+  };
+
+  private static final String[] FLOW_HEADERS = {
+    "In scope",
+    "Configuration Group",
+    "Common Alert or Alarm Name",
+    "Sending System Alert Name",
+    "Priority",
+    "Device - A",
+    "Device - B",
+    "Ringtone Device - A",
+    "Response Options",
+    "Break Through DND",
+    "Engage 6.6+: Escalate after all declines or 1 decline",
+    "Engage/Edge Display Time (Time to Live) (Device - A)",
+    "Genie Enunciation",
+    "EMDAN Compliant? (Y/N)",
+    "Time to 1st Recipient","1st Recipient",
+    "Time to 2nd Recipient","2nd Recipient",
+    "Time to 3rd Recipient","3rd Recipient",
+    "Time to 4th Recipient","4th Recipient",
+    "Time to 5th Recipient","5th Recipient"
+  };
+
+  private final SXSSFWorkbook wb = new SXSSFWorkbook(ROW_WINDOW);
+  private final PhaseMetrics metrics;
+  private final String phasePrefix;
+  private boolean unitListsOnePerLine;
+  private long rowsWritten;
+
+  /**
+   * @param metrics     receives one phase per sheet plus {@code <prefix>.write}; each counts rows
+   * @param phasePrefix metric name prefix, e.g. {@code writeExcel}
+   */
+  public NdwWorkbookWriter(PhaseMetrics metrics, String phasePrefix) {
+    this.metrics = Objects.requireNonNull(metrics, "metrics");
+    this.phasePrefix = Objects.requireNonNull(phasePrefix, "phasePrefix");
+    wb.setCompressTempFiles(true);
+  }
+
+  /**
+   * When true, comma-separated lists in unit cells are written one item per line, the layout
+   * the unit table gives XML-loaded units.
+   */
+  public NdwWorkbookWriter unitListsOnePerLine(boolean enabled) {
+    this.unitListsOnePerLine = enabled;
+    return this;
+  }
+
+  public void writeUnits(Iterable<ExcelParserV5.UnitRow> units) {
+    try (PhaseMetrics.Phase p = metrics.start(phasePrefix + ".unitBreakdown")) {
+      Sheet su = wb.createSheet(ExcelParserV5.SHEET_UNIT);
+      int[] widths = new int[UNIT_HEADERS.length];
+      writeHeader(su, UNIT_HEADERS, widths);
+      int r = 1;
+      for (ExcelParserV5.UnitRow u : units) {
+        Row row = su.createRow(r++);
+        set(row,0,u.facility,widths);
+        set(row,1,unitList(u.unitNames),widths);
+        set(row,2,unitList(u.nurseGroup),widths);
+        set(row,3,unitList(u.clinGroup),widths);
+        set(row,4,unitList(u.ordersGroup),widths);
+        set(row,5,unitList(u.noCareGroup),widths);
+        set(row,6,unitList(u.comments),widths);
+      }
+      applyWidths(su, widths);
+      p.count(r - 1);
+      rowsWritten += r - 1;
+    }
+  }
+
+  public void writeNurseCalls(Iterable<ExcelParserV5.FlowRow> flows) {
+    writeFlowSheet(ExcelParserV5.SHEET_NURSE, flows, phasePrefix + ".nurseCall");
+  }
+
+  public void writeClinicals(Iterable<ExcelParserV5.FlowRow> flows) {
+    writeFlowSheet(ExcelParserV5.SHEET_CLINICAL, flows, phasePrefix + ".patientMonitoring");
+  }
+
+  public void writeOrders(Iterable<ExcelParserV5.FlowRow> flows) {
+    writeFlowSheet(ExcelParserV5.SHEET_ORDERS, flows, phasePrefix + ".orders");
+  }
+
+  /** Number of data rows written so far, across all sheets. */
+  public long getRowsWritten() {
+    return rowsWritten;
+  }
+
+  /** Writes the workbook to {@code dest}, creating its parent directory if needed. */
+  public void write(File dest) throws IOException {
+    Objects.requireNonNull(dest, "dest");
+    File parent = dest.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs())
+      throw new IOException("Unable to create directory: " + parent.getAbsolutePath());
+    try (PhaseMetrics.Phase p = metrics.start(phasePrefix + ".write");
+         FileOutputStream fos = new FileOutputStream(dest)) {
+      wb.write(fos);
+      p.count(rowsWritten);
+    }
+  }
+
+  /** Releases the workbook and deletes its temporary sheet files. */
+  @Override
+  public void close() throws IOException {
+    wb.close();
+    wb.dispose();
+  }
+
+  private void writeFlowSheet(String sheetName, Iterable<ExcelParserV5.FlowRow> flows, String phase) {
+    try (PhaseMetrics.Phase p = metrics.start(phase)) {
+      Sheet sheet = wb.createSheet(sheetName);
+      int[] widths = new int[FLOW_HEADERS.length];
+      writeHeader(sheet, FLOW_HEADERS, widths);
+      int r = 1;
+      for (ExcelParserV5.FlowRow f : flows) {
+        Row row = sheet.createRow(r++);
+        writeFlowRow(row, f, widths);
+      }
+      applyWidths(sheet, widths);
+      p.count(r - 1);
+      rowsWritten += r - 1;
+    }
+  }
+
+  private String unitList(String value) {
+    if (!unitListsOnePerLine || value == null) return value;
+    return value.replaceAll("\\s*,\\s*", "\n");
+  }
+
+  private static void writeFlowRow(Row row, ExcelParserV5.FlowRow f, int[] widths) {
+    // Column indices: 0=In scope, 1=Config Group, 2=Alarm Name, etc.
+    // Keep in sync with FLOW_HEADERS
+    set(row,0,f.inScope ? "TRUE" : "FALSE",widths);
+    set(row,1,f.configGroup,widths);
+    set(row,2,f.alarmName,widths);
+    set(row,3,f.sendingName,widths);
+    set(row,4,f.priorityRaw,widths);
+    set(row,5,f.deviceA,widths);
+    set(row,6,f.deviceB,widths);
+    set(row,7,f.ringtone,widths);
+    set(row,8,f.responseOptions,widths);
+    set(row,9,f.breakThroughDND,widths);
+    set(row,10,f.escalateAfter,widths);
+    set(row,11,f.ttlValue,widths);
+    set(row,12,f.enunciate,widths);
+    set(row,13,f.emdan,widths);
+    set(row,14,f.t1,widths); set(row,15,f.r1,widths);
+    set(row,16,f.t2,widths); set(row,17,f.r2,widths);
+    set(row,18,f.t3,widths); set(row,19,f.r3,widths);
+    set(row,20,f.t4,widths); set(row,21,f.r4,widths);
+    set(row,22,f.t5,widths); set(row,23,f.r5,widths);
+  }
+
+  private static void writeHeader(Sheet s, String[] headers, int[] widths) {
+    Row h = s.createRow(0);
+    for (int i=0;i<headers.length;i++) set(h,i,headers[i],widths);
+  }
+
+  /** Sets each column to its widest line plus a little padding, like autosize but from character counts. */
+  private static void applyWidths(Sheet s, int[] widths) {
+    for (int i=0;i<widths.length;i++) {
+      int chars = Math.min(widths[i] + 2, MAX_COLUMN_CHARS);
+      s.setColumnWidth(i, chars * 256);
+    }
+  }
+
+  /** Writes a cell and widens {@code widths[col]} to the longest line of {@code value}. */
+  private static void set(Row row, int col, String value, int[] widths) {
+    Cell c = row.createCell(col, CellType.STRING);
+    c.setCellValue(value == null ? "" : value);
+    if (value == null) return;
+    int line = 0;
+    int longest = widths[col];
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) == '\n') {
+        line = 0;
+      } else if (++line > longest) {
+        longest = line;
+      }
+    }
+    widths[col] = longest;
+  }
+}
@@ -0,0 +1,225 @@
+package com.example.exceljson;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Lightweight per-phase instrumentation for load and export operations.
+ * <p>
+ * Each phase records wall time, bytes allocated by the current thread and an item count.
+ * Completed phases are also committed as {@code com.example.exceljson.Phase} JFR events,
+ * so a recording started with {@code -XX:StartFlightRecording} captures them for free.
+ * <pre>
+ * try (PhaseMetrics.Phase p = metrics.start("load.nurseCall")) {
+ *     ...
+ *     p.count(rows.size());
+ * }
+ * </pre>
+ */
+public final class PhaseMetrics {
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationBean();
+
+    private final Map<String, Measurement> records = new LinkedHashMap<>();
+
+    /**
+     * Immutable snapshot of one measured phase.
+     */
+    public record Measurement(String name, long wallNanos, long allocatedBytes, long count) {
+        public double wallMillis() {
+            return wallNanos / 1_000_000.0;
+        }
+    }
+
+    /**
+     * Starts timing a phase. Closing the returned handle records it, replacing any earlier
+     * record with the same name.
+     */
+    public Phase start(String name) {
+        return new Phase(this, name);
+    }
+
+    /**
+     * Adds time and items to a phase that is measured in many small slices
+     * (e.g. formula evaluation inside cell reads).
+     */
+    public synchronized void accumulate(String name, long wallNanos, long count) {
+        Measurement existing = records.get(name);
+        if (existing == null) {
+            records.put(name, new Measurement(name, wallNanos, 0, count));
+        } else {
+            records.put(name, new Measurement(name, existing.wallNanos + wallNanos,
+                existing.allocatedBytes, existing.count + count));
+        }
+    }
+
+    /** Clears all recorded phases. */
+    public synchronized void reset() {
+        records.clear();
+    }
+
+    /** Returns the measured phases in the order they were first seen. */
+    public synchronized List<Measurement> measurements() {
+        return new ArrayList<>(records.values());
+    }
+
+    /** Copies all phases from another instance into this one. */
+    public synchronized void addAll(PhaseMetrics other) {
+        if (other == null || other == this) return;
+        for (Measurement r : other.measurements()) {
+            records.put(r.name(), r);
+        }
+    }
+
+    /**
+     * One-line summary for the status bar: total time plus the slowest phase.
+     */
+    public synchronized String toStatusText() {
+        if (records.isEmpty()) return "";
+        long total = 0;
+        Measurement slowest = null;
+        for (Measurement r : records.values()) {
+            if (r.name().endsWith(".total")) {
+                total = Math.max(total, r.wallNanos());
+                continue;
+            }
+            if (slowest == null || r.wallNanos() > slowest.wallNanos()) slowest = r;
+        }
+        StringBuilder sb = new StringBuilder("⏱ ");
+        if (total > 0) sb.append(formatMillis(total)).append(" total");
+        if (slowest != null) {
+            if (total > 0) sb.append(", ");
+            sb.append("slowest ").append(slowest.name()).append(" ").append(formatMillis(slowest.wallNanos()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Multi-line breakdown of all phases (used for tooltips and logs).
+     */
+    public synchronized String toTable() {
+        StringBuilder sb = new StringBuilder();
+        for (Measurement r : records.values()) {
+            sb.append(String.format(Locale.ROOT, "%-32s %10s %12s %8d%n",
+                r.name(), formatMillis(r.wallNanos()), formatBytes(r.allocatedBytes()), r.count()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * JSON block with one entry per phase, suitable for CI logs.
+     */
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder("{\n  \"phases\": [");
+        boolean first = true;
+        for (Measurement r : records.values()) {
+            sb.append(first ? "\n" : ",\n");
+            first = false;
+            sb.append(String.format(Locale.ROOT,
+                "    {\"name\": \"%s\", \"wallMs\": %.3f, \"allocatedBytes\": %d, \"count\": %d}",
+                r.name().replace("\\", "\\\\").replace("\"", "\\\""), r.wallMillis(), r.allocatedBytes(), r.count()));
+        }
+        sb.append(first ? "]\n}" : "\n  ]\n}");
+        return sb.toString();
+    }
+
+    private synchronized void put(Measurement record) {
+        records.put(record.name(), record);
+    }
+
+    private static String formatMillis(long nanos) {
+        double ms = nanos / 1_000_000.0;
+        return ms >= 1000 ? String.format(Locale.ROOT, "%.2f s", ms / 1000) : String.format(Locale.ROOT, "%.1f ms", ms);
+    }
+
+    private static String formatBytes(long bytes) {
+        if (bytes < 0) return "n/a";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    private static long allocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            return sunBean;
+        }
+        return null;
+    }
+
+    /**
+     * An in-flight phase; close it (try-with-resources) to record the measurement.
+     */
+    public static final class Phase implements AutoCloseable {
+        private final PhaseMetrics owner;
+        private final String name;
+        private final long startNanos;
+        private final long startBytes;
+        private final PhaseEvent event = new PhaseEvent();
+        private long count;
+        private boolean closed;
+
+        private Phase(PhaseMetrics owner, String name) {
+            this.owner = owner;
+            this.name = name;
+            this.startBytes = allocatedBytes();
+            this.event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        /** Sets the number of items processed by this phase. */
+        public Phase count(long count) {
+            this.count = count;
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            long wall = System.nanoTime() - startNanos;
+            long endBytes = allocatedBytes();
+            long allocated = startBytes >= 0 && endBytes >= 0 ? endBytes - startBytes : -1;
+            owner.put(new Measurement(name, wall, allocated, count));
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = name;
+                event.allocatedBytes = allocated;
+                event.count = count;
+                event.commit();
+            }
+        }
+    }
+
+    @Name("com.example.exceljson.Phase")
+    @Label("Engage Flow Forge Phase")
+    @Category({"Engage Flow Forge"})
+    @Description("Wall time, allocation and item count for a load or export phase")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocatedBytes;
+
+        @Label("Items")
+        long count;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.exceljson;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.Property;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Observable cell values for the editor tables, created lazily and cached per (row, column).
+ * <p>
+ * A cell value factory asks for the property of its row and column; the same instance is
+ * returned every time and its value is re-read from the row, so scrolling and re-rendering
+ * no longer allocate a property per cell update. After an edit, {@link #invalidate(Object)}
+ * re-reads only the properties of the edited row, and the cells bound to them update on
+ * their own without refreshing the whole table.
+ * <p>
+ * Rows are held weakly and compared by identity ({@code FlowRow} and {@code UnitRow} do not
+ * override {@code equals}), so rows dropped by a reload or delete disappear from the cache.
+ * Not thread-safe; use from the FX thread.
+ */
+final class RowProperties {
+
+    /** One cached property and how to read its value from the row. */
+    private static final class Cell {
+        final Property<?> property;
+        final Consumer<Object> read;
+        boolean syncing;   // true while the value is being copied from the row, not set by the user
+
+        Cell(Property<?> property, Consumer<Object> read) {
+            this.property = property;
+            this.read = read;
+        }
+
+        void sync(Object row) {
+            syncing = true;
+            try {
+                read.accept(row);
+            } finally {
+                syncing = false;
+            }
+        }
+    }
+
+    private final Map<Object, Map<Object, Cell>> rows = new WeakHashMap<>();
+
+    /** Returns the cached text property of {@code row} in {@code column}, updated from {@code getter}. */
+    @SuppressWarnings("unchecked")
+    <R> StringProperty string(R row, Object column, Function<R, String> getter) {
+        Map<Object, Cell> cells = rows.computeIfAbsent(row, r -> new HashMap<>());
+        Cell cell = cells.get(column);
+        if (cell == null) {
+            StringProperty property = new SimpleStringProperty();
+            cell = new Cell(property, r -> {
+                String value = getter.apply((R) r);
+                property.set(value == null ? "" : value);
+            });
+            cells.put(column, cell);
+        }
+        cell.sync(row);
+        return (StringProperty) cell.property;
+    }
+
+    /**
+     * Returns the cached check box property of {@code row} in {@code column}, updated from
+     * {@code getter}. {@code onToggle} runs when the user changes the value, but not when the
+     * value is re-read from the row.
+     */
+    @SuppressWarnings("unchecked")
+    <R> BooleanProperty bool(R row, Object column, Function<R, Boolean> getter, BiConsumer<R, Boolean> onToggle) {
+        Map<Object, Cell> cells = rows.computeIfAbsent(row, r -> new HashMap<>());
+        Cell cell = cells.get(column);
+        if (cell == null) {
+            BooleanProperty property = new SimpleBooleanProperty();
+            Cell created = new Cell(property, r -> property.set(Boolean.TRUE.equals(getter.apply((R) r))));
+            // The listener must not hold the row strongly, or the weak cache would never release it
+            WeakReference<R> target = new WeakReference<>(row);
+            property.addListener((obs, oldVal, newVal) -> {
+                R current = target.get();
+                if (!created.syncing && current != null) {
+                    onToggle.accept(current, newVal);
+                }
+            });
+            cells.put(column, created);
+            cell = created;
+        }
+        cell.sync(row);
+        return (BooleanProperty) cell.property;
+    }
+
+    /** Re-reads every cached property of {@code row}; bound cells update themselves. */
+    void invalidate(Object row) {
+        Map<Object, Cell> cells = rows.get(row);
+        if (cells == null) return;
+        for (Cell cell : cells.values()) {
+            cell.sync(row);
+        }
+    }
+
+    /** Drops every cached property, e.g. when the tables are loaded with new rows. */
+    void clear() {
+        rows.clear();
+    }
+
+    /** Number of cached properties. */
+    int size() {
+        int size = 0;
+        for (Map<Object, Cell> cells : rows.values()) {
+            size += cells.size();
+        }
+        return size;
+    }
+}
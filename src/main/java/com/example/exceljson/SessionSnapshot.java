@@ -0,0 +1,463 @@
+package com.example.exceljson;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Binary snapshot of a loaded NDW session, keyed by the SHA-256 of the source workbook.
+ * <p>
+ * Re-opening an unchanged workbook restores units, flows (including change tracking),
+ * custom tab mappings, load warnings and load diagnostics from the snapshot instead of a
+ * full POI parse. Validation datasets (voice groups, bed lists, ...) are loaded separately
+ * and change independently of the workbook, so they are not part of the snapshot. A snapshot is ignored (stale) when the format
+ * version, parser version, source hash or custom tab mappings differ; callers then fall
+ * back to {@link ExcelParserV5#load(File)}.
+ * <p>
+ * The file is read into a heap buffer rather than memory-mapped: on Windows a mapping keeps
+ * the file locked until it is garbage collected, which blocks replacing or deleting it.
+ * <p>
+ * Layout (big-endian): magic {@code EFFS}, format version, parser version, source hash,
+ * then sections for mappings, load state, rows and diagnostics. Strings are
+ * written once and referenced by index afterwards, which keeps repetitive NDW values compact.
+ */
+public final class SessionSnapshot {
+
+    /** Bump whenever the layout or the row classes change. */
+    public static final int FORMAT_VERSION = 3;
+
+    private static final int MAGIC = 0x45464653; // "EFFS"
+    private static final String SUFFIX = ".effsnap";
+
+    private static final int HASH_CACHE_SIZE = 16;
+
+    // Content hashes of recently opened files, keyed by path + size + mtime, so store() after
+    // tryRestore() does not re-hash; least recently used entries are dropped
+    private static final Map<String, String> HASH_CACHE =
+        new LinkedHashMap<>(HASH_CACHE_SIZE, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > HASH_CACHE_SIZE;
+            }
+        };
+
+    private SessionSnapshot() {
+    }
+
+    /**
+     * Identifies the code that produced a snapshot: the application version (when running
+     * from a packaged jar) and {@link ExcelParserV5#LOAD_VERSION}. Snapshots written by other
+     * versions are stale, because the same workbook may load differently.
+     */
+    static String parserVersion() {
+        String app = ExcelParserV5.class.getPackage().getImplementationVersion();
+        return (app != null ? app : "dev") + "/" + ExcelParserV5.LOAD_VERSION;
+    }
+
+    /**
+     * Default snapshot directory under the user's home.
+     */
+    public static File defaultDirectory() {
+        return new File(System.getProperty("user.home"), ".engage-flow-forge" + File.separator + "snapshots");
+    }
+
+    /**
+     * Returns the snapshot file used for a given source hash.
+     */
+    public static File snapshotFile(File directory, String sourceHash) {
+        return new File(directory, sourceHash + SUFFIX);
+    }
+
+    /**
+     * Computes (or returns the cached) SHA-256 hex digest of the source file.
+     */
+    public static String hash(File source) throws IOException {
+        String key = source.getAbsolutePath() + "|" + source.length() + "|" + source.lastModified();
+        synchronized (HASH_CACHE) {
+            String cached = HASH_CACHE.get(key);
+            if (cached != null) return cached;
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(source.toPath())) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        String hex = HexFormat.of().formatHex(digest.digest());
+        synchronized (HASH_CACHE) {
+            HASH_CACHE.put(key, hex);
+        }
+        return hex;
+    }
+
+    /**
+     * Restores the parser from the snapshot for {@code source}, if a fresh one exists.
+     * An unreadable snapshot is deleted and reported as a {@code SNAPSHOT_UNREADABLE}
+     * diagnostic on the parser.
+     *
+     * @return true if the parser was restored, false when the caller must parse the workbook
+     */
+    public static boolean tryRestore(ExcelParserV5 parser, File source, File directory) {
+        Objects.requireNonNull(parser, "parser");
+        File file;
+        try {
+            file = snapshotFile(directory, hash(source));
+        } catch (IOException e) {
+            return false;
+        }
+        if (!file.isFile()) return false;
+
+        long start = System.nanoTime();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            boolean restored = read(parser, hash(source), buffer);
+            if (restored) {
+                parser.getMetrics().accumulate("snapshot.restore", System.nanoTime() - start,
+                    parser.units.size() + parser.nurseCalls.size() + parser.clinicals.size() + parser.orders.size());
+            }
+            return restored;
+        } catch (IOException | RuntimeException e) {
+            // Corrupt or truncated snapshot: drop it so the next load rewrites it
+            parser.getDiagnostics().warn("SNAPSHOT_UNREADABLE", null, -1, -1,
+                "Ignoring unreadable session snapshot " + file + ": " + e.getMessage());
+            try {
+                Files.deleteIfExists(file.toPath());
+            } catch (IOException ignored) {
+                // best effort
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the parser's current state for {@code source}.
+     */
+    public static void store(ExcelParserV5 parser, File source, File directory) throws IOException {
+        Objects.requireNonNull(parser, "parser");
+        String sourceHash = hash(source);
+        Files.createDirectories(directory.toPath());
+        File target = snapshotFile(directory, sourceHash);
+        Path tmp = Files.createTempFile(directory.toPath(), sourceHash, ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 64 * 1024))) {
+            new Writer(out).write(parser, sourceHash);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------- Reading ----------
+
+    private static boolean read(ExcelParserV5 parser, String sourceHash, ByteBuffer buffer) {
+        Reader in = new Reader(buffer);
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+            throw new IllegalStateException("not a session snapshot");
+        }
+        if (buffer.getInt() != FORMAT_VERSION) return false;
+        if (!parserVersion().equals(in.string())) return false;
+        if (!sourceHash.equals(in.string())) return false;
+
+        Map<String, String> mappings = in.stringMap();
+        if (!mappings.equals(parser.getCustomTabMappings())) return false;
+
+        List<String> warnings = in.stringList();
+        int emdanMoved = buffer.getInt();
+        Map<String, Integer> customTabCounts = new LinkedHashMap<>();
+        int countEntries = buffer.getInt();
+        for (int i = 0; i < countEntries; i++) {
+            String tab = in.string();
+            customTabCounts.put(tab, buffer.getInt());
+        }
+
+        List<ExcelParserV5.UnitRow> units = new ArrayList<>();
+        int unitCount = buffer.getInt();
+        for (int i = 0; i < unitCount; i++) {
+            units.add(in.unit());
+        }
+        List<ExcelParserV5.FlowRow> nurse = in.flows();
+        List<ExcelParserV5.FlowRow> clinical = in.flows();
+        List<ExcelParserV5.FlowRow> orders = in.flows();
+        List<Diagnostics.Tally> tallies = in.tallies();
+
+        parser.applySnapshot(units, nurse, clinical, orders, warnings, emdanMoved, customTabCounts);
+        parser.getDiagnostics().restore(tallies);
+        return true;
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private final List<String> table = new ArrayList<>();
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        String string() {
+            int code = buffer.getInt();
+            if (code == 0) return null;
+            if (code == 1) {
+                int len = buffer.getInt();
+                if (len < 0 || len > buffer.remaining()) throw new BufferUnderflowException();
+                byte[] bytes = new byte[len];
+                buffer.get(bytes);
+                String s = new String(bytes, StandardCharsets.UTF_8);
+                table.add(s);
+                return s;
+            }
+            return table.get(code - 2);
+        }
+
+        Map<String, String> stringMap() {
+            int n = buffer.getInt();
+            Map<String, String> map = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                String key = string();
+                map.put(key, string());
+            }
+            return map;
+        }
+
+        List<String> stringList() {
+            int n = buffer.getInt();
+            List<String> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                list.add(string());
+            }
+            return list;
+        }
+
+        Set<String> stringSet() {
+            int n = buffer.getInt();
+            Set<String> set = new LinkedHashSet<>();
+            for (int i = 0; i < n; i++) {
+                set.add(string());
+            }
+            return set;
+        }
+
+        ExcelParserV5.UnitRow unit() {
+            ExcelParserV5.UnitRow u = new ExcelParserV5.UnitRow();
+            u.facility = string();
+            u.unitNames = string();
+            u.podRoomFilter = string();
+            u.nurseGroup = string();
+            u.clinGroup = string();
+            u.ordersGroup = string();
+            u.noCareGroup = string();
+            u.comments = string();
+            u.customGroups.putAll(stringMap());
+            u.excelRowIndex = buffer.getInt();
+            u.originalValues.putAll(stringMap());
+            u.changedFields.addAll(stringSet());
+            return u;
+        }
+
+        List<Diagnostics.Tally> tallies() {
+            int n = buffer.getInt();
+            List<Diagnostics.Tally> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                String code = string();
+                Diagnostics.Level level = Diagnostics.Level.values()[buffer.get()];
+                String sheet = string();
+                int column = buffer.getInt();
+                long count = buffer.getLong();
+                int row = buffer.getInt();
+                String message = string();
+                list.add(new Diagnostics.Tally(code, level, sheet, column, count,
+                    new Diagnostics.Event(code, level, sheet, row, column, message)));
+            }
+            return list;
+        }
+
+        List<ExcelParserV5.FlowRow> flows() {
+            int n = buffer.getInt();
+            List<ExcelParserV5.FlowRow> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                ExcelParserV5.FlowRow f = new ExcelParserV5.FlowRow();
+                f.inScope = buffer.get() != 0;
+                f.type = string();
+                f.configGroup = string();
+                f.alarmName = string();
+                f.sendingName = string();
+                f.priorityRaw = string();
+                f.deviceA = string();
+                f.deviceB = string();
+                f.ringtone = string();
+                f.responseOptions = string();
+                f.breakThroughDND = string();
+                f.multiUserAccept = string();
+                f.escalateAfter = string();
+                f.ttlValue = string();
+                f.enunciate = string();
+                f.emdan = string();
+                f.t1 = string(); f.r1 = string();
+                f.t2 = string(); f.r2 = string();
+                f.t3 = string(); f.r3 = string();
+                f.t4 = string(); f.r4 = string();
+                f.t5 = string(); f.r5 = string();
+                f.customTabSource = string();
+                f.excelRowIndex = buffer.getInt();
+                f.originalValues.putAll(stringMap());
+                f.changedFields.addAll(stringSet());
+                list.add(f);
+            }
+            return list;
+        }
+    }
+
+    // ---------- Writing ----------
+
+    private static final class Writer {
+        private final DataOutputStream out;
+        private final Map<String, Integer> table = new HashMap<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void write(ExcelParserV5 parser, String sourceHash) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            string(parserVersion());
+            string(sourceHash);
+            stringMap(parser.getCustomTabMappings());
+
+            strings(parser.getLoadWarnings());
+            out.writeInt(parser.getEmdanMovedCount());
+            Map<String, Integer> counts = parser.getCustomTabRowCounts();
+            out.writeInt(counts.size());
+            for (Map.Entry<String, Integer> e : counts.entrySet()) {
+                string(e.getKey());
+                out.writeInt(e.getValue());
+            }
+
+            out.writeInt(parser.units.size());
+            for (ExcelParserV5.UnitRow u : parser.units) {
+                unit(u);
+            }
+            flows(parser.nurseCalls);
+            flows(parser.clinicals);
+            flows(parser.orders);
+            tallies(parser.getDiagnostics().tallies());
+        }
+
+        void tallies(List<Diagnostics.Tally> tallies) throws IOException {
+            out.writeInt(tallies.size());
+            for (Diagnostics.Tally t : tallies) {
+                string(t.code());
+                out.writeByte(t.level().ordinal());
+                string(t.sheet());
+                out.writeInt(t.column());
+                out.writeLong(t.count());
+                out.writeInt(t.first().row());
+                string(t.first().message());
+            }
+        }
+
+        void string(String s) throws IOException {
+            if (s == null) {
+                out.writeInt(0);
+                return;
+            }
+            Integer ref = table.get(s);
+            if (ref != null) {
+                out.writeInt(ref + 2);
+                return;
+            }
+            table.put(s, table.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(1);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        void stringMap(Map<String, String> map) throws IOException {
+            out.writeInt(map.size());
+            for (Map.Entry<String, String> e : map.entrySet()) {
+                string(e.getKey());
+                string(e.getValue());
+            }
+        }
+
+        void strings(Collection<String> values) throws IOException {
+            out.writeInt(values.size());
+            for (String v : values) {
+                string(v);
+            }
+        }
+
+        void unit(ExcelParserV5.UnitRow u) throws IOException {
+            string(u.facility);
+            string(u.unitNames);
+            string(u.podRoomFilter);
+            string(u.nurseGroup);
+            string(u.clinGroup);
+            string(u.ordersGroup);
+            string(u.noCareGroup);
+            string(u.comments);
+            stringMap(u.customGroups);
+            out.writeInt(u.excelRowIndex);
+            stringMap(u.originalValues);
+            strings(u.changedFields);
+        }
+
+        void flows(List<ExcelParserV5.FlowRow> flows) throws IOException {
+            out.writeInt(flows.size());
+            for (ExcelParserV5.FlowRow f : flows) {
+                out.writeByte(f.inScope ? 1 : 0);
+                string(f.type);
+                string(f.configGroup);
+                string(f.alarmName);
+                string(f.sendingName);
+                string(f.priorityRaw);
+                string(f.deviceA);
+                string(f.deviceB);
+                string(f.ringtone);
+                string(f.responseOptions);
+                string(f.breakThroughDND);
+                string(f.multiUserAccept);
+                string(f.escalateAfter);
+                string(f.ttlValue);
+                string(f.enunciate);
+                string(f.emdan);
+                string(f.t1); string(f.r1);
+                string(f.t2); string(f.r2);
+                string(f.t3); string(f.r3);
+                string(f.t4); string(f.r4);
+                string(f.t5); string(f.r5);
+                string(f.customTabSource);
+                out.writeInt(f.excelRowIndex);
+                stringMap(f.originalValues);
+                strings(f.changedFields);
+            }
+        }
+    }
+}
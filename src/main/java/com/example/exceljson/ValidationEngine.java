@@ -0,0 +1,326 @@
+package com.example.exceljson;
+
+import com.example.exceljson.util.AssignmentRoleValidator;
+import com.example.exceljson.util.VoiceGroupValidator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Data validation over the whole workbook, with the findings kept in an issue index of
+ * (row, field, rule, severity).
+ * <p>
+ * A full run ({@link #validate}) checks every row of every table in parallel against a
+ * snapshot of the reference data (voice groups, assignment roles, bed list); it is meant for
+ * a background thread, and its result is installed with {@link #apply} on the FX thread.
+ * From then on edits are re-checked one row at a time through {@link #revalidate}. Rows
+ * edited while a run is in flight are re-checked when its result is applied, so a late
+ * result never hides an edit.
+ * <p>
+ * The rules are the ones the table cells used to apply while painting; the index now feeds
+ * the cell styling ({@link #flagged}), the next-issue navigator and the exported report
+ * ({@link #writeReport}).
+ */
+final class ValidationEngine {
+
+    static final Pattern VGROUP_KEYWORD = Pattern.compile("(?i)(?:VGroup|Group):");
+    static final Pattern VASSIGN_KEYWORD = Pattern.compile("(?i)VAssign(?:ed)?:?");
+
+    enum Severity { WARNING, ERROR }
+
+    enum Rule {
+        DEVICE_KEYWORD("No recognised device keyword", Severity.WARNING),
+        RESPONSE_OPTIONS("No recognised response option", Severity.WARNING),
+        RECIPIENT_MISSING("1st recipient is blank", Severity.WARNING),
+        RECIPIENT_KEYWORD("No recognised recipient keyword", Severity.WARNING),
+        UNKNOWN_VOICE_GROUP("Voice group not in the loaded list", Severity.ERROR),
+        UNKNOWN_ASSIGNMENT_ROLE("Assignment role not in the loaded list", Severity.ERROR),
+        UNKNOWN_UNIT("Unit not in the loaded bed list", Severity.ERROR);
+
+        final String label;
+        final Severity severity;
+
+        Rule(String label, Severity severity) {
+            this.label = label;
+            this.severity = severity;
+        }
+    }
+
+    /** One finding; {@code detail} names the offending values, or is empty. */
+    record Issue(Object row, String table, String field, Rule rule, String detail) {
+        Severity severity() {
+            return rule.severity;
+        }
+
+        String message() {
+            return detail.isEmpty() ? rule.label : rule.label + ": " + detail;
+        }
+    }
+
+    /** Reference data the rules check against; the bed list is lower-cased. */
+    record ReferenceData(Set<String> voiceGroups, Set<String> assignmentRoles, Set<String> bedListLower) {
+        static final ReferenceData NONE = new ReferenceData(Set.of(), Set.of(), Set.of());
+    }
+
+    /** Outcome of a full run, to be installed with {@link #apply}. */
+    static final class Result {
+        private final Map<String, List<?>> tables;
+        private final ReferenceData reference;
+        private final Map<Object, String> tableOf = new IdentityHashMap<>();
+        private final Map<Object, List<Issue>> issues = new IdentityHashMap<>();
+
+        private Result(Map<String, List<?>> tables, ReferenceData reference) {
+            this.tables = tables;
+            this.reference = reference;
+        }
+    }
+
+    private Map<String, List<?>> tables = Map.of();
+    private ReferenceData reference = ReferenceData.NONE;
+    private Map<Object, String> tableOf = new IdentityHashMap<>();
+    private Map<Object, List<Issue>> issues = new IdentityHashMap<>();
+    private final Set<Object> editedDuringRun = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean running;
+    private int errors;
+    private int warnings;
+
+    /**
+     * Checks every row of {@code tables} (table name to rows, in display order). The lists
+     * should be snapshots; the rows themselves are only read.
+     */
+    static Result validate(Map<String, List<?>> tables, ReferenceData reference) {
+        Result result = new Result(new LinkedHashMap<>(tables), reference);
+        for (Map.Entry<String, List<?>> table : result.tables.entrySet()) {
+            String name = table.getKey();
+            List<?> rows = table.getValue();
+            List<List<Issue>> found = IntStream.range(0, rows.size()).parallel()
+                .mapToObj(i -> check(name, rows.get(i), reference))
+                .toList();
+            for (int i = 0; i < rows.size(); i++) {
+                result.tableOf.put(rows.get(i), name);
+                if (!found.get(i).isEmpty()) result.issues.put(rows.get(i), found.get(i));
+            }
+        }
+        return result;
+    }
+
+    /** Marks the start of a full run; edits from now on are re-checked when it is applied. */
+    void begin() {
+        running = true;
+        editedDuringRun.clear();
+    }
+
+    /** Installs a full run's result, then re-checks the rows edited while it was running. */
+    void apply(Result result) {
+        tables = result.tables;
+        reference = result.reference;
+        tableOf = result.tableOf;
+        issues = result.issues;
+        running = false;
+        for (Object row : editedDuringRun) {
+            List<Issue> found = tableOf.containsKey(row) ? check(tableOf.get(row), row, reference) : List.of();
+            if (found.isEmpty()) issues.remove(row); else issues.put(row, found);
+        }
+        editedDuringRun.clear();
+        recount();
+    }
+
+    /** Ends a run that will not be applied (failed or superseded without a successor). */
+    void abort() {
+        running = false;
+        editedDuringRun.clear();
+    }
+
+    /** Re-checks one row after an edit; rows outside the last run are ignored. */
+    void revalidate(Object row) {
+        if (row == null) return;
+        if (running) editedDuringRun.add(row);
+        String table = tableOf.get(row);
+        if (table == null) return;
+        List<Issue> found = check(table, row, reference);
+        List<Issue> old = found.isEmpty() ? issues.remove(row) : issues.put(row, found);
+        if (old != null) count(old, -1);
+        count(found, 1);
+    }
+
+    /** Issues of {@code row}, in field order. */
+    List<Issue> issues(Object row) {
+        return issues.getOrDefault(row, List.of());
+    }
+
+    /**
+     * Whether {@code field} of {@code row} has an issue, or null if the row has not been
+     * validated yet (the caller can then fall back to checking the value itself).
+     */
+    Boolean flagged(Object row, String field) {
+        if (row == null || !tableOf.containsKey(row)) return null;
+        for (Issue issue : issues(row)) {
+            if (issue.field().equals(field)) return true;
+        }
+        return false;
+    }
+
+    int count() {
+        return errors + warnings;
+    }
+
+    int count(Severity severity) {
+        return severity == Severity.ERROR ? errors : warnings;
+    }
+
+    /** Every issue, by table and row in the order of the last full run. */
+    List<Issue> all() {
+        List<Issue> all = new ArrayList<>(count());
+        for (List<?> rows : tables.values()) {
+            for (Object row : rows) all.addAll(issues(row));
+        }
+        return all;
+    }
+
+    /** Writes every issue as CSV, one line per issue. */
+    void writeReport(Writer out) throws IOException {
+        out.write("Table,Row,Sheet Row,Group,Name,Field,Severity,Rule,Message\n");
+        for (Map.Entry<String, List<?>> table : tables.entrySet()) {
+            List<?> rows = table.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                Object row = rows.get(i);
+                for (Issue issue : issues(row)) {
+                    StringJoiner line = new StringJoiner(",", "", "\n");
+                    line.add(csv(table.getKey()));
+                    line.add(String.valueOf(i + 1));
+                    int sheetRow = sheetRow(row);
+                    line.add(sheetRow >= 0 ? String.valueOf(sheetRow + 1) : "");
+                    if (row instanceof ExcelParserV5.FlowRow flow) {
+                        line.add(csv(flow.configGroup)).add(csv(flow.alarmName));
+                    } else if (row instanceof ExcelParserV5.UnitRow unit) {
+                        line.add(csv(unit.facility)).add(csv(unit.unitNames));
+                    } else {
+                        line.add("").add("");
+                    }
+                    line.add(csv(issue.field()));
+                    line.add(issue.severity().name());
+                    line.add(issue.rule().name());
+                    line.add(csv(issue.message()));
+                    out.write(line.toString());
+                }
+            }
+        }
+    }
+
+    private void recount() {
+        errors = 0;
+        warnings = 0;
+        for (List<Issue> found : issues.values()) count(found, 1);
+    }
+
+    private void count(List<Issue> found, int delta) {
+        for (Issue issue : found) {
+            if (issue.severity() == Severity.ERROR) errors += delta; else warnings += delta;
+        }
+    }
+
+    // ---------- Rules ----------
+
+    /** All issues of one row. */
+    static List<Issue> check(String table, Object row, ReferenceData reference) {
+        List<Issue> out = new ArrayList<>(0);
+        if (row instanceof ExcelParserV5.FlowRow f) {
+            checkField(out, table, f, "deviceA", f.deviceA, ExcelParserV5::hasValidRecipientKeyword, Rule.DEVICE_KEYWORD, reference);
+            checkField(out, table, f, "deviceB", f.deviceB, ExcelParserV5::hasValidRecipientKeyword, Rule.DEVICE_KEYWORD, reference);
+            checkField(out, table, f, "responseOptions", f.responseOptions, ExcelParserV5::isValidResponseOptions, Rule.RESPONSE_OPTIONS, reference);
+            checkField(out, table, f, "r1", f.r1, ExcelParserV5::isValidFirstRecipient,
+                isBlank(f.r1) ? Rule.RECIPIENT_MISSING : Rule.RECIPIENT_KEYWORD, reference);
+            checkField(out, table, f, "r2", f.r2, ExcelParserV5::isValidOtherRecipient, Rule.RECIPIENT_KEYWORD, reference);
+            checkField(out, table, f, "r3", f.r3, ExcelParserV5::isValidOtherRecipient, Rule.RECIPIENT_KEYWORD, reference);
+            checkField(out, table, f, "r4", f.r4, ExcelParserV5::isValidOtherRecipient, Rule.RECIPIENT_KEYWORD, reference);
+            checkField(out, table, f, "r5", f.r5, ExcelParserV5::isValidOtherRecipient, Rule.RECIPIENT_KEYWORD, reference);
+        } else if (row instanceof ExcelParserV5.UnitRow u) {
+            if (!reference.bedListLower().isEmpty() && u.unitNames != null) {
+                StringJoiner unknown = new StringJoiner(", ");
+                for (String name : u.unitNames.split("\\n")) {
+                    String trimmed = name.trim();
+                    if (!trimmed.isEmpty() && !reference.bedListLower().contains(trimmed.toLowerCase(Locale.ROOT))) {
+                        unknown.add(trimmed);
+                    }
+                }
+                if (unknown.length() > 0) out.add(new Issue(u, table, "unitNames", Rule.UNKNOWN_UNIT, unknown.toString()));
+            }
+            if (!reference.voiceGroups().isEmpty() && !isBlank(u.noCareGroup)) {
+                // No Caregiver Group holds plain group names too, so it is checked without the keyword
+                String unknown = invalidGroups(VoiceGroupValidator.parseAndValidateAlwaysMultiLine(u.noCareGroup, reference.voiceGroups()));
+                if (!unknown.isEmpty()) out.add(new Issue(u, table, "noCareGroup", Rule.UNKNOWN_VOICE_GROUP, unknown));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * A recipient-like cell: when it names voice groups or assignment roles and that list is
+     * loaded, the names are checked (roles take precedence, as in the cell rendering);
+     * otherwise the keyword rule applies.
+     */
+    private static void checkField(List<Issue> out, String table, Object row, String field, String value,
+                                   Predicate<String> valid, Rule keywordRule, ReferenceData reference) {
+        boolean groups = value != null && !reference.voiceGroups().isEmpty() && VGROUP_KEYWORD.matcher(value).find();
+        boolean roles = value != null && !reference.assignmentRoles().isEmpty() && VASSIGN_KEYWORD.matcher(value).find();
+        if (roles) {
+            String unknown = invalidRoles(AssignmentRoleValidator.parseAndValidateMultiLine(value, reference.assignmentRoles()));
+            if (!unknown.isEmpty()) out.add(new Issue(row, table, field, Rule.UNKNOWN_ASSIGNMENT_ROLE, unknown));
+        } else if (groups) {
+            String unknown = invalidGroups(VoiceGroupValidator.parseAndValidateMultiLine(value, reference.voiceGroups()));
+            if (!unknown.isEmpty()) out.add(new Issue(row, table, field, Rule.UNKNOWN_VOICE_GROUP, unknown));
+        } else if (!valid.test(value)) {
+            out.add(new Issue(row, table, field, keywordRule, ""));
+        }
+    }
+
+    private static String invalidGroups(List<List<VoiceGroupValidator.Segment>> lines) {
+        StringJoiner unknown = new StringJoiner(", ");
+        for (List<VoiceGroupValidator.Segment> line : lines) {
+            for (VoiceGroupValidator.Segment segment : line) {
+                if (segment.status == VoiceGroupValidator.ValidationStatus.INVALID) unknown.add(segment.text.trim());
+            }
+        }
+        return unknown.toString();
+    }
+
+    private static String invalidRoles(List<List<AssignmentRoleValidator.Segment>> lines) {
+        StringJoiner unknown = new StringJoiner(", ");
+        for (List<AssignmentRoleValidator.Segment> line : lines) {
+            for (AssignmentRoleValidator.Segment segment : line) {
+                if (segment.status == AssignmentRoleValidator.ValidationStatus.INVALID) unknown.add(segment.text.trim());
+            }
+        }
+        return unknown.toString();
+    }
+
+    private static int sheetRow(Object row) {
+        if (row instanceof ExcelParserV5.FlowRow f) return f.excelRowIndex;
+        if (row instanceof ExcelParserV5.UnitRow u) return u.excelRowIndex;
+        return -1;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    private static String csv(String value) {
+        if (value == null) return "";
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
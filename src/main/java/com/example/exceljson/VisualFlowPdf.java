@@ -0,0 +1,443 @@
+package com.example.exceljson;
+
+import net.sourceforge.plantuml.FileFormat;
+import net.sourceforge.plantuml.FileFormatOption;
+import net.sourceforge.plantuml.SourceStringReader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the Visual Flow PDF: one PlantUML diagram per page of up to three in-scope flows,
+ * grouped by tab and configuration group.
+ * <p>
+ * Pages are rendered concurrently and added to the document in order as they complete.
+ * Rendered pages are cached by a SHA-256 hash of their PlantUML source, so exporting again
+ * after a small edit only re-renders the pages whose flows changed; the cache is bounded by
+ * the total size of the cached images. The PNG produced by PlantUML is embedded as-is
+ * (PDFBox copies the compressed image data into the PDF) rather than decoded and re-encoded.
+ * <p>
+ * Used by the GUI (on a background task) and by the {@code visual-flow} JobRunner job.
+ */
+public final class VisualFlowPdf {
+
+    /** Flows drawn on one page. */
+    public static final int FLOWS_PER_PAGE = 3;
+
+    /** Total PNG bytes kept in the render cache; least recently used pages are dropped first. */
+    private static final long MAX_CACHED_BYTES = 32L * 1024 * 1024;
+    private static final String GROUP_DELIMITER = "||";
+    private static final float MARGIN = 36f; // half-inch margin
+
+    // Access-ordered, so iteration starts at the least recently used page; guarded by itself
+    private static final Map<String, byte[]> PAGE_CACHE = new LinkedHashMap<>(64, 0.75f, true);
+    private static long cachedBytes;
+
+    private static final AtomicInteger cacheHits = new AtomicInteger();
+
+    /** Receives {@code (pagesDone, totalPages)} from rendering threads. */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void pageRendered(int done, int total);
+    }
+
+    private VisualFlowPdf() {
+    }
+
+    // ---------- Diagrams ----------
+
+    /**
+     * Builds the PlantUML source of every page, sorted by tab and configuration group.
+     * The caller decides which rows are included (the GUI passes the in-scope rows).
+     */
+    public static List<String> buildDiagrams(Collection<ExcelParserV5.FlowRow> rows) {
+        Map<String, List<ExcelParserV5.FlowRow>> grouped = new TreeMap<>();
+        for (ExcelParserV5.FlowRow r : rows) {
+            String tabName = (r.customTabSource != null && !r.customTabSource.isBlank())
+                ? r.customTabSource
+                : safe(r.type);
+            String config = (r.configGroup != null && !r.configGroup.isBlank())
+                ? r.configGroup
+                : "Unknown";
+            grouped.computeIfAbsent(tabName + GROUP_DELIMITER + config, k -> new ArrayList<>()).add(r);
+        }
+
+        List<String> diagrams = new ArrayList<>();
+        for (Map.Entry<String, List<ExcelParserV5.FlowRow>> entry : grouped.entrySet()) {
+            String[] parts = entry.getKey().split("\\Q" + GROUP_DELIMITER + "\\E", 2);
+            String tabLabel = sanitizeForPlantUml(parts.length > 0 ? parts[0] : "");
+            if ("-".equals(tabLabel)) {
+                tabLabel = "Unknown Tab";
+            }
+            String configLabel = sanitizeForPlantUml(parts.length > 1 ? parts[1] : "Unknown");
+
+            List<ExcelParserV5.FlowRow> flows = new ArrayList<>(entry.getValue());
+            flows.sort(Comparator.comparing(r -> safe(r.alarmName)));
+
+            for (int i = 0; i < flows.size(); i += FLOWS_PER_PAGE) {
+                List<ExcelParserV5.FlowRow> pageFlows = flows.subList(i, Math.min(i + FLOWS_PER_PAGE, flows.size()));
+                diagrams.add(buildDiagram(tabLabel, configLabel, pageFlows));
+            }
+        }
+        return diagrams;
+    }
+
+    static String buildDiagram(String tabLabel, String configLabel, List<ExcelParserV5.FlowRow> flows) {
+        StringBuilder plantuml = new StringBuilder();
+        plantuml.append("@startuml\n");
+        plantuml.append("top to bottom direction\n");
+        plantuml.append("skinparam shadowing false\n");
+        plantuml.append("skinparam backgroundColor #FFFFFF\n");
+        plantuml.append("hide stereotype\n");
+        plantuml.append("skinparam rectangle {\n");
+        plantuml.append("  RoundCorner 16\n");
+        plantuml.append("  FontSize 14\n");
+        plantuml.append("  FontColor #111111\n");
+        plantuml.append("}\n");
+        plantuml.append("skinparam rectangle<<GlobalHeader>> {\n");
+        plantuml.append("  BackgroundColor #ffffff\n");
+        plantuml.append("  BorderColor #b5b5b5\n");
+        plantuml.append("}\n");
+        plantuml.append("skinparam rectangle<<FlowHeader>> {\n");
+        plantuml.append("  BackgroundColor #dcdcdc\n");
+        plantuml.append("  BorderColor #9a9a9a\n");
+        plantuml.append("}\n");
+        plantuml.append("skinparam rectangle<<StopA>> {\n");
+        plantuml.append("  BackgroundColor #c8f7c5\n");
+        plantuml.append("  BorderColor #4f9a4f\n");
+        plantuml.append("}\n");
+        plantuml.append("skinparam rectangle<<StopB>> {\n");
+        plantuml.append("  BackgroundColor #cfe2ff\n");
+        plantuml.append("  BorderColor #4a78c2\n");
+        plantuml.append("}\n");
+        plantuml.append("skinparam ArrowColor #333333\n");
+        plantuml.append("skinparam ArrowFontSize 12\n");
+        plantuml.append("skinparam ArrowThickness 1.4\n\n");
+
+        String globalHeaderLabel = tabLabel + " — " + configLabel;
+        plantuml.append("rectangle \"").append(globalHeaderLabel).append("\" as GlobalHeader_1 <<GlobalHeader>> {\n");
+        plantuml.append("together {\n");
+
+        int rowCounter = 1;
+        for (ExcelParserV5.FlowRow row : flows) {
+            String[] recipients = { row.r1, row.r2, row.r3, row.r4, row.r5 };
+            String[] times = { row.t1, row.t2, row.t3, row.t4, row.t5 };
+
+            List<Integer> steps = new ArrayList<>();
+            for (int i = 0; i < recipients.length; i++) {
+                if (recipients[i] != null && !recipients[i].trim().isEmpty()) {
+                    steps.add(i);
+                }
+            }
+
+            if (steps.isEmpty()) {
+                continue;
+            }
+
+            List<String> headerLines = new ArrayList<>();
+            headerLines.add(sanitizeForPlantUml(row.alarmName));
+            String priority = sanitizeForPlantUml(row.priorityRaw);
+            if (!"-".equals(priority)) {
+                headerLines.add(priority);
+            }
+            String headerLabel = String.join("\\n", headerLines);
+            String headerId = "FlowHeader_" + rowCounter;
+            plantuml.append("  rectangle \"").append(headerLabel).append("\" as ")
+                .append(headerId).append(" <<FlowHeader>>\n");
+
+            String firstArrowLabel;
+            if (isImmediateTime(times[0])) {
+                firstArrowLabel = "Immediate";
+            } else {
+                firstArrowLabel = sanitizeLabelOrEmpty(times[0]);
+            }
+
+            String previousId = headerId;
+
+            for (int i = 0; i < steps.size(); i++) {
+                int idx = steps.get(i);
+                String stageId = "Stop_" + rowCounter + "_" + (i + 1);
+
+                // Split multiple recipients and display each on a separate line
+                List<String> stageLabelLines = new ArrayList<>();
+                stageLabelLines.add("Alarm Stop " + (i + 1));
+
+                // Split recipients by comma, semicolon, or newline BEFORE sanitizing to preserve formatting
+                String rawRecipient = recipients[idx];
+                if (rawRecipient != null && !rawRecipient.isEmpty()) {
+                    // Split by comma, semicolon, newline, or carriage return to handle both Unix and Windows line endings
+                    String[] recipientParts = rawRecipient.split("[,;\\n\\r]+");
+                    for (String part : recipientParts) {
+                        String trimmed = part.trim();
+                        if (!trimmed.isEmpty()) {
+                            // Sanitize each individual recipient part
+                            String sanitizedPart = sanitizeForPlantUml(trimmed);
+                            if (!sanitizedPart.isEmpty() && !"-".equals(sanitizedPart)) {
+                                stageLabelLines.add(sanitizedPart);
+                            }
+                        }
+                    }
+                }
+
+                String stageLabel = String.join("\\n", stageLabelLines);
+
+                String stereo = (i % 2 == 0) ? "StopA" : "StopB";
+
+                plantuml.append("  rectangle \"").append(stageLabel).append("\" as ")
+                    .append(stageId).append(" <<").append(stereo).append(">>\n");
+
+                String arrowLabel;
+                if (previousId.equals(headerId)) {
+                    arrowLabel = firstArrowLabel;
+                } else {
+                    arrowLabel = sanitizeLabelOrEmpty(times[idx]);
+                }
+
+                plantuml.append("  ").append(previousId).append(" -down-> ").append(stageId);
+                if (arrowLabel != null && !arrowLabel.isEmpty()) {
+                    plantuml.append(" : ").append(arrowLabel);
+                }
+                plantuml.append("\n");
+
+                previousId = stageId;
+            }
+
+            plantuml.append("\n");
+            rowCounter++;
+        }
+
+        plantuml.append("}\n");
+        plantuml.append("}\n\n");
+        plantuml.append("@enduml\n");
+        return plantuml.toString();
+    }
+
+    static String sanitizeForPlantUml(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        StringBuilder cleaned = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            cleaned.append(c < 32 || c == 127 ? ' ' : c);
+        }
+
+        String normalized = cleaned.toString()
+            .replace("[", "(")
+            .replace("]", ")")
+            .replace("{", "(")
+            .replace("}", ")")
+            .replace("<", "(")
+            .replace(">", ")")
+            .replace("|", "/")
+            .replace("\\", "/")
+            .replace("\"", "'")
+            .replaceAll("\\s+", " ")
+            .trim();
+
+        return normalized.length() > 0 ? normalized : "-";
+    }
+
+    private static String sanitizeLabelOrEmpty(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return "";
+        }
+
+        String sanitized = sanitizeForPlantUml(value);
+        return "-".equals(sanitized) ? "" : sanitized;
+    }
+
+    private static boolean isImmediateTime(String value) {
+        if (value == null) {
+            return false;
+        }
+
+        String normalized = value.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", "");
+        if (normalized.isEmpty()) {
+            return false;
+        }
+
+        if (normalized.equals("immediate") || normalized.equals("immediately") || normalized.equals("now")) {
+            return true;
+        }
+
+        return normalized.equals("0")
+            || normalized.equals("0s")
+            || normalized.equals("0sec")
+            || normalized.equals("0secs")
+            || normalized.equals("0second")
+            || normalized.equals("0seconds");
+    }
+
+    private static String safe(String v) {
+        return v == null ? "" : v;
+    }
+
+    // ---------- Rendering ----------
+
+    /**
+     * Renders one page to PNG, reusing the cached image when the same source was rendered
+     * before. Safe to call from several threads.
+     */
+    public static byte[] renderPage(String diagram) throws IOException {
+        String key = sourceHash(diagram);
+        synchronized (PAGE_CACHE) {
+            byte[] cached = PAGE_CACHE.get(key);
+            if (cached != null) {
+                cacheHits.incrementAndGet();
+                return cached;
+            }
+        }
+        byte[] png;
+        try (ByteArrayOutputStream pngOutput = new ByteArrayOutputStream()) {
+            new SourceStringReader(diagram).outputImage(pngOutput, new FileFormatOption(FileFormat.PNG));
+            png = pngOutput.toByteArray();
+        }
+        if (png.length <= MAX_CACHED_BYTES) {
+            synchronized (PAGE_CACHE) {
+                byte[] previous = PAGE_CACHE.put(key, png);
+                cachedBytes += png.length - (previous != null ? previous.length : 0);
+                for (Iterator<byte[]> it = PAGE_CACHE.values().iterator(); cachedBytes > MAX_CACHED_BYTES; ) {
+                    cachedBytes -= it.next().length;
+                    it.remove();
+                }
+            }
+        }
+        return png;
+    }
+
+    /** Number of pages served from the render cache since start-up (or the last {@link #clearCache()}). */
+    public static int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /** Total size of the PNG images currently held by the render cache. */
+    static long getCachedBytes() {
+        synchronized (PAGE_CACHE) {
+            return cachedBytes;
+        }
+    }
+
+    public static void clearCache() {
+        synchronized (PAGE_CACHE) {
+            PAGE_CACHE.clear();
+            cachedBytes = 0;
+        }
+        cacheHits.set(0);
+    }
+
+    static String sourceHash(String diagram) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(diagram.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Renders {@code diagrams} concurrently and writes them, in order, as pages of {@code file}.
+     *
+     * @param listener notified from the rendering threads after each page; may be null
+     * @return the number of pages written
+     */
+    public static int write(List<String> diagrams, File file, ProgressListener listener)
+            throws IOException, InterruptedException {
+        int total = diagrams.size();
+        int threads = Math.max(1, Math.min(total, Runtime.getRuntime().availableProcessors()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "visual-flow-render");
+            t.setDaemon(true);
+            return t;
+        });
+        try (PDDocument document = new PDDocument()) {
+            AtomicInteger done = new AtomicInteger();
+            List<CompletableFuture<byte[]>> pages = new ArrayList<>(total);
+            for (String diagram : diagrams) {
+                pages.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        byte[] png = renderPage(diagram);
+                        if (listener != null) {
+                            listener.pageRendered(done.incrementAndGet(), total);
+                        }
+                        return png;
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, pool));
+            }
+
+            for (int i = 0; i < total; i++) {
+                byte[] png;
+                try {
+                    png = pages.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                        ? e.getCause().getCause()
+                        : e.getCause();
+                    throw new IOException("Error generating diagram: " + cause.getMessage(), cause);
+                }
+                addPage(document, png, i + 1);
+            }
+
+            document.save(file);
+            return total;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void addPage(PDDocument document, byte[] png, int pageNumber) throws IOException {
+        PDImageXObject image = PDImageXObject.createFromByteArray(document, png, "page-" + pageNumber + ".png");
+
+        float imageWidthPoints = image.getWidth() * 72f / 96f;
+        float imageHeightPoints = image.getHeight() * 72f / 96f;
+
+        PDPage page = new PDPage(PDRectangle.LETTER);
+        document.addPage(page);
+
+        float pageWidth = page.getMediaBox().getWidth();
+        float pageHeight = page.getMediaBox().getHeight();
+        float availableWidth = Math.max(pageWidth - 2 * MARGIN, 1f);
+        float availableHeight = Math.max(pageHeight - 2 * MARGIN, 1f);
+        float scale = Math.min(availableWidth / imageWidthPoints, availableHeight / imageHeightPoints);
+        if (!Float.isFinite(scale) || scale <= 0) {
+            scale = 1f;
+        }
+
+        float drawWidth = imageWidthPoints * scale;
+        float drawHeight = imageHeightPoints * scale;
+        float startX = (pageWidth - drawWidth) / 2f;
+        float startY = (pageHeight - drawHeight) / 2f;
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.drawImage(image, startX, startY, drawWidth, drawHeight);
+        }
+    }
+}
@@ -36,6 +36,9 @@ public class XmlParser {
     // Rule collection before processing
     private final List<Rule> allRules = new ArrayList<>();
     
+    // Per-phase timing/allocation metrics for the most recent load
+    private final PhaseMetrics metrics = new PhaseMetrics();
+    
     /**
      * View definition with filters
      */
@@ -76,34 +79,114 @@ public class XmlParser {
         boolean roleFromView; // Track if role was extracted from view filter
     }
     
+    /**
+     * Rules that end up in the same flow row: dataset + alert type + facility + unit set.
+     * A blank facility or empty unit set means the group applies to all facilities/units.
+     */
+    private record FlowGroupKey(String dataset, String alertType, String facility, Set<String> units) {}
+    
+    /**
+     * Per-dataset lookup from facility and unit to the flow groups that cover them,
+     * used to attach global escalation rules without scanning every group.
+     */
+    private static class FlowGroupIndex {
+        final List<FlowGroupKey> all = new ArrayList<>();
+        final Set<FlowGroupKey> anyFacility = new LinkedHashSet<>();
+        final Map<String, Set<FlowGroupKey>> byFacility = new HashMap<>();
+        
+        void add(FlowGroupKey key) {
+            all.add(key);
+            if (key.facility().isEmpty()) {
+                anyFacility.add(key);
+            } else {
+                byFacility.computeIfAbsent(key.facility(), k -> new LinkedHashSet<>()).add(key);
+            }
+        }
+        
+        /** Groups whose facility and unit sets overlap the global rule's (empty = all). */
+        List<FlowGroupKey> matching(Rule globalRule) {
+            Collection<FlowGroupKey> candidates;
+            if (globalRule.facilities.isEmpty()) {
+                candidates = all;
+            } else {
+                Set<FlowGroupKey> byRuleFacility = new LinkedHashSet<>(anyFacility);
+                for (String facility : globalRule.facilities) {
+                    byRuleFacility.addAll(byFacility.getOrDefault(facility, Collections.emptySet()));
+                }
+                candidates = byRuleFacility;
+            }
+            List<FlowGroupKey> result = new ArrayList<>();
+            for (FlowGroupKey key : candidates) {
+                if (key.units().isEmpty() || globalRule.units.isEmpty()
+                    || !Collections.disjoint(key.units(), globalRule.units)) {
+                    result.add(key);
+                }
+            }
+            return result;
+        }
+    }
+    
     /**
      * Load and parse XML file
      */
     public void load(File xmlFile) throws Exception {
         clear();
+        metrics.reset();
         
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(xmlFile);
-        doc.getDocumentElement().normalize();
-        
-        // Step 1: Parse dataset views
-        parseDatasetViews(doc);
-        
-        // Step 2: Parse interface rules
-        parseInterfaceRules(doc);
-        
-        // Step 3: Enrich rules with view data
-        enrichRulesWithViews();
-        
-        // Step 4: Create flow rows
-        createFlowRows();
-        
-        // Step 4.5: Merge flows with overlapping units in escalation chains
-        mergeOverlappingEscalationFlows();
-        
-        // Step 5: Create unit rows
-        createUnitRows();
+        try (PhaseMetrics.Phase total = metrics.start("xml.total")) {
+            Document doc;
+            try (PhaseMetrics.Phase p = metrics.start("xml.parseDocument")) {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                DocumentBuilder builder = factory.newDocumentBuilder();
+                doc = builder.parse(xmlFile);
+                doc.getDocumentElement().normalize();
+                p.count(doc.getElementsByTagName("rule").getLength());
+            }
+            
+            // Step 1: Parse dataset views
+            try (PhaseMetrics.Phase p = metrics.start("xml.datasetViews")) {
+                parseDatasetViews(doc);
+                p.count(datasetViews.values().stream().mapToInt(Map::size).sum());
+            }
+            
+            // Step 2: Parse interface rules
+            try (PhaseMetrics.Phase p = metrics.start("xml.interfaceRules")) {
+                parseInterfaceRules(doc);
+                p.count(allRules.size());
+            }
+            
+            // Step 3: Enrich rules with view data
+            try (PhaseMetrics.Phase p = metrics.start("xml.enrichRules")) {
+                enrichRulesWithViews();
+                p.count(allRules.size());
+            }
+            
+            // Step 4: Create flow rows
+            try (PhaseMetrics.Phase p = metrics.start("xml.createFlowRows")) {
+                createFlowRows();
+                p.count(nurseCalls.size() + clinicals.size() + orders.size());
+            }
+            
+            // Step 4.5: Merge flows with overlapping units in escalation chains
+            try (PhaseMetrics.Phase p = metrics.start("xml.mergeEscalation")) {
+                mergeOverlappingEscalationFlows();
+                p.count(nurseCalls.size() + clinicals.size() + orders.size());
+            }
+            
+            // Step 5: Create unit rows
+            try (PhaseMetrics.Phase p = metrics.start("xml.createUnitRows")) {
+                createUnitRows();
+                p.count(units.size());
+            }
+            total.count(units.size() + nurseCalls.size() + clinicals.size() + orders.size());
+        }
+    }
+    
+    /**
+     * Returns the per-phase metrics recorded by the most recent {@link #load(File)}.
+     */
+    public PhaseMetrics getMetrics() {
+        return metrics;
     }
     
     /**
@@ -182,11 +265,13 @@ public class XmlParser {
         }
         
         // Second pass: validate and add rules
+        long validateStart = System.nanoTime();
         for (Rule rule : tempRules) {
             if (shouldProcessRule(rule, tempRules)) {
                 allRules.add(rule);
             }
         }
+        metrics.accumulate("xml.shouldProcessRule", System.nanoTime() - validateStart, tempRules.size());
     }
     
     /**
@@ -1343,7 +1428,7 @@ public class XmlParser {
      */
     private void createFlowRows() {
         // Group rules by dataset + alert types for escalation merging
-        Map<String, List<Rule>> grouped = new HashMap<>();
+        Map<FlowGroupKey, List<Rule>> grouped = new LinkedHashMap<>();
         
         // Collect global escalation rules (no alert type - apply to all)
         List<Rule> globalEscalationRules = new ArrayList<>();
@@ -1436,18 +1521,18 @@ public class XmlParser {
                     unitsToUse.addAll(rule.units);
                 }
                 
-                // Sort units for consistent grouping
-                String unitsKey = unitsToUse.stream().sorted().collect(java.util.stream.Collectors.joining(","));
+                // Unit set is order-independent, so identical sets share a group
+                Set<String> unitsKey = Set.copyOf(unitsToUse);
                 
                 // Create groups based on determined facilities and units
                 if (facilitiesToUse.isEmpty()) {
                     // No facilities - single group for all facilities
-                    String key = rule.dataset + "|" + alertType + "||" + unitsKey;
+                    FlowGroupKey key = new FlowGroupKey(rule.dataset, alertType, "", unitsKey);
                     grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
                 } else {
                     // Create separate group for each facility
                     for (String facility : facilitiesToUse) {
-                        String key = rule.dataset + "|" + alertType + "|" + facility + "|" + unitsKey;
+                        FlowGroupKey key = new FlowGroupKey(rule.dataset, alertType, facility, unitsKey);
                         grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(rule);
                     }
                 }
@@ -1455,33 +1540,24 @@ public class XmlParser {
         }
         
         // Add global escalation rules to each alert type group in the same dataset
+        // whose facilities/units overlap (exact names, so unit "3N" does not match "3N1")
+        Map<String, FlowGroupIndex> groupsByDataset = new HashMap<>();
+        for (FlowGroupKey key : grouped.keySet()) {
+            groupsByDataset.computeIfAbsent(key.dataset(), k -> new FlowGroupIndex()).add(key);
+        }
         for (Rule globalRule : globalEscalationRules) {
-            for (Map.Entry<String, List<Rule>> entry : grouped.entrySet()) {
-                String[] parts = entry.getKey().split("\\|", 4);
-                String dataset = parts[0];
-                String facilitiesKey = parts.length > 2 ? parts[2] : "";
-                String unitsKey = parts.length > 3 ? parts[3] : "";
-                
-                // Match dataset and check if facilities/units overlap
-                if (dataset.equals(globalRule.dataset)) {
-                    boolean facilitiesMatch = facilitiesKey.isEmpty() || globalRule.facilities.isEmpty() ||
-                        globalRule.facilities.stream().anyMatch(f -> facilitiesKey.contains(f));
-                    boolean unitsMatch = unitsKey.isEmpty() || globalRule.units.isEmpty() ||
-                        globalRule.units.stream().anyMatch(u -> unitsKey.contains(u));
-                    
-                    if (facilitiesMatch && unitsMatch) {
-                        entry.getValue().add(globalRule);
-                    }
-                }
+            FlowGroupIndex index = groupsByDataset.get(globalRule.dataset);
+            if (index == null) continue;
+            for (FlowGroupKey key : index.matching(globalRule)) {
+                grouped.get(key).add(globalRule);
             }
         }
         
         // Process each group
-        for (Map.Entry<String, List<Rule>> entry : grouped.entrySet()) {
-            String[] parts = entry.getKey().split("\\|", 4);
-            String dataset = parts[0];
-            String alertType = parts[1];
-            String facilityFromKey = parts.length > 2 ? parts[2] : ""; // Extract facility from group key
+        for (Map.Entry<FlowGroupKey, List<Rule>> entry : grouped.entrySet()) {
+            String dataset = entry.getKey().dataset();
+            String alertType = entry.getKey().alertType();
+            String facilityFromKey = entry.getKey().facility();
             List<Rule> rules = entry.getValue();
             
             // Get corresponding CREATE DATAUPDATE rules for this alert type
@@ -2805,6 +2881,28 @@ public class XmlParser {
         canonicalAlertNames.clear();
     }
     
+    /**
+     * Hands the loaded rows to an NDW workbook writer without copying them. The rule model is
+     * dropped first and each row list once its sheet is written, so the parser is empty afterwards.
+     */
+    void drainTo(NdwWorkbookWriter writer) {
+        datasetViews.clear();
+        facilityUnits.clear();
+        allRules.clear();
+        nurseCfgByFacUnit.clear();
+        clinicalCfgByFacUnit.clear();
+        ordersCfgByFacUnit.clear();
+        canonicalAlertNames.clear();
+        writer.writeUnits(units);
+        units.clear();
+        writer.writeNurseCalls(nurseCalls);
+        nurseCalls.clear();
+        writer.writeClinicals(clinicals);
+        clinicals.clear();
+        writer.writeOrders(orders);
+        orders.clear();
+    }
+    
     // ========== Public Getters ==========
     
     public List<ExcelParserV5.UnitRow> getUnits() {
@@ -2823,6 +2921,22 @@ public class XmlParser {
         return new ArrayList<>(orders);
     }
     
+    public int getUnitsCount() {
+        return units.size();
+    }
+    
+    public int getNurseCallsCount() {
+        return nurseCalls.size();
+    }
+    
+    public int getClinicalsCount() {
+        return clinicals.size();
+    }
+    
+    public int getOrdersCount() {
+        return orders.size();
+    }
+    
     public String getLoadSummary() {
         // Compute unique config group counts per flow type
         int nurseCfgs = (int) nurseCalls.stream()
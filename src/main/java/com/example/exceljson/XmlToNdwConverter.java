@@ -0,0 +1,51 @@
+package com.example.exceljson;
+
+import java.io.File;
+import java.util.Objects;
+
+/**
+ * Converts an Engage XML file straight into an NDW-layout workbook.
+ * <p>
+ * Unlike loading the XML into the tables and saving with
+ * {@link ExcelParserV5#writeExcel(File)}, no copy of the rows is made for an
+ * {@link ExcelParserV5}, no group-to-unit maps are built, and rows stream from the
+ * {@link XmlParser} into an {@link NdwWorkbookWriter}. The DOM is gone once parsing
+ * finishes, and each sheet's rows are released as soon as they are written.
+ */
+public final class XmlToNdwConverter {
+
+    /**
+     * Row counts and per-phase metrics of one conversion.
+     */
+    public record Result(int units, int nurseCalls, int clinicals, int orders, PhaseMetrics metrics) {
+        public int flows() {
+            return nurseCalls + clinicals + orders;
+        }
+    }
+
+    private XmlToNdwConverter() {
+    }
+
+    /**
+     * Parses {@code xmlFile} and writes the workbook to {@code dest}.
+     */
+    public static Result convert(File xmlFile, File dest) throws Exception {
+        Objects.requireNonNull(xmlFile, "xmlFile");
+        Objects.requireNonNull(dest, "dest");
+
+        XmlParser xml = new XmlParser();
+        xml.load(xmlFile);
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.addAll(xml.getMetrics());
+        Result result = new Result(xml.getUnitsCount(), xml.getNurseCallsCount(),
+            xml.getClinicalsCount(), xml.getOrdersCount(), metrics);
+
+        try (PhaseMetrics.Phase total = metrics.start("xmlToNdw.total");
+             NdwWorkbookWriter writer = new NdwWorkbookWriter(metrics, "xmlToNdw").unitListsOnePerLine(true)) {
+            xml.drainTo(writer);
+            writer.write(dest);
+            total.count(writer.getRowsWritten());
+        }
+        return result;
+    }
+}
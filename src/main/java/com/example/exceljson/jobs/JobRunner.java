@@ -1,24 +1,38 @@
 package com.example.exceljson.jobs;
 
+import com.example.exceljson.Diagnostics;
 import com.example.exceljson.ExcelParserV5;
+import com.example.exceljson.JsonDiff;
+import com.example.exceljson.PhaseMetrics;
+import com.example.exceljson.VisualFlowPdf;
+import com.example.exceljson.XmlToNdwConverter;
 
 import java.io.File;
 import java.io.FileWriter;
 import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple command runner that exposes background jobs for automation.
  */
 public final class JobRunner {
 
+    /** Test-scope generator behind {@code generate-synthetic}; absent from the application jar. */
+    static final String SYNTHETIC_GENERATOR = "com.example.exceljson.jobs.SyntheticDataGenerator";
+
     private final PrintStream out;
     private final PrintStream err;
     private final Map<String, JobHandler> jobs;
+    private boolean printMetrics;
+    private boolean recalculateFormulas;
 
     /**
      * Creates a runner that writes to {@link System#out} and {@link System#err}.
@@ -43,6 +57,18 @@ public final class JobRunner {
         definitions.put("roundtrip-xml", new JobHandler(
             "Load an Engage XML file and re-export NurseCalls and Clinicals JSON to a directory.",
             this::runRoundtripXmlJob));
+        definitions.put("xml-to-ndw", new JobHandler(
+            "Convert an Engage XML file straight into an NDW-layout Excel workbook.",
+            this::runXmlToNdwJob));
+        definitions.put("generate-synthetic", new JobHandler(
+            "Write a seeded synthetic NDW workbook and Engage XML to a directory for scale testing (test classpath only).",
+            this::runGenerateSyntheticJob));
+        definitions.put("visual-flow", new JobHandler(
+            "Render the Visual Flow PDF for the in-scope flows of an Excel, JSON or Engage XML file.",
+            this::runVisualFlowJob));
+        definitions.put("diff-json", new JobHandler(
+            "Compare two Engage JSON exports flow by flow and report added, removed and changed entries.",
+            this::runDiffJsonJob));
         this.jobs = Collections.unmodifiableMap(definitions);
     }
 
@@ -84,7 +110,13 @@ public final class JobRunner {
             return 1;
         }
 
-        String[] jobArgs = Arrays.copyOfRange(args, 1, args.length);
+        // --metrics and --recalculate-formulas may appear anywhere after the job name and apply to every job
+        List<String> rest = Arrays.asList(args).subList(1, args.length);
+        printMetrics = rest.stream().anyMatch("--metrics"::equalsIgnoreCase);
+        recalculateFormulas = rest.stream().anyMatch("--recalculate-formulas"::equalsIgnoreCase);
+        String[] jobArgs = rest.stream()
+                .filter(arg -> !"--metrics".equalsIgnoreCase(arg) && !"--recalculate-formulas".equalsIgnoreCase(arg))
+                .toArray(String[]::new);
         return handler.executor.run(jobArgs);
     }
 
@@ -92,7 +124,7 @@ public final class JobRunner {
         if (errorMessage != null) {
             err.println(errorMessage);
         }
-        out.println("Usage: JobRunner <job> [job-args]");
+        out.println("Usage: JobRunner <job> [job-args] [--metrics] [--recalculate-formulas]");
         printAvailableJobs();
     }
 
@@ -180,7 +212,9 @@ public final class JobRunner {
         try {
             out.printf("📥 Loading workbook: %s%n", input.getAbsolutePath());
             ExcelParserV5 parser = new ExcelParserV5();
+            parser.setRecalculateFormulas(recalculateFormulas);
             parser.load(input);
+            printDiagnostics(parser.getDiagnostics());
 
             File nurseJson = new File(baseDir, "NurseCalls.json");
             File clinicalJson = new File(baseDir, "Clinicals.json");
@@ -213,6 +247,7 @@ public final class JobRunner {
 
             out.printf("✅ Wrote JSON files to:%n  %s%n  %s%n", nurseJson.getAbsolutePath(), clinicalJson.getAbsolutePath());
             out.printf("📄 Summary file written to: %s%n", summaryFile.getAbsolutePath());
+            printMetrics(parser.getMetrics());
             return 0;
         } catch (Exception e) {
             err.printf("❌ Failed to export JSON: %s%n", e.getMessage());
@@ -261,6 +296,7 @@ public final class JobRunner {
             }
 
             out.println("✅ Round-trip complete.");
+            printMetrics(parser.getMetrics());
             return 0;
         } catch (Exception e) {
             err.printf("❌ Failed round-trip: %s%n", e.getMessage());
@@ -322,6 +358,10 @@ public final class JobRunner {
             }
 
             out.println("✅ XML round-trip complete.");
+            PhaseMetrics combined = new PhaseMetrics();
+            combined.addAll(xml.getMetrics());
+            combined.addAll(parser.getMetrics());
+            printMetrics(combined);
             return 0;
         } catch (Exception e) {
             err.printf("❌ Failed XML round-trip: %s%n", e.getMessage());
@@ -330,6 +370,261 @@ public final class JobRunner {
         }
     }
 
+    /**
+     * Prints the per-phase metrics as a JSON block when {@code --metrics} was supplied.
+     */
+    private void printMetrics(PhaseMetrics metrics) {
+        if (!printMetrics || metrics == null) {
+            return;
+        }
+        out.println("📊 Metrics:");
+        out.println(metrics.toJson());
+    }
+
+    private int runXmlToNdwJob(String[] args) {
+        if (args.length < 2) {
+            err.println("Usage: JobRunner xml-to-ndw <input.xml> <output.xlsx>");
+            return 1;
+        }
+
+        File input = new File(args[0]).getAbsoluteFile();
+        if (!input.isFile()) {
+            err.printf("❌ Input XML file \"%s\" was not found.%n", input);
+            return 1;
+        }
+
+        File output = new File(args[1]).getAbsoluteFile();
+        if (output.isDirectory()) {
+            err.printf("❌ Output path is a directory: %s%n", output);
+            return 1;
+        }
+
+        try {
+            out.printf("📥 Converting XML: %s%n", input.getAbsolutePath());
+            XmlToNdwConverter.Result result = XmlToNdwConverter.convert(input, output);
+            out.printf("✅ Wrote %d Unit, %d Nurse Call, %d Patient Monitoring and %d Orders rows to: %s%n",
+                    result.units(), result.nurseCalls(), result.clinicals(), result.orders(), output.getAbsolutePath());
+            printMetrics(result.metrics());
+            return 0;
+        } catch (Exception e) {
+            err.printf("❌ Failed to convert XML: %s%n", e.getMessage());
+            e.printStackTrace(err);
+            return 1;
+        }
+    }
+
+    /**
+     * Waits for the load's diagnostics to reach the log and prints their tallies, if any.
+     */
+    private void printDiagnostics(Diagnostics diagnostics) {
+        diagnostics.flushAndWait(5, TimeUnit.SECONDS);
+        String text = diagnostics.toSummaryText();
+        if (!text.isEmpty()) {
+            out.println(text);
+        }
+    }
+
+    private int runGenerateSyntheticJob(String[] args) {
+        String usage = "Usage: JobRunner generate-synthetic <outputDir> [--seed N] [--facilities N] [--units N] [--alarms N]";
+        if (args.length < 1) {
+            err.println(usage);
+            return 1;
+        }
+
+        long seed = 42L;
+        int facilities = 2;
+        int units = 6;
+        int alarms = 5;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                String option = args[i].toLowerCase(Locale.ROOT);
+                if (i + 1 >= args.length) {
+                    err.printf("❌ Missing value for option %s%n", args[i]);
+                    err.println(usage);
+                    return 1;
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--seed" -> seed = Long.parseLong(value);
+                    case "--facilities" -> facilities = Integer.parseInt(value);
+                    case "--units" -> units = Integer.parseInt(value);
+                    case "--alarms" -> alarms = Integer.parseInt(value);
+                    default -> {
+                        err.printf("❌ Unknown option %s%n", args[i - 1]);
+                        err.println(usage);
+                        return 1;
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            err.printf("❌ Invalid numeric option: %s%n", e.getMessage());
+            return 1;
+        }
+
+        // The generator is a test-scope utility and is not part of the application jar
+        Class<?> generatorType;
+        try {
+            generatorType = Class.forName(SYNTHETIC_GENERATOR);
+        } catch (ClassNotFoundException e) {
+            err.println("❌ generate-synthetic needs the test classes on the classpath (" + SYNTHETIC_GENERATOR + ").");
+            return 1;
+        }
+
+        File outputDir = new File(args[0]).getAbsoluteFile();
+        if (outputDir.exists() && !outputDir.isDirectory()) {
+            err.printf("❌ Output path exists but is not a directory: %s%n", outputDir);
+            return 1;
+        }
+        if (!outputDir.exists() && !outputDir.mkdirs()) {
+            err.printf("❌ Unable to create output directory: %s%n", outputDir);
+            return 1;
+        }
+
+        try {
+            Object generator = generatorType.getConstructor(long.class, int.class, int.class, int.class)
+                    .newInstance(seed, facilities, units, alarms);
+            File workbook = new File(outputDir, "synthetic-ndw.xlsx");
+            File engageXml = new File(outputDir, "synthetic-engage.xml");
+
+            out.printf("🧪 Generating synthetic data (seed=%d, facilities=%d, units=%d, alarms=%d)%n",
+                    seed, facilities, units, alarms);
+            generatorType.getMethod("writeWorkbook", File.class).invoke(generator, workbook);
+            generatorType.getMethod("writeEngageXml", File.class).invoke(generator, engageXml);
+
+            out.printf("✅ Wrote synthetic files to:%n  %s%n  %s%n", workbook.getAbsolutePath(), engageXml.getAbsolutePath());
+            out.printf("ℹ️ Map custom tab \"%s\" to Clinicals when loading the workbook.%n",
+                    generatorType.getField("CUSTOM_TAB_NAME").get(null));
+            return 0;
+        } catch (Exception e) {
+            Throwable cause = e instanceof InvocationTargetException ite && ite.getCause() != null ? ite.getCause() : e;
+            err.printf("❌ Failed to generate synthetic data: %s%n", cause.getMessage());
+            cause.printStackTrace(err);
+            return 1;
+        }
+    }
+
+    private int runVisualFlowJob(String[] args) {
+        if (args.length < 2) {
+            err.println("Usage: JobRunner visual-flow <input.xlsx|input.json|input.xml> <output.pdf>");
+            return 1;
+        }
+
+        File input = new File(args[0]).getAbsoluteFile();
+        if (!input.isFile()) {
+            err.printf("❌ Input file \"%s\" was not found.%n", input);
+            return 1;
+        }
+
+        File output = new File(args[1]).getAbsoluteFile();
+        File parent = output.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            err.printf("❌ Unable to create parent directory for \"%s\".%n", output);
+            return 1;
+        }
+
+        try {
+            out.printf("📥 Loading: %s%n", input.getAbsolutePath());
+            ExcelParserV5 parser = new ExcelParserV5();
+            String name = input.getName().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".json")) {
+                parser.loadJson(input);
+            } else if (name.endsWith(".xml")) {
+                com.example.exceljson.XmlParser xml = new com.example.exceljson.XmlParser();
+                xml.load(input);
+                parser.units.addAll(xml.getUnits());
+                parser.nurseCalls.addAll(xml.getNurseCalls());
+                parser.clinicals.addAll(xml.getClinicals());
+                parser.orders.addAll(xml.getOrders());
+                parser.rebuildUnitMaps();
+            } else {
+                parser.setRecalculateFormulas(recalculateFormulas);
+                parser.load(input);
+                printDiagnostics(parser.getDiagnostics());
+            }
+
+            List<ExcelParserV5.FlowRow> rows = new ArrayList<>();
+            for (List<ExcelParserV5.FlowRow> list : List.of(parser.nurseCalls, parser.clinicals, parser.orders)) {
+                list.stream().filter(r -> r.inScope).forEach(rows::add);
+            }
+            List<String> diagrams = VisualFlowPdf.buildDiagrams(rows);
+            if (diagrams.isEmpty()) {
+                err.println("❌ No in-scope flows found to render.");
+                return 1;
+            }
+
+            out.printf("🖼️ Rendering %d page(s) to: %s%n", diagrams.size(), output.getAbsolutePath());
+            int cacheHitsBefore = VisualFlowPdf.getCacheHits();
+            int pages = VisualFlowPdf.write(diagrams, output,
+                (done, total) -> out.printf("  page %d/%d%n", done, total));
+            out.printf("✅ Wrote %d page(s) (%d from cache).%n", pages, VisualFlowPdf.getCacheHits() - cacheHitsBefore);
+            printMetrics(parser.getMetrics());
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("❌ Visual Flow rendering was interrupted.");
+            return 1;
+        } catch (Exception e) {
+            err.printf("❌ Failed to render Visual Flow PDF: %s%n", e.getMessage());
+            e.printStackTrace(err);
+            return 1;
+        }
+    }
+
+    private int runDiffJsonJob(String[] args) {
+        String usage = "Usage: JobRunner diff-json <before.json> <after.json> [--out report.txt]";
+        if (args.length < 2) {
+            err.println(usage);
+            return 1;
+        }
+
+        File report = null;
+        for (int i = 2; i < args.length; i++) {
+            if ("--out".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                report = new File(args[++i]).getAbsoluteFile();
+            } else {
+                err.printf("❌ Unknown option %s%n", args[i]);
+                err.println(usage);
+                return 1;
+            }
+        }
+
+        File before = new File(args[0]).getAbsoluteFile();
+        File after = new File(args[1]).getAbsoluteFile();
+        for (File input : List.of(before, after)) {
+            if (!input.isFile()) {
+                err.printf("❌ Input JSON file \"%s\" was not found.%n", input);
+                return 1;
+            }
+        }
+
+        try {
+            out.printf("🔍 Comparing:%n  %s%n  %s%n", before.getAbsolutePath(), after.getAbsolutePath());
+            long start = System.nanoTime();
+            JsonDiff.Result result = JsonDiff.compare(before, after);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            String text = result.toText();
+            if (report != null) {
+                File parent = report.getParentFile();
+                if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                    throw new RuntimeException("Unable to create parent directory for report: " + report);
+                }
+                try (FileWriter writer = new FileWriter(report, false)) {
+                    writer.write(text);
+                }
+                out.printf("📄 Report written to: %s%n", report.getAbsolutePath());
+            } else {
+                out.print(text);
+            }
+            out.printf("%s Compared in %d ms.%n", result.identical() ? "✅ No differences." : "⚠️ Differences found.", millis);
+            return 0;
+        } catch (Exception e) {
+            err.printf("❌ Failed to compare JSON: %s%n", e.getMessage());
+            e.printStackTrace(err);
+            return 1;
+        }
+    }
+
     private static final class JobHandler {
         private final String description;
         private final JobExecutor executor;
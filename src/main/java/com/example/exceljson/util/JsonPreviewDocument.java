@@ -0,0 +1,263 @@
+package com.example.exceljson.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Read-only, line-addressable text backed by a temporary file, used by {@link JsonPreviewPane}.
+ * <p>
+ * The text is written once (typically by {@code ExcelParserV5.writePretty} on a background
+ * thread) and then indexed: only the byte offset of each line and the line range of each
+ * flow section are kept in memory. Lines are read back on demand through a small page
+ * cache, so the text held in memory is bounded by what the viewer shows, not by the size
+ * of the document.
+ * <p>
+ * A section is an object that is an element of a top-level array, e.g. one entry of
+ * {@code deliveryFlows}; its title is the entry's {@code "name"} value. Lines starting
+ * with {@code ===} (the combined preview's headings) start a new document.
+ */
+public final class JsonPreviewDocument implements Closeable {
+
+    private static final int PAGE_LINES = 256;
+    private static final int MAX_PAGES = 16;
+    private static final String NAME_PREFIX = "\"name\": \"";
+
+    /** Lines {@code start}..{@code end} (inclusive) of one top-level array element. */
+    public record Section(int start, int end, String title) {}
+
+    /** Writes the document text. */
+    @FunctionalInterface
+    public interface Content {
+        void write(Writer out) throws IOException;
+    }
+
+    private final File file;
+    private final FileChannel channel;
+    private final long[] offsets;       // offsets[i] = first byte of line i; offsets[lineCount] = file length
+    private final int lineCount;
+    private final List<Section> sections;
+    private final Map<Integer, String[]> pages =
+        new LinkedHashMap<>(MAX_PAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[]> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+
+    private JsonPreviewDocument(File file, long[] offsets, int lineCount, List<Section> sections) throws IOException {
+        this.file = file;
+        this.offsets = offsets;
+        this.lineCount = lineCount;
+        this.sections = sections;
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+    }
+
+    /** Writes {@code content} to a temporary file and indexes it. */
+    public static JsonPreviewDocument create(Content content) throws IOException {
+        File file = Files.createTempFile("json-preview", ".txt").toFile();
+        file.deleteOnExit();
+        try {
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                content.write(out);
+            }
+            return index(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+    }
+
+    public static JsonPreviewDocument ofText(String text) throws IOException {
+        return create(out -> out.write(text == null ? "" : text));
+    }
+
+    private static JsonPreviewDocument index(File file) throws IOException {
+        long[] offsets = new long[1024];
+        int lines = 0;
+        List<Section> sections = new ArrayList<>();
+        int depth = 0;
+        int sectionStart = -1;
+        String sectionTitle = null;
+
+        // Scan line by line; lines are short, so a reusable byte buffer per line is enough
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()), 1 << 16)) {
+            long position = 0;
+            byte[] line = new byte[256];
+            int length = 0;
+            boolean more = true;
+            while (more) {
+                int b = in.read();
+                if (b != -1 && b != '\n') {
+                    if (length == line.length) line = Arrays.copyOf(line, length * 2);
+                    line[length++] = (byte) b;
+                    continue;
+                }
+                more = b != -1;
+                if (!more && length == 0 && lines > 0) break;
+
+                if (lines + 1 >= offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                offsets[lines] = position;
+                position += length + (more ? 1 : 0);
+
+                String text = new String(line, 0, length, StandardCharsets.UTF_8).trim();
+                if (text.startsWith("===")) {
+                    depth = 0;
+                    sectionStart = -1;
+                } else {
+                    if (text.startsWith("}") || text.startsWith("]")) {
+                        depth--;
+                        if (depth == 2 && sectionStart >= 0) {
+                            sections.add(new Section(sectionStart, lines, sectionTitle == null ? "" : sectionTitle));
+                            sectionStart = -1;
+                        }
+                    }
+                    if (depth == 3 && sectionStart >= 0 && sectionTitle == null && text.startsWith(NAME_PREFIX)) {
+                        int end = text.lastIndexOf('"');
+                        sectionTitle = end > NAME_PREFIX.length() ? text.substring(NAME_PREFIX.length(), end) : "";
+                    }
+                    if (text.endsWith("{") || text.endsWith("[")) {
+                        if (depth == 2 && text.endsWith("{")) {
+                            sectionStart = lines;
+                            sectionTitle = null;
+                        }
+                        depth++;
+                    }
+                }
+                lines++;
+                length = 0;
+            }
+            offsets[lines] = position;
+        }
+        return new JsonPreviewDocument(file, offsets, lines, Collections.unmodifiableList(sections));
+    }
+
+    public int lineCount() {
+        return lineCount;
+    }
+
+    public List<Section> sections() {
+        return sections;
+    }
+
+    /** Returns line {@code index} without its line terminator. */
+    public synchronized String line(int index) {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + lineCount);
+        }
+        int page = index / PAGE_LINES;
+        String[] lines = pages.get(page);
+        if (lines == null) {
+            lines = readLines(page * PAGE_LINES, Math.min(lineCount, (page + 1) * PAGE_LINES));
+            pages.put(page, lines);
+        }
+        return lines[index - page * PAGE_LINES];
+    }
+
+    /**
+     * Finds the next line at or after {@code from} containing {@code query} (ignoring case),
+     * wrapping around to the start of the document.
+     *
+     * @return the line index, or -1 if no line matches
+     */
+    public int find(String query, int from) {
+        return find(query, from, () -> false);
+    }
+
+    /**
+     * Like {@link #find(String, int)}, but gives up (returning -1) once {@code cancelled}
+     * reports true; it is checked between chunks. Searches are cancelled this way rather than
+     * by interrupting the thread, because an interrupt during a read closes the shared channel.
+     */
+    public int find(String query, int from, BooleanSupplier cancelled) {
+        if (query == null || query.isEmpty() || lineCount == 0) return -1;
+        String needle = query.toLowerCase(Locale.ROOT);
+        int start = Math.floorMod(from, lineCount);
+        for (int pass = 0; pass < 2; pass++) {
+            int begin = pass == 0 ? start : 0;
+            int end = pass == 0 ? lineCount : start;
+            for (int chunk = begin; chunk < end; chunk += PAGE_LINES) {
+                if (cancelled.getAsBoolean()) return -1;
+                int chunkEnd = Math.min(end, chunk + PAGE_LINES);
+                // Read through the file rather than the page cache so a search does not evict visible lines
+                String[] lines = readLines(chunk, chunkEnd);
+                for (int i = 0; i < lines.length; i++) {
+                    if (lines[i].toLowerCase(Locale.ROOT).contains(needle)) {
+                        return chunk + i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the index in {@link #sections()} of the section starting at {@code line}, or -1. */
+    public int sectionIndexAt(int line) {
+        int lo = 0, hi = sections.size() - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int start = sections.get(mid).start();
+            if (start == line) return mid;
+            if (start < line) lo = mid + 1; else hi = mid - 1;
+        }
+        return -1;
+    }
+
+    private String[] readLines(int from, int to) {
+        try {
+            long begin = offsets[from];
+            int size = (int) (offsets[to] - begin);
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, begin + buffer.position()) < 0) break;
+            }
+            String[] lines = new String[to - from];
+            byte[] bytes = buffer.array();
+            for (int i = from; i < to; i++) {
+                int s = (int) (offsets[i] - begin);
+                int e = (int) (offsets[i + 1] - begin);
+                if (e > s && bytes[e - 1] == '\n') e--;
+                lines[i - from] = new String(bytes, s, e - s, StandardCharsets.UTF_8);
+            }
+            return lines;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read preview text: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Best effort; the file is deleted on exit anyway
+        }
+        synchronized (this) {
+            pages.clear();
+        }
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException ignored) {
+            // deleteOnExit covers it
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.exceljson.util;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Virtualised viewer for the JSON preview.
+ * <p>
+ * Shows a {@link JsonPreviewDocument} in a {@link ListView} whose items are line numbers,
+ * so only the visible lines are ever turned into text and cells. Each flow section can be
+ * collapsed from its first line, and the search field jumps to matches as you type
+ * (Enter finds the next one). Searching runs on a background thread.
+ * <p>
+ * {@link #setText(String)} keeps the TextArea-style API for short status messages.
+ */
+public class JsonPreviewPane extends VBox {
+
+    private final ListView<Integer> lines = new ListView<>();
+    private final TextField searchField = new TextField();
+    private final Label searchStatus = new Label();
+    private JsonPreviewDocument document;
+    private final BitSet collapsed = new BitSet();   // indexed by section number
+    private AtomicBoolean searchCancelled;
+
+    public JsonPreviewPane() {
+        setSpacing(4);
+        getStyleClass().add("json-preview");
+
+        searchField.setPromptText("🔍 Search preview");
+        searchField.textProperty().addListener((obs, old, text) -> search(text, currentLine()));
+        searchField.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER) search(searchField.getText(), currentLine() + 1);
+        });
+        HBox.setHgrow(searchField, Priority.ALWAYS);
+        Button collapseAll = new Button("Collapse all");
+        collapseAll.setOnAction(e -> setAllCollapsed(true));
+        Button expandAll = new Button("Expand all");
+        expandAll.setOnAction(e -> setAllCollapsed(false));
+        searchStatus.setMinWidth(Region.USE_PREF_SIZE);
+        HBox toolbar = new HBox(6, searchField, searchStatus, collapseAll, expandAll);
+        toolbar.setAlignment(Pos.CENTER_LEFT);
+
+        lines.setFixedCellSize(18);
+        lines.setStyle("-fx-font-family: 'monospace';");
+        lines.setCellFactory(list -> new LineCell());
+        VBox.setVgrow(lines, Priority.ALWAYS);
+        setPadding(new Insets(0));
+        getChildren().addAll(toolbar, lines);
+    }
+
+    /** Shows a short message (or any small text). */
+    public void setText(String text) {
+        try {
+            setDocument(JsonPreviewDocument.ofText(text));
+        } catch (IOException e) {
+            setDocument(null);
+        }
+    }
+
+    /** Shows {@code document}, closing the one shown before. */
+    public void setDocument(JsonPreviewDocument document) {
+        cancelSearch();
+        if (this.document != null && this.document != document) {
+            this.document.close();
+        }
+        this.document = document;
+        collapsed.clear();
+        searchStatus.setText("");
+        refreshItems();
+        lines.scrollTo(0);
+    }
+
+    public JsonPreviewDocument getDocument() {
+        return document;
+    }
+
+    private void refreshItems() {
+        lines.setItems(document == null
+            ? FXCollections.observableArrayList()
+            : FXCollections.observableList(new VisibleLines(document, collapsed)));
+    }
+
+    private int currentLine() {
+        Integer selected = lines.getSelectionModel().getSelectedItem();
+        return selected == null ? 0 : selected;
+    }
+
+    private void toggle(int index) {
+        collapsed.flip(index);
+        int row = lines.getItems().indexOf(document.sections().get(index).start());
+        refreshItems();
+        lines.scrollTo(Math.max(0, row));
+    }
+
+    private void setAllCollapsed(boolean value) {
+        if (document == null) return;
+        if (value) {
+            collapsed.set(0, document.sections().size());
+        } else {
+            collapsed.clear();
+        }
+        refreshItems();
+    }
+
+    private void search(String query, int from) {
+        cancelSearch();
+        JsonPreviewDocument doc = document;
+        if (doc == null || query == null || query.isEmpty()) {
+            searchStatus.setText("");
+            return;
+        }
+        searchStatus.setText("Searching…");
+        AtomicBoolean cancelled = new AtomicBoolean();
+        searchCancelled = cancelled;
+        Thread searchThread = new Thread(() -> {
+            int line;
+            try {
+                line = doc.find(query, from, cancelled::get);
+            } catch (RuntimeException e) {
+                return; // document was replaced and closed mid-search
+            }
+            if (cancelled.get()) return;
+            Platform.runLater(() -> {
+                if (cancelled.get() || doc != document) return;
+                if (line < 0) {
+                    searchStatus.setText("No match");
+                    return;
+                }
+                searchStatus.setText("Line " + (line + 1));
+                reveal(line);
+            });
+        }, "json-preview-search");
+        searchThread.setDaemon(true);
+        searchThread.start();
+    }
+
+    /** Stops the running search between chunks; never interrupts it, which would close the document's channel. */
+    private void cancelSearch() {
+        if (searchCancelled != null) {
+            searchCancelled.set(true);
+            searchCancelled = null;
+        }
+    }
+
+    /** Expands the section holding {@code line} if needed, then selects and scrolls to it. */
+    private void reveal(int line) {
+        List<JsonPreviewDocument.Section> sections = document.sections();
+        for (int i = collapsed.nextSetBit(0); i >= 0; i = collapsed.nextSetBit(i + 1)) {
+            JsonPreviewDocument.Section s = sections.get(i);
+            if (line > s.start() && line <= s.end()) {
+                collapsed.clear(i);
+                refreshItems();
+                break;
+            }
+        }
+        int row = lines.getItems().indexOf(line);
+        if (row >= 0) {
+            lines.getSelectionModel().clearAndSelect(row);
+            lines.scrollTo(Math.max(0, row - 3));
+        }
+    }
+
+    /**
+     * Line numbers that are not hidden inside a collapsed section. Index lookups and
+     * {@code indexOf} are binary searches over the collapsed ranges, so nothing is
+     * materialised per line.
+     */
+    static final class VisibleLines extends AbstractList<Integer> implements RandomAccess {
+        private final int lineCount;
+        private final int[] firstHidden;     // first hidden line of each collapsed range, ascending
+        private final int[] hiddenBefore;    // hidden lines before range k (prefix sums)
+        private final int hiddenTotal;
+
+        VisibleLines(JsonPreviewDocument document, BitSet collapsed) {
+            this.lineCount = document.lineCount();
+            List<JsonPreviewDocument.Section> sections = document.sections();
+            int n = collapsed.cardinality();
+            firstHidden = new int[n];
+            hiddenBefore = new int[n + 1];
+            int k = 0;
+            for (int i = collapsed.nextSetBit(0); i >= 0; i = collapsed.nextSetBit(i + 1)) {
+                JsonPreviewDocument.Section s = sections.get(i);
+                firstHidden[k] = s.start() + 1;
+                hiddenBefore[k + 1] = hiddenBefore[k] + (s.end() - s.start());
+                k++;
+            }
+            hiddenTotal = hiddenBefore[n];
+        }
+
+        @Override
+        public Integer get(int index) {
+            if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+            // Last range whose first hidden line, in visible coordinates, is <= index
+            int lo = 0, hi = firstHidden.length - 1, k = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (firstHidden[mid] - hiddenBefore[mid] <= index) {
+                    k = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return index + (k < 0 ? 0 : hiddenBefore[k + 1]);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof Integer line) || line < 0 || line >= lineCount) return -1;
+            int lo = 0, hi = firstHidden.length - 1, k = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (firstHidden[mid] <= line) {
+                    k = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (k >= 0 && line < firstHidden[k] + (hiddenBefore[k + 1] - hiddenBefore[k])) {
+                return -1; // hidden
+            }
+            return line - (k < 0 ? 0 : hiddenBefore[k + 1]);
+        }
+
+        @Override
+        public int size() {
+            return lineCount - hiddenTotal;
+        }
+    }
+
+    private final class LineCell extends ListCell<Integer> {
+        private final Label toggle = new Label();
+
+        LineCell() {
+            toggle.setMinWidth(14);
+            toggle.setOnMouseClicked(e -> {
+                int index = getItem() == null || document == null ? -1 : document.sectionIndexAt(getItem());
+                if (index >= 0) toggle(index);
+                e.consume();
+            });
+            setGraphic(toggle);
+        }
+
+        @Override
+        protected void updateItem(Integer line, boolean empty) {
+            super.updateItem(line, empty);
+            if (empty || line == null || document == null) {
+                setText(null);
+                toggle.setText("");
+                return;
+            }
+            String text = document.line(line);
+            int index = document.sectionIndexAt(line);
+            if (index < 0) {
+                toggle.setText("");
+                setText(text);
+            } else if (collapsed.get(index)) {
+                JsonPreviewDocument.Section section = document.sections().get(index);
+                toggle.setText("▸");
+                setText(text + " … " + section.title() + " (" + (section.end() - section.start() + 1) + " lines) }");
+            } else {
+                toggle.setText("▾");
+                setText(text);
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.exceljson.util;
+
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableColumnBase;
+import javafx.scene.control.TableRow;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.NestedTableColumnHeader;
+import javafx.scene.control.skin.TableColumnHeader;
+import javafx.scene.control.skin.TableRowSkin;
+import javafx.scene.control.skin.TableViewSkin;
+import javafx.scene.control.skin.VirtualFlow;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Table skin that keeps the first {@code pinnedCount} visible columns in place while the
+ * rest of the table scrolls horizontally.
+ * <p>
+ * Everything stays in one virtualised {@link TableView}: the pinned cells and headers are
+ * simply shifted right by the horizontal scroll offset and drawn above their neighbours.
+ * This replaces a second "frozen" table kept aligned with scroll bar and selection
+ * listeners, so each row is created, laid out and selected once.
+ * <p>
+ * With a fixed cell size the row skin leaves columns scrolled out of view out of the scene
+ * graph; pinned cells are put back and positioned here. Pinned columns are not reorderable.
+ * Cells and headers get the {@code pinned-column} style class, which should give them an
+ * opaque background.
+ */
+public class PinnedColumnsTableSkin<S> extends TableViewSkin<S> {
+
+    public static final String PINNED_STYLE_CLASS = "pinned-column";
+
+    private final int pinnedCount;
+    private final DoubleProperty offset = new SimpleDoubleProperty();
+
+    public PinnedColumnsTableSkin(TableView<S> table, int pinnedCount) {
+        super(table);
+        this.pinnedCount = pinnedCount;
+        for (Node child : getChildren()) {
+            if (child instanceof VirtualFlow<?> flow) {
+                for (Node node : flow.getChildrenUnmodifiable()) {
+                    if (node instanceof ScrollBar bar && bar.getOrientation() == Orientation.HORIZONTAL) {
+                        offset.bind(bar.valueProperty());
+                    }
+                }
+            }
+        }
+        table.setRowFactory(t -> new TableRow<>() {
+            @Override
+            protected javafx.scene.control.Skin<?> createDefaultSkin() {
+                return new PinnedRowSkin(this);
+            }
+        });
+    }
+
+    /** Installs the skin on {@code table}, pinning its first {@code pinnedCount} columns. */
+    public static <S> void install(TableView<S> table, int pinnedCount) {
+        for (int i = 0; i < pinnedCount && i < table.getColumns().size(); i++) {
+            table.getColumns().get(i).setReorderable(false);
+        }
+        table.setSkin(new PinnedColumnsTableSkin<>(table, pinnedCount));
+    }
+
+    private boolean isPinned(TableColumnBase<?, ?> column) {
+        if (!(column instanceof TableColumn<?, ?>)) return false;
+        @SuppressWarnings("unchecked")
+        int index = getSkinnable().getVisibleLeafIndex((TableColumn<S, ?>) column);
+        return index >= 0 && index < pinnedCount;
+    }
+
+    /** Binds {@code node} to the scroll offset when pinned, and releases it otherwise. */
+    private void pin(Node node, boolean pinned) {
+        boolean bound = node.translateXProperty().isBound();
+        if (pinned && !bound) {
+            node.translateXProperty().bind(offset);
+            node.setViewOrder(-1);
+            node.getStyleClass().add(PINNED_STYLE_CLASS);
+        } else if (!pinned && bound) {
+            node.translateXProperty().unbind();
+            node.setTranslateX(0);
+            node.setViewOrder(0);
+            node.getStyleClass().remove(PINNED_STYLE_CLASS);
+        }
+    }
+
+    @Override
+    protected void layoutChildren(double x, double y, double w, double h) {
+        super.layoutChildren(x, y, w, h);
+        pinHeaders(getTableHeaderRow().getRootHeader());
+    }
+
+    private void pinHeaders(NestedTableColumnHeader parent) {
+        for (TableColumnHeader header : parent.getColumnHeaders()) {
+            if (header instanceof NestedTableColumnHeader nested && !nested.getColumnHeaders().isEmpty()) {
+                pinHeaders(nested);
+            } else {
+                pin(header, isPinned(header.getTableColumn()));
+            }
+        }
+    }
+
+    /** Row skin that keeps the pinned cells in the row, shifted by the scroll offset. */
+    private final class PinnedRowSkin extends TableRowSkin<S> {
+        private final Map<TableColumnBase<?, ?>, TableCell<S, ?>> cellsByColumn = new WeakHashMap<>();
+
+        PinnedRowSkin(TableRow<S> row) {
+            super(row);
+        }
+
+        // TableRowSkin declares this parameter as a raw type, so the override must too
+        @Override
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        protected TableCell<S, ?> createCell(TableColumnBase tableColumn) {
+            TableCell<S, ?> cell = super.createCell(tableColumn);
+            cellsByColumn.put(tableColumn, cell);
+            return cell;
+        }
+
+        @Override
+        protected void layoutChildren(double x, double y, double w, double h) {
+            super.layoutChildren(x, y, w, h);
+            double left = x;
+            for (TableColumn<S, ?> column : getVisibleLeafColumns()) {
+                if (!isPinned(column)) break;
+                double width = snapSizeX(column.getWidth());
+                TableCell<S, ?> cell = cellsByColumn.get(column);
+                if (cell != null) {
+                    if (cell.getParent() == null) {
+                        // Dropped by the fixed-cell-size culling because its column scrolled out of view
+                        getChildren().add(cell);
+                        double fixed = getSkinnable().getTableView().getFixedCellSize();
+                        cell.resizeRelocate(left, snappedTopInset(), width, fixed > 0 ? fixed : h);
+                    }
+                    pin(cell, true);
+                }
+                left += width;
+            }
+            for (Node child : getChildren()) {
+                if (child instanceof TableCell<?, ?> cell && !isPinned(cell.getTableColumn())) {
+                    pin(cell, false);
+                }
+            }
+        }
+    }
+}
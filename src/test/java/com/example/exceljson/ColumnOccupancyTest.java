@@ -0,0 +1,62 @@
+package com.example.exceljson;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Column occupancy counts: built from the rows, kept up to date by edits, and rebuilt
+ * when the row list is replaced.
+ */
+class ColumnOccupancyTest {
+
+    private static ExcelParserV5.FlowRow flow(String alarm, String deviceB) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.alarmName = alarm;
+        row.deviceB = deviceB;
+        return row;
+    }
+
+    @Test
+    void countsNonEmptyCellsAndReportsTransitions() {
+        ObservableList<ExcelParserV5.FlowRow> rows = FXCollections.observableArrayList(
+            flow("Bed Exit", null), flow("Toilet", "  "), flow("Code Blue", ""));
+        ColumnOccupancy<ExcelParserV5.FlowRow> occupancy = new ColumnOccupancy<>();
+        Object alarmCol = new Object();
+        Object deviceBCol = new Object();
+        occupancy.register(alarmCol, f -> f.alarmName);
+        occupancy.register(deviceBCol, f -> f.deviceB);
+        occupancy.setRows(rows);
+
+        assertEquals(3, occupancy.filled(alarmCol));
+        assertEquals(0, occupancy.filled(deviceBCol), "blank counts as empty");
+
+        assertTrue(occupancy.update(deviceBCol, "", "Badge"), "first value");
+        assertFalse(occupancy.update(deviceBCol, null, "Phone"));
+        assertFalse(occupancy.update(deviceBCol, "Badge", "Pager"), "still filled");
+        assertFalse(occupancy.update(deviceBCol, "Phone", " "));
+        assertTrue(occupancy.update(deviceBCol, "Pager", null), "last value removed");
+        assertEquals(0, occupancy.filled(deviceBCol));
+        assertFalse(occupancy.update(new Object(), "", "x"), "untracked columns are ignored");
+    }
+
+    @Test
+    void recountsWhenRowsAreReplaced() {
+        ObservableList<ExcelParserV5.FlowRow> rows = FXCollections.observableArrayList(flow("Bed Exit", null));
+        ColumnOccupancy<ExcelParserV5.FlowRow> occupancy = new ColumnOccupancy<>();
+        Object deviceBCol = new Object();
+        occupancy.setRows(rows);
+        occupancy.register(deviceBCol, f -> f.deviceB);
+        assertEquals(0, occupancy.filled(deviceBCol));
+
+        rows.setAll(flow("Bed Exit", "Badge"), flow("Toilet", "Badge"));
+        assertEquals(2, occupancy.filled(deviceBCol));
+        assertEquals(2, occupancy.rowCount());
+
+        occupancy.setRows(FXCollections.observableArrayList());
+        rows.add(flow("Fall", "Badge"));
+        assertEquals(0, occupancy.filled(deviceBCol), "the previous list is no longer followed");
+    }
+}
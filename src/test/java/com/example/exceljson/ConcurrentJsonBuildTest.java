@@ -0,0 +1,129 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the parallel build/export API: snapshot isolation, output parity with the
+ * sequential builders, and progress reporting.
+ */
+class ConcurrentJsonBuildTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ExcelParserV5 newParser() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU";
+        unit.nurseGroup = "Nurse Group";
+        unit.clinGroup = "Clinical Group";
+        unit.ordersGroup = "Orders Group";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+
+        parser.nurseCalls.add(flow("NurseCalls", "Nurse Group", "Bed Exit"));
+        parser.nurseCalls.add(flow("NurseCalls", "Nurse Group", "Toilet"));
+        parser.clinicals.add(flow("Clinicals", "Clinical Group", "SpO2 Low"));
+        parser.orders.add(flow("Orders", "Orders Group", "STAT Order"));
+        return parser;
+    }
+
+    private static ExcelParserV5.FlowRow flow(String type, String group, String alarm) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.type = type;
+        row.configGroup = group;
+        row.alarmName = alarm;
+        row.priorityRaw = "High";
+        row.deviceA = "Badge";
+        row.t1 = "Immediate";
+        row.r1 = "VAssign: Nurse";
+        return row;
+    }
+
+    @Test
+    void buildAllJsonMatchesSequentialBuilds() {
+        ExcelParserV5 parser = newParser();
+        for (ExcelParserV5.MergeMode mode : ExcelParserV5.MergeMode.values()) {
+            Map<String, Map<String, Object>> all = parser.buildAllJson(mode);
+            assertEquals(List.of("NurseCalls", "Clinicals", "Orders"), new ArrayList<>(all.keySet()));
+            assertEquals(ExcelParserV5.pretty(parser.buildNurseCallsJson(mode)), ExcelParserV5.pretty(all.get("NurseCalls")));
+            assertEquals(ExcelParserV5.pretty(parser.buildClinicalsJson(mode)), ExcelParserV5.pretty(all.get("Clinicals")));
+            assertEquals(ExcelParserV5.pretty(parser.buildOrdersJson(mode)), ExcelParserV5.pretty(all.get("Orders")));
+        }
+    }
+
+    @Test
+    void snapshotIsIsolatedFromLaterEdits() {
+        ExcelParserV5 parser = newParser();
+        ExcelParserV5 snapshot = parser.snapshot();
+        String before = ExcelParserV5.pretty(snapshot.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+
+        parser.nurseCalls.get(0).alarmName = "Edited";
+        parser.nurseCalls.get(0).version++;
+        parser.units.get(0).unitNames = "PACU";
+        parser.rebuildUnitMaps();
+
+        assertEquals(before, ExcelParserV5.pretty(snapshot.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE)));
+        assertSame(snapshot, snapshot.snapshot(), "snapshots are already detached");
+    }
+
+    @Test
+    void snapshotRowsShareFlowCacheEntriesWithLiveRows() {
+        ExcelParserV5 parser = newParser();
+        FlowBuildCache cache = new FlowBuildCache();
+        parser.setFlowCache(cache);
+
+        parser.snapshot().buildNurseCallsJson(ExcelParserV5.MergeMode.NONE);
+        long missesAfterFirst = cache.misses();
+        parser.snapshot().buildNurseCallsJson(ExcelParserV5.MergeMode.NONE);
+
+        assertEquals(missesAfterFirst, cache.misses(), "unchanged rows should be served from the cache");
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    void writeAllJsonWritesEveryFileAndReportsProgress() throws Exception {
+        ExcelParserV5 parser = newParser();
+        File nurse = tempDir.resolve("NurseCalls.json").toFile();
+        File clinical = tempDir.resolve("Clinicals.json").toFile();
+        File orders = tempDir.resolve("out/Orders.json").toFile();
+        List<String> progress = Collections.synchronizedList(new ArrayList<>());
+
+        parser.writeAllJson(nurse, clinical, orders, ExcelParserV5.MergeMode.NONE,
+            (flowType, file, completed, total) -> progress.add(flowType + ":" + completed + "/" + total));
+
+        assertEquals(ExcelParserV5.pretty(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE)), Files.readString(nurse.toPath()));
+        assertEquals(ExcelParserV5.pretty(parser.buildClinicalsJson(ExcelParserV5.MergeMode.NONE)), Files.readString(clinical.toPath()));
+        assertEquals(ExcelParserV5.pretty(parser.buildOrdersJson(ExcelParserV5.MergeMode.NONE)), Files.readString(orders.toPath()));
+        assertEquals(3, progress.size());
+        assertTrue(progress.stream().anyMatch(p -> p.endsWith("3/3")));
+    }
+
+    @Test
+    void writePrettyStreamsSameTextAsPretty() throws Exception {
+        ExcelParserV5 parser = newParser();
+        Map<String, Object> json = parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE);
+        StringWriter out = new StringWriter();
+        ExcelParserV5.writePretty(json, out);
+        assertEquals(ExcelParserV5.pretty(json), out.toString());
+
+        ExcelParserV5 empty = new ExcelParserV5();
+        Map<String, Object> emptyJson = empty.buildOrdersJson(ExcelParserV5.MergeMode.NONE);
+        StringWriter emptyOut = new StringWriter();
+        ExcelParserV5.writePretty(emptyJson, emptyOut);
+        assertEquals(ExcelParserV5.pretty(emptyJson), emptyOut.toString());
+    }
+}
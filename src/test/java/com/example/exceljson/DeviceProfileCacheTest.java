@@ -0,0 +1,63 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Flows with the same Device-A/Device-B pair share one classification and one immutable
+ * interface list; changing interface settings must still take effect.
+ */
+class DeviceProfileCacheTest {
+
+    private static ExcelParserV5 newParser() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU";
+        unit.nurseGroup = "Nurse Group";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+        for (String alarm : List.of("Bed Exit", "Toilet", "Code Blue")) {
+            ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+            row.configGroup = "Nurse Group";
+            row.alarmName = alarm;
+            row.priorityRaw = "High";
+            row.deviceA = "Vocera VCS";
+            row.t1 = "Immediate";
+            row.r1 = "VAssign: Nurse";
+            parser.nurseCalls.add(row);
+        }
+        return parser;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> flows(Map<String, Object> json) {
+        return (List<Map<String, Object>>) json.get("deliveryFlows");
+    }
+
+    @Test
+    void flowsWithSameDevicesShareInterfaceList() {
+        List<Map<String, Object>> flows = flows(newParser().buildNurseCallsJson());
+        assertEquals(3, flows.size());
+        Object interfaces = flows.get(0).get("interfaces");
+        assertSame(interfaces, flows.get(1).get("interfaces"));
+        assertSame(interfaces, flows.get(2).get("interfaces"));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) interfaces).clear());
+        assertEquals("high", flows.get(0).get("priority"), "VCS devices use the VMP priority mapping");
+    }
+
+    @Test
+    void changingReferenceNamesInvalidatesProfiles() {
+        ExcelParserV5 parser = newParser();
+        List<Map<String, Object>> before = flows(parser.buildNurseCallsJson());
+        assertEquals("VMP", ((List<Map<String, Object>>) before.get(0).get("interfaces")).get(0).get("referenceName"));
+
+        parser.setInterfaceReferences("OutgoingWCTP", "VMP-East");
+        List<Map<String, Object>> after = flows(parser.buildNurseCallsJson());
+        assertEquals("VMP-East", ((List<Map<String, Object>>) after.get(0).get("interfaces")).get(0).get("referenceName"));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the structured load diagnostics channel.
+ */
+class DiagnosticsTest {
+
+    @Test
+    void duplicatesAreTalliedPerCodeSheetAndColumn() {
+        Diagnostics diagnostics = new Diagnostics(2);
+        for (int row = 2; row < 12; row++) {
+            diagnostics.warn("FORMULA_EVAL_FAILED", "Nurse call", row, 4, "Could not evaluate formula");
+        }
+        diagnostics.warn("FORMULA_EVAL_FAILED", "Nurse call", 3, 5, "Could not evaluate formula");
+        diagnostics.info("EMDAN_MOVED", "Nurse call", 7, -1, "Moved 'Code Blue'");
+
+        List<Diagnostics.Tally> tallies = diagnostics.tallies();
+        assertEquals(3, tallies.size());
+        assertEquals(10, tallies.get(0).count());
+        assertEquals(2, tallies.get(0).first().row(), "First event is kept as the example");
+        assertEquals(1, tallies.get(1).count());
+        assertEquals("EMDAN_MOVED", tallies.get(2).code());
+        assertEquals(11, diagnostics.count("FORMULA_EVAL_FAILED"));
+        assertEquals(12, diagnostics.count());
+    }
+
+    @Test
+    void recordingFromManyThreadsLosesNothing() {
+        Diagnostics diagnostics = new Diagnostics();
+        IntStream.range(0, 10_000).parallel()
+            .forEach(i -> diagnostics.info("EMDAN_MOVED", "Nurse call", i + 2, -1, "Moved"));
+        diagnostics.flushAndWait(5, TimeUnit.SECONDS);
+
+        assertEquals(10_000, diagnostics.count("EMDAN_MOVED"));
+        assertEquals(1, diagnostics.tallies().size());
+    }
+
+    @Test
+    void auditCodesAreNeverSuppressed() {
+        Diagnostics diagnostics = new Diagnostics(2, Set.of("EMDAN_MOVED"));
+        for (int row = 2; row < 12; row++) {
+            diagnostics.info("EMDAN_MOVED", "Nurse call", row, -1, "Moved alarm " + row);
+            diagnostics.warn("FORMULA_TEXT", "Nurse call", row, 3, "Detected formula string");
+        }
+        diagnostics.flushAndWait(5, TimeUnit.SECONDS);
+
+        assertEquals(10, diagnostics.count("EMDAN_MOVED"));
+        assertEquals(0, diagnostics.suppressed("EMDAN_MOVED"), "Every relocated alarm is logged");
+        assertEquals(8, diagnostics.suppressed("FORMULA_TEXT"));
+    }
+
+    @Test
+    void suppressedMessagesAreNotBuilt() {
+        Diagnostics diagnostics = new Diagnostics(3);
+        AtomicInteger built = new AtomicInteger();
+        for (int row = 2; row < 102; row++) {
+            diagnostics.warn("FORMULA_EVAL_FAILED", "Nurse call", row, 4,
+                () -> "Could not evaluate formula #" + built.incrementAndGet());
+        }
+
+        assertEquals(100, diagnostics.count("FORMULA_EVAL_FAILED"));
+        assertEquals(3, built.get(), "Only logged events should build their message");
+        assertEquals("Could not evaluate formula #1", diagnostics.tallies().get(0).first().message());
+    }
+
+    @Test
+    void summaryNamesLocationAndFirstMessage() {
+        Diagnostics diagnostics = new Diagnostics();
+        assertEquals("", diagnostics.toSummaryText());
+
+        diagnostics.warn("FORMULA_TEXT", "Unit Breakdown", 12, 27, "Detected formula string");
+        String summary = diagnostics.toSummaryText();
+        assertTrue(summary.contains("FORMULA_TEXT × 1"), summary);
+        assertTrue(summary.contains("'Unit Breakdown'!AB12"), summary);
+        assertTrue(summary.contains("Detected formula string"), summary);
+
+        diagnostics.reset();
+        assertEquals(0, diagnostics.count());
+    }
+
+    @Test
+    void columnNamesFollowExcelLetters() {
+        assertEquals("A", Diagnostics.columnName(0));
+        assertEquals("Z", Diagnostics.columnName(25));
+        assertEquals("AA", Diagnostics.columnName(26));
+        assertEquals("BA", Diagnostics.columnName(52));
+    }
+}
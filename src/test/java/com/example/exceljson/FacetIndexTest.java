@@ -0,0 +1,85 @@
+package com.example.exceljson;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Faceted flow filters: distinct values with counts, multi-facet selection by bit set
+ * intersection, and incremental updates as rows are edited.
+ */
+class FacetIndexTest {
+
+    private static ExcelParserV5.FlowRow flow(String group, String priority, String r1) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.configGroup = group;
+        row.priorityRaw = priority;
+        row.deviceA = "Badge";
+        row.r1 = r1;
+        return row;
+    }
+
+    private static ObservableList<ExcelParserV5.FlowRow> rows() {
+        return FXCollections.observableArrayList(
+            flow("Group A", "High", "VAssign: Nurse"),
+            flow("Group B", "High", "VGroup: Code Team"),
+            flow("Group A ", "Low", "Custom Unit Nurse, CNA"),
+            flow("Group A", "Low", ""));
+    }
+
+    private static List<Integer> selected(BitSet mask) {
+        return mask.stream().boxed().toList();
+    }
+
+    @Test
+    void countsAndIntersectsFacets() {
+        FacetIndex index = new FacetIndex();
+        index.setRows(rows());
+        Map<FacetIndex.Facet, String> selection = new EnumMap<>(FacetIndex.Facet.class);
+
+        assertNull(index.select(selection), "no selection matches everything");
+        assertEquals(Map.of("Group A", 3, "Group B", 1), index.counts(FacetIndex.Facet.CONFIG_GROUP, selection));
+        assertEquals(List.of("functional_role", "group", "custom"),
+            List.copyOf(index.counts(FacetIndex.Facet.RECIPIENT_TYPE, selection).keySet()));
+
+        selection.put(FacetIndex.Facet.CONFIG_GROUP, "Group A");
+        selection.put(FacetIndex.Facet.PRIORITY, "Low");
+        assertEquals(List.of(2, 3), selected(index.select(selection)));
+        // Counts of one facet are taken within the other selections
+        assertEquals(Map.of("High", 1, "Low", 2), index.counts(FacetIndex.Facet.PRIORITY, selection));
+
+        selection.put(FacetIndex.Facet.DEVICE_A, "Phone");
+        assertTrue(index.select(selection).isEmpty());
+    }
+
+    @Test
+    void editsMoveRowsBetweenValues() {
+        ObservableList<ExcelParserV5.FlowRow> rows = rows();
+        FacetIndex index = new FacetIndex();
+        index.setRows(rows);
+        Map<FacetIndex.Facet, String> selection = new EnumMap<>(FacetIndex.Facet.class);
+
+        ExcelParserV5.FlowRow row = rows.get(1);
+        row.configGroup = "Group C";
+        assertTrue(index.update(row));
+        assertFalse(index.update(row), "nothing left to move");
+        assertEquals(Map.of("Group A", 3, "Group C", 1), index.counts(FacetIndex.Facet.CONFIG_GROUP, selection));
+
+        selection.put(FacetIndex.Facet.CONFIG_GROUP, "Group C");
+        BitSet mask = index.select(selection);
+        assertTrue(index.matches(mask, row));
+        assertFalse(index.matches(mask, rows.get(0)));
+        assertTrue(index.matches(mask, flow("Other", "", "")), "rows outside the index are not filtered");
+        assertFalse(index.update(flow("Other", "", "")));
+
+        rows.remove(0);
+        assertEquals(3, index.rowCount(), "replacing rows rebuilds the index");
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that memoised flow building produces the same JSON as a full rebuild and
+ * only rebuilds rows whose version changed.
+ */
+class FlowBuildCacheTest {
+
+    private static ExcelParserV5 newParser(FlowBuildCache cache) {
+        ExcelParserV5 parser = new ExcelParserV5();
+        parser.setFlowCache(cache);
+
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU, 4W";
+        unit.nurseGroup = "Nurse Group 1";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+
+        for (int i = 0; i < 6; i++) {
+            ExcelParserV5.FlowRow flow = new ExcelParserV5.FlowRow();
+            flow.type = "NurseCalls";
+            flow.configGroup = "Nurse Group 1";
+            flow.alarmName = "Alarm " + i;
+            flow.priorityRaw = i % 2 == 0 ? "High" : "Normal";
+            flow.deviceA = "Badge";
+            flow.t1 = "Immediate";
+            flow.r1 = "VAssign: Nurse";
+            parser.nurseCalls.add(flow);
+        }
+        return parser;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> flows(Map<String, Object> json) {
+        return (List<Map<String, Object>>) json.get("deliveryFlows");
+    }
+
+    @Test
+    void cachedOutputMatchesUncachedOutput() {
+        for (ExcelParserV5.MergeMode mode : ExcelParserV5.MergeMode.values()) {
+            ExcelParserV5 cached = newParser(new FlowBuildCache());
+            ExcelParserV5 plain = newParser(null);
+
+            String expected = ExcelParserV5.pretty(plain.buildNurseCallsJson(mode));
+            assertEquals(expected, ExcelParserV5.pretty(cached.buildNurseCallsJson(mode)), mode.name());
+            assertEquals(expected, ExcelParserV5.pretty(cached.buildNurseCallsJson(mode)), mode.name());
+        }
+    }
+
+    @Test
+    void onlyRowsWithNewVersionAreRebuilt() {
+        FlowBuildCache cache = new FlowBuildCache();
+        ExcelParserV5 parser = newParser(cache);
+
+        List<Map<String, Object>> first = flows(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        List<Map<String, Object>> second = flows(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        for (int i = 0; i < first.size(); i++) {
+            assertSame(first.get(i), second.get(i), "unchanged rows should reuse their built flow");
+        }
+
+        ExcelParserV5.FlowRow edited = parser.nurseCalls.get(2);
+        edited.alarmName = "Renamed";
+        edited.version++;
+
+        List<Map<String, Object>> third = flows(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        assertNotSame(second.get(2), third.get(2));
+        assertEquals(List.of("Renamed"), third.get(2).get("alarmsAlerts"));
+        assertSame(second.get(1), third.get(1));
+        assertSame(second.get(3), third.get(3));
+    }
+
+    @Test
+    void mergedGroupsAreReusedUntilAMemberChanges() {
+        FlowBuildCache cache = new FlowBuildCache();
+        ExcelParserV5 parser = newParser(cache);
+        ExcelParserV5.MergeMode mode = ExcelParserV5.MergeMode.MERGE_BY_CONFIG_GROUP;
+
+        List<Map<String, Object>> first = flows(parser.buildNurseCallsJson(mode));
+        assertEquals(2, first.size(), "rows should merge into one flow per priority");
+
+        // Edit a High priority row: its group is rebuilt, the Normal group is reused
+        ExcelParserV5.FlowRow edited = parser.nurseCalls.get(0);
+        edited.alarmName = "Code Blue";
+        edited.version++;
+
+        List<Map<String, Object>> second = flows(parser.buildNurseCallsJson(mode));
+        Map<String, Object> highFlow = second.stream()
+            .filter(f -> ((List<?>) f.get("alarmsAlerts")).contains("Code Blue"))
+            .findFirst().orElseThrow();
+        assertTrue(first.stream().noneMatch(f -> f == highFlow), "the edited group should be rebuilt");
+        long reused = second.stream().filter(f -> first.stream().anyMatch(o -> o == f)).count();
+        assertEquals(1, reused, "the untouched merge group should be served from the cache");
+    }
+
+    @Test
+    void contextChangesInvalidateCachedFlows() {
+        FlowBuildCache cache = new FlowBuildCache();
+        ExcelParserV5 parser = newParser(cache);
+        List<Map<String, Object>> first = flows(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+
+        // A fresh parser with a different interface reference must not reuse old flows
+        ExcelParserV5 renamed = newParser(cache);
+        renamed.nurseCalls.clear();
+        renamed.nurseCalls.addAll(parser.nurseCalls);
+        renamed.setInterfaceReferences("OutgoingWCTP", "VMP-2");
+        List<Map<String, Object>> second = flows(renamed.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        assertNotSame(first.get(0), second.get(0));
+
+        // Editing the unit breakdown bumps the unit map version
+        parser.units.get(0).unitNames = "ICU";
+        parser.rebuildUnitMaps();
+        List<Map<String, Object>> third = flows(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        assertNotSame(first.get(0), third.get(0));
+        assertEquals(ExcelParserV5.pretty(newUnitEditedParser().buildNurseCallsJson(ExcelParserV5.MergeMode.NONE)),
+            ExcelParserV5.pretty(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE)));
+    }
+
+    @Test
+    void viewsShareFlowsOnlyWhileTheirUnitMapsAreTheSame() {
+        FlowBuildCache cache = new FlowBuildCache();
+        ExcelParserV5 parser = newParser(cache);
+
+        List<Map<String, Object>> first = flows(parser.snapshotView(null, null, null, null)
+            .buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        List<Map<String, Object>> second = flows(parser.snapshotView(null, null, null, null)
+            .buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        assertSame(first.get(0), second.get(0), "views adopting the same maps should share cached flows");
+
+        // Another parser with different units is keyed on its own maps, whatever their hash codes
+        ExcelParserV5 other = newParser(cache);
+        other.units.get(0).unitNames = "PACU";
+        other.rebuildUnitMaps();
+        List<Map<String, Object>> third = flows(other.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE));
+        assertNotSame(first.get(0), third.get(0));
+        assertEquals(ExcelParserV5.pretty(newParser(null).buildNurseCallsJson(ExcelParserV5.MergeMode.NONE)),
+            ExcelParserV5.pretty(parser.snapshotView(null, null, null, null).buildNurseCallsJson(ExcelParserV5.MergeMode.NONE)));
+    }
+
+    private static ExcelParserV5 newUnitEditedParser() {
+        ExcelParserV5 parser = newParser(null);
+        parser.units.get(0).unitNames = "ICU";
+        parser.rebuildUnitMaps();
+        return parser;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The compact change-tracking collections on FlowRow must behave like the map and set
+ * they replaced, including for field names outside the known column list.
+ */
+class FlowRowFieldsTest {
+
+    @Test
+    void originalValuesBehaveLikeAMap() {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        Map<String, String> values = row.originalValues;
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (Map<String, String> m : List.of(values, expected)) {
+            m.put("alarmName", "Bed Exit");
+            m.put("r1", "VAssign: Nurse");
+            m.put("customColumn", "x");
+            m.put("t1", null);
+        }
+
+        assertEquals(expected, values);
+        assertEquals(expected.hashCode(), values.hashCode());
+        assertEquals(4, values.size());
+        assertTrue(values.containsKey("t1"));
+        assertNull(values.get("t1"));
+        assertEquals("", values.getOrDefault("deviceA", ""));
+        assertEquals("x", values.get("customColumn"));
+
+        assertEquals("Bed Exit", values.put("alarmName", "Toilet"));
+        assertEquals("Toilet", values.remove("alarmName"));
+        assertFalse(values.containsKey("alarmName"));
+
+        Iterator<Map.Entry<String, String>> it = values.entrySet().iterator();
+        it.next();
+        it.remove();
+        assertEquals(2, values.size());
+
+        ExcelParserV5.FlowRow copy = new ExcelParserV5.FlowRow();
+        copy.originalValues.putAll(values);
+        assertEquals(values, copy.originalValues);
+    }
+
+    @Test
+    void changedFieldsBehaveLikeASet() {
+        Set<String> changed = new ExcelParserV5.FlowRow().changedFields;
+        assertTrue(changed.add("r2"));
+        assertFalse(changed.add("r2"));
+        assertTrue(changed.add("alarmName"));
+        assertTrue(changed.add("notAColumn"));
+
+        assertEquals(List.of("alarmName", "r2", "notAColumn"), List.copyOf(changed));
+        assertEquals(Set.of("alarmName", "r2", "notAColumn"), changed);
+        assertTrue(changed.remove("r2"));
+        assertFalse(changed.contains("r2"));
+        assertTrue(changed.remove("notAColumn"));
+        changed.clear();
+        assertTrue(changed.isEmpty());
+    }
+}
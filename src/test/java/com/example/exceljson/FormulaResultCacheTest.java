@@ -0,0 +1,103 @@
+package com.example.exceljson;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the cached-result-first formula strategy and its per-load memo.
+ */
+public class FormulaResultCacheTest {
+
+  /**
+   * Writes a workbook whose unit-name formula has a saved result ("Unit Old") that no longer
+   * matches what the formula would calculate ("Unit New").
+   */
+  private static File writeStaleWorkbook(Path dir) throws Exception {
+    File file = dir.resolve("stale-formulas.xlsx").toFile();
+    try (Workbook wb = new XSSFWorkbook()) {
+      Sheet unitSheet = wb.createSheet("Unit Breakdown");
+      Row header = unitSheet.createRow(0);
+      header.createCell(0).setCellValue("Facility");
+      header.createCell(1).setCellValue("Common Unit Name");
+      header.createCell(2).setCellValue("Source");
+
+      Row data = unitSheet.createRow(1);
+      data.createCell(0).setCellValue("Test Hospital");
+      data.createCell(1).setCellFormula("\"Unit \" & C2");
+      data.createCell(2).setCellValue("Old");
+      wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+      // Change the input without recalculating, so the saved result goes stale
+      data.getCell(2).setCellValue("New");
+
+      Sheet nurseSheet = wb.createSheet("Nurse call");
+      Row nurseHeader = nurseSheet.createRow(0);
+      nurseHeader.createCell(0).setCellValue("Configuration Group");
+      nurseHeader.createCell(1).setCellValue("Common Alert or Alarm Name");
+
+      try (FileOutputStream fos = new FileOutputStream(file)) {
+        wb.write(fos);
+      }
+    }
+    return file;
+  }
+
+  private static long count(ExcelParserV5 parser, String name) {
+    return parser.getMetrics().measurements().stream()
+        .filter(m -> m.name().equals(name))
+        .mapToLong(PhaseMetrics.Measurement::count)
+        .sum();
+  }
+
+  @Test
+  public void savedResultsAreTrustedByDefault(@TempDir Path tempDir) throws Exception {
+    ExcelParserV5 parser = new ExcelParserV5();
+    parser.load(writeStaleWorkbook(tempDir));
+
+    assertEquals("Unit Old", parser.units.get(0).unitNames);
+    assertEquals(0, count(parser, "load.formulaEvaluation"), "No formula should be evaluated");
+    assertTrue(count(parser, "load.formulaCachedResults") > 0);
+  }
+
+  @Test
+  public void recalculationEvaluatesEveryFormula(@TempDir Path tempDir) throws Exception {
+    ExcelParserV5 parser = new ExcelParserV5();
+    parser.setRecalculateFormulas(true);
+    parser.load(writeStaleWorkbook(tempDir));
+
+    assertEquals("Unit New", parser.units.get(0).unitNames);
+    assertTrue(count(parser, "load.formulaEvaluation") > 0);
+    assertEquals(0, count(parser, "load.formulaCachedResults"));
+  }
+
+  @Test
+  public void formulasWithoutSavedResultAreEvaluated(@TempDir Path tempDir) throws Exception {
+    File file = tempDir.resolve("uncalculated.xlsx").toFile();
+    try (Workbook wb = new XSSFWorkbook()) {
+      Sheet unitSheet = wb.createSheet("Unit Breakdown");
+      Row header = unitSheet.createRow(0);
+      header.createCell(0).setCellValue("Facility");
+      header.createCell(1).setCellValue("Common Unit Name");
+      Row data = unitSheet.createRow(1);
+      data.createCell(0).setCellValue("Test Hospital");
+      data.createCell(1).setCellFormula("\"Unit \" & \"C\"");
+      wb.createSheet("Nurse call").createRow(0).createCell(0).setCellValue("Configuration Group");
+      try (FileOutputStream fos = new FileOutputStream(file)) {
+        wb.write(fos);
+      }
+    }
+
+    ExcelParserV5 parser = new ExcelParserV5();
+    parser.load(file);
+
+    assertEquals("Unit C", parser.units.get(0).unitNames);
+    assertEquals(1, count(parser, "load.formulaEvaluation"), "The formula should be evaluated once");
+  }
+}
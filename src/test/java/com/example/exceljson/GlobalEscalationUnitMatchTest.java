@@ -0,0 +1,103 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Global escalation rules (no alert type) attach to flow groups by exact facility/unit
+ * overlap. A unit name that is a prefix of another (3N vs 3N1) must not match.
+ */
+public class GlobalEscalationUnitMatchTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File writeXml(String escalationUnit) throws Exception {
+        String xml = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <package version-major="1" version-minor="0">
+              <meta-data><name>Unit match</name></meta-data>
+              <contents>
+                <datasets>
+                  <dataset active="true">
+                    <name>Clinicals</name>
+                    <view><name>Alarm_LHR</name><filter relation="in"><path>alert_type</path><value>LHR</value></filter></view>
+                    <view><name>Unit_3N1</name><filter relation="equal"><path>bed.room.unit.name</path><value>3N1</value></filter></view>
+                    <view><name>Unit_Escalation</name><filter relation="equal"><path>bed.room.unit.name</path><value>%s</value></filter></view>
+                    <view><name>Primary</name><filter relation="equal"><path>state</path><value>Primary</value></filter></view>
+                    <view><name>Secondary</name><filter relation="equal"><path>state</path><value>Secondary</value></filter></view>
+                    <view><name>Role_NURSE</name><filter relation="equal"><path>bed.locs.assignments.role.name</path><value>NURSE</value></filter></view>
+                    <view><name>Role_BUDDY</name><filter relation="equal"><path>bed.locs.assignments.role.name</path><value>NURSE BUDDY</value></filter></view>
+                  </dataset>
+                </datasets>
+                <interfaces>
+                  <interface component="DataUpdate">
+                    <name>Create</name>
+                    <rule active="true" dataset="Clinicals">
+                      <purpose>CREATE TRIGGER | LHR</purpose>
+                      <trigger-on create="true"/>
+                      <condition><view>Alarm_LHR</view><view>Unit_3N1</view></condition>
+                    </rule>
+                  </interface>
+                  <interface component="VMP">
+                    <name>VMP</name>
+                    <rule active="true" dataset="Clinicals">
+                      <purpose>SEND PRIMARY | LHR | 3N1</purpose>
+                      <trigger-on create="true"/>
+                      <condition><view>Alarm_LHR</view><view>Unit_3N1</view><view>Primary</view><view>Role_NURSE</view></condition>
+                      <settings>{"destination":"#{bed.locs.assignments.usr.devices.lines.number}","priority":"2"}</settings>
+                    </rule>
+                    <rule active="true" dataset="Clinicals">
+                      <purpose>SEND SECONDARY | LHR | 3N1</purpose>
+                      <trigger-on update="true"/>
+                      <condition><view>Alarm_LHR</view><view>Unit_3N1</view><view>Secondary</view><view>Role_BUDDY</view></condition>
+                      <settings>{"destination":"#{bed.locs.assignments.usr.devices.lines.number}","priority":"2"}</settings>
+                    </rule>
+                  </interface>
+                  <interface component="DataUpdate">
+                    <name>Escalation</name>
+                    <rule active="true" dataset="Clinicals">
+                      <purpose>ESCALATE TO SECONDARY | 90 SEC</purpose>
+                      <trigger-on update="true"/>
+                      <defer-delivery-by>90</defer-delivery-by>
+                      <condition><view>Unit_Escalation</view><view>Primary</view></condition>
+                      <settings>{"parameters":[{"path":"state","value":"Secondary"}]}</settings>
+                    </rule>
+                  </interface>
+                </interfaces>
+              </contents>
+            </package>
+            """.formatted(escalationUnit);
+        File file = tempDir.resolve("unit-match-" + escalationUnit + ".xml").toFile();
+        Files.writeString(file.toPath(), xml);
+        return file;
+    }
+
+    private static ExcelParserV5.FlowRow lhrFlow(File xml) throws Exception {
+        XmlParser parser = new XmlParser();
+        parser.load(xml);
+        List<ExcelParserV5.FlowRow> clinicals = parser.getClinicals();
+        return clinicals.stream()
+            .filter(f -> "LHR".equals(f.alarmName))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("LHR flow missing"));
+    }
+
+    @Test
+    public void escalationForSameUnitAttaches() throws Exception {
+        assertEquals("90", lhrFlow(writeXml("3N1")).t2);
+    }
+
+    @Test
+    public void escalationForPrefixUnitDoesNotAttach() throws Exception {
+        assertNotEquals("90", lhrFlow(writeXml("3N")).t2,
+            "escalation for unit 3N must not apply to a flow for unit 3N1");
+    }
+}
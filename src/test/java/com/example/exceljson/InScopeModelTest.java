@@ -0,0 +1,79 @@
+package com.example.exceljson;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * In Scope bit sets: counters follow single changes, filters and list replacement, and bulk
+ * operations only touch the visible rows that change.
+ */
+class InScopeModelTest {
+
+    private static ObservableList<ExcelParserV5.FlowRow> rows(String... alarms) {
+        ObservableList<ExcelParserV5.FlowRow> rows = FXCollections.observableArrayList();
+        for (String alarm : alarms) {
+            ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+            row.alarmName = alarm;
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Test
+    void countersFollowEditsAndFilters() {
+        ObservableList<ExcelParserV5.FlowRow> rows = rows("Bed Exit", "Toilet", "Code Blue", "Bed Alarm");
+        rows.get(1).inScope = false;
+        FilteredList<ExcelParserV5.FlowRow> filtered = new FilteredList<>(rows, r -> true);
+        int[] updates = {0};
+        InScopeModel model = new InScopeModel(rows, filtered, null, () -> updates[0]++);
+
+        assertEquals(3, model.visibleInScope());
+        assertEquals(4, model.visibleCount());
+
+        model.set(rows.get(0), false);
+        assertFalse(rows.get(0).inScope);
+        assertEquals(2, model.visibleInScope());
+
+        filtered.setPredicate(r -> r.alarmName.startsWith("Bed"));
+        assertEquals(2, model.visibleCount());
+        assertEquals(1, model.visibleInScope());
+
+        rows.setAll(rows("Bed Exit", "Fall"));
+        assertEquals(1, model.visibleCount());
+        assertEquals(1, model.visibleInScope());
+        assertEquals(2, model.inScopeCount(), "replaced rows are re-read");
+        assertTrue(updates[0] > 0);
+    }
+
+    @Test
+    void bulkOperationsOnlyTouchVisibleRowsThatChange() {
+        ObservableList<ExcelParserV5.FlowRow> rows = rows("Bed Exit", "Toilet", "Code Blue", "Bed Alarm");
+        rows.get(3).inScope = false;
+        FilteredList<ExcelParserV5.FlowRow> filtered = new FilteredList<>(rows, r -> r.alarmName.startsWith("Bed"));
+        List<String> edited = new ArrayList<>();
+        InScopeModel model = new InScopeModel(rows, filtered, r -> edited.add(r.alarmName), null);
+
+        assertEquals(1, model.setVisible(true));
+        assertEquals(List.of("Bed Alarm"), edited);
+        assertEquals(2, model.visibleInScope());
+
+        edited.clear();
+        model.invertVisible();
+        assertEquals(List.of("Bed Exit", "Bed Alarm"), edited);
+        assertFalse(rows.get(0).inScope);
+        assertTrue(rows.get(1).inScope, "hidden rows are left alone");
+        assertEquals(0, model.visibleInScope());
+        assertEquals(2, model.inScopeCount());
+
+        assertEquals(0, model.setVisible(false));
+        assertEquals(2, model.setVisible(true));
+        assertEquals(4, model.inScopeCount());
+    }
+}
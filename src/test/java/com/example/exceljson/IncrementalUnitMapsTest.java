@@ -0,0 +1,135 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Patching the group maps after unit edits must produce the same JSON as rebuilding
+ * them from scratch.
+ */
+class IncrementalUnitMapsTest {
+
+    private static final String[] FACILITIES = {"General", "North", ""};
+    private static final String[] GROUPS = {"Group A", "Group B", "Group C", ""};
+    private static final String[] NAMES = {"ICU", "PACU, 4W", "3N\n3N1", "ED", ""};
+    private static final String[] NO_CARE = {"", "Charge A", "Charge B"};
+
+    private static ExcelParserV5 newParser(Random random) {
+        ExcelParserV5 parser = new ExcelParserV5();
+        for (int i = 0; i < 8; i++) {
+            ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+            randomize(unit, random);
+            parser.units.add(unit);
+        }
+        parser.rebuildUnitMaps();
+        for (String group : List.of("Group A", "Group B", "Group C")) {
+            for (String alarm : List.of("Bed Exit", "Toilet")) {
+                parser.nurseCalls.add(flow(group, alarm));
+                parser.clinicals.add(flow(group, alarm + " Lead"));
+                ExcelParserV5.FlowRow custom = flow(group, alarm + " Custom");
+                custom.customTabSource = "Custom";
+                parser.orders.add(custom);
+            }
+        }
+        return parser;
+    }
+
+    private static void randomize(ExcelParserV5.UnitRow unit, Random random) {
+        unit.facility = pick(FACILITIES, random);
+        unit.unitNames = pick(NAMES, random);
+        unit.podRoomFilter = random.nextInt(4) == 0 ? "101-110" : "";
+        unit.nurseGroup = pick(GROUPS, random);
+        unit.clinGroup = pick(GROUPS, random);
+        unit.ordersGroup = pick(GROUPS, random);
+        unit.noCareGroup = pick(NO_CARE, random);
+        unit.customGroups.put("Custom", pick(GROUPS, random));
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static ExcelParserV5.FlowRow flow(String group, String alarm) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.configGroup = group;
+        row.alarmName = alarm;
+        row.priorityRaw = "High";
+        row.deviceA = "Badge";
+        row.t1 = "Immediate";
+        row.r1 = "VAssign: Nurse";
+        return row;
+    }
+
+    private static String allJson(ExcelParserV5 parser) {
+        StringBuilder sb = new StringBuilder();
+        for (ExcelParserV5.MergeMode mode : ExcelParserV5.MergeMode.values()) {
+            parser.buildAllJson(mode).values().forEach(json -> sb.append(ExcelParserV5.pretty(json)));
+        }
+        return sb.append(parser.getTotalConfigGroupCount()).toString();
+    }
+
+    private static String rebuiltJson(ExcelParserV5 parser) {
+        ExcelParserV5 fresh = parser.snapshot();
+        fresh.rebuildUnitMaps();
+        return allJson(fresh);
+    }
+
+    @Test
+    void singleEditsMatchFullRebuild() {
+        Random random = new Random(42);
+        ExcelParserV5 parser = newParser(random);
+        allJson(parser);
+        for (int i = 0; i < 40; i++) {
+            ExcelParserV5.UnitRow unit = parser.units.get(random.nextInt(parser.units.size()));
+            randomize(unit, random);
+            long before = parser.getUnitMapVersion();
+            parser.unitChanged(unit);
+            assertTrue(parser.getUnitMapVersion() >= before);
+            assertEquals(rebuiltJson(parser), allJson(parser), "after edit " + i);
+        }
+    }
+
+    @Test
+    void syncPatchesEditedRowsAndRebuildsOnMembershipChange() {
+        Random random = new Random(7);
+        ExcelParserV5 parser = newParser(random);
+        assertFalse(parser.syncUnitMaps(), "nothing changed since the rebuild");
+
+        randomize(parser.units.get(1), random);
+        randomize(parser.units.get(5), random);
+        parser.syncUnitMaps();
+        assertEquals(rebuiltJson(parser), allJson(parser));
+
+        parser.units.remove(2);
+        ExcelParserV5.UnitRow added = new ExcelParserV5.UnitRow();
+        randomize(added, random);
+        parser.units.add(0, added);
+        assertTrue(parser.syncUnitMaps());
+        assertEquals(rebuiltJson(parser), allJson(parser));
+    }
+
+    @Test
+    void syncFromSourceSharesMapsForSameRows() {
+        ExcelParserV5 source = newParser(new Random(3));
+        ExcelParserV5 copy = new ExcelParserV5();
+        copy.units.addAll(source.units);
+        copy.nurseCalls.addAll(source.nurseCalls);
+        copy.clinicals.addAll(source.clinicals);
+        copy.orders.addAll(source.orders);
+        copy.syncUnitMapsFrom(source);
+        assertEquals(allJson(source), allJson(copy));
+
+        // Editing the source afterwards must not leak into the copy's maps
+        String copyJson = allJson(copy);
+        ExcelParserV5.UnitRow shared = source.units.get(0);
+        String originalNames = shared.unitNames;
+        shared.unitNames = "Renamed";
+        source.unitChanged(shared);
+        shared.unitNames = originalNames;
+        assertEquals(copyJson, allJson(copy));
+    }
+}
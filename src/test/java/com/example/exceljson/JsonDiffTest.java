@@ -0,0 +1,104 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Structural JSON diff: key order is ignored, flows are matched by name and content hash,
+ * and changed flows carry field-level deltas.
+ */
+class JsonDiffTest {
+
+    private static ExcelParserV5 newParser() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU";
+        unit.nurseGroup = "Group A";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+        for (String alarm : List.of("Bed Exit", "Toilet", "Code Blue")) {
+            ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+            row.configGroup = "Group A";
+            row.alarmName = alarm;
+            row.priorityRaw = "High";
+            row.deviceA = "Badge";
+            row.t1 = "Immediate";
+            row.r1 = "VAssign: Nurse";
+            parser.nurseCalls.add(row);
+        }
+        return parser;
+    }
+
+    private static File write(Path dir, String name, ExcelParserV5 parser) throws Exception {
+        File file = dir.resolve(name).toFile();
+        parser.writeNurseCallsJson(file);
+        return file;
+    }
+
+    @Test
+    void identicalExportsIgnoringKeyOrder(@TempDir Path dir) throws Exception {
+        File a = dir.resolve("a.json").toFile();
+        File b = dir.resolve("b.json").toFile();
+        Files.writeString(a.toPath(), "{\"deliveryFlows\":[{\"name\":\"F\",\"priority\":\"1\",\"units\":[{\"name\":\"ICU\",\"facilityName\":\"G\"}]}]}");
+        Files.writeString(b.toPath(), "{\"version\":\"1.1.0\",\"deliveryFlows\":[{\"units\":[{\"facilityName\":\"G\",\"name\":\"ICU\"}],\"priority\":\"1\",\"name\":\"F\"}]}");
+
+        JsonDiff.Result result = JsonDiff.compare(a, b);
+
+        assertTrue(result.identical(), result::toText);
+        assertEquals(1, result.unchanged());
+    }
+
+    @Test
+    void reportsAddedRemovedChangedAndRenamedFlows(@TempDir Path dir) throws Exception {
+        ExcelParserV5 parser = newParser();
+        File before = write(dir, "before.json", parser);
+
+        parser.nurseCalls.get(0).r1 = "VAssign: Charge Nurse"; // changed
+        parser.nurseCalls.remove(1);                           // removed
+        ExcelParserV5.FlowRow added = new ExcelParserV5.FlowRow();
+        added.configGroup = "Group A";
+        added.alarmName = "Fall";
+        added.priorityRaw = "Low";
+        added.deviceA = "Badge";
+        added.r1 = "VAssign: Charge";
+        parser.nurseCalls.add(added);                          // added
+        File after = write(dir, "after.json", parser);
+
+        JsonDiff.Result result = JsonDiff.compare(before, after);
+
+        assertFalse(result.identical());
+        assertTrue(result.removed().stream().anyMatch(e -> e.name().contains("Toilet")), result::toText);
+        assertTrue(result.added().stream().anyMatch(e -> e.name().contains("Fall")), result::toText);
+        JsonDiff.Change bedExit = result.changed().stream()
+            .filter(c -> c.before().kind().equals("deliveryFlows") && c.before().name().contains("Bed Exit"))
+            .findFirst().orElseThrow(() -> new AssertionError(result.toText()));
+        assertFalse(bedExit.renamed());
+        assertFalse(bedExit.fields().isEmpty(), result::toText);
+        assertTrue(bedExit.fields().stream().allMatch(f -> f.path().startsWith("destinations")), result::toText);
+        assertTrue(result.unchanged() > 0, "Code Blue and its definition are untouched");
+    }
+
+    @Test
+    void sameContentUnderNewNameIsARename(@TempDir Path dir) throws Exception {
+        File a = dir.resolve("a.json").toFile();
+        File b = dir.resolve("b.json").toFile();
+        Files.writeString(a.toPath(), "{\"nurseCalls\":{\"deliveryFlows\":[{\"name\":\"Old\",\"priority\":\"1\"}]}}");
+        Files.writeString(b.toPath(), "{\"nurseCalls\":{\"deliveryFlows\":[{\"name\":\"New\",\"priority\":\"1\"}]}}");
+
+        JsonDiff.Result result = JsonDiff.compare(a, b);
+
+        assertEquals(1, result.changed().size());
+        JsonDiff.Change change = result.changed().get(0);
+        assertTrue(change.renamed());
+        assertEquals("nurseCalls", change.before().section());
+        assertEquals(List.of(new JsonDiff.FieldChange("name", "\"Old\"", "\"New\"")), change.fields());
+    }
+}
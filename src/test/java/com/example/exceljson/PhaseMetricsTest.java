@@ -0,0 +1,83 @@
+package com.example.exceljson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.exceljson.jobs.SyntheticDataGenerator;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for per-phase load/export metrics.
+ */
+class PhaseMetricsTest {
+
+    @Test
+    void phaseRecordsCountAndReplacesEarlierRun() {
+        PhaseMetrics metrics = new PhaseMetrics();
+        try (PhaseMetrics.Phase p = metrics.start("build")) {
+            p.count(3);
+        }
+        try (PhaseMetrics.Phase p = metrics.start("build")) {
+            p.count(5);
+        }
+
+        List<PhaseMetrics.Measurement> measurements = metrics.measurements();
+        assertEquals(1, measurements.size());
+        assertEquals(5, measurements.get(0).count());
+        assertTrue(measurements.get(0).wallNanos() >= 0);
+    }
+
+    @Test
+    void accumulateSumsSlices() {
+        PhaseMetrics metrics = new PhaseMetrics();
+        metrics.accumulate("formula", 1_000, 1);
+        metrics.accumulate("formula", 2_000, 1);
+
+        PhaseMetrics.Measurement m = metrics.measurements().get(0);
+        assertEquals(3_000, m.wallNanos());
+        assertEquals(2, m.count());
+    }
+
+    @Test
+    void jsonBlockListsEveryPhase() {
+        PhaseMetrics metrics = new PhaseMetrics();
+        assertEquals("{\n  \"phases\": []\n}", metrics.toJson());
+
+        try (PhaseMetrics.Phase p = metrics.start("load.total")) {
+            p.count(1);
+        }
+        metrics.accumulate("load.formulaEvaluation", 500, 4);
+
+        String json = metrics.toJson();
+        assertTrue(json.contains("\"name\": \"load.total\""));
+        assertTrue(json.contains("\"name\": \"load.formulaEvaluation\""));
+        assertTrue(json.contains("\"count\": 4"));
+        assertTrue(metrics.toStatusText().contains("total"));
+    }
+
+    @Test
+    void excelLoadAndBuildRecordPhases() throws Exception {
+        Path dir = Files.createTempDirectory("phase-metrics");
+        File workbook = dir.resolve("ndw.xlsx").toFile();
+        new SyntheticDataGenerator(3L, 1, 3, 2).writeWorkbook(workbook);
+
+        ExcelParserV5 parser = new ExcelParserV5();
+        parser.load(workbook);
+        parser.buildNurseCallsJson();
+
+        List<String> names = parser.getMetrics().measurements().stream()
+            .map(PhaseMetrics.Measurement::name)
+            .collect(Collectors.toList());
+        assertTrue(names.contains("load.total"));
+        assertTrue(names.contains("load.unitBreakdown"));
+        assertTrue(names.contains("load.nurseCall"));
+        assertTrue(names.contains("load.headerDetection"));
+        assertTrue(names.contains("buildJson.NurseCalls.flows"));
+    }
+}
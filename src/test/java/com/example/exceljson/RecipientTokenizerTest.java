@@ -0,0 +1,112 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The hand-written recipient scanners must accept exactly what the regular expressions
+ * they replaced accepted.
+ */
+class RecipientTokenizerTest {
+
+    @Test
+    void customUnitKeywordIgnoresCaseSpacesDashesAndUnderscores() {
+        for (String text : List.of("Custom Unit Nurse", "custom-unit", "CUSTOM_UNIT CNA", "Cus tom\tUnit",
+                                   "ccustomunit", "[Custom - Unit] Charge Nurse")) {
+            assertTrue(ExcelParserV5.containsCustomUnit(text), text);
+            assertEquals(text.toLowerCase().replaceAll("[\\s\\-_]+", "").contains("customunit"),
+                ExcelParserV5.containsCustomUnit(text), text);
+        }
+        for (String text : List.of("Custom Nurse Unit", "customunt", "VAssign: Room Nurse", "", "Custom.Unit")) {
+            assertFalse(ExcelParserV5.containsCustomUnit(text), text);
+        }
+    }
+
+    @Test
+    void splitRecipientsMatchesRegexSplit() {
+        String text = "VAssign: Nurse, VGroup: Code Team;N/A\n  ;Charge Nurse,,n/a";
+        assertEquals(List.of("VAssign: Nurse", "VGroup: Code Team", "Charge Nurse"),
+            ExcelParserV5.splitRecipients(text));
+        assertEquals(List.of(), ExcelParserV5.splitRecipients(" , ;\n"));
+    }
+
+    @Test
+    void specialCharacterStrippingMatchesRegexReplacement() {
+        for (String text : List.of("Nurse]", "CNA#", "Charge Nurse@", "Plain", "] - (Nurse)", "Ünit 5")) {
+            assertEquals(text.replaceAll("[^a-zA-Z0-9\\s]", ""), ExcelParserV5.stripSpecialChars(text), text);
+            assertEquals(text.trim().replaceAll("^[^a-zA-Z0-9]+", "").trim(),
+                ExcelParserV5.stripLeadingSpecialChars(text), text);
+        }
+    }
+
+    private static ExcelParserV5 parserWithRecipients(int rows, int recipientsPerRow) {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU";
+        unit.nurseGroup = "Nurse Group";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+        for (int r = 0; r < rows; r++) {
+            List<String> recipients = new ArrayList<>();
+            for (int i = 0; i < recipientsPerRow; i++) {
+                recipients.add("VAssign: Role " + (r * recipientsPerRow + i));
+            }
+            ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+            row.configGroup = "Nurse Group";
+            row.alarmName = "Alarm " + r;
+            row.priorityRaw = "High";
+            row.deviceA = "Badge";
+            row.t1 = "Immediate";
+            row.r1 = String.join(", ", recipients);
+            parser.nurseCalls.add(row);
+        }
+        return parser;
+    }
+
+    @Test
+    void recipientCacheIsBoundedAndPerParser() {
+        int distinct = ExcelParserV5.RECIPIENT_CACHE_LIMIT + 500;
+        ExcelParserV5 parser = parserWithRecipients(distinct / 100, 100);
+        String first = ExcelParserV5.pretty(parser.buildNurseCallsJson());
+
+        assertEquals(ExcelParserV5.RECIPIENT_CACHE_LIMIT, parser.recipientCacheSize(),
+            "The cache should stop growing at its limit");
+        assertEquals(first, ExcelParserV5.pretty(parser.buildNurseCallsJson()), "Evictions must not change output");
+
+        ExcelParserV5 other = parserWithRecipients(1, 3);
+        other.buildNurseCallsJson();
+        assertEquals(3, other.recipientCacheSize(), "Parsers do not share recipient caches");
+        assertEquals(ExcelParserV5.RECIPIENT_CACHE_LIMIT, parser.recipientCacheSize());
+    }
+
+    @Test
+    void roomRecipientsBuildSameDestinationsAsBefore() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU";
+        unit.nurseGroup = "Nurse Group";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.configGroup = "Nurse Group";
+        row.alarmName = "Bed Exit";
+        row.priorityRaw = "High";
+        row.deviceA = "Badge";
+        row.t1 = "Immediate";
+        row.r1 = "VAssign: [Room] Charge Nurse";
+        parser.nurseCalls.add(row);
+
+        String json = ExcelParserV5.pretty(parser.buildNurseCallsJson());
+        assertTrue(json.contains("Charge Nurse"), json);
+        assertFalse(json.contains("[Room]"), json);
+        // Second pass is served from the recipient cache and must not change anything
+        assertEquals(json, ExcelParserV5.pretty(parser.buildNurseCallsJson()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Resolved units are cached per configuration group; edits to the Unit Breakdown must
+ * still reach the next build, and merge keys must keep separating No Caregiver Groups.
+ */
+class ResolvedUnitsCacheTest {
+
+    private static ExcelParserV5.UnitRow unit(String facility, String names, String nurseGroup, String noCare) {
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = facility;
+        unit.unitNames = names;
+        unit.nurseGroup = nurseGroup;
+        unit.noCareGroup = noCare;
+        return unit;
+    }
+
+    private static ExcelParserV5.FlowRow flow(String group, String alarm) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.configGroup = group;
+        row.alarmName = alarm;
+        row.priorityRaw = "High";
+        row.deviceA = "Badge";
+        row.t1 = "Immediate";
+        row.r1 = "VAssign: Nurse";
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> flows(Map<String, Object> json) {
+        return (List<Map<String, Object>>) json.get("deliveryFlows");
+    }
+
+    @Test
+    void unitEditsReachTheNextBuild() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        parser.units.add(unit("General", "ICU", "Group A", ""));
+        parser.rebuildUnitMaps();
+        parser.nurseCalls.add(flow("Group A", "Bed Exit"));
+
+        List<Map<String, Object>> before = flows(parser.buildNurseCallsJson());
+        assertEquals(List.of(Map.of("facilityName", "General", "name", "ICU")), before.get(0).get("units"));
+
+        parser.units.get(0).unitNames = "ICU, PACU";
+        parser.rebuildUnitMaps();
+        List<Map<String, Object>> after = flows(parser.buildNurseCallsJson());
+        assertEquals(List.of(Map.of("facilityName", "General", "name", "ICU"),
+                             Map.of("facilityName", "General", "name", "PACU")), after.get(0).get("units"));
+    }
+
+    @Test
+    void mergeKeepsNoCaregiverGroupsApart() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        parser.units.add(unit("General", "ICU", "Group A", "Charge A"));
+        parser.units.add(unit("General", "PACU", "Group B", "Charge B"));
+        parser.units.add(unit("General", "4W", "Group C", "Charge A"));
+        parser.rebuildUnitMaps();
+        parser.nurseCalls.add(flow("Group A", "Bed Exit"));
+        parser.nurseCalls.add(flow("Group B", "Bed Exit"));
+        parser.nurseCalls.add(flow("Group C", "Bed Exit"));
+
+        List<Map<String, Object>> merged = flows(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.MERGE_BY_CONFIG_GROUP));
+        assertEquals(2, merged.size(), "Charge A groups merge, Charge B stays separate");
+        assertEquals(3, flows(parser.buildNurseCallsJson(ExcelParserV5.MergeMode.NONE)).size());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.exceljson;
+
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.StringProperty;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cached cell properties: one instance per (row, column), refreshed from the row on demand,
+ * and only the edited row is re-read on invalidate.
+ */
+class RowPropertiesTest {
+
+    private static ExcelParserV5.FlowRow flow(String alarm) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.alarmName = alarm;
+        return row;
+    }
+
+    @Test
+    void propertiesAreCachedPerRowAndColumn() {
+        RowProperties cache = new RowProperties();
+        ExcelParserV5.FlowRow a = flow("Bed Exit");
+        ExcelParserV5.FlowRow b = flow("Toilet");
+        Object alarmCol = new Object();
+        Object priorityCol = new Object();
+
+        StringProperty first = cache.string(a, alarmCol, f -> f.alarmName);
+        assertSame(first, cache.string(a, alarmCol, f -> f.alarmName));
+        assertNotSame(first, cache.string(b, alarmCol, f -> f.alarmName));
+        assertEquals("", cache.string(a, priorityCol, f -> f.priorityRaw).get(), "null reads as empty");
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void invalidateRereadsOnlyTheEditedRow() {
+        RowProperties cache = new RowProperties();
+        ExcelParserV5.FlowRow a = flow("Bed Exit");
+        ExcelParserV5.FlowRow b = flow("Toilet");
+        Object col = new Object();
+        StringProperty pa = cache.string(a, col, f -> f.alarmName);
+        StringProperty pb = cache.string(b, col, f -> f.alarmName);
+        List<String> seen = new ArrayList<>();
+        pa.addListener((obs, o, v) -> seen.add("a:" + v));
+        pb.addListener((obs, o, v) -> seen.add("b:" + v));
+
+        a.alarmName = "Edited";
+        b.alarmName = "Also edited";
+        cache.invalidate(a);
+
+        assertEquals(List.of("a:Edited"), seen);
+        assertEquals("Toilet", pb.get(), "other rows keep their value until asked again");
+        assertEquals("Also edited", cache.string(b, col, f -> f.alarmName).get());
+    }
+
+    @Test
+    void checkBoxWritesBackOnlyUserChanges() {
+        RowProperties cache = new RowProperties();
+        ExcelParserV5.FlowRow row = flow("Bed Exit");
+        row.inScope = true;
+        Object col = new Object();
+        List<Boolean> written = new ArrayList<>();
+        BooleanProperty prop = cache.bool(row, col, f -> f.inScope, (f, v) -> {
+            f.inScope = v;
+            written.add(v);
+        });
+
+        prop.set(false);
+        assertFalse(row.inScope);
+        row.inScope = true;
+        cache.invalidate(row);
+
+        assertTrue(prop.get());
+        assertEquals(List.of(false), written, "re-reading from the row is not an edit");
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+}
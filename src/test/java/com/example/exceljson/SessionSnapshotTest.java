@@ -0,0 +1,108 @@
+package com.example.exceljson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.exceljson.jobs.SyntheticDataGenerator;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the binary session snapshot used to re-open unchanged workbooks.
+ */
+class SessionSnapshotTest {
+
+    @Test
+    void restoredSessionProducesIdenticalJson() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot-roundtrip");
+        File workbook = dir.resolve("ndw.xlsx").toFile();
+        File snapshots = dir.resolve("snapshots").toFile();
+        new SyntheticDataGenerator(21L, 2, 4, 3).writeWorkbook(workbook);
+
+        ExcelParserV5 parsed = new ExcelParserV5();
+        parsed.setCustomTabMappings(SyntheticDataGenerator.customTabMappings());
+        parsed.load(workbook);
+        parsed.nurseCalls.get(0).changedFields.add("alarmName");
+        parsed.getDiagnostics().warn("FORMULA_EVAL_FAILED", "Nurse Call", 4, 2, "Could not evaluate formula");
+        parsed.getDiagnostics().warn("FORMULA_EVAL_FAILED", "Nurse Call", 9, 2, "Could not evaluate formula");
+        SessionSnapshot.store(parsed, workbook, snapshots);
+
+        ExcelParserV5 restored = new ExcelParserV5();
+        restored.setCustomTabMappings(SyntheticDataGenerator.customTabMappings());
+        assertTrue(SessionSnapshot.tryRestore(restored, workbook, snapshots), "Fresh snapshot should be restored");
+        assertEquals(parsed.units.size(), restored.units.size());
+        assertEquals(parsed.getEmdanMovedCount(), restored.getEmdanMovedCount());
+        assertEquals(parsed.getCustomTabRowCounts(), restored.getCustomTabRowCounts());
+        assertTrue(restored.nurseCalls.get(0).changedFields.contains("alarmName"));
+        assertEquals(parsed.getDiagnostics().tallies(), restored.getDiagnostics().tallies());
+        assertTrue(restored.getLoadSummary().contains("FORMULA_EVAL_FAILED × 2"), "Restored summary keeps diagnostics");
+        assertEquals(parsed.nurseCalls.get(0).originalValues, restored.nurseCalls.get(0).originalValues);
+        assertEquals(ExcelParserV5.pretty(parsed.buildNurseCallsJson()), ExcelParserV5.pretty(restored.buildNurseCallsJson()));
+        assertEquals(ExcelParserV5.pretty(parsed.buildClinicalsJson()), ExcelParserV5.pretty(restored.buildClinicalsJson()));
+        assertEquals(ExcelParserV5.pretty(parsed.buildOrdersJson()), ExcelParserV5.pretty(restored.buildOrdersJson()));
+    }
+
+    @Test
+    void snapshotIsStaleWhenSourceOrMappingsChange() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot-stale");
+        File workbook = dir.resolve("ndw.xlsx").toFile();
+        File snapshots = dir.resolve("snapshots").toFile();
+        new SyntheticDataGenerator(4L, 1, 3, 2).writeWorkbook(workbook);
+
+        ExcelParserV5 parsed = new ExcelParserV5();
+        parsed.load(workbook);
+        SessionSnapshot.store(parsed, workbook, snapshots);
+
+        ExcelParserV5 withMappings = new ExcelParserV5();
+        withMappings.setCustomTabMappings(SyntheticDataGenerator.customTabMappings());
+        assertFalse(SessionSnapshot.tryRestore(withMappings, workbook, snapshots),
+            "Different custom tab mappings must force a real parse");
+
+        new SyntheticDataGenerator(5L, 1, 3, 2).writeWorkbook(workbook);
+        assertFalse(SessionSnapshot.tryRestore(new ExcelParserV5(), workbook, snapshots),
+            "A modified workbook must not match the old snapshot");
+    }
+
+    @Test
+    void snapshotFromAnotherParserVersionIsStale() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot-version");
+        File workbook = dir.resolve("ndw.xlsx").toFile();
+        File snapshots = dir.resolve("snapshots").toFile();
+        new SyntheticDataGenerator(6L, 1, 3, 2).writeWorkbook(workbook);
+
+        ExcelParserV5 parsed = new ExcelParserV5();
+        parsed.load(workbook);
+        SessionSnapshot.store(parsed, workbook, snapshots);
+
+        // Rewrite the parser version string that follows magic and format version
+        File snapshot = SessionSnapshot.snapshotFile(snapshots, SessionSnapshot.hash(workbook));
+        byte[] bytes = Files.readAllBytes(snapshot.toPath());
+        byte[] version = SessionSnapshot.parserVersion().getBytes(StandardCharsets.UTF_8);
+        bytes[16 + version.length - 1] ^= 1;
+        Files.write(snapshot.toPath(), bytes);
+
+        assertFalse(SessionSnapshot.tryRestore(new ExcelParserV5(), workbook, snapshots),
+            "A snapshot written by another parser version must force a real parse");
+    }
+
+    @Test
+    void corruptSnapshotIsDiscarded() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot-corrupt");
+        File workbook = dir.resolve("ndw.xlsx").toFile();
+        File snapshots = dir.resolve("snapshots").toFile();
+        new SyntheticDataGenerator(8L, 1, 3, 2).writeWorkbook(workbook);
+
+        File snapshot = SessionSnapshot.snapshotFile(snapshots, SessionSnapshot.hash(workbook));
+        Files.createDirectories(snapshots.toPath());
+        Files.write(snapshot.toPath(), new byte[] {1, 2, 3});
+
+        ExcelParserV5 parser = new ExcelParserV5();
+        assertFalse(SessionSnapshot.tryRestore(parser, workbook, snapshots));
+        assertFalse(snapshot.exists(), "Unreadable snapshot should be deleted");
+        assertEquals(1, parser.getDiagnostics().count("SNAPSHOT_UNREADABLE"), "Failure goes to the diagnostics channel");
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Copy-on-write parser views: they reference live rows, honour row masks, and keep the
+ * unedited row once an edit is announced through beforeRowEdit.
+ */
+class SnapshotViewTest {
+
+    private static ExcelParserV5 newParser() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU";
+        unit.nurseGroup = "Nurse Group";
+        unit.clinGroup = "Clinical Group";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+        for (String alarm : List.of("Bed Exit", "Toilet", "Code Blue")) {
+            parser.nurseCalls.add(flow("Nurse Group", alarm));
+        }
+        parser.clinicals.add(flow("Clinical Group", "SpO2 Low"));
+        return parser;
+    }
+
+    private static ExcelParserV5.FlowRow flow(String group, String alarm) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.configGroup = group;
+        row.alarmName = alarm;
+        row.priorityRaw = "High";
+        row.deviceA = "Badge";
+        row.t1 = "Immediate";
+        row.r1 = "VAssign: Nurse";
+        return row;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> alarms(Map<String, Object> json) {
+        return ((List<Map<String, Object>>) json.get("deliveryFlows")).stream()
+            .flatMap(f -> ((List<Object>) f.get("alarmsAlerts")).stream())
+            .toList();
+    }
+
+    @Test
+    void viewSharesRowsAndMatchesLiveOutput() {
+        ExcelParserV5 parser = newParser();
+        ExcelParserV5 view = parser.snapshotView(null, null, null, null);
+
+        assertSame(parser.nurseCalls.get(1), view.nurseCalls.get(1), "rows are not copied");
+        assertThrows(UnsupportedOperationException.class, () -> view.nurseCalls.add(new ExcelParserV5.FlowRow()));
+        for (ExcelParserV5.MergeMode mode : ExcelParserV5.MergeMode.values()) {
+            assertEquals(ExcelParserV5.pretty(parser.buildNurseCallsJson(mode)), ExcelParserV5.pretty(view.buildNurseCallsJson(mode)));
+            assertEquals(ExcelParserV5.pretty(parser.buildClinicalsJson(mode)), ExcelParserV5.pretty(view.buildClinicalsJson(mode)));
+        }
+        assertSame(view, view.snapshot(), "views are already detached");
+    }
+
+    @Test
+    void masksSelectRows() {
+        ExcelParserV5 parser = newParser();
+        BitSet nurseMask = new BitSet();
+        nurseMask.set(0);
+        nurseMask.set(2);
+        ExcelParserV5 view = parser.snapshotView(null, nurseMask, new BitSet(), null);
+
+        assertEquals(List.of("Bed Exit", "Code Blue"), alarms(view.buildNurseCallsJson()));
+        assertTrue(view.clinicals.isEmpty());
+        assertEquals(1, view.units.size());
+    }
+
+    @Test
+    void announcedEditsDoNotReachOpenViews() {
+        ExcelParserV5 parser = newParser();
+        FlowBuildCache cache = new FlowBuildCache();
+        parser.setFlowCache(cache);
+        ExcelParserV5 view = parser.snapshotView(null, null, null, null);
+        String before = ExcelParserV5.pretty(view.buildNurseCallsJson());
+
+        ExcelParserV5.FlowRow row = parser.nurseCalls.get(0);
+        parser.beforeRowEdit(row);
+        row.alarmName = "Edited";
+        row.version++;
+        ExcelParserV5.UnitRow unit = parser.units.get(0);
+        parser.beforeRowEdit(unit);
+        unit.unitNames = "PACU";
+        parser.unitChanged(unit);
+
+        assertEquals(before, ExcelParserV5.pretty(view.buildNurseCallsJson()));
+        assertEquals("ICU", view.units.get(0).unitNames);
+        assertEquals("Bed Exit", view.nurseCalls.get(0).alarmName);
+
+        ExcelParserV5 fresh = parser.snapshotView(null, null, null, null);
+        assertEquals(List.of("Edited", "Toilet", "Code Blue"), alarms(fresh.buildNurseCallsJson()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.exceljson;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Save-As streams rows past the in-memory window and sizes columns from the longest line
+ * written to each column.
+ */
+class StreamingSaveAsTest {
+
+    @Test
+    void largeSaveAsRoundTripsAndSizesColumns(@TempDir Path tempDir) throws Exception {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU\nA much longer second unit line";
+        unit.nurseGroup = "Group A";
+        parser.units.add(unit);
+        for (int i = 0; i < 2000; i++) {
+            ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+            row.configGroup = "Group A";
+            row.alarmName = "Alarm " + i;
+            row.priorityRaw = "High";
+            row.r1 = "VAssign: Nurse";
+            parser.nurseCalls.add(row);
+        }
+
+        File out = tempDir.resolve("saved.xlsx").toFile();
+        parser.writeExcel(out);
+
+        try (Workbook wb = WorkbookFactory.create(out)) {
+            Sheet nurse = wb.getSheet("Nurse Call");
+            assertEquals(2000, nurse.getLastRowNum());
+            assertEquals("Alarm 1999", nurse.getRow(2000).getCell(2).getStringCellValue());
+            // "Common Alert or Alarm Name" (26 chars) is the widest entry in column 2
+            assertEquals(28 * 256, nurse.getColumnWidth(2));
+
+            Sheet units = wb.getSheet("Unit Breakdown");
+            assertEquals(("A much longer second unit line".length() + 2) * 256, units.getColumnWidth(1));
+        }
+
+        ExcelParserV5 reloaded = new ExcelParserV5();
+        reloaded.load(out);
+        assertEquals(2000, reloaded.nurseCalls.size());
+        assertEquals("Alarm 0", reloaded.nurseCalls.get(0).alarmName);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Validation engine: full runs index every rule per (row, field), edits are re-checked
+ * incrementally, and edits made during a run survive its late result.
+ */
+class ValidationEngineTest {
+
+    private static ExcelParserV5.FlowRow flow(String alarm, String deviceA, String r1) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.configGroup = "Acute Care";
+        row.alarmName = alarm;
+        row.deviceA = deviceA;
+        row.r1 = r1;
+        return row;
+    }
+
+    @Test
+    void fullRunIndexesIssuesPerRowAndField() throws Exception {
+        ExcelParserV5.FlowRow ok = flow("Bed Exit", "Vocera", "VGroup: Nurses");
+        ExcelParserV5.FlowRow bad = flow("Toilet, Room", "Pager", "");
+        ExcelParserV5.FlowRow unknownGroup = flow("Code Blue", "Edge", "VGroup: Porters");
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.unitNames = "4 West\n5 East";
+        unit.noCareGroup = "Charge Nurse";
+
+        Map<String, List<?>> tables = new LinkedHashMap<>();
+        tables.put("Units", List.of(unit));
+        tables.put("Nurse Calls", List.of(ok, bad, unknownGroup));
+        ValidationEngine.ReferenceData reference = new ValidationEngine.ReferenceData(
+            Set.of("Nurses"), Set.of(), Set.of("4 west"));
+
+        ValidationEngine engine = new ValidationEngine();
+        engine.begin();
+        engine.apply(ValidationEngine.validate(tables, reference));
+
+        assertEquals(List.of(), engine.issues(ok));
+        assertEquals(Boolean.FALSE, engine.flagged(ok, "r1"));
+        assertEquals(Boolean.TRUE, engine.flagged(bad, "deviceA"));
+        assertEquals(ValidationEngine.Rule.RECIPIENT_MISSING, engine.issues(bad).get(1).rule());
+        assertEquals("Porters", engine.issues(unknownGroup).get(0).detail());
+        assertEquals(ValidationEngine.Rule.UNKNOWN_UNIT, engine.issues(unit).get(0).rule());
+        assertEquals("5 East", engine.issues(unit).get(0).detail());
+        assertEquals(ValidationEngine.Rule.UNKNOWN_VOICE_GROUP, engine.issues(unit).get(1).rule());
+        assertNull(engine.flagged(flow("New", "", ""), "r1"), "rows outside the run are not known");
+
+        assertEquals(5, engine.count());
+        assertEquals(3, engine.count(ValidationEngine.Severity.ERROR));
+        assertEquals(5, engine.all().size());
+
+        StringWriter report = new StringWriter();
+        engine.writeReport(report);
+        List<String> lines = report.toString().lines().toList();
+        assertTrue(lines.get(0).startsWith("Table,Row,"));
+        assertTrue(lines.get(1).startsWith("Units,1,,,\"4 West"), "multi-line values are quoted");
+        List<String> nurse = lines.stream().filter(l -> l.startsWith("Nurse Calls,")).toList();
+        assertEquals(3, nurse.size());
+        assertTrue(nurse.get(0).startsWith("Nurse Calls,2,,Acute Care,\"Toilet, Room\",deviceA,WARNING,DEVICE_KEYWORD,"), nurse.get(0));
+    }
+
+    @Test
+    void editsAreRecheckedIncrementallyAndSurviveALateRun() {
+        ExcelParserV5.FlowRow row = flow("Bed Exit", "Pager", "Group");
+        Map<String, List<?>> tables = Map.of("Orders", List.of(row));
+
+        ValidationEngine engine = new ValidationEngine();
+        engine.begin();
+        engine.apply(ValidationEngine.validate(tables, ValidationEngine.ReferenceData.NONE));
+        assertEquals(1, engine.count());
+
+        row.deviceA = "VCS";
+        engine.revalidate(row);
+        assertEquals(0, engine.count());
+        assertEquals(Boolean.FALSE, engine.flagged(row, "deviceA"));
+
+        // A run snapshots the old value, the row is edited before the result arrives
+        row.deviceA = "Pager";
+        engine.begin();
+        ValidationEngine.Result stale = ValidationEngine.validate(tables, ValidationEngine.ReferenceData.NONE);
+        row.deviceA = "Vocera";
+        engine.revalidate(row);
+        engine.apply(stale);
+        assertEquals(0, engine.count(), "the edit made during the run is re-checked");
+    }
+}
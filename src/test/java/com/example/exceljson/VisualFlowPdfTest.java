@@ -0,0 +1,73 @@
+package com.example.exceljson;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Visual Flow pages: grouping and paging of flows, and reuse of rendered pages by source hash.
+ */
+class VisualFlowPdfTest {
+
+    private static ExcelParserV5.FlowRow flow(String type, String group, String alarm) {
+        ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+        row.type = type;
+        row.configGroup = group;
+        row.alarmName = alarm;
+        row.priorityRaw = "High";
+        row.t1 = "0";
+        row.r1 = "VAssign: Nurse, Charge";
+        row.t2 = "60";
+        row.r2 = "Group [Floor]";
+        return row;
+    }
+
+    @Test
+    void pagesHoldThreeFlowsPerTabAndGroup() {
+        List<ExcelParserV5.FlowRow> rows = new ArrayList<>();
+        for (String alarm : List.of("E", "D", "C", "B", "A")) {
+            rows.add(flow("NurseCalls", "Group A", alarm));
+        }
+        rows.add(flow("Clinicals", "", "SpO2"));
+
+        List<String> diagrams = VisualFlowPdf.buildDiagrams(rows);
+
+        assertEquals(3, diagrams.size());
+        assertTrue(diagrams.get(0).contains("Clinicals — Unknown"));
+        assertTrue(diagrams.get(1).contains("NurseCalls — Group A"));
+        assertTrue(diagrams.get(1).indexOf("\"A\\nHigh\"") < diagrams.get(1).indexOf("\"C\\nHigh\""));
+        assertFalse(diagrams.get(1).contains("\"D\\n"), "D starts the second page");
+        assertTrue(diagrams.get(2).contains("\"E\\nHigh\""));
+        assertTrue(diagrams.get(1).contains("FlowHeader_1 -down-> Stop_1_1 : Immediate"));
+        assertTrue(diagrams.get(1).contains("Alarm Stop 2\\nGroup (Floor)"));
+    }
+
+    @Test
+    void identicalSourcesAreRenderedOnce() throws Exception {
+        String diagram = VisualFlowPdf.buildDiagrams(List.of(flow("NurseCalls", "Cache Test", "Bed Exit"))).get(0);
+        byte[] first = VisualFlowPdf.renderPage(diagram);
+        int hits = VisualFlowPdf.getCacheHits();
+
+        assertSame(first, VisualFlowPdf.renderPage(diagram));
+        assertEquals(hits + 1, VisualFlowPdf.getCacheHits());
+        assertEquals(VisualFlowPdf.sourceHash(diagram), VisualFlowPdf.sourceHash(new String(diagram)));
+        assertNotEquals(VisualFlowPdf.sourceHash(diagram), VisualFlowPdf.sourceHash(diagram + " "));
+    }
+
+    @Test
+    void cacheSizeIsTrackedInBytes() throws Exception {
+        VisualFlowPdf.clearCache();
+        String diagram = VisualFlowPdf.buildDiagrams(List.of(flow("NurseCalls", "Size Test", "Bed Exit"))).get(0);
+        byte[] png = VisualFlowPdf.renderPage(diagram);
+        assertEquals(png.length, VisualFlowPdf.getCachedBytes());
+
+        VisualFlowPdf.renderPage(diagram);
+        assertEquals(png.length, VisualFlowPdf.getCachedBytes(), "A cache hit adds nothing");
+
+        VisualFlowPdf.clearCache();
+        assertEquals(0, VisualFlowPdf.getCachedBytes());
+    }
+}
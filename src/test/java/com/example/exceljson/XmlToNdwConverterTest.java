@@ -0,0 +1,55 @@
+package com.example.exceljson;
+
+import com.example.exceljson.jobs.SyntheticDataGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The direct XML-to-NDW conversion produces the same rows as loading the XML and saving with
+ * {@link ExcelParserV5#writeExcel(File)}.
+ */
+class XmlToNdwConverterTest {
+
+    @Test
+    void convertedWorkbookReloadsLikeSaveAs(@TempDir Path tempDir) throws Exception {
+        File xmlFile = tempDir.resolve("engage.xml").toFile();
+        new SyntheticDataGenerator(11L, 2, 3, 3).writeEngageXml(xmlFile);
+
+        File direct = tempDir.resolve("direct.xlsx").toFile();
+        XmlToNdwConverter.Result result = XmlToNdwConverter.convert(xmlFile, direct);
+
+        // Same path the GUI takes: load into the tables, then Save As
+        XmlParser xml = new XmlParser();
+        xml.load(xmlFile);
+        ExcelParserV5 viaTables = new ExcelParserV5();
+        viaTables.units.addAll(xml.getUnits());
+        viaTables.nurseCalls.addAll(xml.getNurseCalls());
+        viaTables.clinicals.addAll(xml.getClinicals());
+        viaTables.orders.addAll(xml.getOrders());
+        File savedAs = tempDir.resolve("saved-as.xlsx").toFile();
+        viaTables.writeExcel(savedAs);
+
+        ExcelParserV5 fromDirect = new ExcelParserV5();
+        fromDirect.load(direct);
+        ExcelParserV5 fromSavedAs = new ExcelParserV5();
+        fromSavedAs.load(savedAs);
+
+        assertEquals(xml.getNurseCallsCount(), result.nurseCalls());
+        assertEquals(xml.getUnitsCount(), result.units());
+        assertEquals(fromSavedAs.units.size(), fromDirect.units.size());
+        assertEquals(fromSavedAs.nurseCalls.size(), fromDirect.nurseCalls.size());
+        assertEquals(fromSavedAs.clinicals.size(), fromDirect.clinicals.size());
+        assertEquals(fromSavedAs.orders.size(), fromDirect.orders.size());
+        for (int i = 0; i < fromSavedAs.nurseCalls.size(); i++) {
+            assertEquals(fromSavedAs.nurseCalls.get(i).alarmName, fromDirect.nurseCalls.get(i).alarmName);
+            assertEquals(fromSavedAs.nurseCalls.get(i).r1, fromDirect.nurseCalls.get(i).r1);
+        }
+        assertTrue(result.metrics().measurements().stream()
+            .anyMatch(m -> m.name().equals("xmlToNdw.nurseCall")));
+    }
+}
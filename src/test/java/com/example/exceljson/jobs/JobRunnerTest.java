@@ -9,6 +9,7 @@ import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
+import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -117,6 +118,122 @@ class JobRunnerTest {
         assertTrue(errBuffer.toString().isEmpty());
     }
 
+    @Test
+    void generateSyntheticJobWritesWorkbookAndXml() throws Exception {
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        JobRunner runner = new JobRunner(new PrintStream(outBuffer), new PrintStream(errBuffer));
+
+        Path outputDir = Files.createTempDirectory("synthetic-job");
+        int status = runner.run("generate-synthetic", outputDir.toString(),
+                "--seed", "7", "--facilities", "1", "--units", "3", "--alarms", "2");
+
+        assertEquals(0, status, () -> "Expected success but got: " + errBuffer);
+        assertTrue(Files.size(outputDir.resolve("synthetic-ndw.xlsx")) > 0);
+        assertTrue(Files.size(outputDir.resolve("synthetic-engage.xml")) > 0);
+    }
+
+    @Test
+    void xmlToNdwJobWritesWorkbookLaidOutLikeTheTemplate() throws Exception {
+        Path dir = Files.createTempDirectory("xml-to-ndw-job");
+        new SyntheticDataGenerator(9L, 1, 3, 2).writeEngageXml(dir.resolve("engage.xml").toFile());
+        Path xlsx = dir.resolve("converted.xlsx");
+
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        JobRunner runner = new JobRunner(new PrintStream(outBuffer), new PrintStream(errBuffer));
+
+        int status = runner.run("xml-to-ndw", dir.resolve("engage.xml").toString(), xlsx.toString(), "--metrics");
+
+        assertEquals(0, status, () -> "Expected success but got: " + errBuffer);
+        try (XSSFWorkbook wb = new XSSFWorkbook(xlsx.toFile())) {
+            assertEquals("Unit Breakdown", wb.getSheetName(0));
+            assertEquals("Nurse Call", wb.getSheetName(1));
+            assertEquals("Patient Monitoring", wb.getSheetName(2));
+            assertEquals("Order", wb.getSheetName(3));
+            assertTrue(wb.getSheet("Nurse Call").getLastRowNum() > 0);
+        }
+        assertTrue(outBuffer.toString().contains("xmlToNdw.total"));
+    }
+
+    @Test
+    void metricsFlagPrintsPhaseJson() throws Exception {
+        Path dir = Files.createTempDirectory("metrics-job");
+        new SyntheticDataGenerator(1L, 1, 3, 2).writeWorkbook(dir.resolve("ndw.xlsx").toFile());
+
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        JobRunner runner = new JobRunner(new PrintStream(outBuffer), new PrintStream(errBuffer));
+
+        int status = runner.run("export-json", dir.resolve("ndw.xlsx").toString(),
+                dir.resolve("out").toString(), "--metrics");
+
+        assertEquals(0, status, () -> "Expected success but got: " + errBuffer);
+        String output = outBuffer.toString();
+        assertTrue(output.contains("\"phases\""));
+        assertTrue(output.contains("load.total"));
+        assertTrue(output.contains("buildJson.NurseCalls"));
+    }
+
+    @Test
+    void visualFlowJobWritesOnePagePerThreeFlowsAndReusesCachedPages() throws Exception {
+        Path dir = Files.createTempDirectory("visual-flow-job");
+        new SyntheticDataGenerator(5L, 1, 2, 2).writeEngageXml(dir.resolve("engage.xml").toFile());
+        Path pdf = dir.resolve("flows.pdf");
+
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        JobRunner runner = new JobRunner(new PrintStream(outBuffer), new PrintStream(errBuffer));
+
+        assertEquals(0, runner.run("visual-flow", dir.resolve("engage.xml").toString(), pdf.toString()),
+                () -> "Expected success but got: " + errBuffer);
+        int pages;
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            pages = document.getNumberOfPages();
+        }
+        assertTrue(pages > 0);
+        assertTrue(outBuffer.toString().contains("Wrote " + pages + " page(s)"));
+
+        outBuffer.reset();
+        assertEquals(0, runner.run("visual-flow", dir.resolve("engage.xml").toString(), pdf.toString()));
+        assertTrue(outBuffer.toString().contains("Wrote " + pages + " page(s) (" + pages + " from cache)"),
+                outBuffer::toString);
+    }
+
+    @Test
+    void diffJsonJobReportsChangedFlows() throws Exception {
+        Path dir = Files.createTempDirectory("diff-json-job");
+        Path before = dir.resolve("before.json");
+        Path after = dir.resolve("after.json");
+        Files.writeString(before, "{\"deliveryFlows\":[{\"name\":\"A\",\"priority\":\"1\"},{\"name\":\"B\"}]}");
+        Files.writeString(after, "{\"deliveryFlows\":[{\"priority\":\"2\",\"name\":\"A\"},{\"name\":\"C\",\"x\":1}]}");
+
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        JobRunner runner = new JobRunner(new PrintStream(outBuffer), new PrintStream(errBuffer));
+
+        int status = runner.run("diff-json", before.toString(), after.toString());
+
+        assertEquals(0, status, () -> "Expected success but got: " + errBuffer);
+        String output = outBuffer.toString();
+        assertTrue(output.contains("Added: 1, Removed: 1, Changed: 1, Unchanged: 0"), output);
+        assertTrue(output.contains("priority: \"1\""), output);
+        assertTrue(output.contains("Differences found"), output);
+    }
+
+    @Test
+    void generateSyntheticJobRejectsUnknownOption() throws Exception {
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        JobRunner runner = new JobRunner(new PrintStream(outBuffer), new PrintStream(errBuffer));
+
+        Path outputDir = Files.createTempDirectory("synthetic-job");
+        int status = runner.run("generate-synthetic", outputDir.toString(), "--rows", "5");
+
+        assertEquals(1, status);
+        assertTrue(errBuffer.toString().contains("Unknown option"));
+    }
+
     private static void createSampleWorkbook(Path target) throws Exception {
         try (XSSFWorkbook workbook = new XSSFWorkbook()) {
             Sheet units = workbook.createSheet("Unit Breakdown");
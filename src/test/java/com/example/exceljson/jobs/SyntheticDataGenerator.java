@@ -0,0 +1,394 @@
+package com.example.exceljson.jobs;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Writes reproducible, structurally valid NDW workbooks and Engage XML files for scale testing.
+ * <p>
+ * The same seed and size parameters always produce the same content, so benchmark and stress
+ * runs can be repeated against datasets of arbitrary size. Generated data covers multiple
+ * facilities, units, config groups, a custom tab ({@link #CUSTOM_TAB_NAME}), EMDAN rows,
+ * VAssign/VGroup recipients, multi-state escalation and DataUpdate create/update rules.
+ * <p>
+ * Test-scope utility; the {@code generate-synthetic} JobRunner job loads it when the test
+ * classes are on the classpath.
+ */
+public final class SyntheticDataGenerator {
+
+    /** Custom tab written to the workbook; map it with {@link #customTabMappings()} before loading. */
+    public static final String CUSTOM_TAB_NAME = "IV Pump";
+
+    private static final int UNITS_PER_GROUP = 3;
+
+    private static final String[] NURSE_ALARMS = {
+        "Patient Call", "Bed Exit", "Bath Call", "Staff Assist", "Code Blue",
+        "Toilet Assist", "Pain Request", "Water Request", "Nurse Emergency", "Cord Out"
+    };
+    private static final String[] CLINICAL_ALARMS = {
+        "APNEA", "Asystole", "V Fib", "V Tach", "Low HR", "High HR",
+        "SpO2 Low", "Lead Fail", "NIBP High", "Resp Rate Low"
+    };
+    private static final String[] ORDER_ALARMS = {
+        "STAT Med", "Lab Result", "Imaging Ready", "Pharmacy Verify", "Diet Order"
+    };
+    private static final String[] CUSTOM_ALARMS = {
+        "Infusion Complete", "Occlusion", "Air In Line", "Low Battery", "Door Open"
+    };
+    private static final String[] PRIORITIES = {"Normal", "High", "Urgent"};
+    private static final String[] DEVICES = {"Badge", "VCS", "Edge", "XMPP", "Vocera"};
+    private static final String[] RESPONSES = {"Accept, Escalate", "Accept, Decline", "Accept, Call Back", "No Response"};
+    private static final String[] ROLES = {"Nurse", "Charge Nurse", "Nurse Buddy", "Supervisor", "Tech"};
+    private static final String[] TEAMS = {"Code Team", "Rapid Response", "Pharmacy Team", "Transport"};
+    private static final String[] XML_STATES = {"Primary", "Secondary", "Tertiary"};
+
+    private static final String[] UNIT_HEADERS = {
+        "Facility",
+        "Common Unit Name",
+        "Nurse Call Configuration Group",
+        "Patient Monitoring Configuration Group",
+        "Orders Configuration Group",
+        CUSTOM_TAB_NAME + " Configuration Group",
+        "No Caregiver Group",
+        "Comments"
+    };
+
+    private static final String[] FLOW_HEADERS = {
+        "In scope",
+        "Configuration Group",
+        "Common Alert or Alarm Name",
+        "Sending System Alert Name",
+        "Priority",
+        "Device - A",
+        "Device - B",
+        "Ringtone Device - A",
+        "Response Options",
+        "Break Through DND",
+        "Engage 6.6+: Escalate after all declines or 1 decline",
+        "Engage/Edge Display Time (Time to Live) (Device - A)",
+        "Genie Enunciation",
+        "EMDAN Compliant? (Y/N)",
+        "Time to 1st Recipient", "1st Recipient",
+        "Time to 2nd Recipient", "2nd Recipient",
+        "Time to 3rd Recipient", "3rd Recipient",
+        "Time to 4th Recipient", "4th Recipient",
+        "Time to 5th Recipient", "5th Recipient"
+    };
+
+    private final long seed;
+    private final int facilities;
+    private final int unitsPerFacility;
+    private final int alarmsPerGroup;
+
+    /**
+     * @param seed             random seed; identical seeds yield identical files
+     * @param facilities       number of facilities to generate
+     * @param unitsPerFacility number of units per facility (grouped three to a config group)
+     * @param alarmsPerGroup   number of alarm rows per config group on each flow sheet
+     */
+    public SyntheticDataGenerator(long seed, int facilities, int unitsPerFacility, int alarmsPerGroup) {
+        if (facilities < 1 || unitsPerFacility < 1 || alarmsPerGroup < 1) {
+            throw new IllegalArgumentException("facilities, units and alarms must all be at least 1");
+        }
+        this.seed = seed;
+        this.facilities = facilities;
+        this.unitsPerFacility = unitsPerFacility;
+        this.alarmsPerGroup = alarmsPerGroup;
+    }
+
+    /**
+     * Custom tab mappings matching the generated workbook, for {@code ExcelParserV5.setCustomTabMappings}.
+     */
+    public static Map<String, String> customTabMappings() {
+        Map<String, String> mappings = new LinkedHashMap<>();
+        mappings.put(CUSTOM_TAB_NAME, "Clinicals");
+        return mappings;
+    }
+
+    // ---------- NDW workbook ----------
+
+    /**
+     * Writes an NDW workbook with Unit Breakdown, Nurse Call, Patient Monitoring, Order and custom tabs.
+     * Rows are streamed so very large workbooks do not have to fit in memory.
+     */
+    public void writeWorkbook(File file) throws IOException {
+        Random random = new Random(seed);
+        SXSSFWorkbook wb = new SXSSFWorkbook(200);
+        try (OutputStream os = new FileOutputStream(file)) {
+            writeUnitSheet(wb.createSheet("Unit Breakdown"), random);
+            writeFlowSheet(wb.createSheet("Nurse Call"), random, "Nurse", NURSE_ALARMS, true);
+            writeFlowSheet(wb.createSheet("Patient Monitoring"), random, "PM", CLINICAL_ALARMS, false);
+            writeFlowSheet(wb.createSheet("Order"), random, "Orders", ORDER_ALARMS, false);
+            writeFlowSheet(wb.createSheet(CUSTOM_TAB_NAME), random, "IV", CUSTOM_ALARMS, false);
+            wb.write(os);
+        } finally {
+            wb.dispose();
+            wb.close();
+        }
+    }
+
+    private void writeUnitSheet(Sheet sheet, Random random) {
+        writeRow(sheet.createRow(0), UNIT_HEADERS);
+        int r = 1;
+        for (int f = 1; f <= facilities; f++) {
+            String facility = facilityName(f);
+            for (int u = 1; u <= unitsPerFacility; u++) {
+                int g = groupIndex(u);
+                String comment = random.nextInt(5) == 0 ? "Synthetic unit " + r : "";
+                writeRow(sheet.createRow(r++), new String[] {
+                    facility,
+                    unitName(f, u),
+                    groupName(f, "Nurse", g),
+                    groupName(f, "PM", g),
+                    groupName(f, "Orders", g),
+                    groupName(f, "IV", g),
+                    "F" + f + " No Caregiver",
+                    comment
+                });
+            }
+        }
+    }
+
+    private void writeFlowSheet(Sheet sheet, Random random, String groupPrefix, String[] alarms, boolean nurseSide) {
+        writeRow(sheet.createRow(0), FLOW_HEADERS);
+        int r = 1;
+        int groups = groupIndex(unitsPerFacility);
+        for (int f = 1; f <= facilities; f++) {
+            for (int g = 1; g <= groups; g++) {
+                String group = groupName(f, groupPrefix, g);
+                for (int a = 0; a < alarmsPerGroup; a++) {
+                    writeRow(sheet.createRow(r++), flowValues(random, group, alarmName(alarms, a), nurseSide));
+                }
+            }
+        }
+    }
+
+    private static String[] flowValues(Random random, String group, String alarm, boolean nurseSide) {
+        String[] v = new String[FLOW_HEADERS.length];
+        v[0] = random.nextInt(10) == 0 ? "FALSE" : "TRUE";
+        v[1] = group;
+        v[2] = alarm;
+        v[3] = alarm.toUpperCase(Locale.ROOT).replace(' ', '_');
+        v[4] = pick(random, PRIORITIES);
+        v[5] = pick(random, DEVICES);
+        v[6] = random.nextInt(4) == 0 ? pick(random, DEVICES) : "";
+        v[7] = "Tone " + (1 + random.nextInt(8));
+        v[8] = pick(random, RESPONSES);
+        v[9] = random.nextBoolean() ? "Yes" : "No";
+        v[10] = random.nextBoolean() ? "All declines" : "1 decline";
+        v[11] = String.valueOf(5 + random.nextInt(30));
+        v[12] = random.nextBoolean() ? "Yes" : "No";
+        // Roughly one in eight Nurse Call rows is EMDAN compliant and gets moved to Clinicals on load
+        v[13] = nurseSide && random.nextInt(8) == 0 ? "Y" : "N";
+
+        int depth = 1 + random.nextInt(5);
+        for (int level = 0; level < 5; level++) {
+            int col = 14 + level * 2;
+            if (level >= depth) {
+                v[col] = "";
+                v[col + 1] = "";
+                continue;
+            }
+            v[col] = level == 0 ? "Immediate" : String.valueOf(30 * level + 30 * random.nextInt(3));
+            v[col + 1] = recipient(random, level);
+        }
+        return v;
+    }
+
+    private static String recipient(Random random, int level) {
+        if (level > 0 && random.nextInt(4) == 0) {
+            return "VGroup: " + pick(random, TEAMS);
+        }
+        String role = pick(random, ROLES);
+        return random.nextInt(3) == 0 ? "VAssign: [Room] " + role : "VAssign: " + role;
+    }
+
+    private static void writeRow(Row row, String[] values) {
+        for (int c = 0; c < values.length; c++) {
+            if (values[c] != null && !values[c].isEmpty()) {
+                row.createCell(c).setCellValue(values[c]);
+            }
+        }
+    }
+
+    // ---------- Engage XML ----------
+
+    /**
+     * Writes an Engage XML package with NurseCalls, Clinicals and Orders datasets. Every
+     * facility/unit/alarm gets a DataUpdate CREATE rule and one to three VMP SEND rules
+     * (Primary, Secondary, Tertiary); each dataset also gets global DataUpdate escalation rules.
+     * Alarms are named like the workbook rows, so {@code alarmsPerGroup} scales both alike.
+     */
+    public void writeEngageXml(File file) throws IOException {
+        Random random = new Random(seed);
+        try (Writer w = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            w.write("<package version-major=\"1\" version-minor=\"0\">\n");
+            w.write("  <meta-data>\n    <name>Synthetic Engage Package (seed " + seed + ")</name>\n  </meta-data>\n");
+            w.write("  <contents>\n    <datasets>\n");
+            writeDataset(w, "NurseCalls", NURSE_ALARMS);
+            writeDataset(w, "Clinicals", CLINICAL_ALARMS);
+            writeDataset(w, "Orders", ORDER_ALARMS);
+            w.write("    </datasets>\n    <interfaces>\n");
+            writeRules(w, random, "NurseCalls", NURSE_ALARMS);
+            writeRules(w, random, "Clinicals", CLINICAL_ALARMS);
+            writeRules(w, random, "Orders", ORDER_ALARMS);
+            w.write("    </interfaces>\n  </contents>\n</package>\n");
+        }
+    }
+
+    private void writeDataset(Writer w, String dataset, String[] alarms) throws IOException {
+        w.write("      <dataset active=\"true\">\n        <name>" + dataset + "</name>\n");
+        for (int a = 0; a < alarmsPerGroup; a++) {
+            String alarm = alarmName(alarms, a);
+            writeView(w, alarmView(alarm), "equal", "alert_type", alarm);
+        }
+        for (int f = 1; f <= facilities; f++) {
+            writeView(w, "Facility_F" + f, "equal", "bed.room.facility.name", facilityName(f));
+            for (int u = 1; u <= unitsPerFacility; u++) {
+                writeView(w, "Unit_F" + f + "_U" + u, "equal", "bed.room.unit.name", unitName(f, u));
+            }
+        }
+        for (String state : XML_STATES) {
+            writeView(w, stateView(state), "equal", "state", state);
+        }
+        for (String role : ROLES) {
+            writeView(w, roleView(role), "equal", "bed.locs.assignments.role.name", role.toUpperCase(Locale.ROOT));
+        }
+        writeView(w, "Alarm_has_not_been_responded_to", "equal", "responded", "false");
+        writeView(w, "Alarm_is_active", "equal", "active", "true");
+        w.write("      </dataset>\n");
+    }
+
+    private static void writeView(Writer w, String name, String relation, String path, String value) throws IOException {
+        w.write("        <view>\n          <name>" + xml(name) + "</name>\n");
+        w.write("          <filter relation=\"" + relation + "\">\n");
+        w.write("            <path>" + path + "</path>\n            <value>" + xml(value) + "</value>\n");
+        w.write("          </filter>\n        </view>\n");
+    }
+
+    private void writeRules(Writer w, Random random, String dataset, String[] alarms) throws IOException {
+        for (int f = 1; f <= facilities; f++) {
+            for (int u = 1; u <= unitsPerFacility; u++) {
+                String facilityView = "Facility_F" + f;
+                String unitView = "Unit_F" + f + "_U" + u;
+                for (int a = 0; a < alarmsPerGroup; a++) {
+                    String alarm = alarmName(alarms, a);
+                    String scope = alarm + " | " + facilityName(f) + " | " + unitName(f, u);
+
+                    w.write("      <interface component=\"DataUpdate\">\n        <name>DataUpdate</name>\n");
+                    writeRule(w, dataset, "CREATE TRIGGER | " + scope, true, 0,
+                        List.of(alarmView(alarm), facilityView, unitView),
+                        "{\"parameters\":[{\"path\":\"state\",\"value\":\"Primary\"}]}");
+                    w.write("      </interface>\n");
+
+                    w.write("      <interface component=\"VMP\">\n        <name>VMP</name>\n");
+                    int depth = 1 + random.nextInt(XML_STATES.length);
+                    for (int s = 0; s < depth; s++) {
+                        String state = XML_STATES[s];
+                        List<String> views = new ArrayList<>(List.of(
+                            "Alarm_has_not_been_responded_to", alarmView(alarm), "Alarm_is_active",
+                            stateView(state), facilityView, unitView));
+                        String destination;
+                        if (s > 0 && random.nextInt(4) == 0) {
+                            destination = "g-" + pick(random, TEAMS).replace(" ", "");
+                        } else {
+                            views.add(roleView(pick(random, ROLES)));
+                            destination = "#{bed.locs.assignments.usr.devices.lines.number}";
+                        }
+                        writeRule(w, dataset, "SEND " + state.toUpperCase(Locale.ROOT) + " | " + scope, false, 0, views,
+                            "{\"destination\":\"" + destination + "\",\"priority\":\"" + (1 + random.nextInt(3)) + "\"}");
+                    }
+                    w.write("      </interface>\n");
+                }
+            }
+        }
+
+        w.write("      <interface component=\"DataUpdate\">\n        <name>DataUpdate Escalation</name>\n");
+        for (int s = 0; s < XML_STATES.length - 1; s++) {
+            String from = XML_STATES[s];
+            String to = XML_STATES[s + 1];
+            int delay = 60 + 30 * s;
+            writeRule(w, dataset, "ESCALATE TO " + to.toUpperCase(Locale.ROOT) + " | " + delay + " SEC | ALL ALARMS", false, delay,
+                List.of("Alarm_has_not_been_responded_to", "Alarm_is_active", stateView(from)),
+                "{\"parameters\":[{\"path\":\"state\",\"value\":\"" + to + "\"}]}");
+        }
+        w.write("      </interface>\n");
+    }
+
+    private static void writeRule(Writer w, String dataset, String purpose, boolean create, int deferSeconds,
+                                  List<String> views, String settings) throws IOException {
+        w.write("        <rule active=\"true\" dataset=\"" + dataset + "\">\n");
+        w.write("          <purpose>" + xml(purpose) + "</purpose>\n");
+        w.write(create ? "          <trigger-on create=\"true\"/>\n" : "          <trigger-on update=\"true\"/>\n");
+        if (deferSeconds > 0) {
+            w.write("          <defer-delivery-by>" + deferSeconds + "</defer-delivery-by>\n");
+        }
+        w.write("          <condition>\n");
+        for (String view : views) {
+            w.write("            <view>" + xml(view) + "</view>\n");
+        }
+        w.write("          </condition>\n");
+        w.write("          <settings>" + xml(settings) + "</settings>\n");
+        w.write("        </rule>\n");
+    }
+
+    // ---------- Naming helpers ----------
+
+    private static int groupIndex(int unit) {
+        return (unit - 1) / UNITS_PER_GROUP + 1;
+    }
+
+    private static String facilityName(int f) {
+        return String.format("Facility %02d", f);
+    }
+
+    private static String unitName(int f, int u) {
+        return String.format("F%d Unit %03d", f, u);
+    }
+
+    private static String groupName(int f, String prefix, int g) {
+        return "F" + f + " " + prefix + " Group " + g;
+    }
+
+    private static String alarmName(String[] alarms, int index) {
+        String base = alarms[index % alarms.length];
+        int round = index / alarms.length;
+        return round == 0 ? base : base + " " + (round + 1);
+    }
+
+    private static String alarmView(String alarm) {
+        return "Alarm_included_in_" + alarm.replace(' ', '_');
+    }
+
+    private static String stateView(String state) {
+        return "Alarm_is_at_" + state.toLowerCase(Locale.ROOT) + "_state";
+    }
+
+    private static String roleView(String role) {
+        return "Role_caregiver_" + role.toUpperCase(Locale.ROOT).replace(' ', '_') + "_is_online";
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String xml(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.exceljson.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.exceljson.ExcelParserV5;
+import com.example.exceljson.XmlParser;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verifies that synthetic datasets are reproducible and load cleanly through both parsers.
+ */
+class SyntheticDataGeneratorTest {
+
+    @Test
+    void workbookLoadsWithAllFlowTypesAndCustomTab() throws Exception {
+        Path dir = Files.createTempDirectory("synthetic-ndw");
+        File workbook = dir.resolve("ndw.xlsx").toFile();
+        new SyntheticDataGenerator(11L, 2, 6, 4).writeWorkbook(workbook);
+
+        ExcelParserV5 parser = new ExcelParserV5();
+        parser.setCustomTabMappings(SyntheticDataGenerator.customTabMappings());
+        parser.load(workbook);
+
+        // 2 facilities x 6 units; 2 config groups per facility x 4 alarms per sheet
+        assertEquals(12, parser.units.size());
+        assertEquals(16, parser.nurseCalls.size() + parser.getEmdanMovedCount());
+        assertEquals(16 + 16 + parser.getEmdanMovedCount(), parser.clinicals.size(),
+            "Clinicals should include Patient Monitoring, custom tab and EMDAN rows");
+        assertEquals(16, parser.orders.size());
+        assertEquals(16, parser.getCustomTabRowCounts().get(SyntheticDataGenerator.CUSTOM_TAB_NAME));
+        assertTrue(parser.nurseCalls.stream().anyMatch(f -> f.r1.startsWith("VAssign")));
+
+        String nurseJson = ExcelParserV5.pretty(parser.buildNurseCallsJson());
+        assertTrue(nurseJson.contains("Facility 01"));
+    }
+
+    @Test
+    void engageXmlLoadsWithEscalationStates() throws Exception {
+        Path dir = Files.createTempDirectory("synthetic-xml");
+        File xmlFile = dir.resolve("engage.xml").toFile();
+        new SyntheticDataGenerator(5L, 1, 3, 2).writeEngageXml(xmlFile);
+
+        XmlParser xml = new XmlParser();
+        xml.load(xmlFile);
+
+        assertFalse(xml.getNurseCalls().isEmpty());
+        assertFalse(xml.getClinicals().isEmpty());
+        assertFalse(xml.getOrders().isEmpty());
+        assertFalse(xml.getUnits().isEmpty());
+    }
+
+    @Test
+    void xmlAlarmsScaleLikeTheWorkbook() throws Exception {
+        Path dir = Files.createTempDirectory("synthetic-scale");
+        File xmlFile = dir.resolve("engage.xml").toFile();
+        File workbook = dir.resolve("ndw.xlsx").toFile();
+        // More alarms per group than there are base alarm names
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(3L, 1, 3, 12);
+        generator.writeEngageXml(xmlFile);
+        generator.writeWorkbook(workbook);
+
+        XmlParser xml = new XmlParser();
+        xml.load(xmlFile);
+        Set<String> xmlAlarms = xml.getNurseCalls().stream().map(f -> f.alarmName).collect(Collectors.toSet());
+
+        ExcelParserV5 parser = new ExcelParserV5();
+        parser.setCustomTabMappings(SyntheticDataGenerator.customTabMappings());
+        parser.load(workbook);
+        Set<String> workbookAlarms = parser.nurseCalls.stream().map(f -> f.alarmName).collect(Collectors.toSet());
+
+        assertEquals(12, xmlAlarms.size());
+        assertTrue(xmlAlarms.contains("Patient Call 2"));
+        assertTrue(xmlAlarms.containsAll(workbookAlarms), "Workbook alarms should all appear in the XML");
+    }
+
+    @Test
+    void outputDoesNotDependOnDefaultLocale() throws Exception {
+        Path dir = Files.createTempDirectory("synthetic-locale");
+        File root = dir.resolve("root.xml").toFile();
+        File turkish = dir.resolve("tr.xml").toFile();
+        Locale previous = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.ROOT);
+            new SyntheticDataGenerator(7L, 1, 3, 4).writeEngageXml(root);
+            Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+            new SyntheticDataGenerator(7L, 1, 3, 4).writeEngageXml(turkish);
+        } finally {
+            Locale.setDefault(previous);
+        }
+
+        assertArrayEquals(Files.readAllBytes(root.toPath()), Files.readAllBytes(turkish.toPath()));
+    }
+
+    @Test
+    void sameSeedProducesIdenticalXml() throws Exception {
+        Path dir = Files.createTempDirectory("synthetic-seed");
+        File first = dir.resolve("a.xml").toFile();
+        File second = dir.resolve("b.xml").toFile();
+        new SyntheticDataGenerator(99L, 2, 4, 3).writeEngageXml(first);
+        new SyntheticDataGenerator(99L, 2, 4, 3).writeEngageXml(second);
+
+        assertArrayEquals(Files.readAllBytes(first.toPath()), Files.readAllBytes(second.toPath()));
+    }
+}
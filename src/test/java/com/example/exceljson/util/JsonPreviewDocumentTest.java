@@ -0,0 +1,123 @@
+package com.example.exceljson.util;
+
+import com.example.exceljson.ExcelParserV5;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The temp-file backed preview document must read back exactly the text that was written,
+ * find one section per flow, and map visible rows around collapsed sections.
+ */
+class JsonPreviewDocumentTest {
+
+    private static Map<String, Object> nurseCallsJson() {
+        ExcelParserV5 parser = new ExcelParserV5();
+        ExcelParserV5.UnitRow unit = new ExcelParserV5.UnitRow();
+        unit.facility = "General";
+        unit.unitNames = "ICU";
+        unit.nurseGroup = "Group A";
+        parser.units.add(unit);
+        parser.rebuildUnitMaps();
+        for (String alarm : List.of("Bed Exit", "Toilet", "Code Blue")) {
+            ExcelParserV5.FlowRow row = new ExcelParserV5.FlowRow();
+            row.configGroup = "Group A";
+            row.alarmName = alarm;
+            row.priorityRaw = "High";
+            row.deviceA = "Badge";
+            row.r1 = "VAssign: Nurse";
+            parser.nurseCalls.add(row);
+        }
+        return parser.buildNurseCallsJson();
+    }
+
+    @Test
+    void linesAndSectionsMatchPrettyText() throws Exception {
+        Map<String, Object> json = nurseCallsJson();
+        String pretty = ExcelParserV5.pretty(json);
+        String[] expected = pretty.split("\n", -1);
+
+        try (JsonPreviewDocument doc = JsonPreviewDocument.create(out -> {
+            out.write("=== NurseCalls JSON ===\n\n");
+            ExcelParserV5.writePretty(json, out);
+        })) {
+            assertEquals(expected.length + 2, doc.lineCount());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], doc.line(i + 2), "line " + i);
+            }
+
+            // 3 alarm definitions + 3 delivery flows
+            assertEquals(6, doc.sections().size());
+            JsonPreviewDocument.Section last = doc.sections().get(5);
+            assertTrue(last.title().contains("Code Blue"), last.title());
+            assertTrue(doc.line(last.start()).trim().startsWith("{"));
+            assertTrue(doc.line(last.end()).trim().startsWith("}"));
+            assertEquals(5, doc.sectionIndexAt(last.start()));
+            assertEquals(-1, doc.sectionIndexAt(last.start() + 1));
+
+            int toilet = doc.find("toilet", 0);
+            assertTrue(doc.line(toilet).contains("Toilet"));
+            assertEquals(toilet, doc.find("TOILET", toilet), "search starts at the given line");
+            assertTrue(doc.find("toilet", toilet + 1) != toilet, "next match");
+            assertEquals(0, doc.find("=== NurseCalls", doc.lineCount() - 1), "search wraps around");
+            assertEquals(-1, doc.find("not in the document", 0));
+        }
+    }
+
+    @Test
+    void cancelledSearchLeavesDocumentReadable() throws Exception {
+        try (JsonPreviewDocument doc = JsonPreviewDocument.create(out -> {
+            for (int i = 0; i < 10_000; i++) out.write("line " + i + "\n");
+        })) {
+            AtomicInteger chunks = new AtomicInteger();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            AtomicInteger result = new AtomicInteger();
+            Thread search = new Thread(() -> result.set(doc.find("not in the document", 0, () -> {
+                // Cancel after a few chunks have been read
+                if (chunks.incrementAndGet() == 3) cancelled.set(true);
+                return cancelled.get();
+            })));
+            search.start();
+            search.join(5_000);
+
+            assertEquals(-1, result.get());
+            assertEquals(3, chunks.get(), "search stops at the first check after cancelling");
+            assertEquals("line 0", doc.line(0));
+            assertEquals("line 9999", doc.line(9_999));
+            assertEquals(42, doc.find("line 42", 0));
+        }
+    }
+
+    @Test
+    void visibleLinesSkipCollapsedSections() throws Exception {
+        try (JsonPreviewDocument doc = JsonPreviewDocument.create(out -> ExcelParserV5.writePretty(nurseCallsJson(), out))) {
+            BitSet collapsed = new BitSet();
+            collapsed.set(1);
+            collapsed.set(4);
+            JsonPreviewPane.VisibleLines visible = new JsonPreviewPane.VisibleLines(doc, collapsed);
+
+            JsonPreviewDocument.Section s1 = doc.sections().get(1);
+            JsonPreviewDocument.Section s4 = doc.sections().get(4);
+            int hidden = (s1.end() - s1.start()) + (s4.end() - s4.start());
+            assertEquals(doc.lineCount() - hidden, visible.size());
+
+            int previous = -1;
+            for (int row = 0; row < visible.size(); row++) {
+                int line = visible.get(row);
+                assertTrue(line > previous);
+                assertFalse(line > s1.start() && line <= s1.end());
+                assertFalse(line > s4.start() && line <= s4.end());
+                assertEquals(row, visible.indexOf(line));
+                previous = line;
+            }
+            assertEquals(doc.lineCount() - 1, previous);
+            assertEquals(-1, visible.indexOf(s4.start() + 1));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.exceljson.util;
+
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.geometry.Orientation;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.ScrollBar;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.skin.TableColumnHeader;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The pinned column must follow the horizontal scroll offset, in the header and in every
+ * visible row, while the other columns scroll normally. These tests need a display (or a
+ * headless glass platform such as Monocle on the test classpath); without one the JavaFX
+ * toolkit cannot start and they are skipped, not run.
+ */
+class PinnedColumnsTableSkinTest {
+
+    @BeforeAll
+    static void startToolkit() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            Platform.startup(started::countDown);
+        } catch (IllegalStateException alreadyRunning) {
+            started.countDown();
+        } catch (RuntimeException | UnsatisfiedLinkError unavailable) {
+            Assumptions.abort("JavaFX toolkit unavailable: " + unavailable);
+        }
+        Assumptions.assumeTrue(started.await(10, TimeUnit.SECONDS), "JavaFX toolkit did not start");
+    }
+
+    private static TableView<Integer> newTable() {
+        TableView<Integer> table = new TableView<>(
+            FXCollections.observableArrayList(IntStream.range(0, 50).boxed().toList()));
+        for (int c = 0; c < 10; c++) {
+            int column = c;
+            TableColumn<Integer, String> col = new TableColumn<>("Column " + c);
+            col.setPrefWidth(100);
+            col.setCellValueFactory(d -> new SimpleStringProperty("r" + d.getValue() + "c" + column));
+            table.getColumns().add(col);
+        }
+        // A fixed cell size makes the row skin drop cells scrolled out of view
+        table.setFixedCellSize(24);
+        PinnedColumnsTableSkin.install(table, 1);
+        new Scene(table, 300, 200);
+        layout(table);
+        return table;
+    }
+
+    private static void layout(TableView<?> table) {
+        table.applyCss();
+        table.layout();
+    }
+
+    private static ScrollBar horizontalBar(TableView<?> table) {
+        return table.lookupAll(".scroll-bar").stream()
+            .filter(n -> n instanceof ScrollBar bar && bar.getOrientation() == Orientation.HORIZONTAL)
+            .map(ScrollBar.class::cast)
+            .findFirst().orElseThrow();
+    }
+
+    private static TableColumnHeader header(TableView<?> table, TableColumn<?, ?> column) {
+        return table.lookupAll(".column-header").stream()
+            .filter(n -> n instanceof TableColumnHeader h && h.getTableColumn() == column)
+            .map(TableColumnHeader.class::cast)
+            .findFirst().orElseThrow();
+    }
+
+    private static List<TableCell<?, ?>> cells(TableView<?> table, TableColumn<?, ?> column) {
+        return table.lookupAll(".table-cell").stream()
+            .filter(n -> n instanceof TableCell<?, ?> cell && cell.getTableColumn() == column && !cell.isEmpty())
+            .<TableCell<?, ?>>map(n -> (TableCell<?, ?>) n)
+            .toList();
+    }
+
+    /** Runs {@code action} on the FX thread, rethrowing its assertion failures here. */
+    private static <T> T onFxThread(Callable<T> action) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Platform.runLater(() -> {
+            try {
+                result.complete(action.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        try {
+            return result.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error error) throw error;
+            throw (Exception) e.getCause();
+        }
+    }
+
+    @Test
+    void pinnedColumnFollowsHorizontalScroll() throws Exception {
+        onFxThread(() -> {
+            TableView<Integer> table = newTable();
+            TableColumn<Integer, ?> pinned = table.getColumns().get(0);
+            TableColumn<Integer, ?> scrolling = table.getColumns().get(3);
+            ScrollBar bar = horizontalBar(table);
+            assertTrue(bar.getMax() > 250, "Ten 100px columns should overflow a 300px table");
+
+            bar.setValue(250);
+            layout(table);
+
+            TableColumnHeader pinnedHeader = header(table, pinned);
+            assertEquals(250, pinnedHeader.getTranslateX(), 0.01);
+            assertTrue(pinnedHeader.getStyleClass().contains(PinnedColumnsTableSkin.PINNED_STYLE_CLASS));
+            assertEquals(0, header(table, scrolling).getTranslateX(), 0.01);
+
+            // The pinned cells were culled with their column and must have been put back
+            List<TableCell<?, ?>> pinnedCells = cells(table, pinned);
+            assertFalse(pinnedCells.isEmpty(), "Pinned cells should stay in the visible rows");
+            for (Node cell : pinnedCells) {
+                assertEquals(250, cell.getTranslateX(), 0.01);
+                assertTrue(cell.getStyleClass().contains(PinnedColumnsTableSkin.PINNED_STYLE_CLASS));
+            }
+            for (Node cell : cells(table, scrolling)) {
+                assertEquals(0, cell.getTranslateX(), 0.01);
+                assertFalse(cell.getStyleClass().contains(PinnedColumnsTableSkin.PINNED_STYLE_CLASS));
+            }
+
+            bar.setValue(0);
+            layout(table);
+            assertEquals(0, header(table, pinned).getTranslateX(), 0.01);
+            for (Node cell : cells(table, pinned)) {
+                assertEquals(0, cell.getTranslateX(), 0.01);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void pinnedColumnsAreNotReorderable() throws Exception {
+        onFxThread(() -> {
+            TableView<Integer> table = newTable();
+            assertFalse(table.getColumns().get(0).isReorderable());
+            assertTrue(table.getColumns().get(1).isReorderable());
+            return null;
+        });
+    }
+}